@@ -1,6 +1,7 @@
 package io.github.paulszefer.gui;
 
 import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.RandomStreams;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.layout.StackPane;
@@ -33,12 +34,13 @@ public class AnimationPane extends StackPane {
     /** The background fill of the animation pane. */
     private static final Paint BACKGROUND_FILL = Color.DEEPSKYBLUE;
 
-    /** Random number generator. */
-    private static final Random GENERATOR = new Random();
+    /** The random number streams used to place the guppies. */
+    private final RandomStreams streams;
 
     /** Creates the GUI pane that will display the animation for the simulation. */
     public AnimationPane() {
 
+        streams = new RandomStreams();
         addBackground();
         addForeground();
     }
@@ -99,7 +101,8 @@ public class AnimationPane extends StackPane {
             poolStartX = poolShiftX * (i + 1) + i * poolSize;
             graphicsContext.fillRect(poolStartX, poolStartY, poolSize, poolSize);
 
-            // draw guppies
+            // draw guppies, placed the same way each time the pool is drawn
+            Random generator = streams.stream(RandomStreams.Phase.ANIMATION, 0, i);
             graphicsContext.setFill(guppyFill);
             int guppies = ecosystem.getPools().get(i).getPopulation();
             final int maxToDraw = 1000;
@@ -107,9 +110,9 @@ public class AnimationPane extends StackPane {
                 guppies = maxToDraw;
             }
             for (int j = 0; j < guppies; j++) {
-                graphicsContext.fillOval(GENERATOR.nextDouble() * poolSize * guppyAreaFactor
+                graphicsContext.fillOval(generator.nextDouble() * poolSize * guppyAreaFactor
                                                  + poolSize * guppyBorderFactor + poolStartX,
-                                         GENERATOR.nextDouble() * poolSize * guppyAreaFactor
+                                         generator.nextDouble() * poolSize * guppyAreaFactor
                                                  + poolSize * guppyBorderFactor + poolStartY,
                                          guppySize, guppySize);
             }
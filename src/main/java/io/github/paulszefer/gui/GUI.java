@@ -1,15 +1,21 @@
 package io.github.paulszefer.gui;
 
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.SimulationListener;
+import io.github.paulszefer.sim.WeekReport;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 
 /**
  * Defines the GUI for the Simulation.
+ * <p>
+ * The GUI subscribes to the simulation and redraws the animation whenever the current week
+ * changes.
  *
  * @author Paul Szefer
  * @version 1.0
  */
-public class GUI {
+public class GUI implements SimulationListener {
 
     /** The root pane of the GUI. */
     private Pane root;
@@ -58,4 +64,25 @@ public class GUI {
 
         return optionPane;
     }
+
+    @Override
+    public void weekSimulated(WeekReport report, Ecosystem ecosystem) {
+
+        // the animation is redrawn when the current week changes
+    }
+
+    @Override
+    public void simulationLoaded(String name, Ecosystem ecosystem) {
+
+        if (SimulationApplication.getStage() != null) {
+            SimulationApplication.getStage().setTitle(name);
+        }
+        animationPane.updateState(ecosystem);
+    }
+
+    @Override
+    public void weekChanged(int week, Ecosystem ecosystem) {
+
+        animationPane.updateState(ecosystem);
+    }
 }
@@ -9,6 +9,10 @@ import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.io.File;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -32,6 +36,9 @@ public class OptionPane extends StackPane {
     /** The height of the option pane. */
     private static final double HEIGHT = SimulationApplication.HEIGHT * PROPORTION;
 
+    /** The file extension of saved snapshots. */
+    private static final String SNAPSHOT_EXTENSION = "snapshot";
+
     /** The background fill of the animation pane. */
     private static final Paint BACKGROUND_FILL = Color.WHITE;
 
@@ -78,8 +85,11 @@ public class OptionPane extends StackPane {
         // Control configurations
         loadButton.setOnAction((actionEvent) -> {
 
-            boolean fileLoaded = SimulationApplication.getSimulation().loadFile();
+            File file = chooseFile();
+            boolean fileLoaded =
+                    file != null && SimulationApplication.getSimulation().loadFile(file);
             if (fileLoaded) {
+                saveButton.setDisable(false);
                 backButton.setDisable(true);
                 playPauseButton.setDisable(false);
                 stepButton.setDisable(false);
@@ -91,6 +101,13 @@ public class OptionPane extends StackPane {
                 // reportButton.setDisable(false);
             }
         });
+        saveButton.setOnAction((actionEvent) -> {
+
+            File file = chooseSaveFile();
+            if (file != null) {
+                SimulationApplication.getSimulation().saveFile(file);
+            }
+        });
         saveButton.setDisable(true);
 
         backButton.setOnAction((actionEvent) -> {
@@ -158,4 +175,44 @@ public class OptionPane extends StackPane {
 
         getChildren().add(foreground);
     }
+
+    /**
+     * Asks the user to choose a simulation data file.
+     *
+     * @return the chosen file or null if no file was selected
+     */
+    private File chooseFile() {
+
+        JFileChooser fileChooser = new JFileChooser();
+        FileNameExtensionFilter filter = new FileNameExtensionFilter("File type", "xml", "json",
+                                                                     "txt", SNAPSHOT_EXTENSION);
+        fileChooser.addChoosableFileFilter(filter);
+        if (fileChooser.showOpenDialog(new JFrame()) == JFileChooser.APPROVE_OPTION) {
+            return fileChooser.getSelectedFile();
+        }
+        System.out.println("No file selected");
+        return null;
+    }
+
+    /**
+     * Asks the user to choose a file to save the current week of the simulation to.
+     *
+     * @return the chosen file or null if no file was selected
+     */
+    private File chooseSaveFile() {
+
+        JFileChooser fileChooser = new JFileChooser();
+        FileNameExtensionFilter filter = new FileNameExtensionFilter("Snapshot",
+                                                                     SNAPSHOT_EXTENSION);
+        fileChooser.setFileFilter(filter);
+        if (fileChooser.showSaveDialog(new JFrame()) == JFileChooser.APPROVE_OPTION) {
+            File file = fileChooser.getSelectedFile();
+            if (!file.getName().contains(".")) {
+                file = new File(file.getPath() + "." + SNAPSHOT_EXTENSION);
+            }
+            return file;
+        }
+        System.out.println("No file selected");
+        return null;
+    }
 }
@@ -1,5 +1,6 @@
 package io.github.paulszefer.gui;
 
+import io.github.paulszefer.sim.ConsoleReporter;
 import io.github.paulszefer.sim.Simulation;
 import javafx.application.Application;
 import javafx.scene.Scene;
@@ -48,6 +49,8 @@ public class SimulationApplication extends Application {
     @Override
     public void start(Stage primaryStage) {
         stage = primaryStage;
+        simulation.addListener(gui);
+        simulation.addListener(new ConsoleReporter());
         Scene scene = new Scene(gui.getRoot());
         // TODO - configure GUI.css to add custom styling
         // scene.getStylesheets().add(SimulationApplication.class.getResource("GUI.css")
@@ -0,0 +1,175 @@
+package io.github.paulszefer.sim;
+
+import java.util.Arrays;
+
+/**
+ * Counts the living creatures of a pool by age in weeks.
+ * <p>
+ * The histogram is kept up to date as creatures age, are born and die, so the median, any
+ * percentile and the full distribution of ages can be read in time proportional to the maximum
+ * age instead of the population.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class AgeHistogram {
+
+    /** The number of creatures of each age. */
+    private long[] counts;
+
+    /** The total number of creatures counted. */
+    private long total;
+
+    /** Creates an empty histogram sized for guppies. */
+    public AgeHistogram() {
+
+        counts = new long[Guppy.MAXIMUM_AGE + 1];
+    }
+
+    /**
+     * Counts a creature of the given age.
+     *
+     * @param age
+     *         the age in weeks
+     */
+    public void add(int age) {
+
+        add(age, 1);
+    }
+
+    /**
+     * Counts the given number of creatures of the given age.
+     *
+     * @param age
+     *         the age in weeks
+     * @param number
+     *         the number of creatures
+     */
+    public void add(int age, long number) {
+
+        if (age >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(age + 1, counts.length * 2));
+        }
+        counts[age] += number;
+        total += number;
+    }
+
+    /**
+     * Stops counting a creature of the given age.
+     *
+     * @param age
+     *         the age in weeks
+     */
+    public void remove(int age) {
+
+        remove(age, 1);
+    }
+
+    /**
+     * Stops counting the given number of creatures of the given age.
+     *
+     * @param age
+     *         the age in weeks
+     * @param number
+     *         the number of creatures
+     */
+    public void remove(int age, long number) {
+
+        counts[age] -= number;
+        total -= number;
+    }
+
+    /** Stops counting every creature. */
+    public void clear() {
+
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    /**
+     * Returns the total number of creatures counted.
+     *
+     * @return the total number of creatures counted
+     */
+    public long getTotal() {
+
+        return total;
+    }
+
+    /**
+     * Returns the number of creatures of the given age.
+     *
+     * @param age
+     *         the age in weeks
+     *
+     * @return the number of creatures of the given age
+     */
+    public long getCount(int age) {
+
+        return age >= 0 && age < counts.length ? counts[age] : 0;
+    }
+
+    /**
+     * Returns the number of creatures of each age, indexed by age in weeks.
+     *
+     * @return the number of creatures of each age
+     */
+    public long[] getDistribution() {
+
+        int length = counts.length;
+        while (length > 0 && counts[length - 1] == 0) {
+            length--;
+        }
+        return Arrays.copyOf(counts, length);
+    }
+
+    /**
+     * Returns the age of the creature at the given position when the ages are in ascending
+     * order.
+     *
+     * @param rank
+     *         the zero-based position of the creature
+     *
+     * @return the age at the given position or 0 if there are no creatures
+     */
+    public int getAgeAtRank(long rank) {
+
+        long remaining = Math.max(0, Math.min(rank, total - 1));
+        for (int age = 0; age < counts.length; age++) {
+            if (remaining < counts[age]) {
+                return age;
+            }
+            remaining -= counts[age];
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the given percentile of the ages using the nearest-rank method.
+     *
+     * @param percentile
+     *         the percentile, from 0 to 100
+     *
+     * @return the age at the given percentile or 0 if there are no creatures
+     */
+    public int getPercentile(double percentile) {
+
+        final double hundred = 100.0;
+        double clamped = Math.max(0.0, Math.min(hundred, percentile));
+        long rank = (long) Math.ceil(clamped / hundred * total) - 1;
+        return getAgeAtRank(rank);
+    }
+
+    /**
+     * Creates and returns a copy of this histogram.
+     *
+     * @return a copy of this histogram
+     */
+    public AgeHistogram copy() {
+
+        AgeHistogram histogramCopy = new AgeHistogram();
+        histogramCopy.counts = counts.clone();
+        histogramCopy.total = total;
+        return histogramCopy;
+    }
+}
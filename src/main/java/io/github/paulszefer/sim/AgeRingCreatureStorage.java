@@ -0,0 +1,907 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stores guppies individually in buckets by age, arranged in a ring with one bucket for each week
+ * a guppy can live.
+ * <p>
+ * The guppies in a bucket share their age, so ages are not stored per guppy. Ageing rotates the
+ * start of the ring by one bucket: the bucket of the oldest guppies, who reach the maximum age,
+ * is taken off the ring whole and its slot becomes the empty bucket of the newborns. No guppy is
+ * visited, so ageing costs time proportional to the number of ages rather than to the population.
+ * <p>
+ * The statistics of the living guppies are also kept per bucket, so ageing rebuilds them from one
+ * tally per age. Every other operation treats each guppy as the other individual storages do, with
+ * the same statistics and the same crowding rules.
+ * <p>
+ * The guppies are kept in order of age, oldest first, and in the order they were added within an
+ * age. Guppies only become objects when they leave the storage, and the list returned by
+ * {@link #getCreatures()} is a snapshot; changes to it are not reflected in the storage.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class AgeRingCreatureStorage implements CreatureStorage {
+
+    /** The initial capacity of the columns of a bucket. */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /** The number of buckets in the ring, one for each age a living guppy can have. */
+    private static final int AGES = Guppy.MAXIMUM_AGE;
+
+    /** The buckets of the ring; the bucket of age a is at (head + a) modulo the ring's length. */
+    private final Bucket[] ring;
+
+    /** The position in the ring of the bucket of the newborn guppies. */
+    private int head;
+
+    /** The buckets of dead guppies at or past the maximum age, oldest first. */
+    private Bucket[] expired;
+
+    /** The age of the guppies in each expired bucket. */
+    private int[] expiredAges;
+
+    /** The number of expired buckets. */
+    private int expiredCount;
+
+    /** The number of guppies stored. */
+    private long size;
+
+    /** The number of dead guppies that have not been removed. */
+    private long dead;
+
+    /** The statistics of the living guppies. */
+    private LivingAggregates aggregates;
+
+    /** Creates an empty storage. */
+    public AgeRingCreatureStorage() {
+
+        ring = new Bucket[AGES];
+        for (int i = 0; i < AGES; i++) {
+            ring[i] = new Bucket();
+        }
+        expired = new Bucket[1];
+        expiredAges = new int[1];
+        aggregates = new LivingAggregates();
+    }
+
+    @Override
+    public long size() {
+
+        return size;
+    }
+
+    @Override
+    public List<Creature> getCreatures() {
+
+        List<Creature> creatures = new ArrayList<>((int) Math.min(size, Integer.MAX_VALUE));
+        for (int position = 0; position < bucketCount(); position++) {
+            Bucket bucket = bucketAt(position);
+            int age = ageAt(position);
+            for (int i = 0; i < bucket.size; i++) {
+                creatures.add(toGuppy(bucket, i, age));
+            }
+        }
+        return creatures;
+    }
+
+    @Override
+    public void setCreatures(List<Creature> creatures) {
+
+        if (creatures != null) {
+            clear();
+            addAll(creatures);
+        }
+    }
+
+    @Override
+    public boolean add(Creature creature) {
+
+        if (creature == null) {
+            return false;
+        }
+        Health health = creature.getHealth();
+        append(health.getAge(), health.getCoefficient(), health.isAlive(), creature.isFemale(),
+               creature.getIdentification().getGeneration(),
+               creature.getIdentification().getIdentifier());
+        return true;
+    }
+
+    @Override
+    public boolean addAll(List<Creature> creatures) {
+
+        if (creatures == null) {
+            return false;
+        }
+        for (Creature creature : creatures) {
+            add(creature);
+        }
+        return !creatures.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The ring is rotated by one bucket and the bucket of the guppies reaching the maximum age is
+     * killed and kept aside until the dead are removed, without visiting any guppy.
+     */
+    @Override
+    public long incrementAges() {
+
+        for (int i = 0; i < expiredCount; i++) {
+            expiredAges[i]++;
+        }
+
+        int oldest = (head + AGES - 1) % AGES;
+        Bucket expiring = ring[oldest];
+        if (expiring.size > 0) {
+            dead += expiring.living;
+            expiring.killAll();
+            addExpired(expiring, AGES);
+            ring[oldest] = new Bucket();
+        }
+        head = oldest;
+        rebuildAggregates();
+
+        return dead;
+    }
+
+    @Override
+    public long applyNutrientCoefficient(double nutrientCoefficient, Random generator) {
+
+        int countDied = 0;
+
+        for (int position = 0; position < bucketCount(); position++) {
+            Bucket bucket = bucketAt(position);
+            int age = ageAt(position);
+            for (int i = 0; i < bucket.size; i++) {
+                if (bucket.alive.get(i) && generator.nextDouble() > nutrientCoefficient) {
+                    kill(bucket, i, age);
+                    countDied++;
+                }
+            }
+        }
+
+        return countDied;
+    }
+
+    @Override
+    public long removeDead() {
+
+        long creaturesRemoved = dead;
+
+        for (Bucket bucket : ring) {
+            if (bucket.living < bucket.size) {
+                bucket.removeDead();
+            }
+        }
+        Arrays.fill(expired, 0, expiredCount, null);
+        expiredCount = 0;
+        size -= creaturesRemoved;
+        dead = 0;
+
+        return creaturesRemoved;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rules are those of {@link Guppy#spawn()}. Only the buckets of guppies old enough to spawn
+     * are visited, and the offspring are added to the bucket of the newborns.
+     */
+    @Override
+    public long spawn(Random generator) {
+
+        long newFry = 0;
+        int identifier = -1;
+
+        for (int position = 0; position < bucketCount(); position++) {
+            if (ageAt(position) < Guppy.MINIMUM_SPAWN_AGE) {
+                break;
+            }
+            Bucket bucket = bucketAt(position);
+            for (int i = bucket.female.nextSetBit(0); i >= 0 && i < bucket.size;
+                    i = bucket.female.nextSetBit(i + 1)) {
+
+                int numberOfOffspring = 0;
+                if (generator.nextDouble() <= Guppy.SPAWN_CHANCE) {
+                    numberOfOffspring = generator.nextInt(Guppy.MAXIMUM_OFFSPRING + 1);
+                }
+
+                if (numberOfOffspring > 0 && identifier < 0) {
+                    identifier = highestIdentifier();
+                }
+                double offspringCoefficient = Guppy.getOffspringCoefficient(
+                        bucket.coefficients[i]);
+                int offspringGeneration = bucket.generations[i] + 1;
+                for (int j = 0; j < numberOfOffspring; j++) {
+                    append(0, offspringCoefficient, true, generator.nextBoolean(),
+                           offspringGeneration, ++identifier);
+                }
+                newFry += numberOfOffspring;
+            }
+        }
+
+        return newFry;
+    }
+
+    /**
+     * Returns the highest identification number of the guppies.
+     *
+     * @return the highest identification number, or 0 if there are no guppies
+     */
+    private int highestIdentifier() {
+
+        int highest = 0;
+        for (int position = 0; position < bucketCount(); position++) {
+            Bucket bucket = bucketAt(position);
+            for (int i = 0; i < bucket.size; i++) {
+                highest = Math.max(highest, bucket.identifiers[i]);
+            }
+        }
+        return highest;
+    }
+
+    @Override
+    public List<Creature> removeWeakest(double volumeLitres) {
+
+        return extractWeakest(volumeLitres).getCreatures();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The guppies are considered in storage order using {@link CrowdingSelector}, and only the
+     * buckets that lose guppies are compacted.
+     */
+    @Override
+    public AgeRingCreatureStorage extractWeakest(double volumeLitres) {
+
+        AgeRingCreatureStorage weakest = new AgeRingCreatureStorage();
+        if (CrowdingSelector.fits(aggregates.getVolumeNeededMl(), volumeLitres)) {
+            return weakest;
+        }
+
+        int count = (int) size;
+        int buckets = bucketCount();
+        double[] candidateCoefficients = new double[count];
+        double[] volumes = new double[count];
+        int[] positions = new int[count];
+        int[] starts = new int[buckets + 1];
+        double volumeNeeded = 0.0;
+        int index = 0;
+        for (int position = 0; position < buckets; position++) {
+            Bucket bucket = bucketAt(position);
+            double volume = Guppy.getVolumeNeededAtAge(ageAt(position));
+            starts[position] = index;
+            for (int i = 0; i < bucket.size; i++) {
+                candidateCoefficients[index] = bucket.coefficients[i];
+                positions[index] = position;
+                if (bucket.alive.get(i)) {
+                    volumes[index] = volume;
+                    volumeNeeded += volume;
+                }
+                index++;
+            }
+        }
+        starts[buckets] = index;
+
+        int[] selected = CrowdingSelector.selectWeakest(candidateCoefficients, volumes, count,
+                                                        volumeNeeded, volumeLitres);
+        if (selected.length == 0) {
+            return weakest;
+        }
+
+        Bucket[] ordered = new Bucket[buckets];
+        for (int position = 0; position < buckets; position++) {
+            ordered[position] = bucketAt(position);
+        }
+        BitSet removed = new BitSet(count);
+        for (int selectedIndex : selected) {
+            int position = positions[selectedIndex];
+            Bucket bucket = ordered[position];
+            int age = ageAt(position);
+            int i = selectedIndex - starts[position];
+            boolean isAlive = bucket.alive.get(i);
+            weakest.append(age, bucket.coefficients[i], isAlive, bucket.female.get(i),
+                           bucket.generations[i], bucket.identifiers[i]);
+            if (isAlive) {
+                uncount(bucket, i, age);
+            } else {
+                dead--;
+            }
+            removed.set(selectedIndex);
+        }
+
+        for (int position = 0; position < buckets; position++) {
+            int first = removed.nextSetBit(starts[position]);
+            if (first >= 0 && first < starts[position + 1]) {
+                ordered[position].remove(removed, starts[position]);
+            }
+        }
+        size -= selected.length;
+
+        return weakest;
+    }
+
+    @Override
+    public long applyTransportMortality(Random generator) {
+
+        int countDied = 0;
+
+        for (int position = 0; position < bucketCount(); position++) {
+            Bucket bucket = bucketAt(position);
+            int age = ageAt(position);
+            for (int i = bucket.alive.nextSetBit(0); i >= 0 && i < bucket.size;
+                    i = bucket.alive.nextSetBit(i + 1)) {
+                if (generator.nextDouble() >= bucket.coefficients[i]) {
+                    kill(bucket, i, age);
+                    countDied++;
+                }
+            }
+        }
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the given storage is also an age ring, each survivor is appended to the bucket of its
+     * age directly, without creating guppy objects.
+     */
+    @Override
+    public long transportSurvivors(CreatureStorage destination, Random generator) {
+
+        if (!(destination instanceof AgeRingCreatureStorage)) {
+            long countDied = applyTransportMortality(generator);
+            removeDead();
+            destination.absorb(this);
+            return countDied;
+        }
+
+        AgeRingCreatureStorage other = (AgeRingCreatureStorage) destination;
+        long countDied = 0;
+
+        for (int position = 0; position < bucketCount(); position++) {
+            Bucket bucket = bucketAt(position);
+            int age = ageAt(position);
+            for (int i = bucket.alive.nextSetBit(0); i >= 0 && i < bucket.size;
+                    i = bucket.alive.nextSetBit(i + 1)) {
+                if (generator.nextDouble() < bucket.coefficients[i]) {
+                    other.append(age, bucket.coefficients[i], true, bucket.female.get(i),
+                                 bucket.generations[i], bucket.identifiers[i]);
+                } else {
+                    countDied++;
+                }
+            }
+        }
+        clear();
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The part of each guppy is drawn from an {@link AliasTable}, and the guppy is appended to the
+     * bucket of its age in that part directly.
+     */
+    @Override
+    public CreatureStorage[] split(double[] weights, Random generator) {
+
+        AliasTable table = new AliasTable(weights);
+        AgeRingCreatureStorage[] parts = new AgeRingCreatureStorage[weights.length];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new AgeRingCreatureStorage();
+        }
+
+        for (int position = 0; position < bucketCount(); position++) {
+            Bucket bucket = bucketAt(position);
+            int age = ageAt(position);
+            for (int i = 0; i < bucket.size; i++) {
+                boolean isAlive = bucket.alive.get(i);
+                AgeRingCreatureStorage part = parts[isAlive ? table.sample(generator) : 0];
+                part.append(age, bucket.coefficients[i], isAlive, bucket.female.get(i),
+                            bucket.generations[i], bucket.identifiers[i]);
+            }
+        }
+        clear();
+
+        return parts;
+    }
+
+    @Override
+    public long killAll() {
+
+        for (Bucket bucket : ring) {
+            bucket.killAll();
+        }
+        aggregates.clear();
+        dead = size;
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The guppies of another storage of this kind or of a columnar storage are appended directly,
+     * without creating guppy objects.
+     */
+    @Override
+    public void absorb(CreatureStorage other) {
+
+        if (other instanceof AgeRingCreatureStorage) {
+            AgeRingCreatureStorage buckets = (AgeRingCreatureStorage) other;
+            for (int position = 0; position < buckets.bucketCount(); position++) {
+                Bucket bucket = buckets.bucketAt(position);
+                int age = buckets.ageAt(position);
+                for (int i = 0; i < bucket.size; i++) {
+                    append(age, bucket.coefficients[i], bucket.alive.get(i),
+                           bucket.female.get(i), bucket.generations[i], bucket.identifiers[i]);
+                }
+            }
+            return;
+        }
+        if (other instanceof ColumnarCreatureStorage) {
+            ColumnarCreatureStorage columns = (ColumnarCreatureStorage) other;
+            int count = (int) columns.size();
+            for (int i = 0; i < count; i++) {
+                append(columns.getAges()[i], columns.getCoefficients()[i],
+                       columns.getAlive().get(i), columns.getFemale().get(i),
+                       columns.getGenerations()[i], columns.getIdentifiers()[i]);
+            }
+            return;
+        }
+        addAll(other.viewCreatures());
+    }
+
+    @Override
+    public double getVolumeNeededMl() {
+
+        return aggregates.getVolumeNeededMl();
+    }
+
+    @Override
+    public double getAverageAgeInWeeks() {
+
+        return aggregates.getAverageAgeInWeeks();
+    }
+
+    @Override
+    public double getAverageHealthCoefficient() {
+
+        return aggregates.getAverageHealthCoefficient();
+    }
+
+    @Override
+    public double getFemaleProportion() {
+
+        return aggregates.getFemaleProportion();
+    }
+
+    @Override
+    public AgeHistogram getAgeHistogram() {
+
+        return aggregates.getAgeHistogram();
+    }
+
+    @Override
+    public AgeRingCreatureStorage copy() {
+
+        AgeRingCreatureStorage storageCopy = new AgeRingCreatureStorage();
+        storageCopy.absorb(this);
+        return storageCopy;
+    }
+
+    /**
+     * Returns the guppies as columns, in storage order.
+     *
+     * @return a columnar storage holding copies of the guppies
+     */
+    ColumnarCreatureStorage toColumns() {
+
+        ColumnarCreatureStorage columns = new ColumnarCreatureStorage();
+        for (int position = 0; position < bucketCount(); position++) {
+            Bucket bucket = bucketAt(position);
+            int age = ageAt(position);
+            for (int i = 0; i < bucket.size; i++) {
+                columns.append(age, bucket.coefficients[i], bucket.alive.get(i),
+                               bucket.female.get(i), bucket.generations[i],
+                               bucket.identifiers[i]);
+            }
+        }
+        return columns;
+    }
+
+    /** Removes all of the guppies. */
+    public void clear() {
+
+        for (int i = 0; i < AGES; i++) {
+            ring[i] = new Bucket();
+        }
+        head = 0;
+        Arrays.fill(expired, 0, expiredCount, null);
+        expiredCount = 0;
+        size = 0;
+        dead = 0;
+        aggregates.clear();
+    }
+
+    /**
+     * Appends a guppy with the given attributes to the bucket of its age.
+     * <p>
+     * A guppy that has already reached the maximum age is added dead.
+     *
+     * @param age
+     *         the age of the guppy in weeks
+     * @param coefficient
+     *         the health coefficient of the guppy
+     * @param isAlive
+     *         whether the guppy is alive
+     * @param isFemale
+     *         whether the guppy is female
+     * @param generation
+     *         the generation number of the guppy
+     * @param identifier
+     *         the identification number of the guppy
+     */
+    private void append(int age, double coefficient, boolean isAlive, boolean isFemale,
+                        int generation, int identifier) {
+
+        boolean living = isAlive && age < AGES;
+        Bucket bucket = age < AGES ? ring[(head + age) % AGES] : expiredBucket(age);
+        bucket.append(coefficient, living, isFemale, generation, identifier);
+        size++;
+        if (living) {
+            count(bucket, bucket.size - 1, age);
+        } else {
+            dead++;
+        }
+    }
+
+    /**
+     * Returns the expired bucket of the given age, adding an empty one if there is none.
+     *
+     * @param age
+     *         the age of the guppies in the bucket, at least the maximum age
+     *
+     * @return the expired bucket of the given age
+     */
+    private Bucket expiredBucket(int age) {
+
+        for (int i = 0; i < expiredCount; i++) {
+            if (expiredAges[i] == age) {
+                return expired[i];
+            }
+        }
+        Bucket bucket = new Bucket();
+        addExpired(bucket, age);
+        return bucket;
+    }
+
+    /**
+     * Adds the given bucket to the expired buckets, keeping them ordered oldest first.
+     *
+     * @param bucket
+     *         the bucket to add
+     * @param age
+     *         the age of the guppies in the bucket
+     */
+    private void addExpired(Bucket bucket, int age) {
+
+        if (expiredCount == expired.length) {
+            expired = Arrays.copyOf(expired, expiredCount * 2);
+            expiredAges = Arrays.copyOf(expiredAges, expiredCount * 2);
+        }
+        int position = expiredCount;
+        while (position > 0 && expiredAges[position - 1] < age) {
+            expired[position] = expired[position - 1];
+            expiredAges[position] = expiredAges[position - 1];
+            position--;
+        }
+        expired[position] = bucket;
+        expiredAges[position] = age;
+        expiredCount++;
+    }
+
+    /**
+     * Returns the number of buckets, expired or in the ring.
+     *
+     * @return the number of buckets
+     */
+    private int bucketCount() {
+
+        return expiredCount + AGES;
+    }
+
+    /**
+     * Returns the bucket at the given position in storage order, which runs through the expired
+     * buckets and then the ring from the oldest age to the newborns.
+     *
+     * @param position
+     *         the position of the bucket in storage order
+     *
+     * @return the bucket at the given position
+     */
+    private Bucket bucketAt(int position) {
+
+        if (position < expiredCount) {
+            return expired[position];
+        }
+        return ring[(head + ageAt(position)) % AGES];
+    }
+
+    /**
+     * Returns the age of the guppies in the bucket at the given position in storage order.
+     *
+     * @param position
+     *         the position of the bucket in storage order
+     *
+     * @return the age of the guppies in the bucket in weeks
+     */
+    private int ageAt(int position) {
+
+        if (position < expiredCount) {
+            return expiredAges[position];
+        }
+        return AGES - 1 - (position - expiredCount);
+    }
+
+    /**
+     * Kills the living guppy at the given index of the given bucket, keeping it until the dead are
+     * removed.
+     *
+     * @param bucket
+     *         the bucket of the guppy
+     * @param index
+     *         the index of the guppy in the bucket
+     * @param age
+     *         the age of the guppies in the bucket
+     */
+    private void kill(Bucket bucket, int index, int age) {
+
+        uncount(bucket, index, age);
+        bucket.alive.clear(index);
+        dead++;
+    }
+
+    /**
+     * Counts the living guppy at the given index of the given bucket in the statistics.
+     *
+     * @param bucket
+     *         the bucket of the guppy
+     * @param index
+     *         the index of the guppy in the bucket
+     * @param age
+     *         the age of the guppies in the bucket
+     */
+    private void count(Bucket bucket, int index, int age) {
+
+        double coefficient = bucket.coefficients[index];
+        boolean isFemale = bucket.female.get(index);
+        bucket.living++;
+        bucket.females += isFemale ? 1 : 0;
+        bucket.coefficientSum += coefficient;
+        aggregates.add(age, coefficient, isFemale, Guppy.getVolumeNeededAtAge(age), 1);
+    }
+
+    /**
+     * Stops counting the living guppy at the given index of the given bucket in the statistics.
+     *
+     * @param bucket
+     *         the bucket of the guppy
+     * @param index
+     *         the index of the guppy in the bucket
+     * @param age
+     *         the age of the guppies in the bucket
+     */
+    private void uncount(Bucket bucket, int index, int age) {
+
+        double coefficient = bucket.coefficients[index];
+        boolean isFemale = bucket.female.get(index);
+        bucket.living--;
+        bucket.females -= isFemale ? 1 : 0;
+        bucket.coefficientSum = bucket.living == 0 ? 0.0 : bucket.coefficientSum - coefficient;
+        aggregates.remove(age, coefficient, isFemale, Guppy.getVolumeNeededAtAge(age), 1);
+    }
+
+    /** Rebuilds the statistics of the living guppies from the tallies of the buckets. */
+    private void rebuildAggregates() {
+
+        aggregates.clear();
+        for (int age = 0; age < AGES; age++) {
+            Bucket bucket = ring[(head + age) % AGES];
+            if (bucket.living == 0) {
+                continue;
+            }
+            double coefficient = bucket.coefficientSum / bucket.living;
+            double volume = Guppy.getVolumeNeededAtAge(age);
+            aggregates.add(age, coefficient, true, volume, bucket.females);
+            aggregates.add(age, coefficient, false, volume, bucket.living - bucket.females);
+        }
+    }
+
+    /**
+     * Creates a guppy object from the attributes at the given index of the given bucket.
+     *
+     * @param bucket
+     *         the bucket of the guppy
+     * @param index
+     *         the index of the guppy in the bucket
+     * @param age
+     *         the age of the guppies in the bucket
+     *
+     * @return the guppy at the given index
+     */
+    private static Guppy toGuppy(Bucket bucket, int index, int age) {
+
+        Health health = new Health(Guppy.MAXIMUM_AGE, bucket.alive.get(index), age,
+                                   bucket.coefficients[index]);
+        Identification identification = new Identification(Guppy.GENUS, Guppy.SPECIES,
+                                                            bucket.identifiers[index],
+                                                            bucket.generations[index]);
+        return new Guppy(identification, health, bucket.female.get(index));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        AgeRingCreatureStorage other = (AgeRingCreatureStorage) o;
+
+        return size == other.size && toColumns().equals(other.toColumns());
+    }
+
+    @Override
+    public int hashCode() {
+
+        return toColumns().hashCode();
+    }
+
+    /** Holds the guppies of a single age as parallel columns, in the order they were added. */
+    private static final class Bucket {
+
+        /** The number of guppies in the bucket. */
+        private int size;
+
+        /** The health coefficient of each guppy. */
+        private double[] coefficients = new double[INITIAL_CAPACITY];
+
+        /** The generation number of each guppy. */
+        private int[] generations = new int[INITIAL_CAPACITY];
+
+        /** The identification number of each guppy. */
+        private int[] identifiers = new int[INITIAL_CAPACITY];
+
+        /** Whether each guppy is alive. */
+        private final BitSet alive = new BitSet();
+
+        /** Whether each guppy is female. */
+        private final BitSet female = new BitSet();
+
+        /** The number of living guppies. */
+        private long living;
+
+        /** The number of living female guppies. */
+        private long females;
+
+        /** The sum of the health coefficients of the living guppies. */
+        private double coefficientSum;
+
+        /**
+         * Appends a guppy with the given attributes, without counting it.
+         *
+         * @param coefficient
+         *         the health coefficient of the guppy
+         * @param isAlive
+         *         whether the guppy is alive
+         * @param isFemale
+         *         whether the guppy is female
+         * @param generation
+         *         the generation number of the guppy
+         * @param identifier
+         *         the identification number of the guppy
+         */
+        private void append(double coefficient, boolean isAlive, boolean isFemale,
+                            int generation, int identifier) {
+
+            if (size == coefficients.length) {
+                coefficients = Arrays.copyOf(coefficients, size * 2);
+                generations = Arrays.copyOf(generations, size * 2);
+                identifiers = Arrays.copyOf(identifiers, size * 2);
+            }
+            coefficients[size] = coefficient;
+            generations[size] = generation;
+            identifiers[size] = identifier;
+            alive.set(size, isAlive);
+            female.set(size, isFemale);
+            size++;
+        }
+
+        /** Marks every guppy as dead and clears the tallies of the living. */
+        private void killAll() {
+
+            alive.clear();
+            living = 0;
+            females = 0;
+            coefficientSum = 0.0;
+        }
+
+        /** Removes the dead guppies, keeping the order of the living. */
+        private void removeDead() {
+
+            int kept = 0;
+            for (int i = alive.nextSetBit(0); i >= 0 && i < size; i = alive.nextSetBit(i + 1)) {
+                moveTo(i, kept);
+                kept++;
+            }
+            truncate(kept);
+        }
+
+        /**
+         * Removes the guppies whose indices, offset by the given amount, are in the given set,
+         * keeping the order of the rest.
+         *
+         * @param removed
+         *         the set of offset indices of the guppies to remove
+         * @param offset
+         *         the offset of the first guppy of the bucket in the set
+         */
+        private void remove(BitSet removed, int offset) {
+
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (!removed.get(offset + i)) {
+                    moveTo(i, kept);
+                    kept++;
+                }
+            }
+            truncate(kept);
+        }
+
+        /**
+         * Moves the guppy at the given index to the given lower index, overwriting the guppy
+         * there.
+         *
+         * @param from
+         *         the index of the guppy to move
+         * @param to
+         *         the index to move the guppy to
+         */
+        private void moveTo(int from, int to) {
+
+            if (from != to) {
+                coefficients[to] = coefficients[from];
+                generations[to] = generations[from];
+                identifiers[to] = identifiers[from];
+                alive.set(to, alive.get(from));
+                female.set(to, female.get(from));
+            }
+        }
+
+        /**
+         * Drops the guppies from the given index onwards.
+         *
+         * @param newSize
+         *         the number of guppies to keep
+         */
+        private void truncate(int newSize) {
+
+            alive.clear(newSize, size);
+            female.clear(newSize, size);
+            size = newSize;
+        }
+    }
+}
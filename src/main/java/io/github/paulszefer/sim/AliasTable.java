@@ -0,0 +1,143 @@
+package io.github.paulszefer.sim;
+
+import java.util.Random;
+
+/**
+ * Draws outcomes in proportion to fixed weights in constant time, using Vose's alias method.
+ * <p>
+ * The weights are split into columns of equal probability, each holding part of at most two
+ * outcomes: its own and an alias. A draw picks a column uniformly and then one of its two
+ * outcomes, so it costs one int and one double from the generator however many outcomes there
+ * are. Building the table takes time proportional to the number of outcomes.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class AliasTable {
+
+    /** The weight of each outcome. */
+    private final double[] weights;
+
+    /** The sum of the weights. */
+    private final double totalWeight;
+
+    /** The probability that a draw of each column gives its own outcome rather than its alias. */
+    private final double[] probabilities;
+
+    /** The outcome given by each column when it does not give its own. */
+    private final int[] aliases;
+
+    /**
+     * Builds a table of the given weights.
+     * <p>
+     * Negative and undefined weights count as zero.
+     *
+     * @param weights
+     *         the weight of each outcome
+     */
+    AliasTable(double[] weights) {
+
+        int size = weights.length;
+        this.weights = new double[size];
+        double total = 0.0;
+        for (int i = 0; i < size; i++) {
+            this.weights[i] = weights[i] > 0.0 && weights[i] < Double.POSITIVE_INFINITY
+                              ? weights[i] : 0.0;
+            total += this.weights[i];
+        }
+        totalWeight = total;
+        probabilities = new double[size];
+        aliases = new int[size];
+        if (total <= 0.0) {
+            return;
+        }
+
+        // columns holding less than their share are topped up from those holding more
+        double[] scaled = new double[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; i++) {
+            scaled[i] = this.weights[i] * size / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probabilities[less] = scaled[less];
+            aliases[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // whatever is left is full up to rounding
+        while (largeCount > 0) {
+            int column = large[--largeCount];
+            probabilities[column] = 1.0;
+            aliases[column] = column;
+        }
+        while (smallCount > 0) {
+            int column = small[--smallCount];
+            probabilities[column] = 1.0;
+            aliases[column] = column;
+        }
+    }
+
+    /**
+     * Returns the number of outcomes.
+     *
+     * @return the number of outcomes
+     */
+    int size() {
+
+        return weights.length;
+    }
+
+    /**
+     * Returns whether no outcome has any weight, in which case nothing can be drawn.
+     *
+     * @return true if every weight is zero; false otherwise
+     */
+    boolean isEmpty() {
+
+        return totalWeight <= 0.0;
+    }
+
+    /**
+     * Returns the weights of the outcomes, without copying them.
+     *
+     * @return the weight of each outcome, with invalid weights as zero
+     */
+    double[] getWeights() {
+
+        return weights;
+    }
+
+    /**
+     * Draws an outcome in proportion to the weights.
+     *
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the index of the outcome drawn
+     *
+     * @throws IllegalStateException
+     *         if every weight is zero
+     */
+    int sample(Random generator) {
+
+        if (isEmpty()) {
+            throw new IllegalStateException("No outcome has any weight");
+        }
+        int column = generator.nextInt(weights.length);
+        return generator.nextDouble() < probabilities[column] ? column : aliases[column];
+    }
+}
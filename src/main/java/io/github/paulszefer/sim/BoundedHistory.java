@@ -0,0 +1,293 @@
+package io.github.paulszefer.sim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps a bounded number of weeks in memory and spills the rest to a local binary file.
+ * <p>
+ * The weeks in memory are limited by count and by size, measured as the number of bytes they
+ * take when written. When either limit is exceeded, the least recently used weeks are written to
+ * the spill file, if they are not there already, and dropped from memory. A spilled week is read
+ * back into memory when it is next requested. Every week remains available.
+ * <p>
+ * The spill file is only appended to, since the state of a week never changes once added. It is
+ * deleted when the history is closed.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class BoundedHistory implements History, Closeable {
+
+    /** The position of a week that has not been spilled. */
+    private static final long NOT_SPILLED = -1;
+
+    /** The largest number of weeks to keep in memory. */
+    private final int maximumWeeks;
+
+    /** The largest total size of the weeks to keep in memory, in bytes. */
+    private final long maximumBytes;
+
+    /** The file that spilled weeks are written to. */
+    private final Path spillFile;
+
+    /** The channel of the spill file, or null until the first week is spilled. */
+    private FileChannel channel;
+
+    /** The weeks in memory, from least to most recently used. */
+    private final LinkedHashMap<Integer, Ecosystem> resident;
+
+    /** The size of each week in bytes. */
+    private long[] sizes;
+
+    /** The position of each week in the spill file, or NOT_SPILLED. */
+    private long[] positions;
+
+    /** The number of weeks stored. */
+    private int size;
+
+    /** The total size of the weeks in memory, in bytes. */
+    private long residentBytes;
+
+    /**
+     * Creates an empty history that spills to a new temporary file.
+     *
+     * @param maximumWeeks
+     *         the largest number of weeks to keep in memory
+     * @param maximumBytes
+     *         the largest total size of the weeks to keep in memory, in bytes
+     *
+     * @throws UncheckedIOException
+     *         if the temporary file cannot be created
+     */
+    public BoundedHistory(int maximumWeeks, long maximumBytes) {
+
+        this(maximumWeeks, maximumBytes, createTemporaryFile());
+    }
+
+    /**
+     * Creates an empty history that spills to the given file.
+     * <p>
+     * Any existing contents of the file are discarded.
+     *
+     * @param maximumWeeks
+     *         the largest number of weeks to keep in memory
+     * @param maximumBytes
+     *         the largest total size of the weeks to keep in memory, in bytes
+     * @param spillFile
+     *         the file to spill weeks to
+     *
+     * @throws IllegalArgumentException
+     *         if either limit is not positive
+     */
+    public BoundedHistory(int maximumWeeks, long maximumBytes, Path spillFile) {
+
+        if (maximumWeeks <= 0 || maximumBytes <= 0) {
+            throw new IllegalArgumentException("The limits of the history must be positive");
+        }
+        this.maximumWeeks = maximumWeeks;
+        this.maximumBytes = maximumBytes;
+        this.spillFile = spillFile;
+        resident = new LinkedHashMap<>(16, 0.75f, true);
+        sizes = new long[16];
+        positions = new long[16];
+    }
+
+    /**
+     * Returns the number of weeks currently in memory.
+     *
+     * @return the number of weeks currently in memory
+     */
+    public int getResidentWeeks() {
+
+        return resident.size();
+    }
+
+    /**
+     * Returns the total size of the weeks currently in memory, in bytes.
+     *
+     * @return the total size of the weeks currently in memory
+     */
+    public long getResidentBytes() {
+
+        return residentBytes;
+    }
+
+    /**
+     * Returns the file that spilled weeks are written to.
+     *
+     * @return the file that spilled weeks are written to
+     */
+    public Path getSpillFile() {
+
+        return spillFile;
+    }
+
+    @Override
+    public int size() {
+
+        return size;
+    }
+
+    @Override
+    public void add(Ecosystem ecosystem) {
+
+        if (size == sizes.length) {
+            sizes = Arrays.copyOf(sizes, size * 2);
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        int week = size++;
+        sizes[week] = EcosystemCodec.encodedSize(ecosystem);
+        positions[week] = NOT_SPILLED;
+        makeResident(week, ecosystem);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException
+     *         if a week cannot be spilled or read back
+     */
+    @Override
+    public Ecosystem get(int week) {
+
+        if (week < 0 || week >= size) {
+            throw new IndexOutOfBoundsException("Week " + week + " is not stored");
+        }
+        Ecosystem ecosystem = resident.get(week);
+        if (ecosystem != null) {
+            return ecosystem;
+        }
+
+        try {
+            channel.position(positions[week]);
+            ecosystem = EcosystemCodec.read(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Week " + week + " could not be read back", e);
+        }
+        makeResident(week, ecosystem);
+        return ecosystem;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException
+     *         if the spill file cannot be emptied
+     */
+    @Override
+    public void clear() {
+
+        resident.clear();
+        residentBytes = 0;
+        size = 0;
+        if (channel != null) {
+            try {
+                channel.truncate(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("The spill file could not be emptied", e);
+            }
+        }
+    }
+
+    /**
+     * Closes and deletes the spill file.
+     *
+     * @throws IOException
+     *         if the spill file cannot be closed or deleted
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        Files.deleteIfExists(spillFile);
+    }
+
+    /**
+     * Puts the given week in memory and evicts the least recently used weeks over the limits.
+     *
+     * @param week
+     *         the week to put in memory
+     * @param ecosystem
+     *         the state of the week
+     *
+     * @throws UncheckedIOException
+     *         if a week cannot be spilled
+     */
+    private void makeResident(int week, Ecosystem ecosystem) {
+
+        resident.put(week, ecosystem);
+        residentBytes += sizes[week];
+
+        Iterator<Map.Entry<Integer, Ecosystem>> eldest = resident.entrySet().iterator();
+        while (resident.size() > 1
+                && (resident.size() > maximumWeeks || residentBytes > maximumBytes)) {
+            Map.Entry<Integer, Ecosystem> entry = eldest.next();
+            int evicted = entry.getKey();
+            if (positions[evicted] == NOT_SPILLED) {
+                spill(evicted, entry.getValue());
+            }
+            residentBytes -= sizes[evicted];
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Appends the given week to the spill file.
+     *
+     * @param week
+     *         the week to spill
+     * @param ecosystem
+     *         the state of the week
+     *
+     * @throws UncheckedIOException
+     *         if the week cannot be written
+     */
+    private void spill(int week, Ecosystem ecosystem) {
+
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(spillFile, StandardOpenOption.CREATE,
+                                           StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                           StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            long position = channel.size();
+            channel.position(position);
+            EcosystemCodec.write(ecosystem, channel);
+            positions[week] = position;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Week " + week + " could not be spilled", e);
+        }
+    }
+
+    /**
+     * Creates a temporary file to spill weeks to.
+     *
+     * @return the temporary file
+     *
+     * @throws UncheckedIOException
+     *         if the file cannot be created
+     */
+    private static Path createTemporaryFile() {
+
+        try {
+            Path file = Files.createTempFile("ecosystem-history", ".bin");
+            file.toFile().deleteOnExit();
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("The spill file could not be created", e);
+        }
+    }
+}
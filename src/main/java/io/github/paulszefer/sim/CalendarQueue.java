@@ -0,0 +1,121 @@
+package io.github.paulszefer.sim;
+
+import java.util.Arrays;
+
+/**
+ * Holds events until the week they are due, in a calendar of buckets keyed by week.
+ * <p>
+ * An event is kept in the bucket of its week modulo the number of buckets, so scheduling an event
+ * and taking the events of a week touch a single bucket. When every event is due within as many
+ * weeks as there are buckets, a bucket holds only the events of one week; events due later wait
+ * in their bucket until it comes round to their week.
+ * <p>
+ * Events are ints, whose meaning is up to the owner of the queue.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class CalendarQueue {
+
+    /** The initial capacity of each bucket. */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /** The events of each bucket. */
+    private final int[][] events;
+
+    /** The week each event of each bucket is due. */
+    private final int[][] weeks;
+
+    /** The number of events in each bucket. */
+    private final int[] sizes;
+
+    /** The number of events in the queue. */
+    private long size;
+
+    /**
+     * Creates an empty queue with the given number of buckets.
+     *
+     * @param buckets
+     *         the number of buckets, which should cover the weeks ahead that events are scheduled
+     */
+    CalendarQueue(int buckets) {
+
+        events = new int[buckets][INITIAL_CAPACITY];
+        weeks = new int[buckets][INITIAL_CAPACITY];
+        sizes = new int[buckets];
+    }
+
+    /**
+     * Returns the number of events in the queue.
+     *
+     * @return the number of events waiting to be taken
+     */
+    long size() {
+
+        return size;
+    }
+
+    /**
+     * Schedules the given event for the given week.
+     *
+     * @param week
+     *         the week the event is due
+     * @param event
+     *         the event
+     */
+    void schedule(int week, int event) {
+
+        int bucket = Math.floorMod(week, sizes.length);
+        int count = sizes[bucket];
+        if (count == events[bucket].length) {
+            events[bucket] = Arrays.copyOf(events[bucket], count * 2);
+            weeks[bucket] = Arrays.copyOf(weeks[bucket], count * 2);
+        }
+        events[bucket][count] = event;
+        weeks[bucket][count] = week;
+        sizes[bucket] = count + 1;
+        size++;
+    }
+
+    /**
+     * Removes and returns the events due in the given week.
+     * <p>
+     * The events due later that share the bucket of the week are kept.
+     *
+     * @param week
+     *         the week whose events to take
+     *
+     * @return the events due in the week
+     */
+    int[] take(int week) {
+
+        int bucket = Math.floorMod(week, sizes.length);
+        int[] bucketEvents = events[bucket];
+        int[] bucketWeeks = weeks[bucket];
+        int count = sizes[bucket];
+
+        int[] due = new int[count];
+        int dueCount = 0;
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (bucketWeeks[i] == week) {
+                due[dueCount++] = bucketEvents[i];
+            } else {
+                bucketEvents[kept] = bucketEvents[i];
+                bucketWeeks[kept] = bucketWeeks[i];
+                kept++;
+            }
+        }
+        sizes[bucket] = kept;
+        size -= dueCount;
+
+        return dueCount == count ? due : Arrays.copyOf(due, dueCount);
+    }
+
+    /** Removes every event. */
+    void clear() {
+
+        Arrays.fill(sizes, 0);
+        size = 0;
+    }
+}
@@ -0,0 +1,742 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stores guppies as counts of identical guppies instead of as individuals.
+ * <p>
+ * Guppies are grouped into cohorts by age, sex and health coefficient, where the health
+ * coefficient is rounded to one of a fixed number of buckets. Aging shifts every cohort up by one
+ * week, and deaths and births are drawn per cohort from binomial and summed uniform distributions,
+ * so a week costs time proportional to the number of cohorts rather than the number of guppies.
+ * <p>
+ * The statistics of the living guppies are kept as {@link LivingAggregates}, updated per cohort
+ * as guppies die and rebuilt from the cohorts after the operations that touch every cohort.
+ * <p>
+ * The generation of the guppies in a cohort is kept as an average. Guppies do not keep their
+ * identification numbers, and dead guppies are only counted until they are removed, so the guppy
+ * objects returned by {@link #getCreatures()} are approximations built from the cohorts.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class CohortCreatureStorage implements CreatureStorage {
+
+    /** The default number of health coefficient buckets. */
+    public static final int DEFAULT_BUCKETS = 100;
+
+    /** The number of sexes. */
+    private static final int SEXES = 2;
+
+    /** The index of the female sex. */
+    private static final int FEMALE = 1;
+
+    /** The number of health coefficient buckets above the zero bucket. */
+    private final int buckets;
+
+    /** The number of cohorts of each age. */
+    private final int cohortsPerAge;
+
+    /** The number of living guppies in each cohort. */
+    private long[] counts;
+
+    /** The sum of the generation numbers of the living guppies in each cohort. */
+    private double[] generationSums;
+
+    /** The number of dead guppies that have not yet been removed. */
+    private long dead;
+
+    /** The statistics of the living guppies. */
+    private LivingAggregates aggregates;
+
+    /** Creates an empty storage with the default number of health coefficient buckets. */
+    public CohortCreatureStorage() {
+
+        this(DEFAULT_BUCKETS);
+    }
+
+    /**
+     * Creates an empty storage with the given number of health coefficient buckets.
+     *
+     * @param buckets
+     *         the number of buckets the health coefficient range is divided into
+     */
+    public CohortCreatureStorage(int buckets) {
+
+        if (buckets < 1) {
+            throw new IllegalArgumentException("At least one bucket is required");
+        }
+        this.buckets = buckets;
+        cohortsPerAge = SEXES * (buckets + 1);
+        counts = new long[Guppy.MAXIMUM_AGE * cohortsPerAge];
+        generationSums = new double[counts.length];
+        aggregates = new LivingAggregates();
+    }
+
+    /**
+     * Restores a storage from its cohorts.
+     *
+     * @param buckets
+     *         the number of buckets the health coefficient range is divided into
+     * @param counts
+     *         the number of living guppies in each cohort
+     * @param generationSums
+     *         the sum of the generation numbers of the living guppies in each cohort
+     * @param dead
+     *         the number of dead guppies that have not yet been removed
+     *
+     * @throws IllegalArgumentException
+     *         if the number of cohorts does not match the number of buckets
+     */
+    CohortCreatureStorage(int buckets, long[] counts, double[] generationSums, long dead) {
+
+        this(buckets);
+        if (counts.length != this.counts.length || generationSums.length != counts.length) {
+            throw new IllegalArgumentException("The cohorts do not match the number of buckets");
+        }
+        this.counts = counts;
+        this.generationSums = generationSums;
+        this.dead = dead;
+        rebuildAggregates();
+    }
+
+    /**
+     * Returns the number of health coefficient buckets.
+     *
+     * @return the number of health coefficient buckets
+     */
+    public int getBuckets() {
+
+        return buckets;
+    }
+
+    /**
+     * Returns the number of living guppies.
+     *
+     * @return the number of living guppies
+     */
+    public long getLivingCount() {
+
+        return aggregates.getCount();
+    }
+
+    /**
+     * Adds the given number of living guppies to a cohort.
+     *
+     * @param count
+     *         the number of guppies to add
+     * @param age
+     *         the age of the guppies in weeks
+     * @param isFemale
+     *         whether the guppies are female
+     * @param coefficient
+     *         the health coefficient of the guppies
+     * @param generation
+     *         the generation number of the guppies
+     */
+    public void addCohort(long count, int age, boolean isFemale, double coefficient,
+                          int generation) {
+
+        if (count > 0 && age >= 0 && age < Guppy.MAXIMUM_AGE) {
+            int cohort = index(age, isFemale ? FEMALE : 0, bucket(coefficient));
+            counts[cohort] += count;
+            generationSums[cohort] += (double) count * generation;
+            aggregates.add(age, coefficient(bucket(coefficient)), isFemale,
+                           Guppy.getVolumeNeededAtAge(age), count);
+        }
+    }
+
+    @Override
+    public long size() {
+
+        return getLivingCount() + dead;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The guppies are rebuilt from the cohorts, so changes to them are not reflected in the
+     * storage.
+     */
+    @Override
+    public List<Creature> getCreatures() {
+
+        List<Creature> creatures = new ArrayList<>();
+        for (int cohort = 0; cohort < counts.length; cohort++) {
+            for (long i = 0; i < counts[cohort]; i++) {
+                creatures.add(createGuppy(cohort));
+            }
+        }
+        for (long i = 0; i < dead; i++) {
+            creatures.add(new Guppy(new Identification(Guppy.GENUS, Guppy.SPECIES, 0, 0),
+                                    new Health(Guppy.MAXIMUM_AGE, false, 0,
+                                               Health.DEFAULT_COEFFICIENT), false));
+        }
+        return creatures;
+    }
+
+    @Override
+    public void setCreatures(List<Creature> creatures) {
+
+        if (creatures != null) {
+            clear();
+            addAll(creatures);
+        }
+    }
+
+    @Override
+    public boolean add(Creature creature) {
+
+        if (creature == null) {
+            return false;
+        }
+        Health health = creature.getHealth();
+        if (health.isAlive()) {
+            addCohort(1, health.getAge(), creature.isFemale(), health.getCoefficient(),
+                      creature.getIdentification().getGeneration());
+        } else {
+            dead++;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(List<Creature> creatures) {
+
+        if (creatures == null) {
+            return false;
+        }
+        for (Creature creature : creatures) {
+            add(creature);
+        }
+        return !creatures.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every cohort moves up one week and the oldest cohorts die.
+     */
+    @Override
+    public long incrementAges() {
+
+        int oldest = (Guppy.MAXIMUM_AGE - 1) * cohortsPerAge;
+        for (int cohort = oldest; cohort < counts.length; cohort++) {
+            dead += counts[cohort];
+        }
+
+        System.arraycopy(counts, 0, counts, cohortsPerAge, oldest);
+        System.arraycopy(generationSums, 0, generationSums, cohortsPerAge, oldest);
+        Arrays.fill(counts, 0, cohortsPerAge, 0);
+        Arrays.fill(generationSums, 0, cohortsPerAge, 0.0);
+        rebuildAggregates();
+
+        return dead;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The number of deaths in each cohort is drawn from a binomial distribution.
+     */
+    @Override
+    public long applyNutrientCoefficient(double nutrientCoefficient, Random generator) {
+
+        double deathChance = 1.0 - nutrientCoefficient;
+        long countDied = 0;
+
+        for (int cohort = 0; cohort < counts.length; cohort++) {
+            if (counts[cohort] > 0) {
+                countDied += kill(cohort, Distributions.binomial(counts[cohort], deathChance,
+                                                                 generator));
+            }
+        }
+
+        return countDied;
+    }
+
+    @Override
+    public long removeDead() {
+
+        long creaturesRemoved = dead;
+        dead = 0;
+        return creaturesRemoved;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rules are those of {@link Guppy#spawn()}: the number of spawning females in each cohort
+     * is drawn from a binomial distribution, their total offspring from a sum of uniform
+     * distributions and the number of female offspring from another binomial distribution.
+     */
+    @Override
+    public long spawn(Random generator) {
+
+        long[] newFry = new long[cohortsPerAge];
+        double[] newGenerations = new double[cohortsPerAge];
+        long totalFry = 0;
+
+        for (int age = Guppy.MINIMUM_SPAWN_AGE; age < Guppy.MAXIMUM_AGE; age++) {
+            for (int bucket = 0; bucket <= buckets; bucket++) {
+                int cohort = index(age, FEMALE, bucket);
+                long females = counts[cohort];
+                if (females == 0) {
+                    continue;
+                }
+
+                long spawning = Distributions.binomial(females, Guppy.SPAWN_CHANCE, generator);
+                long offspring = Distributions.uniformSum(spawning, Guppy.MAXIMUM_OFFSPRING,
+                                                          generator);
+                if (offspring == 0) {
+                    continue;
+                }
+
+                long femaleOffspring = Distributions.binomial(offspring, 0.5, generator);
+                int offspringBucket = bucket(Guppy.getOffspringCoefficient(coefficient(bucket)));
+                double offspringGeneration = generationSums[cohort] / females + 1;
+
+                newFry[index(0, FEMALE, offspringBucket)] += femaleOffspring;
+                newGenerations[index(0, FEMALE, offspringBucket)] +=
+                        femaleOffspring * offspringGeneration;
+                newFry[index(0, 0, offspringBucket)] += offspring - femaleOffspring;
+                newGenerations[index(0, 0, offspringBucket)] +=
+                        (offspring - femaleOffspring) * offspringGeneration;
+                totalFry += offspring;
+            }
+        }
+
+        for (int cohort = 0; cohort < cohortsPerAge; cohort++) {
+            counts[cohort] += newFry[cohort];
+            generationSums[cohort] += newGenerations[cohort];
+        }
+        rebuildAggregates();
+
+        return totalFry;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The guppies are rebuilt from the cohorts.
+     */
+    @Override
+    public List<Creature> removeWeakest(double volumeLitres) {
+
+        return extractWeakest(volumeLitres).getCreatures();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Cohorts are taken in ascending order of health coefficient, and from the youngest to the
+     * oldest within a health coefficient, taking only as many guppies from the last cohort as
+     * needed.
+     */
+    @Override
+    public CohortCreatureStorage extractWeakest(double volumeLitres) {
+
+        final double mlPerL = 1000.0;
+        double excess = getVolumeNeededMl() - volumeLitres * mlPerL;
+
+        CohortCreatureStorage weakest = new CohortCreatureStorage(buckets);
+
+        for (int bucket = 0; bucket <= buckets && excess > 0.0; bucket++) {
+            for (int age = 0; age < Guppy.MAXIMUM_AGE && excess > 0.0; age++) {
+                double volume = Guppy.getVolumeNeededAtAge(age);
+                for (int sex = 0; sex < SEXES && excess > 0.0; sex++) {
+                    int cohort = index(age, sex, bucket);
+                    if (counts[cohort] == 0) {
+                        continue;
+                    }
+                    long taken = Math.min(counts[cohort], (long) Math.ceil(excess / volume));
+                    double generations = generationSums[cohort] * taken / counts[cohort];
+                    weakest.counts[cohort] += taken;
+                    weakest.generationSums[cohort] += generations;
+                    counts[cohort] -= taken;
+                    generationSums[cohort] -= generations;
+                    excess -= taken * volume;
+                }
+            }
+        }
+        rebuildAggregates();
+        weakest.rebuildAggregates();
+
+        return weakest;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The number of deaths in each cohort is drawn from a binomial distribution.
+     */
+    @Override
+    public long applyTransportMortality(Random generator) {
+
+        long countDied = 0;
+
+        for (int cohort = 0; cohort < counts.length; cohort++) {
+            if (counts[cohort] > 0) {
+                double deathChance = 1.0 - coefficient(cohort % (buckets + 1));
+                countDied += kill(cohort, Distributions.binomial(counts[cohort], deathChance,
+                                                                 generator));
+            }
+        }
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The number of deaths in each cohort is drawn from a binomial distribution. When the given
+     * storage is a cohort storage with the same buckets, the survivors of each cohort are added to
+     * its matching cohort as a count.
+     */
+    @Override
+    public long transportSurvivors(CreatureStorage destination, Random generator) {
+
+        if (!(destination instanceof CohortCreatureStorage)
+                || ((CohortCreatureStorage) destination).buckets != buckets) {
+            long countDied = applyTransportMortality(generator);
+            removeDead();
+            destination.absorb(this);
+            return countDied;
+        }
+
+        CohortCreatureStorage cohorts = (CohortCreatureStorage) destination;
+        long countDied = 0;
+
+        for (int cohort = 0; cohort < counts.length; cohort++) {
+            if (counts[cohort] > 0) {
+                int bucket = cohort % (buckets + 1);
+                long died = Distributions.binomial(counts[cohort], 1.0 - coefficient(bucket),
+                                                   generator);
+                long survived = counts[cohort] - died;
+                if (survived > 0) {
+                    int age = cohort / cohortsPerAge;
+                    cohorts.counts[cohort] += survived;
+                    cohorts.generationSums[cohort] += generationSums[cohort]
+                            - generationSums[cohort] * died / counts[cohort];
+                    cohorts.aggregates.add(age, coefficient(bucket), isFemale(cohort),
+                                           Guppy.getVolumeNeededAtAge(age), survived);
+                }
+                countDied += died;
+            }
+        }
+        clear();
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The guppies of each cohort are divided by a chain of binomial draws, each part taking its
+     * share of the guppies not yet given to an earlier part, so the split costs time proportional
+     * to the number of cohorts and parts rather than the number of guppies.
+     */
+    @Override
+    public CreatureStorage[] split(double[] weights, Random generator) {
+
+        AliasTable table = new AliasTable(weights);
+        if (table.isEmpty() && getLivingCount() > 0) {
+            throw new IllegalStateException("No part has any weight");
+        }
+        CohortCreatureStorage[] parts = new CohortCreatureStorage[weights.length];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new CohortCreatureStorage(buckets);
+        }
+
+        double[] shares = table.getWeights();
+        double totalWeight = 0.0;
+        int lastPart = -1;
+        for (int i = 0; i < shares.length; i++) {
+            totalWeight += shares[i];
+            lastPart = shares[i] > 0.0 ? i : lastPart;
+        }
+        for (int cohort = 0; cohort < counts.length; cohort++) {
+            long remaining = counts[cohort];
+            double remainingWeight = totalWeight;
+            for (int i = 0; i <= lastPart && remaining > 0; i++) {
+                // the last part with any weight takes whatever the others left
+                long taken = i == lastPart ? remaining
+                             : Distributions.binomial(remaining, shares[i] / remainingWeight,
+                                                      generator);
+                if (taken > 0) {
+                    CohortCreatureStorage part = parts[i];
+                    part.counts[cohort] = taken;
+                    part.generationSums[cohort] = generationSums[cohort] * taken / counts[cohort];
+                }
+                remaining -= taken;
+                remainingWeight -= shares[i];
+            }
+        }
+        for (CohortCreatureStorage part : parts) {
+            part.rebuildAggregates();
+        }
+        if (parts.length > 0) {
+            parts[0].dead = dead;
+        }
+        clear();
+
+        return parts;
+    }
+
+    @Override
+    public long killAll() {
+
+        long living = getLivingCount();
+        Arrays.fill(counts, 0);
+        Arrays.fill(generationSums, 0.0);
+        aggregates.clear();
+        dead += living;
+        return living;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cohorts of another cohort storage with the same buckets are added in bulk.
+     */
+    @Override
+    public void absorb(CreatureStorage other) {
+
+        if (!(other instanceof CohortCreatureStorage)
+                || ((CohortCreatureStorage) other).buckets != buckets) {
+            addAll(other.viewCreatures());
+            return;
+        }
+
+        CohortCreatureStorage cohorts = (CohortCreatureStorage) other;
+        for (int cohort = 0; cohort < counts.length; cohort++) {
+            counts[cohort] += cohorts.counts[cohort];
+            generationSums[cohort] += cohorts.generationSums[cohort];
+        }
+        dead += cohorts.dead;
+        rebuildAggregates();
+    }
+
+    @Override
+    public double getVolumeNeededMl() {
+
+        return aggregates.getVolumeNeededMl();
+    }
+
+    @Override
+    public double getAverageAgeInWeeks() {
+
+        return aggregates.getAverageAgeInWeeks();
+    }
+
+    @Override
+    public double getAverageHealthCoefficient() {
+
+        return aggregates.getAverageHealthCoefficient();
+    }
+
+    @Override
+    public double getFemaleProportion() {
+
+        return aggregates.getFemaleProportion();
+    }
+
+    @Override
+    public AgeHistogram getAgeHistogram() {
+
+        return aggregates.getAgeHistogram();
+    }
+
+    @Override
+    public CohortCreatureStorage copy() {
+
+        CohortCreatureStorage storageCopy = new CohortCreatureStorage(buckets);
+        storageCopy.counts = counts.clone();
+        storageCopy.generationSums = generationSums.clone();
+        storageCopy.dead = dead;
+        storageCopy.aggregates = aggregates.copy();
+        return storageCopy;
+    }
+
+    /**
+     * Returns the number of living guppies in each cohort, without copying them.
+     *
+     * @return the number of living guppies in each cohort
+     */
+    long[] getCounts() {
+
+        return counts;
+    }
+
+    /**
+     * Returns the sum of the generation numbers in each cohort, without copying them.
+     *
+     * @return the sum of the generation numbers of the living guppies in each cohort
+     */
+    double[] getGenerationSums() {
+
+        return generationSums;
+    }
+
+    /**
+     * Returns the number of dead guppies that have not yet been removed.
+     *
+     * @return the number of dead guppies that have not yet been removed
+     */
+    long getDead() {
+
+        return dead;
+    }
+
+    /** Removes all of the guppies. */
+    public void clear() {
+
+        Arrays.fill(counts, 0);
+        Arrays.fill(generationSums, 0.0);
+        aggregates.clear();
+        dead = 0;
+    }
+
+    /**
+     * Kills the given number of guppies of a cohort.
+     *
+     * @param cohort
+     *         the index of the cohort
+     * @param number
+     *         the number of guppies to kill
+     *
+     * @return the number of guppies killed
+     */
+    private long kill(int cohort, long number) {
+
+        if (number > 0) {
+            generationSums[cohort] -= generationSums[cohort] * number / counts[cohort];
+            counts[cohort] -= number;
+            dead += number;
+            int age = cohort / cohortsPerAge;
+            aggregates.remove(age, coefficient(cohort % (buckets + 1)), isFemale(cohort),
+                              Guppy.getVolumeNeededAtAge(age), number);
+        }
+        return number;
+    }
+
+    /** Rebuilds the statistics of the living guppies from the cohorts. */
+    private void rebuildAggregates() {
+
+        aggregates.clear();
+        for (int cohort = 0; cohort < counts.length; cohort++) {
+            if (counts[cohort] > 0) {
+                int age = cohort / cohortsPerAge;
+                aggregates.add(age, coefficient(cohort % (buckets + 1)), isFemale(cohort),
+                               Guppy.getVolumeNeededAtAge(age), counts[cohort]);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the guppies of the given cohort are female.
+     *
+     * @param cohort
+     *         the index of the cohort
+     *
+     * @return true if the guppies of the cohort are female; false otherwise
+     */
+    private boolean isFemale(int cohort) {
+
+        return (cohort / (buckets + 1)) % SEXES == FEMALE;
+    }
+
+    /**
+     * Returns the index of the cohort with the given attributes.
+     *
+     * @param age
+     *         the age in weeks
+     * @param sex
+     *         the sex index
+     * @param bucket
+     *         the health coefficient bucket
+     *
+     * @return the index of the cohort
+     */
+    private int index(int age, int sex, int bucket) {
+
+        return (age * SEXES + sex) * (buckets + 1) + bucket;
+    }
+
+    /**
+     * Returns the bucket that the given health coefficient is rounded to.
+     *
+     * @param coefficient
+     *         the health coefficient
+     *
+     * @return the bucket of the health coefficient
+     */
+    private int bucket(double coefficient) {
+
+        long bucket = Math.round(coefficient * buckets);
+        return (int) Math.max(0, Math.min(buckets, bucket));
+    }
+
+    /**
+     * Returns the health coefficient that the given bucket represents.
+     *
+     * @param bucket
+     *         the bucket
+     *
+     * @return the health coefficient of the bucket
+     */
+    private double coefficient(int bucket) {
+
+        return (double) bucket / buckets;
+    }
+
+    /**
+     * Creates a guppy object representing a member of the given cohort.
+     *
+     * @param cohort
+     *         the index of the cohort
+     *
+     * @return a living guppy from the cohort
+     */
+    private Guppy createGuppy(int cohort) {
+
+        int age = cohort / cohortsPerAge;
+        boolean isFemale = isFemale(cohort);
+        int generation = (int) Math.round(generationSums[cohort] / counts[cohort]);
+        Health health = new Health(Guppy.MAXIMUM_AGE, true, age,
+                                   coefficient(cohort % (buckets + 1)));
+        Identification identification = new Identification(Guppy.GENUS, Guppy.SPECIES, 0,
+                                                            generation);
+        return new Guppy(identification, health, isFemale);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        CohortCreatureStorage other = (CohortCreatureStorage) o;
+
+        return buckets == other.buckets && dead == other.dead
+                && Arrays.equals(counts, other.counts)
+                && Arrays.equals(generationSums, other.generationSums);
+    }
+
+    @Override
+    public int hashCode() {
+
+        final int hashValue = 31;
+        int result = buckets;
+        result = hashValue * result + Long.hashCode(dead);
+        result = hashValue * result + Arrays.hashCode(counts);
+        return result;
+    }
+}
@@ -0,0 +1,695 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stores guppies as parallel columns of primitive values instead of one object graph per fish.
+ * <p>
+ * Each guppy occupies one index across the columns: its age, health coefficient, generation and
+ * identification number are held in primitive arrays and whether it is alive or female is held in
+ * bit sets. The weekly operations walk the columns directly, which keeps the memory per guppy
+ * small and the passes cache friendly for very large populations.
+ * <p>
+ * Guppies only become objects when they leave the storage, such as through
+ * {@link #getCreatures()} or {@link #removeWeakest(double)}. The list returned by
+ * {@link #getCreatures()} is a snapshot; changes to it are not reflected in the storage.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class ColumnarCreatureStorage implements CreatureStorage {
+
+    /** The initial capacity of the columns. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The number of guppies stored. */
+    private int size;
+
+    /** The age of each guppy in weeks. */
+    private int[] ages;
+
+    /** The health coefficient of each guppy. */
+    private double[] coefficients;
+
+    /** The generation number of each guppy. */
+    private int[] generations;
+
+    /** The identification number of each guppy. */
+    private int[] identifiers;
+
+    /** Whether each guppy is alive. */
+    private BitSet alive;
+
+    /** Whether each guppy is female. */
+    private BitSet female;
+
+    /** The statistics of the living guppies. */
+    private LivingAggregates aggregates;
+
+    /** Creates an empty storage. */
+    public ColumnarCreatureStorage() {
+
+        ages = new int[INITIAL_CAPACITY];
+        coefficients = new double[INITIAL_CAPACITY];
+        generations = new int[INITIAL_CAPACITY];
+        identifiers = new int[INITIAL_CAPACITY];
+        alive = new BitSet();
+        female = new BitSet();
+        aggregates = new LivingAggregates();
+    }
+
+    /**
+     * Restores a storage from its columns.
+     * <p>
+     * The columns are used directly rather than copied.
+     *
+     * @param size
+     *         the number of guppies stored
+     * @param ages
+     *         the age of each guppy in weeks
+     * @param coefficients
+     *         the health coefficient of each guppy
+     * @param generations
+     *         the generation number of each guppy
+     * @param identifiers
+     *         the identification number of each guppy
+     * @param alive
+     *         whether each guppy is alive
+     * @param female
+     *         whether each guppy is female
+     *
+     * @throws IllegalArgumentException
+     *         if a column is shorter than the number of guppies
+     */
+    ColumnarCreatureStorage(int size, int[] ages, double[] coefficients, int[] generations,
+                            int[] identifiers, BitSet alive, BitSet female) {
+
+        if (size < 0 || ages.length < size || coefficients.length < size
+                || generations.length < size || identifiers.length < size) {
+            throw new IllegalArgumentException("The columns do not match the number of guppies");
+        }
+        this.size = size;
+        this.ages = ages;
+        this.coefficients = coefficients;
+        this.generations = generations;
+        this.identifiers = identifiers;
+        this.alive = alive;
+        this.female = female;
+        aggregates = new LivingAggregates();
+        for (int i = alive.nextSetBit(0); i >= 0 && i < size; i = alive.nextSetBit(i + 1)) {
+            count(i);
+        }
+    }
+
+    /**
+     * Returns the column of ages; only the first {@link #size()} entries are in use.
+     *
+     * @return the column of ages
+     */
+    int[] getAges() {
+
+        return ages;
+    }
+
+    /**
+     * Returns the column of health coefficients; only the first {@link #size()} entries are in
+     * use.
+     *
+     * @return the column of health coefficients
+     */
+    double[] getCoefficients() {
+
+        return coefficients;
+    }
+
+    /**
+     * Returns the column of generation numbers; only the first {@link #size()} entries are in
+     * use.
+     *
+     * @return the column of generation numbers
+     */
+    int[] getGenerations() {
+
+        return generations;
+    }
+
+    /**
+     * Returns the column of identification numbers; only the first {@link #size()} entries are
+     * in use.
+     *
+     * @return the column of identification numbers
+     */
+    int[] getIdentifiers() {
+
+        return identifiers;
+    }
+
+    /**
+     * Returns which guppies are alive.
+     *
+     * @return the set of indices of the living guppies
+     */
+    BitSet getAlive() {
+
+        return alive;
+    }
+
+    /**
+     * Returns which guppies are female.
+     *
+     * @return the set of indices of the female guppies
+     */
+    BitSet getFemale() {
+
+        return female;
+    }
+
+    @Override
+    public long size() {
+
+        return size;
+    }
+
+    @Override
+    public List<Creature> getCreatures() {
+
+        List<Creature> creatures = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            creatures.add(toGuppy(i));
+        }
+        return creatures;
+    }
+
+    @Override
+    public void setCreatures(List<Creature> creatures) {
+
+        if (creatures != null) {
+            clear();
+            addAll(creatures);
+        }
+    }
+
+    @Override
+    public boolean add(Creature creature) {
+
+        if (creature == null) {
+            return false;
+        }
+        Health health = creature.getHealth();
+        append(health.getAge(), health.getCoefficient(), health.isAlive(), creature.isFemale(),
+               creature.getIdentification().getGeneration(),
+               creature.getIdentification().getIdentifier());
+        return true;
+    }
+
+    @Override
+    public boolean addAll(List<Creature> creatures) {
+
+        if (creatures == null) {
+            return false;
+        }
+        ensureCapacity(size + creatures.size());
+        for (Creature creature : creatures) {
+            add(creature);
+        }
+        return !creatures.isEmpty();
+    }
+
+    @Override
+    public long incrementAges() {
+
+        for (int i = 0; i < size; i++) {
+            if (alive.get(i)) {
+                uncount(i);
+            }
+            ages[i]++;
+            if (ages[i] >= Guppy.MAXIMUM_AGE) {
+                alive.clear(i);
+            } else if (alive.get(i)) {
+                count(i);
+            }
+        }
+        return size - alive.get(0, size).cardinality();
+    }
+
+    @Override
+    public long applyNutrientCoefficient(double nutrientCoefficient, Random generator) {
+
+        int countDied = 0;
+
+        for (int i = alive.nextSetBit(0); i >= 0 && i < size; i = alive.nextSetBit(i + 1)) {
+            if (generator.nextDouble() > nutrientCoefficient) {
+                uncount(i);
+                alive.clear(i);
+                countDied++;
+            }
+        }
+
+        return countDied;
+    }
+
+    @Override
+    public long removeDead() {
+
+        int kept = 0;
+
+        for (int i = alive.nextSetBit(0); i >= 0 && i < size; i = alive.nextSetBit(i + 1)) {
+            moveTo(i, kept);
+            kept++;
+        }
+
+        int creaturesRemoved = size - kept;
+        alive.clear(kept, size);
+        female.clear(kept, size);
+        size = kept;
+
+        return creaturesRemoved;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rules are those of {@link Guppy#spawn()}.
+     */
+    @Override
+    public long spawn(Random generator) {
+
+        int parents = size;
+        int newFry = 0;
+        int identifier = -1;
+
+        for (int i = 0; i < parents; i++) {
+            if (female.get(i) && ages[i] >= Guppy.MINIMUM_SPAWN_AGE) {
+
+                int numberOfOffspring = 0;
+                if (generator.nextDouble() <= Guppy.SPAWN_CHANCE) {
+                    numberOfOffspring = generator.nextInt(Guppy.MAXIMUM_OFFSPRING + 1);
+                }
+
+                if (numberOfOffspring > 0 && identifier < 0) {
+                    identifier = highestIdentifier();
+                }
+                double offspringCoefficient = Guppy.getOffspringCoefficient(coefficients[i]);
+                int offspringGeneration = generations[i] + 1;
+                ensureCapacity(size + numberOfOffspring);
+                for (int j = 0; j < numberOfOffspring; j++) {
+                    append(0, offspringCoefficient, true, generator.nextBoolean(),
+                           offspringGeneration, ++identifier);
+                }
+                newFry += numberOfOffspring;
+            }
+        }
+
+        return newFry;
+    }
+
+    /**
+     * Returns the highest identification number of the guppies.
+     *
+     * @return the highest identification number, or 0 if there are no guppies
+     */
+    private int highestIdentifier() {
+
+        int highest = 0;
+        for (int i = 0; i < size; i++) {
+            highest = Math.max(highest, identifiers[i]);
+        }
+        return highest;
+    }
+
+    @Override
+    public List<Creature> removeWeakest(double volumeLitres) {
+
+        return extractWeakest(volumeLitres).getCreatures();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the guppies that leave are selected, using {@link CrowdingSelector}, and the columns
+     * are compacted in a single pass.
+     */
+    @Override
+    public ColumnarCreatureStorage extractWeakest(double volumeLitres) {
+
+        if (CrowdingSelector.fits(aggregates.getVolumeNeededMl(), volumeLitres)) {
+            return new ColumnarCreatureStorage();
+        }
+
+        double[] volumes = new double[size];
+        double volumeNeeded = 0.0;
+        for (int i = alive.nextSetBit(0); i >= 0 && i < size; i = alive.nextSetBit(i + 1)) {
+            volumes[i] = Guppy.getVolumeNeededAtAge(ages[i]);
+            volumeNeeded += volumes[i];
+        }
+
+        ColumnarCreatureStorage weakest = new ColumnarCreatureStorage();
+        int[] selected = CrowdingSelector.selectWeakest(coefficients, volumes, size, volumeNeeded,
+                                                        volumeLitres);
+        if (selected.length == 0) {
+            return weakest;
+        }
+
+        BitSet removed = new BitSet(size);
+        weakest.ensureCapacity(selected.length);
+        for (int index : selected) {
+            removed.set(index);
+            if (alive.get(index)) {
+                uncount(index);
+            }
+            weakest.append(ages[index], coefficients[index], alive.get(index),
+                           female.get(index), generations[index], identifiers[index]);
+        }
+
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!removed.get(i)) {
+                moveTo(i, kept);
+                kept++;
+            }
+        }
+        alive.clear(kept, size);
+        female.clear(kept, size);
+        size = kept;
+
+        return weakest;
+    }
+
+    @Override
+    public long applyTransportMortality(Random generator) {
+
+        int countDied = 0;
+
+        for (int i = alive.nextSetBit(0); i >= 0 && i < size; i = alive.nextSetBit(i + 1)) {
+            if (generator.nextDouble() >= coefficients[i]) {
+                uncount(i);
+                alive.clear(i);
+                countDied++;
+            }
+        }
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the given storage is also columnar, the columns of each survivor are appended to it
+     * directly, without creating guppy objects.
+     */
+    @Override
+    public long transportSurvivors(CreatureStorage destination, Random generator) {
+
+        if (!(destination instanceof ColumnarCreatureStorage)) {
+            long countDied = applyTransportMortality(generator);
+            removeDead();
+            destination.absorb(this);
+            return countDied;
+        }
+
+        ColumnarCreatureStorage columns = (ColumnarCreatureStorage) destination;
+        long countDied = 0;
+
+        columns.ensureCapacity(columns.size + (int) aggregates.getCount());
+        for (int i = alive.nextSetBit(0); i >= 0 && i < size; i = alive.nextSetBit(i + 1)) {
+            if (generator.nextDouble() < coefficients[i]) {
+                columns.append(ages[i], coefficients[i], true, female.get(i), generations[i],
+                               identifiers[i]);
+            } else {
+                countDied++;
+            }
+        }
+        clear();
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The part of each guppy is drawn from an {@link AliasTable}, and its columns are appended to
+     * that part directly.
+     */
+    @Override
+    public CreatureStorage[] split(double[] weights, Random generator) {
+
+        AliasTable table = new AliasTable(weights);
+        ColumnarCreatureStorage[] parts = new ColumnarCreatureStorage[weights.length];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new ColumnarCreatureStorage();
+        }
+
+        for (int i = 0; i < size; i++) {
+            boolean isAlive = alive.get(i);
+            ColumnarCreatureStorage part = parts[isAlive ? table.sample(generator) : 0];
+            part.append(ages[i], coefficients[i], isAlive, female.get(i), generations[i],
+                        identifiers[i]);
+        }
+        clear();
+
+        return parts;
+    }
+
+    @Override
+    public long killAll() {
+
+        alive.clear();
+        aggregates.clear();
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The columns of another columnar storage are copied in bulk.
+     */
+    @Override
+    public void absorb(CreatureStorage other) {
+
+        if (!(other instanceof ColumnarCreatureStorage)) {
+            addAll(other.viewCreatures());
+            return;
+        }
+
+        ColumnarCreatureStorage columns = (ColumnarCreatureStorage) other;
+        ensureCapacity(size + columns.size);
+        System.arraycopy(columns.ages, 0, ages, size, columns.size);
+        System.arraycopy(columns.coefficients, 0, coefficients, size, columns.size);
+        System.arraycopy(columns.generations, 0, generations, size, columns.size);
+        System.arraycopy(columns.identifiers, 0, identifiers, size, columns.size);
+        for (int i = 0; i < columns.size; i++) {
+            alive.set(size + i, columns.alive.get(i));
+            female.set(size + i, columns.female.get(i));
+            if (columns.alive.get(i)) {
+                count(size + i);
+            }
+        }
+        size += columns.size;
+    }
+
+    @Override
+    public double getVolumeNeededMl() {
+
+        return aggregates.getVolumeNeededMl();
+    }
+
+    @Override
+    public double getAverageAgeInWeeks() {
+
+        return aggregates.getAverageAgeInWeeks();
+    }
+
+    @Override
+    public double getAverageHealthCoefficient() {
+
+        return aggregates.getAverageHealthCoefficient();
+    }
+
+    @Override
+    public double getFemaleProportion() {
+
+        return aggregates.getFemaleProportion();
+    }
+
+    @Override
+    public AgeHistogram getAgeHistogram() {
+
+        return aggregates.getAgeHistogram();
+    }
+
+    @Override
+    public ColumnarCreatureStorage copy() {
+
+        ColumnarCreatureStorage storageCopy = new ColumnarCreatureStorage();
+        storageCopy.size = size;
+        storageCopy.ages = Arrays.copyOf(ages, Math.max(size, INITIAL_CAPACITY));
+        storageCopy.coefficients = Arrays.copyOf(coefficients, Math.max(size, INITIAL_CAPACITY));
+        storageCopy.generations = Arrays.copyOf(generations, Math.max(size, INITIAL_CAPACITY));
+        storageCopy.identifiers = Arrays.copyOf(identifiers, Math.max(size, INITIAL_CAPACITY));
+        storageCopy.alive = (BitSet) alive.clone();
+        storageCopy.female = (BitSet) female.clone();
+        storageCopy.aggregates = aggregates.copy();
+        return storageCopy;
+    }
+
+    /** Removes all of the guppies. */
+    public void clear() {
+
+        size = 0;
+        alive.clear();
+        female.clear();
+        aggregates.clear();
+    }
+
+    /**
+     * Appends a guppy with the given attributes to the columns.
+     *
+     * @param age
+     *         the age of the guppy in weeks
+     * @param coefficient
+     *         the health coefficient of the guppy
+     * @param isAlive
+     *         whether the guppy is alive
+     * @param isFemale
+     *         whether the guppy is female
+     * @param generation
+     *         the generation number of the guppy
+     * @param identifier
+     *         the identification number of the guppy
+     */
+    void append(int age, double coefficient, boolean isAlive, boolean isFemale, int generation,
+                int identifier) {
+
+        ensureCapacity(size + 1);
+        ages[size] = age;
+        coefficients[size] = coefficient;
+        generations[size] = generation;
+        identifiers[size] = identifier;
+        alive.set(size, isAlive);
+        female.set(size, isFemale);
+        if (isAlive) {
+            count(size);
+        }
+        size++;
+    }
+
+    /**
+     * Counts the living guppy at the given index in the statistics.
+     *
+     * @param index
+     *         the index of the guppy
+     */
+    private void count(int index) {
+
+        aggregates.add(ages[index], coefficients[index], female.get(index),
+                       Guppy.getVolumeNeededAtAge(ages[index]), 1);
+    }
+
+    /**
+     * Stops counting the living guppy at the given index in the statistics.
+     *
+     * @param index
+     *         the index of the guppy
+     */
+    private void uncount(int index) {
+
+        aggregates.remove(ages[index], coefficients[index], female.get(index),
+                          Guppy.getVolumeNeededAtAge(ages[index]), 1);
+    }
+
+    /**
+     * Moves the guppy at the given index to the given lower index, overwriting the guppy there.
+     *
+     * @param from
+     *         the index of the guppy to move
+     * @param to
+     *         the index to move the guppy to
+     */
+    private void moveTo(int from, int to) {
+
+        if (from != to) {
+            ages[to] = ages[from];
+            coefficients[to] = coefficients[from];
+            generations[to] = generations[from];
+            identifiers[to] = identifiers[from];
+            alive.set(to, alive.get(from));
+            female.set(to, female.get(from));
+        }
+    }
+
+    /**
+     * Grows the columns so that they can hold at least the given number of guppies.
+     *
+     * @param capacity
+     *         the number of guppies to hold
+     */
+    private void ensureCapacity(int capacity) {
+
+        if (capacity > ages.length) {
+            int newCapacity = Math.max(capacity, ages.length * 2);
+            ages = Arrays.copyOf(ages, newCapacity);
+            coefficients = Arrays.copyOf(coefficients, newCapacity);
+            generations = Arrays.copyOf(generations, newCapacity);
+            identifiers = Arrays.copyOf(identifiers, newCapacity);
+        }
+    }
+
+    /**
+     * Creates a guppy object from the attributes at the given index.
+     *
+     * @param index
+     *         the index of the guppy
+     *
+     * @return the guppy at the given index
+     */
+    private Guppy toGuppy(int index) {
+
+        Health health = new Health(Guppy.MAXIMUM_AGE, alive.get(index), ages[index],
+                                   coefficients[index]);
+        Identification identification = new Identification(Guppy.GENUS, Guppy.SPECIES,
+                                                            identifiers[index],
+                                                            generations[index]);
+        return new Guppy(identification, health, female.get(index));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        ColumnarCreatureStorage other = (ColumnarCreatureStorage) o;
+
+        if (size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (ages[i] != other.ages[i]
+                    || Double.compare(coefficients[i], other.coefficients[i]) != 0
+                    || generations[i] != other.generations[i]
+                    || identifiers[i] != other.identifiers[i]) {
+                return false;
+            }
+        }
+        return alive.equals(other.alive) && female.equals(other.female);
+    }
+
+    @Override
+    public int hashCode() {
+
+        final int hashValue = 31;
+        int result = size;
+        for (int i = 0; i < size; i++) {
+            result = hashValue * result + identifiers[i];
+        }
+        return result;
+    }
+}
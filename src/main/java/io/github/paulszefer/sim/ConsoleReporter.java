@@ -0,0 +1,43 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Prints the results of each simulated week to the console.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class ConsoleReporter implements SimulationListener {
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The statistics that will be printed are:
+     * </p>
+     * <ul>
+     * <li>Deaths to old age</li>
+     * <li>Deaths to starvation</li>
+     * <li>Crowded out</li>
+     * <li>Number of births</li>
+     * <li>Population of each pool</li>
+     * <li>Population of the ecosystem</li>
+     * </ul>
+     */
+    @Override
+    public void weekSimulated(WeekReport report, Ecosystem ecosystem) {
+
+        if (report.isBalanced()) {
+            long[] poolPopulations = report.getPoolPopulations();
+            System.out.println("Simulating Week " + report.getWeek());
+            System.out.println("----------------------");
+            System.out.println("Deaths to old age: " + report.getDiedOfOldAge());
+            System.out.println("Deaths to starvation: " + report.getStarvedToDeath());
+            System.out.println("Crowded out: " + report.getCrowdedOut());
+            System.out.println("Number of births: " + report.getBirths());
+            for (int i = 0; i < poolPopulations.length; i++) {
+                System.out.println("Pool " + (i + 1) + " population: " + poolPopulations[i]);
+            }
+            System.out.println("Ecosystem population: " + report.getEcosystemPopulation());
+            System.out.println();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.github.paulszefer.sim;
 
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Defines a creature that lives in a habitat.
@@ -62,6 +63,16 @@ public interface Creature extends Comparable {
      */
     List<Creature> spawn();
 
+    /**
+     * Spawns offspring if the required conditions are met, drawing from the given generator.
+     *
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return a List of spawned offspring or null if this creature is unable to reproduce
+     */
+    List<Creature> spawn(Random generator);
+
     /**
      * Creates and returns a copy of this Creature.
      *
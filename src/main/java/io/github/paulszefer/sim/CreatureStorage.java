@@ -0,0 +1,249 @@
+package io.github.paulszefer.sim;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Defines how the creatures of a pool are stored and how the weekly operations are applied to
+ * them.
+ * <p>
+ * A pool delegates all of its creature bookkeeping to its storage, so different layouts can be
+ * swapped in without changing the statistics or step operations that the pool exposes.
+ * <p>
+ * Counts are returned as longs, since aggregated storages can hold more creatures than an int can
+ * count.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public interface CreatureStorage {
+
+    /**
+     * Returns the number of creatures stored, including dead creatures that have not yet been
+     * removed.
+     *
+     * @return the number of creatures stored
+     */
+    long size();
+
+    /**
+     * Returns the creatures stored as a list of creature objects.
+     *
+     * @return the creatures stored
+     */
+    List<Creature> getCreatures();
+
+    /**
+     * Returns the creatures stored as a list that cannot be modified, for callers that only read
+     * them.
+     * <p>
+     * Unlike {@link #getCreatures()}, handing out the list does not tell the storage that its
+     * creatures may change, so the creatures in it must not be changed.
+     *
+     * @return the creatures stored, as a read-only list
+     */
+    default List<Creature> viewCreatures() {
+
+        return Collections.unmodifiableList(getCreatures());
+    }
+
+    /**
+     * Replaces the creatures stored with the given creatures.
+     *
+     * @param creatures
+     *         the creatures to store
+     */
+    void setCreatures(List<Creature> creatures);
+
+    /**
+     * Adds the given creature.
+     *
+     * @param creature
+     *         the creature to add
+     *
+     * @return true if successful; false otherwise
+     */
+    boolean add(Creature creature);
+
+    /**
+     * Adds the given creatures.
+     *
+     * @param creatures
+     *         the creatures to add
+     *
+     * @return true if successful; false otherwise
+     */
+    boolean addAll(List<Creature> creatures);
+
+    /**
+     * Increments the age of each creature by one week.
+     *
+     * @return the number of dead creatures after aging
+     */
+    long incrementAges();
+
+    /**
+     * Kills each creature for which a randomly generated double is greater than the given nutrient
+     * coefficient.
+     * <p>
+     * Only the living creatures can starve: creatures that are already dead are passed over and
+     * are not counted.
+     *
+     * @param nutrientCoefficient
+     *         the nutrient coefficient of the pool
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the number of creatures that died due to malnutrition
+     */
+    long applyNutrientCoefficient(double nutrientCoefficient, Random generator);
+
+    /**
+     * Removes the dead creatures.
+     *
+     * @return the number of creatures removed
+     */
+    long removeDead();
+
+    /**
+     * Attempts to spawn offspring for each creature and stores the offspring.
+     * <p>
+     * The offspring are numbered on from the highest identification number held, so the same
+     * creatures given the same generator always spawn the same offspring.
+     *
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the number of offspring spawned
+     */
+    long spawn(Random generator);
+
+    /**
+     * Removes the weakest creatures until the living creatures fit in the given volume.
+     *
+     * @param volumeLitres
+     *         the volume of water available in Litres
+     *
+     * @return the removed creatures, weakest first
+     */
+    List<Creature> removeWeakest(double volumeLitres);
+
+    /**
+     * Removes the weakest creatures until the living creatures fit in the given volume and
+     * returns them in a storage of the same kind.
+     *
+     * @param volumeLitres
+     *         the volume of water available in Litres
+     *
+     * @return a storage holding the removed creatures
+     */
+    CreatureStorage extractWeakest(double volumeLitres);
+
+    /**
+     * Decides which creatures survive being transported through a stream.
+     * <p>
+     * A living creature survives if a randomly generated double is less than its health
+     * coefficient. Creatures that are already dead stay dead and use no random numbers.
+     *
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the number of creatures that died in transport
+     */
+    long applyTransportMortality(Random generator);
+
+    /**
+     * Decides which creatures survive being transported through a stream and moves only the
+     * survivors into the given storage, in a single pass.
+     * <p>
+     * The same random numbers are drawn as by {@link #applyTransportMortality(Random)}, so the
+     * same creatures survive. Creatures that die, and those that were already dead, are left
+     * behind rather than copied into the given storage. This storage must not be used afterwards.
+     *
+     * @param destination
+     *         the storage to move the survivors into
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the number of creatures that died in transport
+     */
+    long transportSurvivors(CreatureStorage destination, Random generator);
+
+    /**
+     * Splits the creatures into one storage of the same kind for each of the given weights.
+     * <p>
+     * Each living creature goes to a part at random, in proportion to the weights, so the sizes
+     * of the parts follow a multinomial distribution. Dead creatures go to the first part without
+     * a draw. This storage must not be used afterwards.
+     *
+     * @param weights
+     *         the weight of each part, which must not all be zero
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the parts, in the order of the weights
+     */
+    CreatureStorage[] split(double[] weights, Random generator);
+
+    /**
+     * Kills every creature.
+     *
+     * @return the number of creatures killed
+     */
+    long killAll();
+
+    /**
+     * Moves the creatures of the given storage into this storage.
+     * <p>
+     * The given storage must not be used afterwards.
+     *
+     * @param other
+     *         the storage whose creatures to take
+     */
+    void absorb(CreatureStorage other);
+
+    /**
+     * Calculates the volume of water needed for the living creatures.
+     *
+     * @return the volume of water needed in mL
+     */
+    double getVolumeNeededMl();
+
+    /**
+     * Calculates the average age of the living creatures.
+     *
+     * @return the average age in weeks
+     */
+    double getAverageAgeInWeeks();
+
+    /**
+     * Calculates the average health coefficient of the living creatures.
+     *
+     * @return the average health coefficient
+     */
+    double getAverageHealthCoefficient();
+
+    /**
+     * Calculates the proportion of the living creatures that is female.
+     *
+     * @return the proportion that is female
+     */
+    double getFemaleProportion();
+
+    /**
+     * Returns the histogram of the living creatures' ages.
+     * <p>
+     * The histogram must not be modified by the caller.
+     *
+     * @return the histogram of the living creatures' ages
+     */
+    AgeHistogram getAgeHistogram();
+
+    /**
+     * Creates and returns a deep copy of this storage.
+     *
+     * @return a copy of this storage
+     */
+    CreatureStorage copy();
+}
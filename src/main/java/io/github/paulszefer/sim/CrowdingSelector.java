@@ -0,0 +1,141 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Selects the weakest creatures that must leave an overcrowded pool.
+ * <p>
+ * Instead of sorting every creature, the creatures are arranged in a binary heap ordered by
+ * health coefficient in linear time and only the creatures that need to leave are taken from it.
+ * A running total of the volume still needed is kept, so the pool's requirement is never
+ * recalculated while selecting. Creatures with equal health coefficients are taken in storage
+ * order, which matches a stable sort.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class CrowdingSelector {
+
+    /** The number of millilitres in a Litre. */
+    private static final double ML_PER_L = 1000.0;
+
+    /** Prevents instantiation. */
+    private CrowdingSelector() {
+
+    }
+
+    /**
+     * Selects the weakest creatures to remove until the remaining creatures fit in the given
+     * volume.
+     *
+     * @param coefficients
+     *         the health coefficient of each creature
+     * @param volumes
+     *         the volume of water in mL that each creature needs
+     * @param size
+     *         the number of creatures
+     * @param volumeNeededMl
+     *         the total volume of water in mL that the creatures need
+     * @param volumeLitres
+     *         the volume of water available in Litres
+     *
+     * @return the indices of the creatures to remove, weakest first
+     */
+    static int[] selectWeakest(double[] coefficients, double[] volumes, int size,
+                               double volumeNeededMl, double volumeLitres) {
+
+        double volumeNeeded = volumeNeededMl;
+        if (fits(volumeNeeded, volumeLitres)) {
+            return new int[0];
+        }
+
+        int[] heap = new int[size];
+        for (int i = 0; i < size; i++) {
+            heap[i] = i;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(heap, size, i, coefficients);
+        }
+
+        int[] selected = new int[size];
+        int count = 0;
+        int heapSize = size;
+        while (heapSize > 0 && volumeLitres < volumeNeeded / ML_PER_L) {
+            int weakest = heap[0];
+            heapSize--;
+            heap[0] = heap[heapSize];
+            siftDown(heap, heapSize, 0, coefficients);
+
+            selected[count++] = weakest;
+            volumeNeeded -= volumes[weakest];
+        }
+
+        int[] result = new int[count];
+        System.arraycopy(selected, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Moves the entry at the given position of the heap down until the heap is ordered.
+     *
+     * @param heap
+     *         the heap of creature indices
+     * @param heapSize
+     *         the number of entries in the heap
+     * @param position
+     *         the position of the entry to move
+     * @param coefficients
+     *         the health coefficient of each creature
+     */
+    private static void siftDown(int[] heap, int heapSize, int position, double[] coefficients) {
+
+        int current = position;
+        int entry = heap[current];
+        while (true) {
+            int child = 2 * current + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && isWeaker(heap[child + 1], heap[child], coefficients)) {
+                child++;
+            }
+            if (!isWeaker(heap[child], entry, coefficients)) {
+                break;
+            }
+            heap[current] = heap[child];
+            current = child;
+        }
+        heap[current] = entry;
+    }
+
+    /**
+     * Returns whether the first creature is removed before the second.
+     *
+     * @param first
+     *         the index of the first creature
+     * @param second
+     *         the index of the second creature
+     * @param coefficients
+     *         the health coefficient of each creature
+     *
+     * @return true if the first creature is weaker, or equally weak and stored earlier
+     */
+    private static boolean isWeaker(int first, int second, double[] coefficients) {
+
+        int comparison = Double.compare(coefficients[first], coefficients[second]);
+        return comparison < 0 || comparison == 0 && first < second;
+    }
+
+    /**
+     * Returns whether creatures needing the given volume fit in the given volume of water.
+     *
+     * @param volumeNeededMl
+     *         the volume needed by the creatures in millilitres
+     * @param volumeLitres
+     *         the volume of water available in Litres
+     *
+     * @return true if the creatures fit; false otherwise
+     */
+    static boolean fits(double volumeNeededMl, double volumeLitres) {
+
+        return volumeLitres >= volumeNeededMl / ML_PER_L;
+    }
+}
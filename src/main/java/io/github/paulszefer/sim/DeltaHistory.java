@@ -0,0 +1,503 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores periodic keyframes of an ecosystem and the changes from each week to the next.
+ * <p>
+ * A keyframe is the complete state of a week. Every other week is stored as the changes to each
+ * pool since the week before: the positions of the creatures that left or died, the creatures
+ * that arrived or were born, and any creature that changed in a way other than ageing by a week.
+ * The creatures in transit on each stream are kept as they were in each week. A week is rebuilt
+ * on demand by replaying the changes from the nearest earlier keyframe.
+ * <p>
+ * Pools whose creatures cannot be recorded, such as pools with cohort storage, are kept whole
+ * every week. A keyframe is also taken whenever pools or streams are added, removed or changed,
+ * or the overflow of the pools starts or stops being split.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class DeltaHistory implements History {
+
+    /** The default number of weeks between keyframes. */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 52;
+
+    /** The number of weeks between keyframes. */
+    private final int keyframeInterval;
+
+    /** The complete states, by week. */
+    private final TreeMap<Integer, Ecosystem> keyframes;
+
+    /** The changes to each pool in each week, or null in the weeks with a keyframe. */
+    private final List<PoolDelta[]> deltas;
+
+    /** The creatures in transit on each stream in each week, or null in keyframe weeks. */
+    private final List<TransitQueue[]> transits;
+
+    /** The most recently added state. */
+    private Ecosystem latest;
+
+    /** The creatures of each pool in the most recently added state, or null if unrecorded. */
+    private GuppyRecords[] latestRecords;
+
+    /** Creates an empty history with the default keyframe interval. */
+    public DeltaHistory() {
+
+        this(DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Creates an empty history with the given keyframe interval.
+     *
+     * @param keyframeInterval
+     *         the number of weeks between keyframes
+     *
+     * @throws IllegalArgumentException
+     *         if the interval is not positive
+     */
+    public DeltaHistory(int keyframeInterval) {
+
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("The keyframe interval must be positive");
+        }
+        this.keyframeInterval = keyframeInterval;
+        keyframes = new TreeMap<>();
+        deltas = new ArrayList<>();
+        transits = new ArrayList<>();
+    }
+
+    /**
+     * Returns the number of weeks between keyframes.
+     *
+     * @return the number of weeks between keyframes
+     */
+    public int getKeyframeInterval() {
+
+        return keyframeInterval;
+    }
+
+    /**
+     * Returns the number of keyframes stored.
+     *
+     * @return the number of keyframes stored
+     */
+    public int getKeyframeCount() {
+
+        return keyframes.size();
+    }
+
+    @Override
+    public int size() {
+
+        return deltas.size();
+    }
+
+    @Override
+    public void add(Ecosystem ecosystem) {
+
+        int week = size();
+        List<Pool> pools = ecosystem.getPools();
+        GuppyRecords[] records = new GuppyRecords[pools.size()];
+        for (int i = 0; i < pools.size(); i++) {
+            records[i] = recordsOf(pools.get(i));
+        }
+
+        if (week % keyframeInterval == 0 || !hasSameLayout(latest, ecosystem)) {
+            keyframes.put(week, ecosystem);
+            deltas.add(null);
+            transits.add(null);
+        } else {
+            PoolDelta[] poolDeltas = new PoolDelta[pools.size()];
+            for (int i = 0; i < pools.size(); i++) {
+                poolDeltas[i] = PoolDelta.encode(pools.get(i), latestRecords[i], records[i]);
+            }
+            deltas.add(poolDeltas);
+            List<Stream> streams = ecosystem.getStreams();
+            TransitQueue[] queues = new TransitQueue[streams.size()];
+            for (int i = 0; i < streams.size(); i++) {
+                queues[i] = streams.get(i).getTransit();
+            }
+            transits.add(queues);
+        }
+
+        latest = ecosystem;
+        latestRecords = records;
+    }
+
+    @Override
+    public Ecosystem get(int week) {
+
+        if (week < 0 || week >= size()) {
+            throw new IndexOutOfBoundsException("Week " + week + " is not stored");
+        }
+        if (week == size() - 1) {
+            return latest;
+        }
+
+        Map.Entry<Integer, Ecosystem> keyframe = keyframes.floorEntry(week);
+        Ecosystem base = keyframe.getValue();
+        if (keyframe.getKey() == week) {
+            return base;
+        }
+
+        Ecosystem ecosystem = new Ecosystem();
+        ecosystem.setSplittingOverflow(base.isSplittingOverflow());
+        List<Pool> basePools = base.getPools();
+        Map<Pool, Pool> rebuiltPools = new IdentityHashMap<>(basePools.size());
+        for (int i = 0; i < basePools.size(); i++) {
+            Pool pool = replay(basePools.get(i), i, keyframe.getKey() + 1, week);
+            rebuiltPools.put(basePools.get(i), pool);
+            // added alone, since the streams are copied from the keyframe below
+            ecosystem.addPool(pool, false);
+        }
+        List<Stream> baseStreams = base.getStreams();
+        TransitQueue[] queues = transits.get(week);
+        for (int i = 0; i < baseStreams.size(); i++) {
+            Stream stream = baseStreams.get(i);
+            Stream streamCopy = stream.copy(
+                    rebuiltPools.getOrDefault(stream.getSource(), stream.getSource()),
+                    rebuiltPools.getOrDefault(stream.getDestination(), stream.getDestination()));
+            TransitQueue queue = queues[i];
+            int weeks = Math.max(stream.getTransitWeeks(), 1);
+            streamCopy.setTransit(queue != null ? queue.copy(weeks) : new TransitQueue(weeks));
+            ecosystem.addStream(streamCopy);
+        }
+        return ecosystem;
+    }
+
+    @Override
+    public void clear() {
+
+        keyframes.clear();
+        deltas.clear();
+        transits.clear();
+        latest = null;
+        latestRecords = null;
+    }
+
+    /**
+     * Rebuilds a pool by replaying its changes over the given weeks.
+     *
+     * @param basePool
+     *         the pool in the keyframe
+     * @param index
+     *         the index of the pool in the ecosystem
+     * @param firstWeek
+     *         the first week to replay
+     * @param lastWeek
+     *         the last week to replay
+     *
+     * @return the pool at the end of the last week
+     */
+    private Pool replay(Pool basePool, int index, int firstWeek, int lastWeek) {
+
+        Pool shape = basePool;
+        GuppyRecords records = recordsOf(basePool);
+        PoolDelta poolDelta = null;
+
+        for (int week = firstWeek; week <= lastWeek; week++) {
+            poolDelta = deltas.get(week)[index];
+            if (poolDelta.snapshot != null) {
+                shape = poolDelta.snapshot;
+                records = recordsOf(shape);
+            } else {
+                records = poolDelta.apply(records);
+            }
+        }
+
+        if (poolDelta.snapshot != null) {
+            return poolDelta.snapshot;
+        }
+
+        Pool pool = new Pool(poolDelta.name, poolDelta.volumeLitres, poolDelta.temperature,
+                             poolDelta.pH, poolDelta.nutrientCoefficient);
+        pool.setIdentificationNumber(poolDelta.identificationNumber);
+        if (shape.getStorage() instanceof ColumnarCreatureStorage) {
+            pool.setStorage(new ColumnarCreatureStorage());
+        }
+        pool.getStorage().addAll(records.toCreatures());
+        return pool;
+    }
+
+    /**
+     * Records the creatures of the given pool.
+     *
+     * @param pool
+     *         the pool to record
+     *
+     * @return the records of the creatures, or null if they cannot be recorded
+     */
+    private static GuppyRecords recordsOf(Pool pool) {
+
+        CreatureStorage storage = pool.getStorage();
+        if (!(storage instanceof ListCreatureStorage)
+                && !(storage instanceof ColumnarCreatureStorage)) {
+            return null;
+        }
+        return GuppyRecords.of(storage.viewCreatures());
+    }
+
+    /**
+     * Returns whether the given ecosystems have the same pools and the same streams between them.
+     *
+     * @param previous
+     *         the earlier ecosystem, or null
+     * @param current
+     *         the later ecosystem
+     *
+     * @return true if the ecosystems have the same layout; false otherwise
+     */
+    private static boolean hasSameLayout(Ecosystem previous, Ecosystem current) {
+
+        if (previous == null || previous.getPools().size() != current.getPools().size()
+                || previous.getStreams().size() != current.getStreams().size()
+                || previous.isSplittingOverflow() != current.isSplittingOverflow()) {
+            return false;
+        }
+        Map<Pool, Integer> previousIndices = indicesOf(previous);
+        Map<Pool, Integer> currentIndices = indicesOf(current);
+        for (int i = 0; i < current.getStreams().size(); i++) {
+            Stream before = previous.getStreams().get(i);
+            Stream after = current.getStreams().get(i);
+            if (!before.getName().equals(after.getName())
+                    || Double.compare(before.getTemperature(), after.getTemperature()) != 0
+                    || Double.compare(before.getpH(), after.getpH()) != 0
+                    || Double.compare(before.getFlowWeight(), after.getFlowWeight()) != 0
+                    || Double.compare(before.getCapacityLitres(), after.getCapacityLitres()) != 0
+                    || before.getTransitWeeks() != after.getTransitWeeks()
+                    || indexOf(before.getSource(), previousIndices)
+                    != indexOf(after.getSource(), currentIndices)
+                    || indexOf(before.getDestination(), previousIndices)
+                    != indexOf(after.getDestination(), currentIndices)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of each pool of the given ecosystem, by identity.
+     *
+     * @param ecosystem
+     *         the ecosystem whose pools to index
+     *
+     * @return the index of each pool
+     */
+    private static Map<Pool, Integer> indicesOf(Ecosystem ecosystem) {
+
+        List<Pool> pools = ecosystem.getPools();
+        Map<Pool, Integer> indices = new IdentityHashMap<>(pools.size());
+        for (int i = 0; i < pools.size(); i++) {
+            indices.put(pools.get(i), i);
+        }
+        return indices;
+    }
+
+    /**
+     * Returns the index of the given pool among the given indices.
+     *
+     * @param pool
+     *         the pool to find
+     * @param indices
+     *         the index of each pool of an ecosystem
+     *
+     * @return the index of the pool, or -1 if it is not in the ecosystem
+     */
+    private static int indexOf(Pool pool, Map<Pool, Integer> indices) {
+
+        Integer index = indices.get(pool);
+        return index == null ? -1 : index;
+    }
+
+    /** Holds the changes to a single pool over a single week. */
+    private static final class PoolDelta {
+
+        /** The whole pool, if its changes could not be recorded; otherwise null. */
+        private Pool snapshot;
+
+        /** The name of the pool. */
+        private String name;
+
+        /** The volume of the pool in Litres. */
+        private double volumeLitres;
+
+        /** The temperature of the pool. */
+        private double temperature;
+
+        /** The pH of the pool. */
+        private double pH;
+
+        /** The nutrient coefficient of the pool. */
+        private double nutrientCoefficient;
+
+        /** The identification number of the pool. */
+        private int identificationNumber;
+
+        /** The positions in the previous week of the creatures that are gone, in order. */
+        private int[] removed;
+
+        /** The positions of the remaining creatures that changed other than by ageing. */
+        private int[] changedPositions;
+
+        /** The creatures that changed other than by ageing. */
+        private GuppyRecords changed;
+
+        /** The creatures added after the remaining creatures. */
+        private GuppyRecords added;
+
+        /**
+         * Records the changes to the given pool since the previous week.
+         *
+         * @param pool
+         *         the pool at the end of the week
+         * @param previous
+         *         the creatures of the pool in the previous week, or null if unrecorded
+         * @param current
+         *         the creatures of the pool at the end of the week, or null if unrecorded
+         *
+         * @return the changes to the pool
+         */
+        private static PoolDelta encode(Pool pool, GuppyRecords previous, GuppyRecords current) {
+
+            PoolDelta poolDelta = new PoolDelta();
+            if (previous == null || current == null || !poolDelta.diff(previous, current)) {
+                poolDelta = new PoolDelta();
+                poolDelta.snapshot = pool;
+                return poolDelta;
+            }
+            poolDelta.name = pool.getName();
+            poolDelta.volumeLitres = pool.getVolumeLitres();
+            poolDelta.temperature = pool.getTemperature();
+            poolDelta.pH = pool.getpH();
+            poolDelta.nutrientCoefficient = pool.getNutrientCoefficient();
+            poolDelta.identificationNumber = pool.getIdentificationNumber();
+            return poolDelta;
+        }
+
+        /**
+         * Records the changes between the given creatures.
+         * <p>
+         * The remaining creatures must keep their order, and new creatures must follow them.
+         *
+         * @param previous
+         *         the creatures of the previous week
+         * @param current
+         *         the creatures at the end of the week
+         *
+         * @return true if the changes could be recorded; false otherwise
+         */
+        private boolean diff(GuppyRecords previous, GuppyRecords current) {
+
+            Map<Integer, Integer> previousPositions = new HashMap<>(previous.size() * 2);
+            for (int i = 0; i < previous.size(); i++) {
+                if (previousPositions.put(previous.getIdentifier(i), i) != null) {
+                    return false;
+                }
+            }
+
+            IntList removedList = new IntList();
+            IntList changedList = new IntList();
+            changed = new GuppyRecords();
+            added = new GuppyRecords();
+            int next = 0;
+
+            for (int i = 0; i < current.size(); i++) {
+                Integer position = previousPositions.get(current.getIdentifier(i));
+                if (position == null) {
+                    added.add(current, i, 0);
+                } else if (added.size() > 0 || position < next) {
+                    return false;
+                } else {
+                    while (next < position) {
+                        removedList.add(next++);
+                    }
+                    next++;
+                    if (!current.hasOnlyAged(i, previous, position, 1)) {
+                        changedList.add(i);
+                        changed.add(current, i, 0);
+                    }
+                }
+            }
+            while (next < previous.size()) {
+                removedList.add(next++);
+            }
+
+            removed = removedList.toArray();
+            changedPositions = changedList.toArray();
+            changed.trim();
+            added.trim();
+            return true;
+        }
+
+        /**
+         * Applies these changes to the creatures of the previous week.
+         *
+         * @param previous
+         *         the creatures of the previous week
+         *
+         * @return the creatures at the end of the week
+         */
+        private GuppyRecords apply(GuppyRecords previous) {
+
+            GuppyRecords current = new GuppyRecords(
+                    Math.max(previous.size() - removed.length + added.size(), 1));
+            int nextRemoved = 0;
+            int nextChanged = 0;
+            for (int i = 0; i < previous.size(); i++) {
+                if (nextRemoved < removed.length && removed[nextRemoved] == i) {
+                    nextRemoved++;
+                } else if (nextChanged < changedPositions.length
+                        && changedPositions[nextChanged] == current.size()) {
+                    current.add(changed, nextChanged++, 0);
+                } else {
+                    current.add(previous, i, 1);
+                }
+            }
+            for (int i = 0; i < added.size(); i++) {
+                current.add(added, i, 0);
+            }
+            return current;
+        }
+    }
+
+    /** Collects ints without boxing them. */
+    private static final class IntList {
+
+        /** The ints collected. */
+        private int[] values = new int[16];
+
+        /** The number of ints collected. */
+        private int size;
+
+        /**
+         * Adds the given int.
+         *
+         * @param value
+         *         the int to add
+         */
+        private void add(int value) {
+
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Returns the ints collected.
+         *
+         * @return the ints collected
+         */
+        private int[] toArray() {
+
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package io.github.paulszefer.sim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates an ecosystem split across several {@link DistributedWorker}s, each owning a
+ * partition of its pools, so that the ecosystem need not fit in the heap of a single process.
+ * <p>
+ * The coordinator listens on the loopback interface. Workers are started on this machine with
+ * {@link #startLocalWorkers()}, or started separately and connected with
+ * {@link #acceptWorkers()}. Each week the workers step their own pools; creatures crossing a
+ * stream into another worker's pool are sent through the coordinator, which forwards them
+ * without decoding them once every worker has stepped, as described in
+ * {@link DistributedProtocol}.
+ * <p>
+ * The pools are split by {@link Partitioning#balanced(Topology, int)} with one partition for each
+ * worker, and every pool draws from the random streams of its index, so the weeks are exactly
+ * those of a {@link SimulationEngine} with the same seed and the number of workers as its number
+ * of partitions.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class DistributedCoordinator implements Closeable {
+
+    /** The time in milliseconds to wait for a worker to connect. */
+    private static final int ACCEPT_TIMEOUT = 60000;
+
+    /** The time in seconds to wait for a local worker to exit once it has been shut down. */
+    private static final int EXIT_TIMEOUT = 10;
+
+    /** The socket that the workers connect to. */
+    private final ServerSocket serverSocket;
+
+    /** The number of workers. */
+    private final int workerCount;
+
+    /** The connections to the workers, by partition. */
+    private final List<DistributedProtocol.Connection> workers;
+
+    /** The processes of the workers started on this machine. */
+    private final List<Process> processes;
+
+    /** The partition that owns each pool of the loaded ecosystem, or null if none is loaded. */
+    private Partitioning partitioning;
+
+    /**
+     * Creates a coordinator of the given number of workers, listening on a free port of the
+     * loopback interface.
+     *
+     * @param workerCount
+     *         the number of workers
+     *
+     * @throws IOException
+     *         if the coordinator cannot listen for workers
+     * @throws IllegalArgumentException
+     *         if the number of workers is not positive
+     */
+    public DistributedCoordinator(int workerCount) throws IOException {
+
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("The number of workers is not positive");
+        }
+        this.workerCount = workerCount;
+        serverSocket = new ServerSocket(0, workerCount, InetAddress.getLoopbackAddress());
+        serverSocket.setSoTimeout(ACCEPT_TIMEOUT);
+        workers = new ArrayList<>(workerCount);
+        processes = new ArrayList<>(workerCount);
+    }
+
+    /**
+     * Returns the port that the workers connect to.
+     *
+     * @return the port that the workers connect to
+     */
+    public int getPort() {
+
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of workers.
+     *
+     * @return the number of workers
+     */
+    public int getWorkerCount() {
+
+        return workerCount;
+    }
+
+    /**
+     * Returns the partition that owns each pool of the loaded ecosystem.
+     *
+     * @return the partitioning, or null if no ecosystem has been loaded
+     */
+    public Partitioning getPartitioning() {
+
+        return partitioning;
+    }
+
+    /**
+     * Starts each worker in a new Java process on this machine, with the class path of this
+     * process, and waits for them to connect.
+     *
+     * @throws IOException
+     *         if a process cannot be started or does not connect
+     */
+    public void startLocalWorkers() throws IOException {
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        for (int i = workers.size(); i < workerCount; i++) {
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                             DistributedWorker.class.getName(), "127.0.0.1",
+                                             Integer.toString(getPort())).inheritIO().start());
+        }
+        acceptWorkers();
+    }
+
+    /**
+     * Waits for the workers that have not yet connected. Each is given the next partition in the
+     * order they connect.
+     *
+     * @throws IOException
+     *         if a worker does not connect in time or does not speak the protocol
+     */
+    public void acceptWorkers() throws IOException {
+
+        while (workers.size() < workerCount) {
+            DistributedProtocol.Connection worker =
+                    new DistributedProtocol.Connection(serverSocket.accept());
+            ByteBuffer hello = worker.receive(DistributedProtocol.HELLO).getBuffer();
+            if (hello.remaining() < 8 || hello.getInt() != DistributedProtocol.MAGIC
+                    || hello.getInt() != DistributedProtocol.VERSION) {
+                worker.close();
+                throw new IOException("A worker does not speak version "
+                        + DistributedProtocol.VERSION + " of the protocol");
+            }
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Splits the given ecosystem among the workers, replacing any ecosystem they hold.
+     * <p>
+     * The ecosystem itself is not kept; each worker receives its structure and the creatures of
+     * its own pools.
+     *
+     * @param ecosystem
+     *         the ecosystem to simulate
+     * @param seed
+     *         the seed of the random streams of the simulation
+     *
+     * @throws IOException
+     *         if a worker cannot be reached or fails to load its part
+     * @throws IllegalStateException
+     *         if not every worker has connected
+     */
+    public void load(Ecosystem ecosystem, long seed) throws IOException {
+
+        requireWorkers();
+        int poolCount = ecosystem.getPools().size();
+        Partitioning loading = Partitioning.balanced(ecosystem.getTopology(), workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            DistributedProtocol.Payload payload = new DistributedProtocol.Payload();
+            payload.putInt(i).putLong(seed).putInt(poolCount);
+            for (int j = 0; j < poolCount; j++) {
+                payload.putInt(loading.getOwner(j));
+            }
+            payload.putEcosystem(ecosystem, loading, i);
+            workers.get(i).send(DistributedProtocol.LOAD, payload);
+            workers.get(i).flush();
+        }
+        for (DistributedProtocol.Connection worker : workers) {
+            worker.receive(DistributedProtocol.READY);
+        }
+        partitioning = loading;
+    }
+
+    /**
+     * Simulates a week passing in the loaded ecosystem.
+     *
+     * @param week
+     *         the number of the week being simulated
+     *
+     * @return the results of the week
+     *
+     * @throws IOException
+     *         if a worker cannot be reached or fails to step
+     * @throws IllegalStateException
+     *         if no ecosystem has been loaded
+     */
+    public WeekReport step(int week) throws IOException {
+
+        requireEcosystem();
+        for (DistributedProtocol.Connection worker : workers) {
+            worker.send(DistributedProtocol.STEP, new DistributedProtocol.Payload().putInt(week));
+            worker.flush();
+        }
+
+        // the transfers to each worker, in order of sending worker and then of sending
+        List<List<byte[]>> transfers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            transfers.add(new ArrayList<>());
+        }
+        long[] totals = new long[5];
+        for (DistributedProtocol.Connection worker : workers) {
+            DistributedProtocol.Message message = worker.receive();
+            while (message.getType() == DistributedProtocol.TRANSFER) {
+                int destination = message.getBuffer().getInt();
+                if (destination < 0 || destination >= partitioning.size()) {
+                    throw new IOException("A worker sent creatures to pool " + destination);
+                }
+                transfers.get(partitioning.getOwner(destination)).add(message.getPayload());
+                message = worker.receive();
+            }
+            if (message.getType() == DistributedProtocol.FAILED) {
+                throw new IOException("A worker failed: " + message.getFailure());
+            }
+            if (message.getType() != DistributedProtocol.STEPPED) {
+                throw new IOException("Unexpected message " + message.getType());
+            }
+            ByteBuffer stepped = message.getBuffer();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += stepped.getLong();
+            }
+        }
+
+        for (int i = 0; i < workerCount; i++) {
+            DistributedProtocol.Connection worker = workers.get(i);
+            for (byte[] transfer : transfers.get(i)) {
+                worker.send(DistributedProtocol.DELIVER, transfer);
+            }
+            worker.send(DistributedProtocol.END_DELIVERY);
+            worker.flush();
+        }
+
+        long[] poolPopulations = new long[partitioning.size()];
+        long ecosystemPopulation = 0;
+        for (DistributedProtocol.Connection worker : workers) {
+            ByteBuffer delivered = worker.receive(DistributedProtocol.DELIVERED).getBuffer();
+            int owned = delivered.getInt();
+            for (int i = 0; i < owned; i++) {
+                int pool = delivered.getInt();
+                long population = delivered.getLong();
+                poolPopulations[pool] = population;
+                ecosystemPopulation += population;
+            }
+        }
+
+        long crowdedOut = totals[4];
+        return new WeekReport(week, totals[0], totals[1], crowdedOut, totals[2],
+                              totals[3] + crowdedOut, poolPopulations, ecosystemPopulation);
+    }
+
+    /**
+     * Gathers the pools of every worker into a single ecosystem.
+     *
+     * @return the current state of the ecosystem
+     *
+     * @throws IOException
+     *         if a worker cannot be reached or sends an invalid part
+     * @throws IllegalStateException
+     *         if no ecosystem has been loaded
+     */
+    public Ecosystem collect() throws IOException {
+
+        requireEcosystem();
+        for (DistributedProtocol.Connection worker : workers) {
+            worker.send(DistributedProtocol.COLLECT);
+            worker.flush();
+        }
+
+        Ecosystem ecosystem = null;
+        for (int i = 0; i < workerCount; i++) {
+            Ecosystem part = EcosystemCodec.read(
+                    workers.get(i).receive(DistributedProtocol.COLLECTED).getBuffer());
+            if (part.getPools().size() != partitioning.size()) {
+                throw new IOException("A worker holds " + part.getPools().size() + " pools, not "
+                        + partitioning.size());
+            }
+            if (ecosystem == null) {
+                ecosystem = part;
+            }
+            for (int j = 0; j < partitioning.size(); j++) {
+                if (partitioning.getOwner(j) == i && part != ecosystem) {
+                    ecosystem.getPools().get(j).setStorage(part.getPools().get(j).getStorage());
+                }
+            }
+            // the creatures crossing a stream are held by the worker that owns its source
+            for (int j = 0; j < ecosystem.getStreams().size() && part != ecosystem; j++) {
+                Stream stream = part.getStreams().get(j);
+                if (partitioning.getOwner(part.getTopology().indexOf(stream.getSource())) == i) {
+                    ecosystem.getStreams().get(j).setTransit(stream.getTransit());
+                }
+            }
+        }
+        return ecosystem;
+    }
+
+    /**
+     * Shuts down the workers and stops listening, waiting briefly for the local workers to exit.
+     *
+     * @throws IOException
+     *         if the coordinator cannot stop listening
+     */
+    @Override
+    public void close() throws IOException {
+
+        for (DistributedProtocol.Connection worker : workers) {
+            try {
+                worker.send(DistributedProtocol.SHUTDOWN);
+                worker.flush();
+                worker.close();
+            } catch (IOException e) {
+                // the worker has already gone
+            }
+        }
+        workers.clear();
+        partitioning = null;
+
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(EXIT_TIMEOUT, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        processes.clear();
+        serverSocket.close();
+    }
+
+    /**
+     * Checks that every worker has connected.
+     *
+     * @throws IllegalStateException
+     *         if not every worker has connected
+     */
+    private void requireWorkers() {
+
+        if (workers.size() < workerCount) {
+            throw new IllegalStateException("Only " + workers.size() + " of " + workerCount
+                    + " workers have connected");
+        }
+    }
+
+    /**
+     * Checks that an ecosystem has been loaded.
+     *
+     * @throws IllegalStateException
+     *         if no ecosystem has been loaded
+     */
+    private void requireEcosystem() {
+
+        if (partitioning == null) {
+            throw new IllegalStateException("No ecosystem has been loaded");
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package io.github.paulszefer.sim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The messages exchanged by a {@link DistributedCoordinator} and its {@link DistributedWorker}s.
+ * <p>
+ * Every message is a frame of a one-byte type, the length of its payload as an int and the
+ * payload. Ecosystems and storages of creatures in a payload are written by
+ * {@link EcosystemCodec} and always come last, so that they can be read straight out of the
+ * payload. A week runs as follows:
+ * <ol>
+ * <li>The coordinator sends {@link #STEP} to every worker.</li>
+ * <li>Each worker steps its pools and adjusts them for crowding, sending a {@link #TRANSFER} for
+ * each group of creatures bound for a pool of another worker, then {@link #STEPPED} with its
+ * totals.</li>
+ * <li>Once every worker has stepped, the coordinator forwards the transfers to the workers that
+ * own their destinations as {@link #DELIVER}s, in order of sending worker and then of sending,
+ * followed by {@link #END_DELIVERY}.</li>
+ * <li>Each worker moves the delivered creatures into their pools, removes its dead and answers
+ * {@link #DELIVERED} with the populations of its pools.</li>
+ * </ol>
+ * The two rounds are the barriers of the week; no worker starts a week before every worker has
+ * received the creatures of the last.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class DistributedProtocol {
+
+    /** The number identifying the protocol, "GPPD" in ASCII. */
+    static final int MAGIC = 0x47505044;
+
+    /**
+     * The version of the protocol; version 1 did not carry the flow weights of streams and
+     * version 2 did not carry their capacities, transit times or the creatures crossing them.
+     */
+    static final int VERSION = 3;
+
+    /** Sent by a worker when it connects: the magic number and version. */
+    static final byte HELLO = 1;
+
+    /**
+     * Assigns a worker its part of an ecosystem: the partition of the worker, the seed, the
+     * number of pools, the partition that owns each pool and the ecosystem with only the
+     * creatures of the worker's pools.
+     */
+    static final byte LOAD = 2;
+
+    /** Sent by a worker once it has loaded its part of the ecosystem. */
+    static final byte READY = 3;
+
+    /** Asks every worker to step its pools through the week: the number of the week. */
+    static final byte STEP = 4;
+
+    /** Creatures crossing to a pool of another worker: the index of the pool and the storage. */
+    static final byte TRANSFER = 5;
+
+    /**
+     * Sent by a worker once it has stepped its pools and sent its transfers: the numbers of
+     * creatures that died of old age, starved to death, were born, were removed and died to
+     * overcrowding.
+     */
+    static final byte STEPPED = 6;
+
+    /** Creatures arriving at a pool of the worker: the index of the pool and the storage. */
+    static final byte DELIVER = 7;
+
+    /** Sent to each worker after the last of its deliveries. */
+    static final byte END_DELIVERY = 8;
+
+    /**
+     * Sent by a worker once it has received its deliveries: the number of pools it owns, then
+     * the index and population of each.
+     */
+    static final byte DELIVERED = 9;
+
+    /** Asks a worker for its pools. */
+    static final byte COLLECT = 10;
+
+    /** The ecosystem of a worker, with only the creatures of the pools it owns. */
+    static final byte COLLECTED = 11;
+
+    /** Asks a worker to disconnect and exit. */
+    static final byte SHUTDOWN = 12;
+
+    /** Sent by a worker that could not carry out a request: the description of the problem. */
+    static final byte FAILED = 13;
+
+    /** The largest payload accepted, so that a corrupt length cannot exhaust the heap. */
+    private static final int MAXIMUM_PAYLOAD = Integer.MAX_VALUE - 8;
+
+    /** Prevents instantiation. */
+    private DistributedProtocol() {
+
+    }
+
+    /** A frame received from the other end of a connection. */
+    static final class Message {
+
+        /** The type of the message. */
+        private final byte type;
+
+        /** The payload of the message. */
+        private final byte[] payload;
+
+        /**
+         * Creates a message.
+         *
+         * @param type
+         *         the type of the message
+         * @param payload
+         *         the payload of the message
+         */
+        private Message(byte type, byte[] payload) {
+
+            this.type = type;
+            this.payload = payload;
+        }
+
+        /**
+         * Returns the type of the message.
+         *
+         * @return the type of the message
+         */
+        byte getType() {
+
+            return type;
+        }
+
+        /**
+         * Returns the payload of the message.
+         *
+         * @return the payload of the message
+         */
+        byte[] getPayload() {
+
+            return payload;
+        }
+
+        /**
+         * Returns a buffer over the payload of the message.
+         *
+         * @return a buffer over the payload
+         */
+        ByteBuffer getBuffer() {
+
+            return ByteBuffer.wrap(payload);
+        }
+
+        /**
+         * Returns the description of the problem carried by a {@link #FAILED} message.
+         *
+         * @return the description of the problem
+         */
+        String getFailure() {
+
+            return new String(payload, StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Builds the payload of a message. */
+    static final class Payload {
+
+        /** The bytes of the payload. */
+        private final ByteArrayOutputStream bytes;
+
+        /** The writer of the primitive values of the payload. */
+        private final DataOutputStream data;
+
+        /** Creates an empty payload. */
+        Payload() {
+
+            bytes = new ByteArrayOutputStream();
+            data = new DataOutputStream(bytes);
+        }
+
+        /**
+         * Appends an int.
+         *
+         * @param value
+         *         the int to append
+         *
+         * @return this payload
+         *
+         * @throws IOException
+         *         never, since the payload is held in memory
+         */
+        Payload putInt(int value) throws IOException {
+
+            data.writeInt(value);
+            return this;
+        }
+
+        /**
+         * Appends a long.
+         *
+         * @param value
+         *         the long to append
+         *
+         * @return this payload
+         *
+         * @throws IOException
+         *         never, since the payload is held in memory
+         */
+        Payload putLong(long value) throws IOException {
+
+            data.writeLong(value);
+            return this;
+        }
+
+        /**
+         * Appends the given storage of creatures.
+         *
+         * @param storage
+         *         the storage to append
+         *
+         * @return this payload
+         *
+         * @throws IOException
+         *         never, since the payload is held in memory
+         */
+        Payload putStorage(CreatureStorage storage) throws IOException {
+
+            EcosystemCodec.write(storage, Channels.newChannel(bytes));
+            return this;
+        }
+
+        /**
+         * Appends the part of the given ecosystem owned by the given partition.
+         *
+         * @param ecosystem
+         *         the ecosystem to append
+         * @param partitioning
+         *         the partition that owns each pool
+         * @param partition
+         *         the partition whose creatures are appended
+         *
+         * @return this payload
+         *
+         * @throws IOException
+         *         never, since the payload is held in memory
+         */
+        Payload putEcosystem(Ecosystem ecosystem, Partitioning partitioning, int partition)
+                throws IOException {
+
+            EcosystemCodec.write(ecosystem, partitioning, partition, Channels.newChannel(bytes));
+            return this;
+        }
+
+        /**
+         * Returns the bytes of the payload.
+         *
+         * @return the bytes of the payload
+         */
+        byte[] toByteArray() {
+
+            return bytes.toByteArray();
+        }
+    }
+
+    /** One end of the connection between the coordinator and a worker. */
+    static final class Connection implements Closeable {
+
+        /** The socket of the connection. */
+        private final Socket socket;
+
+        /** The stream of frames received. */
+        private final DataInputStream input;
+
+        /** The stream of frames sent. */
+        private final DataOutputStream output;
+
+        /**
+         * Wraps the given connected socket.
+         *
+         * @param socket
+         *         the socket to wrap
+         *
+         * @throws IOException
+         *         if the streams of the socket cannot be opened
+         */
+        Connection(Socket socket) throws IOException {
+
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Sends a message with no payload. The message is buffered until {@link #flush()}.
+         *
+         * @param type
+         *         the type of the message
+         *
+         * @throws IOException
+         *         if the message cannot be sent
+         */
+        void send(byte type) throws IOException {
+
+            send(type, new byte[0]);
+        }
+
+        /**
+         * Sends a message with the given payload. The message is buffered until
+         * {@link #flush()}.
+         *
+         * @param type
+         *         the type of the message
+         * @param payload
+         *         the payload of the message
+         *
+         * @throws IOException
+         *         if the message cannot be sent
+         */
+        void send(byte type, Payload payload) throws IOException {
+
+            send(type, payload.toByteArray());
+        }
+
+        /**
+         * Sends a message with the given payload. The message is buffered until
+         * {@link #flush()}.
+         *
+         * @param type
+         *         the type of the message
+         * @param payload
+         *         the payload of the message
+         *
+         * @throws IOException
+         *         if the message cannot be sent
+         */
+        void send(byte type, byte[] payload) throws IOException {
+
+            output.writeByte(type);
+            output.writeInt(payload.length);
+            output.write(payload);
+        }
+
+        /**
+         * Sends the buffered messages.
+         *
+         * @throws IOException
+         *         if the messages cannot be sent
+         */
+        void flush() throws IOException {
+
+            output.flush();
+        }
+
+        /**
+         * Waits for and returns the next message.
+         *
+         * @return the message received
+         *
+         * @throws IOException
+         *         if the connection is closed or the frame is not valid
+         */
+        Message receive() throws IOException {
+
+            byte type = input.readByte();
+            int length = input.readInt();
+            if (length < 0 || length > MAXIMUM_PAYLOAD) {
+                throw new IOException("Invalid message length " + length);
+            }
+            byte[] payload = new byte[length];
+            input.readFully(payload);
+            return new Message(type, payload);
+        }
+
+        /**
+         * Waits for the next message, which must be of the given type.
+         *
+         * @param type
+         *         the type expected
+         *
+         * @return the message received
+         *
+         * @throws IOException
+         *         if the connection is closed, the other end failed or the message is of
+         *         another type
+         */
+        Message receive(byte type) throws IOException {
+
+            Message message = receive();
+            if (message.getType() == FAILED) {
+                throw new IOException("A worker failed: " + message.getFailure());
+            }
+            if (message.getType() != type) {
+                throw new IOException("Expected message " + type + " but received "
+                        + message.getType());
+            }
+            return message;
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package io.github.paulszefer.sim;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Steps one partition of an ecosystem for a {@link DistributedCoordinator}, usually in a process
+ * of its own.
+ * <p>
+ * The worker holds every pool and stream of the ecosystem, so that pools and random streams keep
+ * their indices, but only the pools of its partition hold creatures. It steps and adjusts those
+ * pools exactly as a partition of {@link Ecosystem#adjustForCrowding(RandomStreams, int,
+ * Partitioning, java.util.concurrent.ForkJoinPool)} would, sending the creatures bound for other
+ * partitions to the coordinator instead of a mailbox.
+ * <p>
+ * Run as a program, the worker connects to the coordinator at the host and port given as its
+ * arguments and exits when the coordinator shuts it down.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class DistributedWorker {
+
+    /** The connection to the coordinator. */
+    private final DistributedProtocol.Connection connection;
+
+    /** The ecosystem, with only the creatures of the pools of this worker. */
+    private Ecosystem ecosystem;
+
+    /** The partition that owns each pool. */
+    private Partitioning partitioning;
+
+    /** The partition of this worker. */
+    private int partition;
+
+    /** The random number streams of the simulation. */
+    private RandomStreams streams;
+
+    /** The engine used to step the pools of this worker. */
+    private SimulationEngine engine;
+
+    /**
+     * Creates a worker on the given connection.
+     *
+     * @param connection
+     *         the connection to the coordinator
+     */
+    private DistributedWorker(DistributedProtocol.Connection connection) {
+
+        this.connection = connection;
+    }
+
+    /**
+     * Connects a worker to the coordinator at the given address.
+     *
+     * @param host
+     *         the host of the coordinator
+     * @param port
+     *         the port of the coordinator
+     *
+     * @return the connected worker
+     *
+     * @throws IOException
+     *         if the coordinator cannot be reached
+     */
+    public static DistributedWorker connect(String host, int port) throws IOException {
+
+        DistributedProtocol.Connection connection =
+                new DistributedProtocol.Connection(new Socket(host, port));
+        connection.send(DistributedProtocol.HELLO,
+                        new DistributedProtocol.Payload().putInt(DistributedProtocol.MAGIC)
+                                                         .putInt(DistributedProtocol.VERSION));
+        connection.flush();
+        return new DistributedWorker(connection);
+    }
+
+    /**
+     * Carries out the requests of the coordinator until it shuts the worker down.
+     * <p>
+     * A request that cannot be carried out is reported to the coordinator, after which the
+     * worker stops.
+     *
+     * @throws IOException
+     *         if the connection to the coordinator fails
+     */
+    public void run() throws IOException {
+
+        try {
+            while (true) {
+                DistributedProtocol.Message message = connection.receive();
+                try {
+                    if (!handle(message)) {
+                        return;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    String problem = String.valueOf(e.getMessage());
+                    connection.send(DistributedProtocol.FAILED,
+                                    problem.getBytes(StandardCharsets.UTF_8));
+                    connection.flush();
+                    return;
+                }
+            }
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Carries out the given request.
+     *
+     * @param message
+     *         the request
+     *
+     * @return false if the worker has been shut down; true otherwise
+     *
+     * @throws IOException
+     *         if the request is not valid or the answer cannot be sent
+     */
+    private boolean handle(DistributedProtocol.Message message) throws IOException {
+
+        switch (message.getType()) {
+            case DistributedProtocol.LOAD:
+                load(message.getBuffer());
+                return true;
+            case DistributedProtocol.STEP:
+                step(message.getBuffer().getInt());
+                return true;
+            case DistributedProtocol.DELIVER:
+                deliver(message.getBuffer());
+                return true;
+            case DistributedProtocol.END_DELIVERY:
+                endDelivery();
+                return true;
+            case DistributedProtocol.COLLECT:
+                connection.send(DistributedProtocol.COLLECTED,
+                                new DistributedProtocol.Payload().putEcosystem(ecosystem,
+                                                                               partitioning,
+                                                                               partition));
+                connection.flush();
+                return true;
+            case DistributedProtocol.SHUTDOWN:
+                return false;
+            default:
+                throw new IOException("Unexpected message " + message.getType());
+        }
+    }
+
+    /**
+     * Loads the part of the ecosystem assigned to this worker.
+     *
+     * @param payload
+     *         the payload of the request
+     *
+     * @throws IOException
+     *         if the payload is not valid or the answer cannot be sent
+     */
+    private void load(ByteBuffer payload) throws IOException {
+
+        partition = payload.getInt();
+        streams = new RandomStreams(payload.getLong());
+        int[] owners = new int[payload.getInt()];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = payload.getInt();
+        }
+        partitioning = new Partitioning(owners);
+        ecosystem = EcosystemCodec.read(payload);
+        ecosystem.prepareForPartitions(partitioning);
+        engine = new SimulationEngine(streams);
+
+        connection.send(DistributedProtocol.READY);
+        connection.flush();
+    }
+
+    /**
+     * Steps the pools of this worker through the given week and sends the creatures that leave
+     * the partition to the coordinator.
+     *
+     * @param week
+     *         the number of the week being simulated
+     *
+     * @throws IOException
+     *         if the results cannot be sent
+     */
+    private void step(int week) throws IOException {
+
+        List<Pool> pools = ecosystem.getPools();
+        long[] totals = engine.stepPartition(pools, week, partitioning, partition);
+        long diedInTransit = ecosystem.ageCreaturesInTransit(partitioning, partition);
+        totals[0] += diedInTransit;
+        totals[3] += diedInTransit;
+
+        // a worker with more partitions than pools may own none of them
+        int partitionCount = Math.max(partitioning.getPartitionCount(), partition + 1);
+        Mailbox[] mailboxes = new Mailbox[partitionCount + 1];
+        for (int i = 0; i < mailboxes.length; i++) {
+            mailboxes[i] = new Mailbox(partitionCount);
+        }
+        long crowdedOut = ecosystem.adjustPartition(streams, week, partitioning, partition,
+                                                    mailboxes);
+
+        Topology topology = ecosystem.getTopology();
+        for (Mailbox mailbox : mailboxes) {
+            for (int i = 0; i < mailbox.size(partition); i++) {
+                int destination = topology.indexOf(mailbox.getDestination(partition, i));
+                connection.send(DistributedProtocol.TRANSFER,
+                                new DistributedProtocol.Payload()
+                                        .putInt(destination)
+                                        .putStorage(mailbox.getCreatures(partition, i)));
+            }
+        }
+
+        connection.send(DistributedProtocol.STEPPED,
+                        new DistributedProtocol.Payload().putLong(totals[0])
+                                                         .putLong(totals[1])
+                                                         .putLong(totals[2])
+                                                         .putLong(totals[3])
+                                                         .putLong(crowdedOut));
+        connection.flush();
+    }
+
+    /**
+     * Moves delivered creatures into their pool.
+     *
+     * @param payload
+     *         the payload of the delivery
+     *
+     * @throws IOException
+     *         if the payload is not valid
+     */
+    private void deliver(ByteBuffer payload) throws IOException {
+
+        int destination = payload.getInt();
+        if (destination < 0 || destination >= ecosystem.getPools().size()
+                || partitioning.getOwner(destination) != partition) {
+            throw new IOException("Pool " + destination + " does not belong to partition "
+                    + partition);
+        }
+        ecosystem.getPools().get(destination).getStorage()
+                 .absorb(EcosystemCodec.readStorage(payload));
+    }
+
+    /**
+     * Removes the dead creatures of the pools of this worker and sends their populations.
+     *
+     * @throws IOException
+     *         if the populations cannot be sent
+     */
+    private void endDelivery() throws IOException {
+
+        List<Pool> pools = ecosystem.getPools();
+        DistributedProtocol.Payload populations = new DistributedProtocol.Payload();
+        int owned = 0;
+        for (int i = 0; i < pools.size(); i++) {
+            owned += partitioning.getOwner(i) == partition ? 1 : 0;
+        }
+        populations.putInt(owned);
+        for (int i = 0; i < pools.size(); i++) {
+            if (partitioning.getOwner(i) == partition) {
+                pools.get(i).removeDeadCreatures();
+                populations.putInt(i).putLong(pools.get(i).getPopulationCount());
+            }
+        }
+
+        connection.send(DistributedProtocol.DELIVERED, populations);
+        connection.flush();
+    }
+
+    /**
+     * Connects to the coordinator at the given host and port and works until it is shut down.
+     *
+     * @param args
+     *         the host and port of the coordinator
+     */
+    public static void main(String[] args) {
+
+        if (args.length != 2) {
+            System.out.println("Usage: DistributedWorker host port");
+            System.exit(2);
+        }
+        try {
+            connect(args[0], Integer.parseInt(args[1])).run();
+        } catch (IOException | NumberFormatException e) {
+            System.out.println("The worker failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.paulszefer.sim;
+
+import java.util.Random;
+
+/**
+ * Draws random counts from the distributions used to simulate groups of creatures at once.
+ * <p>
+ * Small draws are sampled exactly; large draws use a normal approximation, which keeps the cost
+ * of a draw independent of the size of the group.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class Distributions {
+
+    /** The number of trials up to which a binomial draw simulates every trial. */
+    private static final int EXACT_TRIALS = 32;
+
+    /** The expected count up to which a binomial draw waits for each success. */
+    private static final double EXACT_MEAN = 16.0;
+
+    /** The number of terms up to which a uniform sum adds every term. */
+    private static final int EXACT_TERMS = 32;
+
+    /** Prevents instantiation. */
+    private Distributions() {
+
+    }
+
+    /**
+     * Draws the number of successes in the given number of independent trials.
+     *
+     * @param trials
+     *         the number of trials
+     * @param probability
+     *         the probability of success of each trial
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the number of successes
+     */
+    public static long binomial(long trials, double probability, Random generator) {
+
+        if (trials <= 0 || probability <= 0.0) {
+            return 0;
+        }
+        if (probability >= 1.0) {
+            return trials;
+        }
+
+        if (trials <= EXACT_TRIALS) {
+            long successes = 0;
+            for (long i = 0; i < trials; i++) {
+                if (generator.nextDouble() < probability) {
+                    successes++;
+                }
+            }
+            return successes;
+        }
+
+        boolean complement = probability > 0.5;
+        double p = complement ? 1.0 - probability : probability;
+        double mean = trials * p;
+        long successes;
+
+        if (mean <= EXACT_MEAN) {
+            // count the geometric waiting times between successes
+            double logFailure = Math.log(1.0 - p);
+            long trial = 0;
+            successes = -1;
+            do {
+                successes++;
+                trial += (long) Math.floor(Math.log(1.0 - generator.nextDouble()) / logFailure)
+                        + 1;
+            } while (trial <= trials);
+        } else {
+            double deviation = Math.sqrt(mean * (1.0 - p));
+            successes = Math.round(mean + deviation * generator.nextGaussian());
+            successes = Math.max(0, Math.min(trials, successes));
+        }
+
+        return complement ? trials - successes : successes;
+    }
+
+    /**
+     * Draws the sum of the given number of independent integers, each uniformly distributed from
+     * zero to the given maximum inclusive.
+     *
+     * @param terms
+     *         the number of integers to add
+     * @param maximum
+     *         the maximum value of each integer
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the sum of the integers
+     */
+    public static long uniformSum(long terms, int maximum, Random generator) {
+
+        if (terms <= 0) {
+            return 0;
+        }
+
+        if (terms <= EXACT_TERMS) {
+            long sum = 0;
+            for (long i = 0; i < terms; i++) {
+                sum += generator.nextInt(maximum + 1);
+            }
+            return sum;
+        }
+
+        double mean = terms * maximum / 2.0;
+        double variance = terms * (((double) maximum + 1) * (maximum + 1) - 1) / 12.0;
+        long sum = Math.round(mean + Math.sqrt(variance) * generator.nextGaussian());
+        return Math.max(0, Math.min(terms * maximum, sum));
+    }
+}
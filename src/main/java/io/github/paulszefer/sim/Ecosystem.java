@@ -1,8 +1,15 @@
 package io.github.paulszefer.sim;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Drives a simulation of an ecosystem of pools filled with creatures.
@@ -12,20 +19,38 @@ import java.util.Random;
  */
 public class Ecosystem {
 
-    /** Random number generator. */
-    private static final Random GENERATOR = new Random();
-
     /** The collection of pools in the ecosystem. */
     private List<Pool> pools;
 
     /** The collection of streams in the ecosystem. */
     private List<Stream> streams;
 
+    /** The streams flowing out of each pool, in the order they were added. */
+    private final Map<Pool, List<Stream>> outgoingStreams;
+
+    /** The table drawing among the streams flowing out of each pool by their flow weights. */
+    private final Map<Pool, AliasTable> routes;
+
+    /** The list of streams that the outgoing streams were indexed from. */
+    private List<Stream> indexedStreams;
+
+    /** The number of streams that the outgoing streams were indexed from. */
+    private int indexedCount;
+
+    /** The order in which the pools are adjusted for crowding, or null if not yet computed. */
+    private Topology topology;
+
+    /** Whether the creatures crowded out of a pool are split across all of its streams. */
+    private boolean splittingOverflow;
+
     /** Creates an ecosystem of pools connected by streams. */
     public Ecosystem() {
 
         pools = new ArrayList<>();
         streams = new ArrayList<>();
+        outgoingStreams = new IdentityHashMap<>();
+        routes = new IdentityHashMap<>();
+        indexedStreams = streams;
     }
 
     /**
@@ -58,6 +83,7 @@ public class Ecosystem {
 
         if (pools != null) {
             this.pools = pools;
+            layoutChanged();
 
             for (int i = 0; i < pools.size() - 1; i++) {
                 Stream stream = new Stream(pools.get(i), pools.get(i + 1));
@@ -76,20 +102,64 @@ public class Ecosystem {
 
         if (streams != null) {
             this.streams = streams;
+            layoutChanged();
+            indexStreams();
         }
     }
 
     /**
-     * Adds the given pool to the ecosystem.
+     * Returns whether the creatures crowded out of a pool are split across all of its streams.
+     *
+     * @return true if the overflow of a pool is split across its streams; false if it all takes
+     *         one stream
+     */
+    public boolean isSplittingOverflow() {
+
+        return splittingOverflow;
+    }
+
+    /**
+     * Sets whether the creatures crowded out of a pool are split across all of its streams.
+     * <p>
+     * By default the overflow of a pool takes a single stream, drawn in proportion to the flow
+     * weights of its streams. When split, each creature takes a stream of its own, drawn in the
+     * same proportions, so a branching river divides its overflow between its branches.
+     *
+     * @param splittingOverflow
+     *         true to split the overflow of each pool across its streams; false to send it all
+     *         down one stream
+     */
+    public void setSplittingOverflow(boolean splittingOverflow) {
+
+        this.splittingOverflow = splittingOverflow;
+    }
+
+    /**
+     * Adds the given pool to the ecosystem, connected by a new stream from the pool added before
+     * it.
      *
      * @param pool
      *         a pool to add to the ecosystem
      */
     public void addPool(Pool pool) {
 
+        addPool(pool, true);
+    }
+
+    /**
+     * Adds the given pool to the ecosystem.
+     *
+     * @param pool
+     *         a pool to add to the ecosystem
+     * @param connectToPrevious
+     *         whether to add a stream from the pool added before it
+     */
+    public void addPool(Pool pool, boolean connectToPrevious) {
+
         if (pool != null) {
             pools.add(pool);
-            if (pools.size() > 1) {
+            layoutChanged();
+            if (connectToPrevious && pools.size() > 1) {
                 Stream stream = new Stream(pools.get(pools.size() - 2), pool);
                 addStream(stream);
             }
@@ -105,7 +175,13 @@ public class Ecosystem {
     public void addStream(Stream stream) {
 
         if (stream != null) {
+            boolean indexed = isIndexed();
             streams.add(stream);
+            layoutChanged();
+            if (indexed) {
+                indexStream(stream);
+                indexedCount++;
+            }
         }
     }
 
@@ -124,6 +200,7 @@ public class Ecosystem {
     public void resetPools() {
 
         pools.clear();
+        layoutChanged();
     }
 
     /**
@@ -132,6 +209,8 @@ public class Ecosystem {
     public void resetStreams() {
 
         streams.clear();
+        layoutChanged();
+        indexStreams();
     }
 
     /**
@@ -150,38 +229,507 @@ public class Ecosystem {
         return population;
     }
 
+    /**
+     * Returns the current population of creatures in the ecosystem as a long.
+     *
+     * @return the current population of creatures in the ecosystem
+     */
+    public long getCreaturePopulationCount() {
+
+        long population = 0;
+
+        for (Pool pool : pools) {
+            population += pool.getPopulationCount();
+        }
+
+        return population;
+    }
+
+    /**
+     * Returns the number of creatures crossing the streams of the ecosystem, which are not
+     * counted in its population until they arrive.
+     *
+     * @return the number of creatures in transit
+     */
+    public long getCreaturesInTransit() {
+
+        long inTransit = 0;
+
+        for (Stream stream : streams) {
+            inTransit += stream.getCreaturesInTransit();
+        }
+
+        return inTransit;
+    }
+
+    /**
+     * Ages the creatures crossing the streams that flow out of the given partition by a week and
+     * removes those that die of old age, as the creatures of the pools are aged each week.
+     *
+     * @param partitioning
+     *         the partition that owns each pool, or null to age the creatures crossing every
+     *         stream
+     * @param partition
+     *         the partition whose streams to age
+     *
+     * @return the number of creatures in transit that died of old age
+     */
+    long ageCreaturesInTransit(Partitioning partitioning, int partition) {
+
+        if (!isIndexed()) {
+            indexStreams();
+        }
+        long died = 0;
+        for (int i = 0; i < pools.size(); i++) {
+            List<Stream> outgoing = outgoingStreams.get(pools.get(i));
+            if (outgoing == null
+                    || partitioning != null && partitioning.getOwner(i) != partition) {
+                continue;
+            }
+            for (Stream stream : outgoing) {
+                died += stream.ageTransit();
+            }
+        }
+        return died;
+    }
+
+    /**
+     * Returns the order in which the pools are adjusted for crowding.
+     * <p>
+     * The order is computed again whenever pools or streams have been added, set or reset through
+     * this ecosystem since it was last computed, or when the lists of pools and streams have
+     * changed size.
+     *
+     * @return the order of the pools
+     */
+    public Topology getTopology() {
+
+        if (topology == null || !topology.isFor(pools, streams)) {
+            topology = new Topology(pools, streams);
+        }
+        return topology;
+    }
+
     /**
      * Adjusts each pool in the ecosystem for overcrowding.
      * <p>
      * If overcrowding occurs, creatures move through a stream to the next connected pool. The
      * number of creatures that die in transport or due to there being no further pool to move to is
-     * calculated and returned.
+     * calculated and returned. The pools are adjusted in the order of the {@link Topology}, so
+     * overflow moves as far through the streams as it needs to in the same week.
+     * <p>
+     * First, the creatures crossing streams that take time to cross are advanced by a week and
+     * those that arrive are added to their destination pools, in the order of the pools the
+     * streams flow out of.
      *
-     * @return the number of creatures that died to overcrowding
+     * @return the number of creatures that died to overcrowding, limited to the largest int
      */
     public int adjustForCrowding() {
 
-        int diedToOverCrowding = 0;
+        return saturate(adjustForCrowdingCount());
+    }
 
-        for (Pool pool : pools) {
+    /**
+     * Adjusts each pool in the ecosystem for overcrowding, as {@link #adjustForCrowding()} does,
+     * and returns the number of creatures that died as a long.
+     *
+     * @return the number of creatures that died to overcrowding
+     */
+    public long adjustForCrowdingCount() {
 
-            List<Creature> weakestCreatures = pool.adjustForCrowding();
+        long diedToOverCrowding = 0;
+        Topology order = getTopology();
+        deliverArrivals(order, null, 0, null);
 
-            Stream stream = getRandomStream(pool);
-            if (stream != null) {
-                diedToOverCrowding += stream.transportCreatures(weakestCreatures);
-            } else {
-                for (Creature creature : weakestCreatures) {
-                    creature.getHealth().setAlive(false);
-                }
-                pool.addCreatures(weakestCreatures);
-                diedToOverCrowding += weakestCreatures.size();
+        for (int i = 0; i < order.size(); i++) {
+            diedToOverCrowding += adjustForCrowding(pools.get(order.get(i)),
+                                                    ThreadLocalRandom.current());
+        }
+
+        return diedToOverCrowding;
+    }
+
+    /**
+     * Adjusts each pool in the ecosystem for overcrowding, drawing from the crowding stream of
+     * each pool for the given week.
+     * <p>
+     * The pools are adjusted in the order of the {@link Topology}; each still draws from the
+     * stream of its index in the ecosystem. The creatures in transit arrive first, as they do in
+     * {@link #adjustForCrowding()}.
+     *
+     * @param streams
+     *         the random number streams of the simulation
+     * @param week
+     *         the number of the week being simulated
+     *
+     * @return the number of creatures that died to overcrowding
+     */
+    public long adjustForCrowding(RandomStreams streams, int week) {
+
+        long diedToOverCrowding = 0;
+        Topology order = getTopology();
+        deliverArrivals(order, null, 0, null);
+
+        for (int i = 0; i < order.size(); i++) {
+            int index = order.get(i);
+            Random generator = streams.stream(RandomStreams.Phase.CROWDING, week, index);
+            diedToOverCrowding += adjustForCrowding(pools.get(index), generator);
+        }
+
+        return diedToOverCrowding;
+    }
+
+    /**
+     * Adjusts each pool in the ecosystem for overcrowding with a worker for each partition of the
+     * pools, running on the given ForkJoinPool.
+     * <p>
+     * Each worker adjusts the pools it owns in the order of the {@link Topology}, moving overflow
+     * directly between them. Creatures crossing a stream into a pool owned by another worker are
+     * posted to that worker's mailbox and delivered once every worker has finished, so they are
+     * not adjusted again until the following week. Every pool draws from the crowding stream of
+     * its index and the mail is delivered in a fixed order, so the result depends only on the
+     * seed and the partitioning; with a single partition it is the same as that of
+     * {@link #adjustForCrowding(RandomStreams, int)}. The creatures in transit are queued in the
+     * streams of the worker that owns their source and arrive at the start of each week, posted
+     * like the rest if their destination is owned by another worker.
+     *
+     * @param streams
+     *         the random number streams of the simulation
+     * @param week
+     *         the number of the week being simulated
+     * @param partitioning
+     *         the partition that owns each pool
+     * @param forkJoinPool
+     *         the pool of threads to run the workers on, or null to run them one after another on
+     *         the calling thread
+     *
+     * @return the number of creatures that died to overcrowding
+     *
+     * @throws IllegalArgumentException
+     *         if the partitioning is not for the pools of this ecosystem
+     */
+    public long adjustForCrowding(RandomStreams streams, int week, Partitioning partitioning,
+                                  ForkJoinPool forkJoinPool) {
+
+        prepareForPartitions(partitioning);
+
+        // the last mailbox holds creatures sent to pools outside the ecosystem
+        int partitionCount = partitioning.getPartitionCount();
+        Mailbox[] mailboxes = new Mailbox[partitionCount + 1];
+        for (int i = 0; i < mailboxes.length; i++) {
+            mailboxes[i] = new Mailbox(partitionCount);
+        }
+
+        List<Callable<Long>> workers = new ArrayList<>(partitionCount);
+        List<Callable<Long>> deliveries = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            int partition = i;
+            workers.add(() -> adjustPartition(streams, week, partitioning, partition, mailboxes));
+            deliveries.add(() -> {
+                mailboxes[partition].deliver();
+                return 0L;
+            });
+        }
+
+        long diedToOverCrowding = runAll(workers, forkJoinPool);
+        runAll(deliveries, forkJoinPool);
+        mailboxes[partitionCount].deliver();
+
+        return diedToOverCrowding;
+    }
+
+    /**
+     * Checks that the given partitioning is for the pools of this ecosystem and brings the order
+     * of the pools and the index of their streams up to date, so that workers can share them.
+     *
+     * @param partitioning
+     *         the partition that owns each pool
+     *
+     * @throws IllegalArgumentException
+     *         if the partitioning is not for the pools of this ecosystem
+     */
+    void prepareForPartitions(Partitioning partitioning) {
+
+        if (partitioning.size() != pools.size()) {
+            throw new IllegalArgumentException("The partitioning is for " + partitioning.size()
+                    + " pools, not " + pools.size());
+        }
+        getTopology();
+        if (!isIndexed()) {
+            indexStreams();
+        }
+    }
+
+    /**
+     * Adjusts the pools owned by the given partition for overcrowding, in the order of the
+     * {@link Topology}, posting the creatures bound for pools of other partitions to their
+     * mailboxes.
+     * <p>
+     * Only the pools of the partition and the streams flowing out of them are modified, so the
+     * partitions can be adjusted concurrently once {@link #prepareForPartitions(Partitioning)}
+     * has been called. The creatures crossing those streams that arrive this week are delivered
+     * or posted first.
+     *
+     * @param streams
+     *         the random number streams of the simulation
+     * @param week
+     *         the number of the week being simulated
+     * @param partitioning
+     *         the partition that owns each pool
+     * @param partition
+     *         the partition to adjust
+     * @param mailboxes
+     *         the mailbox of each partition, followed by that of pools outside the ecosystem
+     *
+     * @return the number of creatures that died to overcrowding
+     */
+    long adjustPartition(RandomStreams streams, int week, Partitioning partitioning,
+                         int partition, Mailbox[] mailboxes) {
+
+        long diedToOverCrowding = 0;
+        Topology order = getTopology();
+        deliverArrivals(order, partitioning, partition, mailboxes);
+
+        for (int i = 0; i < order.size(); i++) {
+            int index = order.get(i);
+            if (partitioning.getOwner(index) == partition) {
+                Random generator = streams.stream(RandomStreams.Phase.CROWDING, week, index);
+                diedToOverCrowding += adjustForCrowding(pools.get(index), generator, order,
+                                                        partitioning, partition, mailboxes);
             }
         }
 
         return diedToOverCrowding;
     }
 
+    /**
+     * Advances the creatures crossing the streams that flow out of the given partition by a week
+     * and adds those that arrive to their destination pools, in the order of the pools the
+     * streams flow out of, posting those bound for a pool of another partition to its mailbox.
+     *
+     * @param order
+     *         the order of the pools, which knows their indices
+     * @param partitioning
+     *         the partition that owns each pool, or null to advance the streams flowing out of
+     *         every pool and add the arrivals directly
+     * @param partition
+     *         the partition whose streams to advance
+     * @param mailboxes
+     *         the mailbox of each partition, followed by that of pools outside the ecosystem, or
+     *         null if every pool is advanced
+     */
+    private void deliverArrivals(Topology order, Partitioning partitioning, int partition,
+                                 Mailbox[] mailboxes) {
+
+        if (!isIndexed()) {
+            indexStreams();
+        }
+        for (int i = 0; i < order.size(); i++) {
+            int index = order.get(i);
+            List<Stream> outgoing = outgoingStreams.get(pools.get(index));
+            if (outgoing == null
+                    || partitioning != null && partitioning.getOwner(index) != partition) {
+                continue;
+            }
+            for (Stream stream : outgoing) {
+                CreatureStorage arriving = stream.arrive();
+                if (arriving == null) {
+                    continue;
+                }
+                int destination = order.indexOf(stream.getDestination());
+                int owner = partitioning == null ? partition
+                            : destination < 0 ? mailboxes.length - 1
+                            : partitioning.getOwner(destination);
+                if (owner == partition) {
+                    stream.getDestination().getStorage().absorb(arriving);
+                } else {
+                    mailboxes[owner].post(partition, stream.getDestination(), arriving);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the given tasks on the given ForkJoinPool and returns the sum of their results.
+     *
+     * @param tasks
+     *         the tasks to run
+     * @param forkJoinPool
+     *         the pool of threads to run the tasks on, or null to run them on the calling thread
+     *
+     * @return the sum of the results of the tasks
+     */
+    private static long runAll(List<Callable<Long>> tasks, ForkJoinPool forkJoinPool) {
+
+        long total = 0;
+        try {
+            if (forkJoinPool == null) {
+                for (Callable<Long> task : tasks) {
+                    total += task.call();
+                }
+                return total;
+            }
+            for (Future<Long> result : forkJoinPool.invokeAll(tasks)) {
+                total += result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while adjusting the pools", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A partition could not be adjusted", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("A partition could not be adjusted", e);
+        }
+        return total;
+    }
+
+    /**
+     * Moves the creatures that do not fit in the given pool through a random stream, or kills
+     * them if the pool has no outgoing stream, posting those bound for a pool of another
+     * partition to its mailbox.
+     *
+     * @param pool
+     *         the pool to adjust
+     * @param generator
+     *         the random number generator to use
+     * @param order
+     *         the order of the pools, which knows their indices
+     * @param partitioning
+     *         the partition that owns each pool
+     * @param partition
+     *         the partition that owns the given pool
+     * @param mailboxes
+     *         the mailbox of each partition, followed by that of pools outside the ecosystem
+     *
+     * @return the number of creatures that died to overcrowding
+     */
+    private long adjustForCrowding(Pool pool, Random generator, Topology order,
+                                   Partitioning partitioning, int partition,
+                                   Mailbox[] mailboxes) {
+
+        CreatureStorage weakestCreatures = pool.getStorage().extractWeakest(pool.getVolumeLitres());
+
+        CreatureStorage[] parts = splitAcrossStreams(pool, weakestCreatures, generator);
+        if (parts != null) {
+            List<Stream> outgoing = outgoingStreams.get(pool);
+            long died = 0;
+            for (int i = 0; i < parts.length; i++) {
+                died += transport(outgoing.get(i), parts[i], generator, order, partitioning,
+                                  partition, mailboxes);
+            }
+            return died;
+        }
+
+        Stream stream = getRandomStream(pool, generator);
+        if (stream == null) {
+            long died = weakestCreatures.killAll();
+            pool.getStorage().absorb(weakestCreatures);
+            return died;
+        }
+        return transport(stream, weakestCreatures, generator, order, partitioning, partition,
+                         mailboxes);
+    }
+
+    /**
+     * Transports the given creatures through the given stream, posting them to the mailbox of
+     * the partition that owns its destination if that is not the given partition.
+     *
+     * @param stream
+     *         the stream to transport the creatures through
+     * @param creatures
+     *         the storage of the creatures to transport
+     * @param generator
+     *         the random number generator to use
+     * @param order
+     *         the order of the pools, which knows their indices
+     * @param partitioning
+     *         the partition that owns each pool
+     * @param partition
+     *         the partition that owns the source of the stream
+     * @param mailboxes
+     *         the mailbox of each partition, followed by that of pools outside the ecosystem
+     *
+     * @return the number of creatures that died in transport
+     */
+    private static long transport(Stream stream, CreatureStorage creatures, Random generator,
+                                  Topology order, Partitioning partitioning, int partition,
+                                  Mailbox[] mailboxes) {
+
+        int destination = order.indexOf(stream.getDestination());
+        int owner = destination < 0 ? mailboxes.length - 1 : partitioning.getOwner(destination);
+        if (owner == partition) {
+            return stream.transport(creatures, generator);
+        }
+        return stream.transport(creatures, generator, mailboxes[owner], partition);
+    }
+
+    /**
+     * Moves the creatures that do not fit in the given pool through a random stream, or kills
+     * them if the pool has no outgoing stream.
+     *
+     * @param pool
+     *         the pool to adjust
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the number of creatures that died to overcrowding
+     */
+    private long adjustForCrowding(Pool pool, Random generator) {
+
+        CreatureStorage weakestCreatures = pool.getStorage().extractWeakest(pool.getVolumeLitres());
+
+        CreatureStorage[] parts = splitAcrossStreams(pool, weakestCreatures, generator);
+        if (parts != null) {
+            List<Stream> outgoing = outgoingStreams.get(pool);
+            long died = 0;
+            for (int i = 0; i < parts.length; i++) {
+                died += outgoing.get(i).transport(parts[i], generator);
+            }
+            return died;
+        }
+
+        Stream stream = getRandomStream(pool, generator);
+        if (stream != null) {
+            return stream.transport(weakestCreatures, generator);
+        }
+        long died = weakestCreatures.killAll();
+        pool.getStorage().absorb(weakestCreatures);
+        return died;
+    }
+
+    /**
+     * Splits the creatures crowded out of the given pool across its streams in proportion to
+     * their flow weights, if the overflow is being split and there is more than one stream to
+     * take.
+     *
+     * @param pool
+     *         the source pool
+     * @param overflow
+     *         the creatures crowded out of the pool
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the creatures for each of the streams flowing out of the pool, in the order they
+     *         were added, or null if the overflow is not split
+     */
+    private CreatureStorage[] splitAcrossStreams(Pool pool, CreatureStorage overflow,
+                                                 Random generator) {
+
+        if (!splittingOverflow) {
+            return null;
+        }
+        if (!isIndexed()) {
+            indexStreams();
+        }
+        AliasTable table = routes.get(pool);
+        if (table == null || table.size() < 2 || table.isEmpty()) {
+            return null;
+        }
+        return overflow.split(table.getWeights(), generator);
+    }
+
     /**
      * Randomly selects a valid transport stream based on the given pool.
      * <p>
@@ -194,39 +742,191 @@ public class Ecosystem {
      */
     public Stream getRandomStream(Pool pool) {
 
-        List<Stream> possibleStreams = new ArrayList<>();
+        return getRandomStream(pool, ThreadLocalRandom.current());
+    }
 
-        for (Stream stream : streams) {
-            if (stream.getSource() == pool) {
-                possibleStreams.add(stream);
-            }
+    /**
+     * Randomly selects a valid transport stream based on the given pool, drawing from the given
+     * generator.
+     * <p>
+     * A valid stream will have its source pool be identical to the given pool. Each stream is
+     * selected in proportion to its flow weight, and a pool whose streams have no weight has no
+     * valid stream. The streams are looked up in an index of the streams flowing out of each
+     * pool, holding an {@link AliasTable} of their weights, so selecting one takes the same time
+     * however many streams there are, neither scanning them nor allocating. The index follows
+     * the streams added through this ecosystem and is rebuilt when the list of streams changes
+     * size or the source, destination or flow weight of one of its streams is changed.
+     *
+     * @param pool
+     *         the source pool
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return a randomly selected valid stream
+     */
+    public Stream getRandomStream(Pool pool, Random generator) {
+
+        if (!isIndexed()) {
+            indexStreams();
         }
+        List<Stream> possibleStreams = outgoingStreams.get(pool);
+        AliasTable table = routes.get(pool);
 
-        if (possibleStreams.size() > 1) {
-            return possibleStreams.get(GENERATOR.nextInt(possibleStreams.size() - 1));
-        } else if (possibleStreams.size() == 1) {
+        if (possibleStreams == null || table.isEmpty()) {
+            return null;
+        }
+        if (possibleStreams.size() == 1) {
             return possibleStreams.get(0);
         }
-        return null;
+        return possibleStreams.get(table.sample(generator));
+    }
+
+    /**
+     * Discards the order of the pools after the pools or streams have changed, so that it is
+     * computed again when next needed.
+     */
+    private void layoutChanged() {
+
+        topology = null;
+    }
+
+    /**
+     * Discards the order of the pools and the index of outgoing streams after one of the indexed
+     * streams has changed, so that both are rebuilt when next needed.
+     */
+    void streamChanged() {
+
+        layoutChanged();
+        routesChanged();
+    }
+
+    /**
+     * Discards the index of outgoing streams after the flow weight of one of the indexed streams
+     * has changed, so that it is rebuilt when next needed.
+     */
+    void routesChanged() {
+
+        indexedStreams = null;
+    }
+
+    /**
+     * Returns whether the index of outgoing streams is up to date with the list of streams.
+     *
+     * @return true if the index is up to date; false otherwise
+     */
+    private boolean isIndexed() {
+
+        return indexedStreams == streams && indexedCount == streams.size();
+    }
+
+    /** Rebuilds the index of outgoing streams from the list of streams. */
+    private void indexStreams() {
+
+        outgoingStreams.clear();
+        routes.clear();
+        for (Stream stream : streams) {
+            outgoingStreams(stream.getSource()).add(stream);
+            stream.setEcosystem(this);
+        }
+        for (Map.Entry<Pool, List<Stream>> outgoing : outgoingStreams.entrySet()) {
+            routes.put(outgoing.getKey(), route(outgoing.getValue()));
+        }
+        indexedStreams = streams;
+        indexedCount = streams.size();
+    }
+
+    /**
+     * Adds the given stream to the index of the streams flowing out of its source and rebuilds
+     * the table drawing among them.
+     *
+     * @param stream
+     *         the stream to index
+     */
+    private void indexStream(Stream stream) {
+
+        List<Stream> outgoing = outgoingStreams(stream.getSource());
+        outgoing.add(stream);
+        stream.setEcosystem(this);
+        routes.put(stream.getSource(), route(outgoing));
+    }
+
+    /**
+     * Returns the indexed streams flowing out of the given pool, adding an empty list for them
+     * if there are none.
+     *
+     * @param pool
+     *         the source pool
+     *
+     * @return the list of the streams flowing out of the pool
+     */
+    private List<Stream> outgoingStreams(Pool pool) {
+
+        List<Stream> outgoing = outgoingStreams.get(pool);
+        if (outgoing == null) {
+            outgoing = new ArrayList<>(1);
+            outgoingStreams.put(pool, outgoing);
+        }
+        return outgoing;
+    }
+
+    /**
+     * Builds the table drawing among the given streams by their flow weights.
+     *
+     * @param outgoing
+     *         the streams flowing out of a pool
+     *
+     * @return the table drawing among the streams
+     */
+    private static AliasTable route(List<Stream> outgoing) {
+
+        double[] weights = new double[outgoing.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = outgoing.get(i).getFlowWeight();
+        }
+        return new AliasTable(weights);
     }
 
     /**
      * Creates and returns a copy of this ecosystem.
+     * <p>
+     * The copy has exactly the streams of this ecosystem, connecting the copies of the pools, so
+     * that stepping the copy leaves this ecosystem untouched.
      *
      * @return a cloned copy of this ecosystem
      */
     public Ecosystem copy() {
 
         Ecosystem ecosystemCopy = new Ecosystem();
+        ecosystemCopy.splittingOverflow = splittingOverflow;
+        Map<Pool, Pool> poolCopies = new IdentityHashMap<>();
 
         for (Pool pool : pools) {
-            ecosystemCopy.addPool(pool.copy());
+            Pool poolCopy = pool.copy();
+            poolCopies.put(pool, poolCopy);
+            // added directly, since the streams added by addPool would duplicate those copied
+            ecosystemCopy.pools.add(poolCopy);
         }
 
         for (Stream stream : streams) {
-            ecosystemCopy.addStream(stream.copy());
+            ecosystemCopy.addStream(
+                    stream.copy(poolCopies.getOrDefault(stream.getSource(), stream.getSource()),
+                                poolCopies.getOrDefault(stream.getDestination(),
+                                                        stream.getDestination())));
         }
 
         return ecosystemCopy;
     }
+
+    /**
+     * Narrows the given count to an int, limiting it to the largest int.
+     *
+     * @param count
+     *         the count to narrow
+     *
+     * @return the count as an int
+     */
+    private static int saturate(long count) {
+
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
 }
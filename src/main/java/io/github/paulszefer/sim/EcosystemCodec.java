@@ -0,0 +1,1245 @@
+package io.github.paulszefer.sim;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Writes ecosystems to byte channels in a compact binary form and reads them back.
+ * <p>
+ * Every pool is written with its attributes, the kind of its storage and its creatures; every
+ * stream with its attributes and the indices of the pools it connects. Reading an ecosystem
+ * restores it exactly, including the identification numbers and the order of the creatures.
+ * <p>
+ * Columnar and cohort storage are written as their primitive arrays in bulk, so that they are
+ * read back without creating an object per creature. Event and age ring storage are written in
+ * the same columns as columnar storage; the events of event storage are scheduled again and the
+ * guppies of age ring storage are put back in the buckets of their ages when they are read.
+ * <p>
+ * The current form is version {@value #FORMAT}. Version 1, which did not hold the flow weights of
+ * the streams or whether the ecosystem splits its overflow, and version 2, which did not hold
+ * the capacities and transit times of the streams or the creatures crossing them, can still be
+ * read and written for the files that hold them.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class EcosystemCodec {
+
+    /** The version of the form written by default. */
+    static final int FORMAT = 3;
+
+    /** The size of the buffer used to read and write channels. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The kind of a pool whose creatures are stored in a list. */
+    private static final byte LIST_STORAGE = 0;
+
+    /** The kind of a pool whose creatures are stored in columns. */
+    private static final byte COLUMNAR_STORAGE = 1;
+
+    /** The kind of a pool whose creatures are stored in cohorts. */
+    private static final byte COHORT_STORAGE = 2;
+
+    /** The kind of a pool whose creatures are stored with their events scheduled. */
+    private static final byte EVENT_STORAGE = 3;
+
+    /** The kind of a pool whose creatures are stored in a ring of buckets by age. */
+    private static final byte AGE_RING_STORAGE = 4;
+
+    /** The flag of a living creature. */
+    private static final byte ALIVE = 1;
+
+    /** The flag of a female creature. */
+    private static final byte FEMALE = 2;
+
+    /** The number of bytes written for each creature in a list. */
+    private static final int CREATURE_BYTES = 4 + 4 + 4 + 4 + 8 + 1;
+
+    /** The number of bytes written for each creature in columns, excluding its flags. */
+    private static final int COLUMN_BYTES = 4 + 4 + 4 + 8;
+
+    /** The number of bytes written for each pool, excluding its name and storage. */
+    private static final int POOL_BYTES = 8 * 4 + 4;
+
+    /** The number of bytes written for each stream in version 1, excluding its name. */
+    private static final int STREAM_BYTES = 8 * 2 + 4 * 2;
+
+    /** The number of bytes added for each stream since version 2: its flow weight. */
+    private static final int FLOW_WEIGHT_BYTES = 8;
+
+    /** The number of bytes added for the ecosystem since version 2: whether it splits overflow. */
+    private static final int SPLITTING_BYTES = 1;
+
+    /**
+     * The number of bytes added for each stream since version 3, excluding the creatures in
+     * transit: its capacity, its transit time and the number of weeks of its queue.
+     */
+    private static final int TRANSIT_BYTES = 8 + 4 + 4;
+
+    /** The number of bytes written for an empty storage. */
+    private static final int EMPTY_STORAGE_BYTES = 1 + 8;
+
+    /** Prevents instantiation. */
+    private EcosystemCodec() {
+
+    }
+
+    /**
+     * Writes the given ecosystem to the given channel.
+     *
+     * @param ecosystem
+     *         the ecosystem to write
+     * @param channel
+     *         the channel to write to
+     *
+     * @throws IOException
+     *         if the channel cannot be written
+     * @throws IllegalArgumentException
+     *         if the ecosystem contains creatures other than guppies or streams to pools outside
+     *         the ecosystem
+     */
+    static void write(Ecosystem ecosystem, WritableByteChannel channel) throws IOException {
+
+        write(ecosystem, null, 0, new Output(channel), FORMAT);
+    }
+
+    /**
+     * Writes the part of the given ecosystem owned by the given partition to the given channel.
+     * <p>
+     * Every pool and stream is written, so the ecosystem read back has the same structure, but
+     * only the pools of the partition, and the streams flowing out of them, are written with
+     * their creatures; the others are empty.
+     *
+     * @param ecosystem
+     *         the ecosystem to write
+     * @param partitioning
+     *         the partition that owns each pool
+     * @param partition
+     *         the partition whose creatures are written
+     * @param channel
+     *         the channel to write to
+     *
+     * @throws IOException
+     *         if the channel cannot be written
+     * @throws IllegalArgumentException
+     *         if the ecosystem contains creatures other than guppies or streams to pools outside
+     *         the ecosystem
+     */
+    static void write(Ecosystem ecosystem, Partitioning partitioning, int partition,
+                      WritableByteChannel channel) throws IOException {
+
+        write(ecosystem, partitioning, partition, new Output(channel), FORMAT);
+    }
+
+    /**
+     * Writes the given storage of creatures to the given channel.
+     *
+     * @param storage
+     *         the storage to write
+     * @param channel
+     *         the channel to write to
+     *
+     * @throws IOException
+     *         if the channel cannot be written
+     * @throws IllegalArgumentException
+     *         if the storage contains creatures other than guppies
+     */
+    static void write(CreatureStorage storage, WritableByteChannel channel) throws IOException {
+
+        Output output = new Output(channel);
+        writeStorage(storage, output);
+        output.flush();
+    }
+
+    /**
+     * Writes the given ecosystem to the given buffer, starting at its position.
+     * <p>
+     * The buffer must have room for {@link #encodedSize(Ecosystem)} bytes; its position is
+     * advanced past the ecosystem.
+     *
+     * @param ecosystem
+     *         the ecosystem to write
+     * @param buffer
+     *         the buffer to write to
+     *
+     * @throws BufferOverflowException
+     *         if the buffer does not have room for the ecosystem
+     * @throws IllegalArgumentException
+     *         if the ecosystem contains creatures other than guppies or streams to pools outside
+     *         the ecosystem
+     */
+    static void write(Ecosystem ecosystem, ByteBuffer buffer) {
+
+        write(ecosystem, buffer, FORMAT);
+    }
+
+    /**
+     * Writes the given ecosystem in the given version of the form to the given buffer, starting
+     * at its position.
+     * <p>
+     * The buffer must have room for {@link #encodedSize(Ecosystem, int)} bytes; its position is
+     * advanced past the ecosystem.
+     *
+     * @param ecosystem
+     *         the ecosystem to write
+     * @param buffer
+     *         the buffer to write to
+     * @param format
+     *         the version of the form to write
+     *
+     * @throws BufferOverflowException
+     *         if the buffer does not have room for the ecosystem
+     * @throws IllegalArgumentException
+     *         if the ecosystem contains creatures other than guppies or streams to pools outside
+     *         the ecosystem
+     */
+    static void write(Ecosystem ecosystem, ByteBuffer buffer, int format) {
+
+        try {
+            write(ecosystem, null, 0, new Output(buffer), format);
+        } catch (IOException e) {
+            throw new IllegalStateException("A buffer without a channel cannot fail to flush", e);
+        }
+    }
+
+    /**
+     * Writes the given ecosystem to the given output.
+     *
+     * @param ecosystem
+     *         the ecosystem to write
+     * @param partitioning
+     *         the partition that owns each pool, or null to write the creatures of every pool
+     * @param partition
+     *         the partition whose creatures are written
+     * @param output
+     *         the output to write to
+     * @param format
+     *         the version of the form to write
+     *
+     * @throws IOException
+     *         if the channel cannot be written
+     */
+    private static void write(Ecosystem ecosystem, Partitioning partitioning, int partition,
+                              Output output, int format) throws IOException {
+
+        List<Pool> pools = ecosystem.getPools();
+
+        output.putInt(pools.size());
+        for (int i = 0; i < pools.size(); i++) {
+            boolean owned = partitioning == null || partitioning.getOwner(i) == partition;
+            writePool(pools.get(i), owned, output);
+        }
+
+        List<Stream> streams = ecosystem.getStreams();
+        output.putInt(streams.size());
+        for (Stream stream : streams) {
+            int source = indexOf(stream.getSource(), pools);
+            output.putString(stream.getName());
+            output.putDouble(stream.getTemperature());
+            output.putDouble(stream.getpH());
+            output.putInt(source);
+            output.putInt(indexOf(stream.getDestination(), pools));
+            if (format >= 2) {
+                output.putDouble(stream.getFlowWeight());
+            }
+            if (format >= 3) {
+                boolean owned = partitioning == null || partitioning.getOwner(source) == partition;
+                writeTransit(stream, owned, output);
+            }
+        }
+        if (format >= 2) {
+            output.putByte((byte) (ecosystem.isSplittingOverflow() ? 1 : 0));
+        }
+
+        output.flush();
+    }
+
+    /**
+     * Reads an ecosystem from the given channel.
+     *
+     * @param channel
+     *         the channel to read from
+     *
+     * @return the ecosystem read
+     *
+     * @throws IOException
+     *         if the channel cannot be read or does not hold a valid ecosystem
+     */
+    static Ecosystem read(ReadableByteChannel channel) throws IOException {
+
+        return read(new Input(channel), FORMAT);
+    }
+
+    /**
+     * Reads an ecosystem written in the given version of the form from the given channel.
+     *
+     * @param channel
+     *         the channel to read from
+     * @param format
+     *         the version of the form the ecosystem was written in
+     *
+     * @return the ecosystem read
+     *
+     * @throws IOException
+     *         if the channel cannot be read or does not hold a valid ecosystem
+     */
+    static Ecosystem read(ReadableByteChannel channel, int format) throws IOException {
+
+        return read(new Input(channel), format);
+    }
+
+    /**
+     * Reads an ecosystem from the given buffer, starting at its position.
+     * <p>
+     * The primitive arrays of the ecosystem are copied directly out of the buffer, so reading from
+     * a mapped file does not go through an intermediate buffer.
+     *
+     * @param buffer
+     *         the buffer to read from
+     *
+     * @return the ecosystem read
+     *
+     * @throws IOException
+     *         if the buffer does not hold a valid ecosystem
+     */
+    static Ecosystem read(ByteBuffer buffer) throws IOException {
+
+        return read(new Input(buffer), FORMAT);
+    }
+
+    /**
+     * Reads an ecosystem written in the given version of the form from the given buffer,
+     * starting at its position.
+     *
+     * @param buffer
+     *         the buffer to read from
+     * @param format
+     *         the version of the form the ecosystem was written in
+     *
+     * @return the ecosystem read
+     *
+     * @throws IOException
+     *         if the buffer does not hold a valid ecosystem
+     */
+    static Ecosystem read(ByteBuffer buffer, int format) throws IOException {
+
+        return read(new Input(buffer), format);
+    }
+
+    /**
+     * Reads a storage of creatures from the given buffer, starting at its position.
+     *
+     * @param buffer
+     *         the buffer to read from
+     *
+     * @return the storage read
+     *
+     * @throws IOException
+     *         if the buffer does not hold a valid storage
+     */
+    static CreatureStorage readStorage(ByteBuffer buffer) throws IOException {
+
+        return readStorage(new Input(buffer));
+    }
+
+    /**
+     * Reads an ecosystem from the given input.
+     *
+     * @param input
+     *         the input to read from
+     * @param format
+     *         the version of the form the ecosystem was written in
+     *
+     * @return the ecosystem read
+     *
+     * @throws IOException
+     *         if the input cannot be read or does not hold a valid ecosystem
+     */
+    private static Ecosystem read(Input input, int format) throws IOException {
+
+        int poolCount = input.getCount();
+        List<Pool> pools = new ArrayList<>(poolCount);
+        for (int i = 0; i < poolCount; i++) {
+            pools.add(readPool(input));
+        }
+
+        int streamCount = input.getCount();
+        List<Stream> streams = new ArrayList<>(streamCount);
+        for (int i = 0; i < streamCount; i++) {
+            String name = input.getString();
+            double temperature = input.getDouble();
+            double pH = input.getDouble();
+            Pool source = poolAt(input.getInt(), pools);
+            Pool destination = poolAt(input.getInt(), pools);
+            Stream stream = new Stream(name, source, destination);
+            stream.setTemperature(temperature);
+            stream.setpH(pH);
+            if (format >= 2) {
+                stream.setFlowWeight(input.getDouble());
+            }
+            if (format >= 3) {
+                readTransit(stream, input);
+            }
+            streams.add(stream);
+        }
+
+        Ecosystem ecosystem = new Ecosystem();
+        ecosystem.setPools(pools);
+        ecosystem.setStreams(streams);
+        if (format >= 2) {
+            ecosystem.setSplittingOverflow(input.getByte() != 0);
+        }
+        return ecosystem;
+    }
+
+    /**
+     * Returns the number of bytes the given ecosystem takes when written.
+     *
+     * @param ecosystem
+     *         the ecosystem to measure
+     *
+     * @return the number of bytes the ecosystem takes when written
+     */
+    static long encodedSize(Ecosystem ecosystem) {
+
+        return encodedSize(ecosystem, FORMAT);
+    }
+
+    /**
+     * Returns the number of bytes the given ecosystem takes when written in the given version of
+     * the form.
+     *
+     * @param ecosystem
+     *         the ecosystem to measure
+     * @param format
+     *         the version of the form
+     *
+     * @return the number of bytes the ecosystem takes when written
+     */
+    static long encodedSize(Ecosystem ecosystem, int format) {
+
+        long size = 4 + 4 + (format >= 2 ? SPLITTING_BYTES : 0);
+        for (Pool pool : ecosystem.getPools()) {
+            size += POOL_BYTES + stringSize(pool.getName()) + storageSize(pool.getStorage());
+        }
+        int streamBytes = STREAM_BYTES + (format >= 2 ? FLOW_WEIGHT_BYTES : 0)
+                + (format >= 3 ? TRANSIT_BYTES : 0);
+        for (Stream stream : ecosystem.getStreams()) {
+            size += streamBytes + stringSize(stream.getName());
+            TransitQueue transit = stream.getTransit();
+            if (format >= 3 && transit != null) {
+                for (int week = 0; week < transit.getWeeks(); week++) {
+                    CreatureStorage batch = transit.get(week);
+                    size += batch == null ? EMPTY_STORAGE_BYTES : storageSize(batch);
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes the given storage takes when written.
+     *
+     * @param storage
+     *         the storage to measure
+     *
+     * @return the number of bytes the storage takes when written, including its kind
+     */
+    private static long storageSize(CreatureStorage storage) {
+
+        if (storage instanceof CohortCreatureStorage) {
+            return 1 + 4 + 8 + ((CohortCreatureStorage) storage).getCounts().length * 16L;
+        }
+        long count = storage.size();
+        if (storage instanceof ColumnarCreatureStorage
+                || storage instanceof EventCreatureStorage
+                || storage instanceof AgeRingCreatureStorage) {
+            return 1 + 8 + count * COLUMN_BYTES + 2 * 8 * wordsFor(count);
+        }
+        return 1 + 8 + count * CREATURE_BYTES;
+    }
+
+    /**
+     * Writes the given pool.
+     *
+     * @param pool
+     *         the pool to write
+     * @param withCreatures
+     *         whether to write the creatures of the pool, or an empty storage in their place
+     * @param output
+     *         the output to write to
+     *
+     * @throws IOException
+     *         if the channel cannot be written
+     */
+    private static void writePool(Pool pool, boolean withCreatures, Output output)
+            throws IOException {
+
+        output.putString(pool.getName());
+        output.putDouble(pool.getVolumeLitres());
+        output.putDouble(pool.getTemperature());
+        output.putDouble(pool.getpH());
+        output.putDouble(pool.getNutrientCoefficient());
+        output.putInt(pool.getIdentificationNumber());
+        if (withCreatures) {
+            writeStorage(pool.getStorage(), output);
+        } else {
+            output.putByte(LIST_STORAGE);
+            output.putLong(0);
+        }
+    }
+
+    /**
+     * Writes the capacity and transit time of the given stream and the creatures crossing it.
+     *
+     * @param stream
+     *         the stream to write
+     * @param withCreatures
+     *         whether to write the creatures in transit, or empty batches in their place
+     * @param output
+     *         the output to write to
+     *
+     * @throws IOException
+     *         if the channel cannot be written
+     */
+    private static void writeTransit(Stream stream, boolean withCreatures, Output output)
+            throws IOException {
+
+        TransitQueue transit = stream.getTransit();
+        output.putDouble(stream.getCapacityLitres());
+        output.putInt(stream.getTransitWeeks());
+        output.putInt(transit == null ? 0 : transit.getWeeks());
+        if (transit == null) {
+            return;
+        }
+        for (int week = 0; week < transit.getWeeks(); week++) {
+            CreatureStorage batch = transit.get(week);
+            if (withCreatures && batch != null) {
+                writeStorage(batch, output);
+            } else {
+                output.putByte(LIST_STORAGE);
+                output.putLong(0);
+            }
+        }
+    }
+
+    /**
+     * Writes the given storage of creatures.
+     *
+     * @param storage
+     *         the storage to write
+     * @param output
+     *         the output to write to
+     *
+     * @throws IOException
+     *         if the channel cannot be written
+     */
+    private static void writeStorage(CreatureStorage storage, Output output) throws IOException {
+
+        if (storage instanceof CohortCreatureStorage) {
+            CohortCreatureStorage cohorts = (CohortCreatureStorage) storage;
+            output.putByte(COHORT_STORAGE);
+            output.putInt(cohorts.getBuckets());
+            output.putLong(cohorts.getDead());
+            output.putLongs(cohorts.getCounts(), cohorts.getCounts().length);
+            output.putDoubles(cohorts.getGenerationSums(), cohorts.getGenerationSums().length);
+            return;
+        }
+        if (storage instanceof ColumnarCreatureStorage
+                || storage instanceof EventCreatureStorage
+                || storage instanceof AgeRingCreatureStorage) {
+            ColumnarCreatureStorage columns;
+            byte kind;
+            if (storage instanceof EventCreatureStorage) {
+                columns = ((EventCreatureStorage) storage).toColumns();
+                kind = EVENT_STORAGE;
+            } else if (storage instanceof AgeRingCreatureStorage) {
+                columns = ((AgeRingCreatureStorage) storage).toColumns();
+                kind = AGE_RING_STORAGE;
+            } else {
+                columns = (ColumnarCreatureStorage) storage;
+                kind = COLUMNAR_STORAGE;
+            }
+            int count = (int) columns.size();
+            int words = wordsFor(count);
+            output.putByte(kind);
+            output.putLong(count);
+            output.putInts(columns.getIdentifiers(), count);
+            output.putInts(columns.getGenerations(), count);
+            output.putInts(columns.getAges(), count);
+            output.putDoubles(columns.getCoefficients(), count);
+            output.putLongs(Arrays.copyOf(columns.getAlive().toLongArray(), words), words);
+            output.putLongs(Arrays.copyOf(columns.getFemale().toLongArray(), words), words);
+            return;
+        }
+
+        output.putByte(LIST_STORAGE);
+        List<Creature> creatures = storage.viewCreatures();
+        output.putLong(creatures.size());
+        for (Creature creature : creatures) {
+            if (!(creature instanceof Guppy)) {
+                throw new IllegalArgumentException("Only guppies can be written");
+            }
+            Health health = creature.getHealth();
+            output.ensure(CREATURE_BYTES);
+            output.putInt(creature.getIdentification().getIdentifier());
+            output.putInt(creature.getIdentification().getGeneration());
+            output.putInt(health.getAge());
+            output.putInt(health.getMaxAge());
+            output.putDouble(health.getCoefficient());
+            output.putByte((byte) ((health.isAlive() ? ALIVE : 0)
+                    | (creature.isFemale() ? FEMALE : 0)));
+        }
+    }
+
+    /**
+     * Reads a pool.
+     *
+     * @param input
+     *         the input to read from
+     *
+     * @return the pool read
+     *
+     * @throws IOException
+     *         if the channel cannot be read or does not hold a valid pool
+     */
+    private static Pool readPool(Input input) throws IOException {
+
+        Pool pool = new Pool(input.getString(), input.getDouble(), input.getDouble(),
+                             input.getDouble(), input.getDouble());
+        pool.setIdentificationNumber(input.getInt());
+        pool.setStorage(readStorage(input));
+        return pool;
+    }
+
+    /**
+     * Reads the capacity and transit time of the given stream and the creatures crossing it.
+     *
+     * @param stream
+     *         the stream read so far
+     * @param input
+     *         the input to read from
+     *
+     * @throws IOException
+     *         if the channel cannot be read or does not hold a valid queue of creatures
+     */
+    private static void readTransit(Stream stream, Input input) throws IOException {
+
+        stream.setCapacityLitres(input.getDouble());
+        int transitWeeks = input.getInt();
+        int queueWeeks = input.getInt();
+        if (transitWeeks < 0 || queueWeeks != 0 && queueWeeks != Math.max(transitWeeks, 1)) {
+            throw new IOException("Invalid transit time " + transitWeeks + " with a queue of "
+                    + queueWeeks + " weeks");
+        }
+        stream.setTransitWeeks(transitWeeks);
+        if (queueWeeks == 0) {
+            return;
+        }
+        TransitQueue transit = new TransitQueue(queueWeeks);
+        for (int week = 0; week < queueWeeks; week++) {
+            CreatureStorage batch = readStorage(input);
+            transit.set(week, batch.size() == 0 ? null : batch);
+        }
+        stream.setTransit(transit);
+    }
+
+    /**
+     * Reads a storage of creatures.
+     *
+     * @param input
+     *         the input to read from
+     *
+     * @return the storage read
+     *
+     * @throws IOException
+     *         if the channel cannot be read or does not hold a valid storage
+     */
+    private static CreatureStorage readStorage(Input input) throws IOException {
+
+        byte kind = input.getByte();
+        if (kind == COHORT_STORAGE) {
+            int buckets = input.getInt();
+            long dead = input.getLong();
+            int length = Guppy.MAXIMUM_AGE * 2 * (buckets + 1);
+            long[] counts = new long[length];
+            input.getLongs(counts);
+            double[] generationSums = new double[length];
+            input.getDoubles(generationSums);
+            return new CohortCreatureStorage(buckets, counts, generationSums, dead);
+        }
+        if (kind != LIST_STORAGE && kind != COLUMNAR_STORAGE && kind != EVENT_STORAGE
+                && kind != AGE_RING_STORAGE) {
+            throw new IOException("Unknown storage kind " + kind);
+        }
+
+        long count = input.getLong();
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            throw new IOException("Invalid number of creatures " + count);
+        }
+        if (kind == COLUMNAR_STORAGE || kind == EVENT_STORAGE || kind == AGE_RING_STORAGE) {
+            int size = (int) count;
+            int[] identifiers = new int[size];
+            input.getInts(identifiers);
+            int[] generations = new int[size];
+            input.getInts(generations);
+            int[] ages = new int[size];
+            input.getInts(ages);
+            double[] coefficients = new double[size];
+            input.getDoubles(coefficients);
+            long[] alive = new long[wordsFor(size)];
+            input.getLongs(alive);
+            long[] female = new long[alive.length];
+            input.getLongs(female);
+            ColumnarCreatureStorage columns = new ColumnarCreatureStorage(
+                    size, ages, coefficients, generations, identifiers, BitSet.valueOf(alive),
+                    BitSet.valueOf(female));
+            if (kind == COLUMNAR_STORAGE) {
+                return columns;
+            }
+            CreatureStorage storage = kind == EVENT_STORAGE ? new EventCreatureStorage()
+                                                            : new AgeRingCreatureStorage();
+            storage.absorb(columns);
+            return storage;
+        }
+
+        List<Creature> creatures = new ArrayList<>((int) count);
+        for (long i = 0; i < count; i++) {
+            int identifier = input.getInt();
+            int generation = input.getInt();
+            int age = input.getInt();
+            int maxAge = input.getInt();
+            double coefficient = input.getDouble();
+            byte flags = input.getByte();
+            creatures.add(new Guppy(new Identification(Guppy.GENUS, Guppy.SPECIES, identifier,
+                                                       generation),
+                                    new Health(maxAge, (flags & ALIVE) != 0, age, coefficient),
+                                    (flags & FEMALE) != 0));
+        }
+        CreatureStorage storage = new ListCreatureStorage();
+        storage.addAll(creatures);
+        return storage;
+    }
+
+    /**
+     * Returns the index of the given pool in the given list.
+     *
+     * @param pool
+     *         the pool to find
+     * @param pools
+     *         the pools to search
+     *
+     * @return the index of the pool
+     *
+     * @throws IllegalArgumentException
+     *         if the pool is not in the list
+     */
+    private static int indexOf(Pool pool, List<Pool> pools) {
+
+        for (int i = 0; i < pools.size(); i++) {
+            if (pools.get(i) == pool) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("A stream connects a pool outside the ecosystem");
+    }
+
+    /**
+     * Returns the pool at the given index.
+     *
+     * @param index
+     *         the index of the pool
+     * @param pools
+     *         the pools read so far
+     *
+     * @return the pool at the given index
+     *
+     * @throws IOException
+     *         if the index is not valid
+     */
+    private static Pool poolAt(int index, List<Pool> pools) throws IOException {
+
+        if (index < 0 || index >= pools.size()) {
+            throw new IOException("Invalid pool index " + index);
+        }
+        return pools.get(index);
+    }
+
+    /**
+     * Returns the number of longs needed to hold one bit for each of the given number of
+     * creatures.
+     *
+     * @param count
+     *         the number of creatures
+     *
+     * @return the number of longs needed
+     */
+    private static int wordsFor(long count) {
+
+        return (int) ((count + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    /**
+     * Returns the number of bytes the given string takes when written.
+     *
+     * @param string
+     *         the string to measure
+     *
+     * @return the number of bytes the string takes when written
+     */
+    private static int stringSize(String string) {
+
+        return 4 + string.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /** Buffers the values written to a channel, or writes them to a buffer alone. */
+    private static final class Output {
+
+        /** The channel to write to, or null if the values are only written to the buffer. */
+        private final WritableByteChannel channel;
+
+        /** The bytes not yet written to the channel. */
+        private final ByteBuffer buffer;
+
+        /**
+         * Creates an output to the given channel.
+         *
+         * @param channel
+         *         the channel to write to
+         */
+        private Output(WritableByteChannel channel) {
+
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+
+        /**
+         * Creates an output to the given buffer.
+         *
+         * @param buffer
+         *         the buffer to write to
+         */
+        private Output(ByteBuffer buffer) {
+
+            channel = null;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Makes room in the buffer for the given number of bytes.
+         *
+         * @param bytes
+         *         the number of bytes to make room for
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         * @throws BufferOverflowException
+         *         if there is no channel and the buffer does not have room
+         */
+        private void ensure(int bytes) throws IOException {
+
+            if (buffer.remaining() < bytes) {
+                if (channel == null) {
+                    throw new BufferOverflowException();
+                }
+                flush();
+            }
+        }
+
+        /**
+         * Writes the buffered bytes to the channel.
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         */
+        private void flush() throws IOException {
+
+            if (channel == null) {
+                return;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes a byte.
+         *
+         * @param value
+         *         the byte to write
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         */
+        private void putByte(byte value) throws IOException {
+
+            ensure(1);
+            buffer.put(value);
+        }
+
+        /**
+         * Writes an int.
+         *
+         * @param value
+         *         the int to write
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         */
+        private void putInt(int value) throws IOException {
+
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        /**
+         * Writes a long.
+         *
+         * @param value
+         *         the long to write
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         */
+        private void putLong(long value) throws IOException {
+
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        /**
+         * Writes a double.
+         *
+         * @param value
+         *         the double to write
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         */
+        private void putDouble(double value) throws IOException {
+
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        /**
+         * Writes the given number of ints from the start of the given array.
+         *
+         * @param values
+         *         the ints to write
+         * @param length
+         *         the number of ints to write
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         */
+        private void putInts(int[] values, int length) throws IOException {
+
+            int written = 0;
+            while (written < length) {
+                ensure(4);
+                int chunk = Math.min(buffer.remaining() / 4, length - written);
+                buffer.asIntBuffer().put(values, written, chunk);
+                buffer.position(buffer.position() + chunk * 4);
+                written += chunk;
+            }
+        }
+
+        /**
+         * Writes the given number of longs from the start of the given array.
+         *
+         * @param values
+         *         the longs to write
+         * @param length
+         *         the number of longs to write
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         */
+        private void putLongs(long[] values, int length) throws IOException {
+
+            int written = 0;
+            while (written < length) {
+                ensure(8);
+                int chunk = Math.min(buffer.remaining() / 8, length - written);
+                buffer.asLongBuffer().put(values, written, chunk);
+                buffer.position(buffer.position() + chunk * 8);
+                written += chunk;
+            }
+        }
+
+        /**
+         * Writes the given number of doubles from the start of the given array.
+         *
+         * @param values
+         *         the doubles to write
+         * @param length
+         *         the number of doubles to write
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         */
+        private void putDoubles(double[] values, int length) throws IOException {
+
+            int written = 0;
+            while (written < length) {
+                ensure(8);
+                int chunk = Math.min(buffer.remaining() / 8, length - written);
+                buffer.asDoubleBuffer().put(values, written, chunk);
+                buffer.position(buffer.position() + chunk * 8);
+                written += chunk;
+            }
+        }
+
+        /**
+         * Writes a string as its length followed by its UTF-8 bytes.
+         *
+         * @param value
+         *         the string to write
+         *
+         * @throws IOException
+         *         if the channel cannot be written
+         */
+        private void putString(String value) throws IOException {
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int written = 0;
+            while (written < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+    }
+
+    /** Buffers the values read from a channel, or reads them from a buffer alone. */
+    private static final class Input {
+
+        /** The channel to read from, or null if all of the values are in the buffer. */
+        private final ReadableByteChannel channel;
+
+        /** The bytes read from the channel but not yet consumed. */
+        private final ByteBuffer buffer;
+
+        /**
+         * Creates an input from the given channel.
+         *
+         * @param channel
+         *         the channel to read from
+         */
+        private Input(ReadableByteChannel channel) {
+
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.flip();
+        }
+
+        /**
+         * Creates an input from the remaining bytes of the given buffer.
+         *
+         * @param buffer
+         *         the buffer to read from
+         */
+        private Input(ByteBuffer buffer) {
+
+            channel = null;
+            this.buffer = buffer.slice();
+        }
+
+        /**
+         * Reads from the channel until the buffer holds at least the given number of bytes.
+         *
+         * @param bytes
+         *         the number of bytes needed
+         *
+         * @throws IOException
+         *         if the channel cannot be read or ends too soon
+         */
+        private void require(int bytes) throws IOException {
+
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            if (channel == null) {
+                throw new EOFException("The ecosystem ends unexpectedly");
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("The ecosystem ends unexpectedly");
+                }
+            }
+            buffer.flip();
+        }
+
+        /**
+         * Reads a byte.
+         *
+         * @return the byte read
+         *
+         * @throws IOException
+         *         if the channel cannot be read
+         */
+        private byte getByte() throws IOException {
+
+            require(1);
+            return buffer.get();
+        }
+
+        /**
+         * Reads an int.
+         *
+         * @return the int read
+         *
+         * @throws IOException
+         *         if the channel cannot be read
+         */
+        private int getInt() throws IOException {
+
+            require(4);
+            return buffer.getInt();
+        }
+
+        /**
+         * Reads a non-negative count.
+         *
+         * @return the count read
+         *
+         * @throws IOException
+         *         if the channel cannot be read or the count is negative
+         */
+        private int getCount() throws IOException {
+
+            int count = getInt();
+            if (count < 0) {
+                throw new IOException("Invalid count " + count);
+            }
+            return count;
+        }
+
+        /**
+         * Reads a long.
+         *
+         * @return the long read
+         *
+         * @throws IOException
+         *         if the channel cannot be read
+         */
+        private long getLong() throws IOException {
+
+            require(8);
+            return buffer.getLong();
+        }
+
+        /**
+         * Reads a double.
+         *
+         * @return the double read
+         *
+         * @throws IOException
+         *         if the channel cannot be read
+         */
+        private double getDouble() throws IOException {
+
+            require(8);
+            return buffer.getDouble();
+        }
+
+        /**
+         * Fills the given array with ints.
+         *
+         * @param values
+         *         the array to fill
+         *
+         * @throws IOException
+         *         if the channel cannot be read
+         */
+        private void getInts(int[] values) throws IOException {
+
+            int read = 0;
+            while (read < values.length) {
+                require(4);
+                int chunk = Math.min(buffer.remaining() / 4, values.length - read);
+                buffer.asIntBuffer().get(values, read, chunk);
+                buffer.position(buffer.position() + chunk * 4);
+                read += chunk;
+            }
+        }
+
+        /**
+         * Fills the given array with longs.
+         *
+         * @param values
+         *         the array to fill
+         *
+         * @throws IOException
+         *         if the channel cannot be read
+         */
+        private void getLongs(long[] values) throws IOException {
+
+            int read = 0;
+            while (read < values.length) {
+                require(8);
+                int chunk = Math.min(buffer.remaining() / 8, values.length - read);
+                buffer.asLongBuffer().get(values, read, chunk);
+                buffer.position(buffer.position() + chunk * 8);
+                read += chunk;
+            }
+        }
+
+        /**
+         * Fills the given array with doubles.
+         *
+         * @param values
+         *         the array to fill
+         *
+         * @throws IOException
+         *         if the channel cannot be read
+         */
+        private void getDoubles(double[] values) throws IOException {
+
+            int read = 0;
+            while (read < values.length) {
+                require(8);
+                int chunk = Math.min(buffer.remaining() / 8, values.length - read);
+                buffer.asDoubleBuffer().get(values, read, chunk);
+                buffer.position(buffer.position() + chunk * 8);
+                read += chunk;
+            }
+        }
+
+        /**
+         * Reads a string written as its length followed by its UTF-8 bytes.
+         *
+         * @return the string read
+         *
+         * @throws IOException
+         *         if the channel cannot be read
+         */
+        private String getString() throws IOException {
+
+            byte[] bytes = new byte[getCount()];
+            int read = 0;
+            while (read < bytes.length) {
+                require(1);
+                int length = Math.min(buffer.remaining(), bytes.length - read);
+                buffer.get(bytes, read, length);
+                read += length;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
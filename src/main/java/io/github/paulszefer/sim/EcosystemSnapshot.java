@@ -0,0 +1,249 @@
+package io.github.paulszefer.sim;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A saved state of a simulation: its name, its week, its seed and its ecosystem.
+ * <p>
+ * A snapshot is written as a header, made of a magic number, the format version, the week, the
+ * seed and the name, followed by the ecosystem in a compact binary form. Every creature is kept,
+ * so loading a snapshot restores the ecosystem exactly; a simulation with the same seed that
+ * loads it continues exactly as the saved simulation would have.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class EcosystemSnapshot {
+
+    /** The number that starts every snapshot. */
+    public static final int MAGIC = 0x47505059;
+
+    /**
+     * The version of the format written; version 1 did not hold the flow weights of streams and
+     * version 2 did not hold their capacities, transit times or the creatures crossing them.
+     */
+    public static final int VERSION = 3;
+
+    /** The number of bytes in the header before the name. */
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 4;
+
+    /** The name of the simulation. */
+    private final String name;
+
+    /** The week of the simulation. */
+    private final int week;
+
+    /** The seed of the simulation. */
+    private final long seed;
+
+    /** The state of the ecosystem. */
+    private final Ecosystem ecosystem;
+
+    /**
+     * Creates a snapshot of the given state.
+     *
+     * @param name
+     *         the name of the simulation
+     * @param week
+     *         the week of the simulation
+     * @param seed
+     *         the seed of the simulation
+     * @param ecosystem
+     *         the state of the ecosystem
+     */
+    public EcosystemSnapshot(String name, int week, long seed, Ecosystem ecosystem) {
+
+        this.name = name;
+        this.week = week;
+        this.seed = seed;
+        this.ecosystem = ecosystem;
+    }
+
+    /**
+     * Returns the name of the simulation.
+     *
+     * @return the name of the simulation
+     */
+    public String getName() {
+
+        return name;
+    }
+
+    /**
+     * Returns the week of the simulation.
+     *
+     * @return the week of the simulation
+     */
+    public int getWeek() {
+
+        return week;
+    }
+
+    /**
+     * Returns the seed of the simulation.
+     *
+     * @return the seed of the simulation
+     */
+    public long getSeed() {
+
+        return seed;
+    }
+
+    /**
+     * Returns the state of the ecosystem.
+     *
+     * @return the state of the ecosystem
+     */
+    public Ecosystem getEcosystem() {
+
+        return ecosystem;
+    }
+
+    /**
+     * Saves the snapshot to the given file, replacing its contents.
+     *
+     * @param file
+     *         the file to save to
+     *
+     * @throws IOException
+     *         if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel);
+        }
+    }
+
+    /**
+     * Writes the snapshot to the given channel.
+     *
+     * @param channel
+     *         the channel to write to
+     *
+     * @throws IOException
+     *         if the channel cannot be written
+     * @throws IllegalArgumentException
+     *         if the ecosystem contains creatures other than guppies
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + nameBytes.length);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(week);
+        header.putLong(seed);
+        header.putInt(nameBytes.length);
+        header.put(nameBytes);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        EcosystemCodec.write(ecosystem, channel);
+    }
+
+    /**
+     * Loads a snapshot from the given file.
+     *
+     * @param file
+     *         the file to load
+     *
+     * @return the snapshot loaded
+     *
+     * @throws IOException
+     *         if the file cannot be read or is not a snapshot of a supported version
+     */
+    public static EcosystemSnapshot load(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    /**
+     * Reads a snapshot from the given channel.
+     *
+     * @param channel
+     *         the channel to read from
+     *
+     * @return the snapshot read
+     *
+     * @throws IOException
+     *         if the channel cannot be read or does not hold a snapshot of a supported version
+     */
+    public static EcosystemSnapshot read(ReadableByteChannel channel) throws IOException {
+
+        ByteBuffer header = readFully(channel, HEADER_BYTES);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not an ecosystem snapshot");
+        }
+        int version = header.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        int week = header.getInt();
+        long seed = header.getLong();
+        int nameLength = header.getInt();
+        if (nameLength < 0) {
+            throw new IOException("Invalid name length " + nameLength);
+        }
+        ByteBuffer nameBytes = readFully(channel, nameLength);
+        String name = new String(nameBytes.array(), StandardCharsets.UTF_8);
+
+        // each version of the snapshot holds the same version of the ecosystem's binary form
+        return new EcosystemSnapshot(name, week, seed, EcosystemCodec.read(channel, version));
+    }
+
+    /**
+     * Returns whether the given file starts like a snapshot.
+     *
+     * @param file
+     *         the file to check
+     *
+     * @return true if the file starts with the magic number of a snapshot; false otherwise
+     */
+    public static boolean isSnapshot(Path file) {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readFully(channel, 4).getInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads exactly the given number of bytes from the given channel.
+     *
+     * @param channel
+     *         the channel to read from
+     * @param bytes
+     *         the number of bytes to read
+     *
+     * @return a buffer holding the bytes read, ready to be read from
+     *
+     * @throws IOException
+     *         if the channel cannot be read or ends too soon
+     */
+    private static ByteBuffer readFully(ReadableByteChannel channel, int bytes)
+            throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("The snapshot ends unexpectedly");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,251 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many replicas of a scenario with independent seeds and aggregates their results.
+ * <p>
+ * The replicas run concurrently on a ForkJoinPool, in waves of as many replicas as it has
+ * threads. Each replica steps its own copy of the scenario and keeps no history; only the results
+ * of the replicas in the current wave and the running statistics of each week are kept, so the
+ * memory used does not grow with the number of replicas. Every replica must finish before a week
+ * is complete, so the weeks are published to the registered listeners when the run ends.
+ * <p>
+ * The seed of each replica is derived from the seed of the ensemble, and the results of the
+ * replicas are merged in replica order, so an ensemble run twice with the same seed gives exactly
+ * the same statistics whatever the number of threads.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class Ensemble {
+
+    /** The initial state of every replica. */
+    private final Ecosystem scenario;
+
+    /** The number of replicas to run. */
+    private final int replicas;
+
+    /** The random number streams that seed the replicas. */
+    private final RandomStreams streams;
+
+    /** The subscribers to the statistics of each week. */
+    private final List<EnsembleListener> listeners;
+
+    /** The pool of threads that runs the replicas. */
+    private ForkJoinPool forkJoinPool;
+
+    /**
+     * Sets up an ensemble of the given scenario.
+     *
+     * @param scenario
+     *         the initial state of every replica; it is copied and never modified
+     * @param replicas
+     *         the number of replicas to run
+     * @param seed
+     *         the seed of the ensemble
+     *
+     * @throws IllegalArgumentException
+     *         if the number of replicas is not positive
+     */
+    public Ensemble(Ecosystem scenario, int replicas, long seed) {
+
+        if (replicas <= 0) {
+            throw new IllegalArgumentException("The number of replicas must be positive");
+        }
+        this.scenario = scenario;
+        this.replicas = replicas;
+        streams = new RandomStreams(seed);
+        listeners = new ArrayList<>();
+        forkJoinPool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Returns the number of replicas to run.
+     *
+     * @return the number of replicas to run
+     */
+    public int getReplicas() {
+
+        return replicas;
+    }
+
+    /**
+     * Returns the pool of threads that runs the replicas.
+     *
+     * @return the pool of threads that runs the replicas
+     */
+    public ForkJoinPool getForkJoinPool() {
+
+        return forkJoinPool;
+    }
+
+    /**
+     * Sets the pool of threads that runs the replicas.
+     *
+     * @param forkJoinPool
+     *         the pool of threads that runs the replicas
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Registers the given listener.
+     *
+     * @param listener
+     *         the listener to add
+     */
+    public void addListener(EnsembleListener listener) {
+
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Unregisters the given listener.
+     *
+     * @param listener
+     *         the listener to remove
+     */
+    public void removeListener(EnsembleListener listener) {
+
+        listeners.remove(listener);
+    }
+
+    /**
+     * Runs every replica for the given number of weeks and returns the statistics of each week.
+     * <p>
+     * The replicas run in waves of as many replicas as the ForkJoinPool has threads, and the
+     * results of each wave are merged in replica order. The weeks are published once the last
+     * wave has finished.
+     *
+     * @param numberOfWeeks
+     *         the number of weeks to simulate
+     *
+     * @return the statistics of each week, in order
+     */
+    public List<EnsembleWeek> run(int numberOfWeeks) {
+
+        WeekStatistics[] weeks = new WeekStatistics[numberOfWeeks];
+        for (int i = 0; i < numberOfWeeks; i++) {
+            weeks[i] = new WeekStatistics();
+        }
+
+        int waveSize = Math.max(1, forkJoinPool.getParallelism());
+        for (int first = 0; first < replicas; first += waveSize) {
+            List<Callable<List<WeekReport>>> tasks = new ArrayList<>(waveSize);
+            for (int i = first; i < Math.min(first + waveSize, replicas); i++) {
+                long replicaSeed = streams.stream(RandomStreams.Phase.REPLICA, 0, i).nextLong();
+                tasks.add(() -> runReplica(replicaSeed, numberOfWeeks));
+            }
+            for (List<WeekReport> reports : runWave(tasks)) {
+                for (WeekReport report : reports) {
+                    weeks[report.getWeek() - 1].add(report);
+                }
+            }
+        }
+
+        List<EnsembleWeek> published = new ArrayList<>(numberOfWeeks);
+        for (int i = 0; i < numberOfWeeks; i++) {
+            WeekStatistics statistics = weeks[i];
+            EnsembleWeek week = new EnsembleWeek(i + 1, statistics.population, statistics.births,
+                                                 statistics.diedOfOldAge,
+                                                 statistics.starvedToDeath,
+                                                 statistics.crowdedOut);
+            weeks[i] = null;
+            published.add(week);
+            for (EnsembleListener listener : listeners) {
+                listener.weekAggregated(week);
+            }
+        }
+        return published;
+    }
+
+    /**
+     * Runs the given replicas on the ForkJoinPool and returns their results.
+     *
+     * @param tasks
+     *         the replicas to run
+     *
+     * @return the results of each replica, in the order of the tasks
+     */
+    private List<List<WeekReport>> runWave(List<Callable<List<WeekReport>>> tasks) {
+
+        List<List<WeekReport>> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<List<WeekReport>> result : forkJoinPool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the replicas", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A replica could not be run", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Simulates a single replica and returns the results of each week.
+     *
+     * @param seed
+     *         the seed of the replica
+     * @param numberOfWeeks
+     *         the number of weeks to simulate
+     *
+     * @return the results of each week, in order
+     */
+    private List<WeekReport> runReplica(long seed, int numberOfWeeks) {
+
+        Ecosystem ecosystem = scenario.copy();
+        List<WeekReport> reports = new ArrayList<>(numberOfWeeks);
+
+        SimulationEngine engine = new SimulationEngine(new RandomStreams(seed));
+        for (int week = 1; week <= numberOfWeeks; week++) {
+            reports.add(engine.step(ecosystem, week));
+        }
+        return reports;
+    }
+
+    /** Holds the running statistics of a single week. */
+    private static final class WeekStatistics {
+
+        /** The population of the ecosystem at the end of the week. */
+        private final RunningStatistics population = new RunningStatistics();
+
+        /** The number of creatures that were born. */
+        private final RunningStatistics births = new RunningStatistics();
+
+        /** The number of creatures that died of old age. */
+        private final RunningStatistics diedOfOldAge = new RunningStatistics();
+
+        /** The number of creatures that starved to death. */
+        private final RunningStatistics starvedToDeath = new RunningStatistics();
+
+        /** The number of creatures that died to overcrowding. */
+        private final RunningStatistics crowdedOut = new RunningStatistics();
+
+        /**
+         * Adds the results of a replica's week.
+         *
+         * @param report
+         *         the results of the week
+         */
+        private void add(WeekReport report) {
+
+            population.add(report.getEcosystemPopulation());
+            births.add(report.getBirths());
+            diedOfOldAge.add(report.getDiedOfOldAge());
+            starvedToDeath.add(report.getStarvedToDeath());
+            crowdedOut.add(report.getCrowdedOut());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Receives the statistics of an ensemble once each week is completed by every replica.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public interface EnsembleListener {
+
+    /**
+     * Called after every replica has simulated a week.
+     * <p>
+     * Weeks are delivered in order, one at a time, on the thread that runs the ensemble, once the
+     * last replica has finished.
+     *
+     * @param week
+     *         the statistics of the week
+     */
+    void weekAggregated(EnsembleWeek week);
+}
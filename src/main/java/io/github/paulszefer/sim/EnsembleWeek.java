@@ -0,0 +1,134 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Stores the statistics of a single week across the replicas of an ensemble.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class EnsembleWeek {
+
+    /** The week that was simulated. */
+    private final int week;
+
+    /** The population of the ecosystem at the end of the week. */
+    private final RunningStatistics population;
+
+    /** The number of creatures that were born. */
+    private final RunningStatistics births;
+
+    /** The number of creatures that died of old age. */
+    private final RunningStatistics diedOfOldAge;
+
+    /** The number of creatures that starved to death. */
+    private final RunningStatistics starvedToDeath;
+
+    /** The number of creatures that died to overcrowding. */
+    private final RunningStatistics crowdedOut;
+
+    /**
+     * Creates the statistics of a week.
+     *
+     * @param week
+     *         the week that was simulated
+     * @param population
+     *         the population of the ecosystem at the end of the week
+     * @param births
+     *         the number of creatures that were born
+     * @param diedOfOldAge
+     *         the number of creatures that died of old age
+     * @param starvedToDeath
+     *         the number of creatures that starved to death
+     * @param crowdedOut
+     *         the number of creatures that died to overcrowding
+     */
+    public EnsembleWeek(int week, RunningStatistics population, RunningStatistics births,
+                        RunningStatistics diedOfOldAge, RunningStatistics starvedToDeath,
+                        RunningStatistics crowdedOut) {
+
+        this.week = week;
+        this.population = population.copy();
+        this.births = births.copy();
+        this.diedOfOldAge = diedOfOldAge.copy();
+        this.starvedToDeath = starvedToDeath.copy();
+        this.crowdedOut = crowdedOut.copy();
+    }
+
+    /**
+     * Returns the week that was simulated.
+     *
+     * @return the week that was simulated
+     */
+    public int getWeek() {
+
+        return week;
+    }
+
+    /**
+     * Returns the number of replicas that simulated the week.
+     *
+     * @return the number of replicas that simulated the week
+     */
+    public long getReplicas() {
+
+        return population.getCount();
+    }
+
+    /**
+     * Returns the statistics of the population of the ecosystem at the end of the week.
+     *
+     * @return the statistics of the population of the ecosystem at the end of the week
+     */
+    public RunningStatistics getPopulation() {
+
+        return population.copy();
+    }
+
+    /**
+     * Returns the statistics of the number of creatures that were born.
+     *
+     * @return the statistics of the number of creatures that were born
+     */
+    public RunningStatistics getBirths() {
+
+        return births.copy();
+    }
+
+    /**
+     * Returns the statistics of the number of creatures that died of old age.
+     *
+     * @return the statistics of the number of creatures that died of old age
+     */
+    public RunningStatistics getDiedOfOldAge() {
+
+        return diedOfOldAge.copy();
+    }
+
+    /**
+     * Returns the statistics of the number of creatures that starved to death.
+     *
+     * @return the statistics of the number of creatures that starved to death
+     */
+    public RunningStatistics getStarvedToDeath() {
+
+        return starvedToDeath.copy();
+    }
+
+    /**
+     * Returns the statistics of the number of creatures that died to overcrowding.
+     *
+     * @return the statistics of the number of creatures that died to overcrowding
+     */
+    public RunningStatistics getCrowdedOut() {
+
+        return crowdedOut.copy();
+    }
+
+    @Override
+    public String toString() {
+
+        return "Week " + week + ": population " + population + ", births " + births
+                + ", died of old age " + diedOfOldAge + ", starved to death " + starvedToDeath
+                + ", crowded out " + crowdedOut;
+    }
+}
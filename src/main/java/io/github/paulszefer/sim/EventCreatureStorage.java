@@ -0,0 +1,852 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stores guppies individually and steps them by scheduling their events instead of visiting each
+ * of them every week.
+ * <p>
+ * A guppy's old-age death and the week a female becomes old enough to spawn are known when it is
+ * added, so they are scheduled in a {@link CalendarQueue} keyed by week. Ages are not stored but
+ * derived from a clock and the week each guppy was born, so ageing advances the clock and handles
+ * only the events due that week. Deaths from malnutrition are drawn as a binomial count of the
+ * living guppies and the guppies that spawn as a binomial count of the females old enough to, and
+ * only the chosen guppies are visited. The work of a week is therefore proportional to the number
+ * of events rather than to the population. The guppies that die or spawn follow the same
+ * distributions as in the other storages, but are drawn with different random numbers.
+ * <p>
+ * The statistics of the living guppies are tallied by week of birth, so ageing rebuilds them from
+ * one tally per age.
+ * <p>
+ * The slots of removed guppies are reused, so the order of the guppies is not kept. Guppies only
+ * become objects when they leave the storage, and the list returned by {@link #getCreatures()} is
+ * a snapshot; changes to it are not reflected in the storage.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class EventCreatureStorage implements CreatureStorage {
+
+    /** The initial capacity of the columns. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The kind of the event of a guppy dying of old age. */
+    private static final int DEATH = 0;
+
+    /** The kind of the event of a female guppy becoming old enough to spawn. */
+    private static final int MATURITY = 1;
+
+    /** The week the storage has aged to. */
+    private int week;
+
+    /** The number of slots that have been used, including those of removed guppies. */
+    private int slots;
+
+    /** The week each guppy was born, so that its age is the current week less this. */
+    private int[] births;
+
+    /** The health coefficient of each guppy. */
+    private double[] coefficients;
+
+    /** The generation number of each guppy. */
+    private int[] generations;
+
+    /** The identification number of each guppy. */
+    private int[] identifiers;
+
+    /** Whether each slot holds a guppy, living or dead. */
+    private BitSet occupied;
+
+    /** Whether each guppy is female. */
+    private BitSet female;
+
+    /** The slots of the living guppies. */
+    private int[] living;
+
+    /** The number of living guppies. */
+    private int livingCount;
+
+    /** The position of each guppy in the living slots, or -1 if it is not alive. */
+    private int[] livingPositions;
+
+    /** The slots of the females old enough to spawn. */
+    private int[] spawners;
+
+    /** The number of females old enough to spawn. */
+    private int spawnerCount;
+
+    /** The position of each guppy in the spawner slots, or -1 if it cannot spawn. */
+    private int[] spawnerPositions;
+
+    /** The slots of the dead guppies that have not been removed. */
+    private int[] dead;
+
+    /** The number of dead guppies that have not been removed. */
+    private int deadCount;
+
+    /** The slots of removed guppies, which are reused before new slots. */
+    private int[] free;
+
+    /** The number of slots of removed guppies. */
+    private int freeCount;
+
+    /** The events of the living guppies, keyed by the week they are due. */
+    private CalendarQueue events;
+
+    /** The number of living guppies born in each week, modulo the maximum age. */
+    private long[] tallyCounts;
+
+    /** The number of living females born in each week, modulo the maximum age. */
+    private long[] tallyFemales;
+
+    /** The sum of the health coefficients of the living guppies born in each week. */
+    private double[] tallyCoefficients;
+
+    /** The statistics of the living guppies. */
+    private LivingAggregates aggregates;
+
+    /** Creates an empty storage. */
+    public EventCreatureStorage() {
+
+        births = new int[INITIAL_CAPACITY];
+        coefficients = new double[INITIAL_CAPACITY];
+        generations = new int[INITIAL_CAPACITY];
+        identifiers = new int[INITIAL_CAPACITY];
+        occupied = new BitSet();
+        female = new BitSet();
+        living = new int[INITIAL_CAPACITY];
+        livingPositions = new int[INITIAL_CAPACITY];
+        spawners = new int[INITIAL_CAPACITY];
+        spawnerPositions = new int[INITIAL_CAPACITY];
+        dead = new int[INITIAL_CAPACITY];
+        free = new int[INITIAL_CAPACITY];
+        events = new CalendarQueue(Guppy.MAXIMUM_AGE + 1);
+        tallyCounts = new long[Guppy.MAXIMUM_AGE];
+        tallyFemales = new long[Guppy.MAXIMUM_AGE];
+        tallyCoefficients = new double[Guppy.MAXIMUM_AGE];
+        aggregates = new LivingAggregates();
+    }
+
+    /**
+     * Returns the number of events waiting in the calendar, including those of guppies that have
+     * since died or left, which are discarded when they come due.
+     *
+     * @return the number of scheduled events
+     */
+    long getScheduledEvents() {
+
+        return events.size();
+    }
+
+    @Override
+    public long size() {
+
+        return livingCount + deadCount;
+    }
+
+    @Override
+    public List<Creature> getCreatures() {
+
+        List<Creature> creatures = new ArrayList<>(livingCount + deadCount);
+        for (int i = occupied.nextSetBit(0); i >= 0; i = occupied.nextSetBit(i + 1)) {
+            creatures.add(toGuppy(i));
+        }
+        return creatures;
+    }
+
+    @Override
+    public void setCreatures(List<Creature> creatures) {
+
+        if (creatures != null) {
+            clear();
+            addAll(creatures);
+        }
+    }
+
+    @Override
+    public boolean add(Creature creature) {
+
+        if (creature == null) {
+            return false;
+        }
+        Health health = creature.getHealth();
+        append(health.getAge(), health.getCoefficient(), health.isAlive(), creature.isFemale(),
+               creature.getIdentification().getGeneration(),
+               creature.getIdentification().getIdentifier());
+        return true;
+    }
+
+    @Override
+    public boolean addAll(List<Creature> creatures) {
+
+        if (creatures == null) {
+            return false;
+        }
+        ensureCapacity(slots + creatures.size());
+        for (Creature creature : creatures) {
+            add(creature);
+        }
+        return !creatures.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The clock advances by a week and only the events due in the new week are handled: guppies
+     * reaching the maximum age die and females reaching the minimum spawning age become able to
+     * spawn.
+     */
+    @Override
+    public long incrementAges() {
+
+        week++;
+        for (int event : events.take(week)) {
+            int slot = event >>> 1;
+            // the slot may have been reused since the event was scheduled
+            if (livingPositions[slot] < 0) {
+                continue;
+            }
+            if ((event & 1) == DEATH) {
+                if (births[slot] + Guppy.MAXIMUM_AGE == week) {
+                    kill(slot);
+                }
+            } else if (female.get(slot) && week - births[slot] == Guppy.MINIMUM_SPAWN_AGE
+                    && spawnerPositions[slot] < 0) {
+                addSpawner(slot);
+            }
+        }
+        rebuildAggregates();
+
+        return deadCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The number of deaths is drawn from a binomial distribution over the living guppies, and
+     * only the guppies that die are chosen and visited. Guppies that are already dead are not
+     * counted.
+     */
+    @Override
+    public long applyNutrientCoefficient(double nutrientCoefficient, Random generator) {
+
+        long countDied = Distributions.binomial(livingCount, 1.0 - nutrientCoefficient,
+                                                generator);
+        for (long i = 0; i < countDied; i++) {
+            kill(living[generator.nextInt(livingCount)]);
+        }
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The slots of the dead guppies are freed for reuse, without moving any other guppy.
+     */
+    @Override
+    public long removeDead() {
+
+        int creaturesRemoved = deadCount;
+
+        for (int i = 0; i < deadCount; i++) {
+            occupied.clear(dead[i]);
+            female.clear(dead[i]);
+            free[freeCount++] = dead[i];
+        }
+        deadCount = 0;
+
+        return creaturesRemoved;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rules are those of {@link Guppy#spawn()}. The number of females that spawn is drawn from
+     * a binomial distribution over those old enough to, and only those that spawn are chosen and
+     * visited.
+     */
+    @Override
+    public long spawn(Random generator) {
+
+        long parents = Distributions.binomial(spawnerCount, Guppy.SPAWN_CHANCE, generator);
+        long newFry = 0;
+        int identifier = -1;
+
+        for (int i = 0; i < parents; i++) {
+            // the parents are moved to the front of the spawners as they are chosen
+            swapSpawners(i, i + generator.nextInt(spawnerCount - i));
+            int parent = spawners[i];
+
+            int numberOfOffspring = generator.nextInt(Guppy.MAXIMUM_OFFSPRING + 1);
+            if (numberOfOffspring > 0 && identifier < 0) {
+                identifier = highestIdentifier();
+            }
+            double offspringCoefficient = Guppy.getOffspringCoefficient(coefficients[parent]);
+            int offspringGeneration = generations[parent] + 1;
+            ensureCapacity(slots + numberOfOffspring);
+            for (int j = 0; j < numberOfOffspring; j++) {
+                append(0, offspringCoefficient, true, generator.nextBoolean(),
+                       offspringGeneration, ++identifier);
+            }
+            newFry += numberOfOffspring;
+        }
+
+        return newFry;
+    }
+
+    /**
+     * Returns the highest identification number of the guppies.
+     *
+     * @return the highest identification number, or 0 if there are no guppies
+     */
+    private int highestIdentifier() {
+
+        int highest = 0;
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            highest = Math.max(highest, identifiers[slot]);
+        }
+        return highest;
+    }
+
+    @Override
+    public List<Creature> removeWeakest(double volumeLitres) {
+
+        return extractWeakest(volumeLitres).getCreatures();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The guppies are considered in slot order using {@link CrowdingSelector}, the dead needing
+     * no volume, and the slots of those that leave are freed.
+     */
+    @Override
+    public EventCreatureStorage extractWeakest(double volumeLitres) {
+
+        EventCreatureStorage weakest = new EventCreatureStorage();
+        if (CrowdingSelector.fits(aggregates.getVolumeNeededMl(), volumeLitres)) {
+            return weakest;
+        }
+
+        int count = livingCount + deadCount;
+        int[] candidates = new int[count];
+        double[] candidateCoefficients = new double[count];
+        double[] volumes = new double[count];
+        double volumeNeeded = 0.0;
+        int index = 0;
+        for (int i = occupied.nextSetBit(0); i >= 0; i = occupied.nextSetBit(i + 1)) {
+            candidates[index] = i;
+            candidateCoefficients[index] = coefficients[i];
+            if (livingPositions[i] >= 0) {
+                volumes[index] = Guppy.getVolumeNeededAtAge(week - births[i]);
+                volumeNeeded += volumes[index];
+            }
+            index++;
+        }
+
+        int[] selected = CrowdingSelector.selectWeakest(candidateCoefficients, volumes, count,
+                                                        volumeNeeded, volumeLitres);
+        weakest.ensureCapacity(selected.length);
+        boolean removedDead = false;
+        for (int selectedIndex : selected) {
+            int slot = candidates[selectedIndex];
+            boolean alive = livingPositions[slot] >= 0;
+            weakest.append(week - births[slot], coefficients[slot], alive, female.get(slot),
+                           generations[slot], identifiers[slot]);
+            if (alive) {
+                release(slot);
+            } else {
+                occupied.clear(slot);
+                female.clear(slot);
+                free[freeCount++] = slot;
+                removedDead = true;
+            }
+        }
+
+        if (removedDead) {
+            int kept = 0;
+            for (int i = 0; i < deadCount; i++) {
+                if (occupied.get(dead[i])) {
+                    dead[kept++] = dead[i];
+                }
+            }
+            deadCount = kept;
+        }
+
+        return weakest;
+    }
+
+    @Override
+    public long applyTransportMortality(Random generator) {
+
+        int countDied = 0;
+
+        for (int slot : Arrays.copyOf(living, livingCount)) {
+            if (generator.nextDouble() >= coefficients[slot]) {
+                kill(slot);
+                countDied++;
+            }
+        }
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the given storage also schedules events, each survivor is appended to it directly,
+     * without creating guppy objects.
+     */
+    @Override
+    public long transportSurvivors(CreatureStorage destination, Random generator) {
+
+        if (!(destination instanceof EventCreatureStorage)) {
+            long countDied = applyTransportMortality(generator);
+            removeDead();
+            destination.absorb(this);
+            return countDied;
+        }
+
+        EventCreatureStorage scheduled = (EventCreatureStorage) destination;
+        long countDied = 0;
+
+        scheduled.ensureCapacity(scheduled.slots + livingCount);
+        for (int i = 0; i < livingCount; i++) {
+            int slot = living[i];
+            if (generator.nextDouble() < coefficients[slot]) {
+                scheduled.append(week - births[slot], coefficients[slot], true, female.get(slot),
+                                 generations[slot], identifiers[slot]);
+            } else {
+                countDied++;
+            }
+        }
+        clear();
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The part of each guppy is drawn from an {@link AliasTable}, and the guppy is appended to
+     * that part directly.
+     */
+    @Override
+    public CreatureStorage[] split(double[] weights, Random generator) {
+
+        AliasTable table = new AliasTable(weights);
+        EventCreatureStorage[] parts = new EventCreatureStorage[weights.length];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new EventCreatureStorage();
+        }
+
+        for (int i = occupied.nextSetBit(0); i >= 0; i = occupied.nextSetBit(i + 1)) {
+            boolean isAlive = livingPositions[i] >= 0;
+            EventCreatureStorage part = parts[isAlive ? table.sample(generator) : 0];
+            part.append(week - births[i], coefficients[i], isAlive, female.get(i),
+                        generations[i], identifiers[i]);
+        }
+        clear();
+
+        return parts;
+    }
+
+    @Override
+    public long killAll() {
+
+        while (livingCount > 0) {
+            kill(living[livingCount - 1]);
+        }
+        return deadCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The guppies of another storage of this kind or of a columnar storage are appended directly,
+     * without creating guppy objects.
+     */
+    @Override
+    public void absorb(CreatureStorage other) {
+
+        if (other instanceof EventCreatureStorage) {
+            EventCreatureStorage scheduled = (EventCreatureStorage) other;
+            ensureCapacity(slots + (int) scheduled.size());
+            for (int i = scheduled.occupied.nextSetBit(0); i >= 0;
+                    i = scheduled.occupied.nextSetBit(i + 1)) {
+                append(scheduled.week - scheduled.births[i], scheduled.coefficients[i],
+                       scheduled.livingPositions[i] >= 0, scheduled.female.get(i),
+                       scheduled.generations[i], scheduled.identifiers[i]);
+            }
+            return;
+        }
+        if (other instanceof ColumnarCreatureStorage) {
+            ColumnarCreatureStorage columns = (ColumnarCreatureStorage) other;
+            int count = (int) columns.size();
+            ensureCapacity(slots + count);
+            for (int i = 0; i < count; i++) {
+                append(columns.getAges()[i], columns.getCoefficients()[i],
+                       columns.getAlive().get(i), columns.getFemale().get(i),
+                       columns.getGenerations()[i], columns.getIdentifiers()[i]);
+            }
+            return;
+        }
+        addAll(other.viewCreatures());
+    }
+
+    @Override
+    public double getVolumeNeededMl() {
+
+        return aggregates.getVolumeNeededMl();
+    }
+
+    @Override
+    public double getAverageAgeInWeeks() {
+
+        return aggregates.getAverageAgeInWeeks();
+    }
+
+    @Override
+    public double getAverageHealthCoefficient() {
+
+        return aggregates.getAverageHealthCoefficient();
+    }
+
+    @Override
+    public double getFemaleProportion() {
+
+        return aggregates.getFemaleProportion();
+    }
+
+    @Override
+    public AgeHistogram getAgeHistogram() {
+
+        return aggregates.getAgeHistogram();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The guppies of the copy are in the order of their slots here, with their events scheduled
+     * afresh.
+     */
+    @Override
+    public EventCreatureStorage copy() {
+
+        EventCreatureStorage storageCopy = new EventCreatureStorage();
+        storageCopy.absorb(this);
+        return storageCopy;
+    }
+
+    /**
+     * Returns the guppies as columns, in the order of their slots.
+     *
+     * @return a columnar storage holding copies of the guppies
+     */
+    ColumnarCreatureStorage toColumns() {
+
+        ColumnarCreatureStorage columns = new ColumnarCreatureStorage();
+        for (int i = occupied.nextSetBit(0); i >= 0; i = occupied.nextSetBit(i + 1)) {
+            columns.append(week - births[i], coefficients[i], livingPositions[i] >= 0,
+                           female.get(i), generations[i], identifiers[i]);
+        }
+        return columns;
+    }
+
+    /** Removes all of the guppies. */
+    public void clear() {
+
+        slots = 0;
+        occupied.clear();
+        female.clear();
+        livingCount = 0;
+        spawnerCount = 0;
+        deadCount = 0;
+        freeCount = 0;
+        events.clear();
+        Arrays.fill(tallyCounts, 0);
+        Arrays.fill(tallyFemales, 0);
+        Arrays.fill(tallyCoefficients, 0.0);
+        aggregates.clear();
+    }
+
+    /**
+     * Adds a guppy with the given attributes and schedules its events.
+     * <p>
+     * A living guppy that has already reached the maximum age is added dead.
+     *
+     * @param age
+     *         the age of the guppy in weeks
+     * @param coefficient
+     *         the health coefficient of the guppy
+     * @param isAlive
+     *         whether the guppy is alive
+     * @param isFemale
+     *         whether the guppy is female
+     * @param generation
+     *         the generation number of the guppy
+     * @param identifier
+     *         the identification number of the guppy
+     */
+    private void append(int age, double coefficient, boolean isAlive, boolean isFemale,
+                        int generation, int identifier) {
+
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            ensureCapacity(slots + 1);
+            slot = slots++;
+        }
+        births[slot] = week - age;
+        coefficients[slot] = coefficient;
+        generations[slot] = generation;
+        identifiers[slot] = identifier;
+        occupied.set(slot);
+        female.set(slot, isFemale);
+        spawnerPositions[slot] = -1;
+
+        if (!isAlive || age >= Guppy.MAXIMUM_AGE) {
+            livingPositions[slot] = -1;
+            dead[deadCount++] = slot;
+            return;
+        }
+
+        livingPositions[slot] = livingCount;
+        living[livingCount++] = slot;
+        count(slot);
+        events.schedule(births[slot] + Guppy.MAXIMUM_AGE, slot << 1 | DEATH);
+        if (isFemale) {
+            if (age >= Guppy.MINIMUM_SPAWN_AGE) {
+                addSpawner(slot);
+            } else {
+                events.schedule(births[slot] + Guppy.MINIMUM_SPAWN_AGE, slot << 1 | MATURITY);
+            }
+        }
+    }
+
+    /**
+     * Kills the living guppy in the given slot, keeping it until the dead are removed.
+     *
+     * @param slot
+     *         the slot of the guppy
+     */
+    private void kill(int slot) {
+
+        removeLiving(slot);
+        dead[deadCount++] = slot;
+    }
+
+    /**
+     * Removes the living guppy in the given slot and frees the slot.
+     *
+     * @param slot
+     *         the slot of the guppy
+     */
+    private void release(int slot) {
+
+        removeLiving(slot);
+        occupied.clear(slot);
+        female.clear(slot);
+        free[freeCount++] = slot;
+    }
+
+    /**
+     * Stops counting the guppy in the given slot as living or able to spawn.
+     *
+     * @param slot
+     *         the slot of the guppy
+     */
+    private void removeLiving(int slot) {
+
+        uncount(slot);
+        int position = livingPositions[slot];
+        int last = living[--livingCount];
+        living[position] = last;
+        livingPositions[last] = position;
+        livingPositions[slot] = -1;
+
+        if (spawnerPositions[slot] >= 0) {
+            swapSpawners(spawnerPositions[slot], spawnerCount - 1);
+            spawnerCount--;
+            spawnerPositions[slot] = -1;
+        }
+    }
+
+    /**
+     * Counts the female in the given slot as able to spawn.
+     *
+     * @param slot
+     *         the slot of the guppy
+     */
+    private void addSpawner(int slot) {
+
+        spawnerPositions[slot] = spawnerCount;
+        spawners[spawnerCount++] = slot;
+    }
+
+    /**
+     * Swaps the spawners at the given positions.
+     *
+     * @param first
+     *         the position of the first spawner
+     * @param second
+     *         the position of the second spawner
+     */
+    private void swapSpawners(int first, int second) {
+
+        int firstSlot = spawners[first];
+        int secondSlot = spawners[second];
+        spawners[first] = secondSlot;
+        spawners[second] = firstSlot;
+        spawnerPositions[secondSlot] = first;
+        spawnerPositions[firstSlot] = second;
+    }
+
+    /**
+     * Counts the living guppy in the given slot in the statistics and in the tally of its week of
+     * birth.
+     *
+     * @param slot
+     *         the slot of the guppy
+     */
+    private void count(int slot) {
+
+        int age = week - births[slot];
+        int tally = Math.floorMod(births[slot], Guppy.MAXIMUM_AGE);
+        tallyCounts[tally]++;
+        tallyFemales[tally] += female.get(slot) ? 1 : 0;
+        tallyCoefficients[tally] += coefficients[slot];
+        aggregates.add(age, coefficients[slot], female.get(slot),
+                       Guppy.getVolumeNeededAtAge(age), 1);
+    }
+
+    /**
+     * Stops counting the living guppy in the given slot in the statistics and in the tally of its
+     * week of birth.
+     *
+     * @param slot
+     *         the slot of the guppy
+     */
+    private void uncount(int slot) {
+
+        int age = week - births[slot];
+        int tally = Math.floorMod(births[slot], Guppy.MAXIMUM_AGE);
+        tallyCounts[tally]--;
+        tallyFemales[tally] -= female.get(slot) ? 1 : 0;
+        // discard any rounding error left in the floating point totals
+        tallyCoefficients[tally] = tallyCounts[tally] == 0 ? 0.0
+                                   : tallyCoefficients[tally] - coefficients[slot];
+        if (age < Guppy.MAXIMUM_AGE) {
+            aggregates.remove(age, coefficients[slot], female.get(slot),
+                              Guppy.getVolumeNeededAtAge(age), 1);
+        }
+    }
+
+    /** Rebuilds the statistics of the living guppies from the tallies of their weeks of birth. */
+    private void rebuildAggregates() {
+
+        aggregates.clear();
+        for (int tally = 0; tally < tallyCounts.length; tally++) {
+            long count = tallyCounts[tally];
+            if (count == 0) {
+                continue;
+            }
+            int age = Math.floorMod(week - tally, Guppy.MAXIMUM_AGE);
+            double coefficient = tallyCoefficients[tally] / count;
+            double volume = Guppy.getVolumeNeededAtAge(age);
+            aggregates.add(age, coefficient, true, volume, tallyFemales[tally]);
+            aggregates.add(age, coefficient, false, volume, count - tallyFemales[tally]);
+        }
+    }
+
+    /**
+     * Grows the columns so that they can hold at least the given number of slots.
+     *
+     * @param capacity
+     *         the number of slots to hold
+     */
+    private void ensureCapacity(int capacity) {
+
+        if (capacity > births.length) {
+            int newCapacity = Math.max(capacity, births.length * 2);
+            births = Arrays.copyOf(births, newCapacity);
+            coefficients = Arrays.copyOf(coefficients, newCapacity);
+            generations = Arrays.copyOf(generations, newCapacity);
+            identifiers = Arrays.copyOf(identifiers, newCapacity);
+            living = Arrays.copyOf(living, newCapacity);
+            livingPositions = Arrays.copyOf(livingPositions, newCapacity);
+            spawners = Arrays.copyOf(spawners, newCapacity);
+            spawnerPositions = Arrays.copyOf(spawnerPositions, newCapacity);
+            dead = Arrays.copyOf(dead, newCapacity);
+            free = Arrays.copyOf(free, newCapacity);
+        }
+    }
+
+    /**
+     * Creates a guppy object from the attributes in the given slot.
+     *
+     * @param slot
+     *         the slot of the guppy
+     *
+     * @return the guppy in the given slot
+     */
+    private Guppy toGuppy(int slot) {
+
+        Health health = new Health(Guppy.MAXIMUM_AGE, livingPositions[slot] >= 0,
+                                   Math.min(week - births[slot], Guppy.MAXIMUM_AGE - 1),
+                                   coefficients[slot]);
+        Identification identification = new Identification(Guppy.GENUS, Guppy.SPECIES,
+                                                            identifiers[slot],
+                                                            generations[slot]);
+        return new Guppy(identification, health, female.get(slot));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        EventCreatureStorage other = (EventCreatureStorage) o;
+
+        if (size() != other.size()) {
+            return false;
+        }
+        int i = occupied.nextSetBit(0);
+        int j = other.occupied.nextSetBit(0);
+        while (i >= 0) {
+            if (week - births[i] != other.week - other.births[j]
+                    || Double.compare(coefficients[i], other.coefficients[j]) != 0
+                    || generations[i] != other.generations[j]
+                    || identifiers[i] != other.identifiers[j]
+                    || (livingPositions[i] >= 0) != (other.livingPositions[j] >= 0)
+                    || female.get(i) != other.female.get(j)) {
+                return false;
+            }
+            i = occupied.nextSetBit(i + 1);
+            j = other.occupied.nextSetBit(j + 1);
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+
+        final int hashValue = 31;
+        int result = (int) size();
+        for (int i = occupied.nextSetBit(0); i >= 0; i = occupied.nextSetBit(i + 1)) {
+            result = hashValue * result + identifiers[i];
+        }
+        return result;
+    }
+}
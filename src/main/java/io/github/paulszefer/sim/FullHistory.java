@@ -0,0 +1,49 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the complete state of every week.
+ * <p>
+ * Any week is available immediately, but the memory used grows with the number of weeks times
+ * the number of creatures.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class FullHistory implements History {
+
+    /** The state of each week. */
+    private final List<Ecosystem> weeks;
+
+    /** Creates an empty history. */
+    public FullHistory() {
+
+        weeks = new ArrayList<>();
+    }
+
+    @Override
+    public int size() {
+
+        return weeks.size();
+    }
+
+    @Override
+    public void add(Ecosystem ecosystem) {
+
+        weeks.add(ecosystem);
+    }
+
+    @Override
+    public Ecosystem get(int week) {
+
+        return weeks.get(week);
+    }
+
+    @Override
+    public void clear() {
+
+        weeks.clear();
+    }
+}
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Defines a Guppy that lives in a body of water.
@@ -25,11 +27,17 @@ public class Guppy implements Creature {
     /** The default species of the guppy. */
     public static final String SPECIES = "reticulata";
 
-    /** Random number generator. */
-    private static final Random GENERATOR = new Random();
+    /** The minimum age in weeks for a female guppy to spawn. */
+    public static final int MINIMUM_SPAWN_AGE = 10;
 
-    /** The number of guppies that have been born. */
-    private static int numberOfGuppiesBorn;
+    /** The chance that an eligible female guppy spawns in a given week. */
+    public static final double SPAWN_CHANCE = 0.25;
+
+    /** The maximum number of offspring in a single spawn. */
+    public static final int MAXIMUM_OFFSPRING = 100;
+
+    /** The number of guppies that have been created outside of a simulation. */
+    private static final AtomicInteger NUMBER_OF_GUPPIES_BORN = new AtomicInteger();
 
     /** The identification profile of the guppy. */
     private Identification identification;
@@ -40,10 +48,27 @@ public class Guppy implements Creature {
     /** Whether the guppy is female. */
     private boolean female;
 
+    /**
+     * Creates a Guppy with the given profiles without registering a new birth.
+     *
+     * @param identification
+     *         the identification profile
+     * @param health
+     *         the health profile
+     * @param female
+     *         True if the guppy is female; false otherwise.
+     */
+    Guppy(Identification identification, Health health, boolean female) {
+
+        this.identification = identification;
+        this.health = health;
+        this.female = female;
+    }
+
     /** Creates a Guppy with the default values. */
     public Guppy() {
 
-        identification = new Identification(GENUS, SPECIES, ++numberOfGuppiesBorn, 0);
+        identification = new Identification(GENUS, SPECIES, nextIdentifier(), 0);
         health = new Health(MAXIMUM_AGE);
         female = true;
     }
@@ -62,11 +87,62 @@ public class Guppy implements Creature {
      */
     public Guppy(int age, double healthCoefficient, boolean female, int generation) {
 
-        identification = new Identification(GENUS, SPECIES, ++numberOfGuppiesBorn, generation);
+        identification = new Identification(GENUS, SPECIES, nextIdentifier(), generation);
         health = new Health(MAXIMUM_AGE, true, age, healthCoefficient);
         this.female = female;
     }
 
+    /**
+     * Registers the birth of a guppy and returns its identification number.
+     * <p>
+     * This numbers the guppies created outside of a simulation. Guppies born in a pool during a
+     * simulation are numbered by the pool's storage instead, following the highest identification
+     * number it holds, so that their numbers depend only on the state of the pool.
+     *
+     * @return the identification number of the new guppy
+     */
+    static int nextIdentifier() {
+
+        return NUMBER_OF_GUPPIES_BORN.incrementAndGet();
+    }
+
+    /**
+     * Gets the volume of water in mL that a living guppy of the given age needs.
+     *
+     * @param age
+     *         the age of the guppy in weeks
+     *
+     * @return Volume of water in mL needed for the guppy.
+     */
+    public static double getVolumeNeededAtAge(int age) {
+
+        final int youngFishAge = 10;
+        final int matureFishAge = 30;
+        double volumeOfWaterML = 0.0;
+        if (age < youngFishAge) {
+            volumeOfWaterML = MINIMUM_WATER_VOLUME_ML;
+        } else if (age < matureFishAge) {
+            volumeOfWaterML = MINIMUM_WATER_VOLUME_ML * age / youngFishAge;
+        } else if (age < MAXIMUM_AGE) {
+            final double volumeMultiple = 1.5;
+            volumeOfWaterML = MINIMUM_WATER_VOLUME_ML * volumeMultiple;
+        }
+        return volumeOfWaterML;
+    }
+
+    /**
+     * Returns the health coefficient of the offspring of a parent with the given coefficient.
+     *
+     * @param parentCoefficient
+     *         the health coefficient of the parent
+     *
+     * @return the health coefficient of the offspring
+     */
+    public static double getOffspringCoefficient(double parentCoefficient) {
+
+        return (1.0 + parentCoefficient) / 2.0;
+    }
+
     @Override
     public Identification getIdentification() {
 
@@ -100,20 +176,7 @@ public class Guppy implements Creature {
     @Override
     public double getVolumeNeeded() {
 
-        final int youngFishAge = 10;
-        final int matureFishAge = 30;
-        double volumeOfWaterML = 0.0;
-        if (health.isAlive()) {
-            if (health.getAge() < youngFishAge) {
-                volumeOfWaterML = MINIMUM_WATER_VOLUME_ML;
-            } else if (health.getAge() < matureFishAge) {
-                volumeOfWaterML = MINIMUM_WATER_VOLUME_ML * health.getAge() / youngFishAge;
-            } else if (health.getAge() < MAXIMUM_AGE) {
-                final double volumeMultiple = 1.5;
-                volumeOfWaterML = MINIMUM_WATER_VOLUME_ML * volumeMultiple;
-            }
-        }
-        return volumeOfWaterML;
+        return health.isAlive() ? getVolumeNeededAtAge(health.getAge()) : 0.0;
     }
 
     /**
@@ -121,27 +184,38 @@ public class Guppy implements Creature {
      * <p>
      * If the parent is female and at least 10 weeks old, then there is a 25% chance that they will
      * have offspring. If they do, they will have 0-100 offspring.
+     * <p>
+     * The offspring are drawn from a generator local to the current thread, so the result is not
+     * reproducible; use {@link #spawn(Random)} to draw from a seeded stream.
      */
     @Override
     public List<Creature> spawn() {
 
-        final int minAgeInWeeksToSpawn = 10;
-        final double spawnChance = 0.25;
-        final int maxOffspring = 100;
+        return spawn(ThreadLocalRandom.current());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the parent is female and at least 10 weeks old, then there is a 25% chance that they will
+     * have offspring. If they do, they will have 0-100 offspring.
+     */
+    @Override
+    public List<Creature> spawn(Random generator) {
 
         List<Creature> babyGuppies = new ArrayList<>();
 
-        if (female && health.getAge() >= minAgeInWeeksToSpawn) {
+        if (female && health.getAge() >= MINIMUM_SPAWN_AGE) {
 
             int numberOfOffspring = 0;
-            if (GENERATOR.nextDouble() <= spawnChance) {
-                numberOfOffspring = GENERATOR.nextInt(maxOffspring + 1);
+            if (generator.nextDouble() <= SPAWN_CHANCE) {
+                numberOfOffspring = generator.nextInt(MAXIMUM_OFFSPRING + 1);
             }
 
             if (numberOfOffspring > 0) {
                 for (int i = 0; i < numberOfOffspring; i++) {
-                    babyGuppies.add(new Guppy(0, (1.0 + health.getCoefficient()) / 2.0,
-                                              GENERATOR.nextBoolean(),
+                    babyGuppies.add(new Guppy(0, getOffspringCoefficient(health.getCoefficient()),
+                                              generator.nextBoolean(),
                                               identification.getGeneration() + 1));
                 }
             }
@@ -154,11 +228,10 @@ public class Guppy implements Creature {
     @Override
     public Guppy copy() {
 
-        Guppy guppyCopy = new Guppy(health.getAge(), health.getCoefficient(), isFemale(),
-                                    identification.getGeneration());
-        guppyCopy.getHealth().setAlive(health.isAlive());
-        guppyCopy.setIdentification(identification.copy());
-        return guppyCopy;
+        return new Guppy(identification.copy(),
+                         new Health(health.getMaxAge(), health.isAlive(), health.getAge(),
+                                    health.getCoefficient()),
+                         female);
     }
 
     /**
@@ -0,0 +1,262 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the attributes of a sequence of guppies in parallel arrays.
+ * <p>
+ * Records are far smaller than the guppy objects they describe, so they are used to keep the
+ * creatures of past weeks.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class GuppyRecords {
+
+    /** The initial capacity of the arrays. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The number of guppies recorded. */
+    private int size;
+
+    /** The identification number of each guppy. */
+    private int[] identifiers;
+
+    /** The generation of each guppy. */
+    private int[] generations;
+
+    /** The age of each guppy in weeks. */
+    private int[] ages;
+
+    /** The health coefficient of each guppy. */
+    private double[] coefficients;
+
+    /** Whether each guppy is alive. */
+    private boolean[] alive;
+
+    /** Whether each guppy is female. */
+    private boolean[] female;
+
+    /** Creates empty records. */
+    GuppyRecords() {
+
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates empty records with room for the given number of guppies.
+     *
+     * @param capacity
+     *         the number of guppies to make room for
+     */
+    GuppyRecords(int capacity) {
+
+        identifiers = new int[capacity];
+        generations = new int[capacity];
+        ages = new int[capacity];
+        coefficients = new double[capacity];
+        alive = new boolean[capacity];
+        female = new boolean[capacity];
+    }
+
+    /**
+     * Records the given creatures.
+     *
+     * @param creatures
+     *         the creatures to record
+     *
+     * @return the records of the creatures, or null if any of them is not a guppy that can be
+     *         recreated from its record
+     */
+    static GuppyRecords of(List<Creature> creatures) {
+
+        GuppyRecords records = new GuppyRecords(Math.max(creatures.size(), 1));
+        for (Creature creature : creatures) {
+            if (!isRecordable(creature)) {
+                return null;
+            }
+            records.add((Guppy) creature);
+        }
+        return records;
+    }
+
+    /**
+     * Returns whether the given creature is a guppy that can be recreated from its record.
+     *
+     * @param creature
+     *         the creature to check
+     *
+     * @return true if the creature can be recreated from its record; false otherwise
+     */
+    static boolean isRecordable(Creature creature) {
+
+        if (!(creature instanceof Guppy)) {
+            return false;
+        }
+        Guppy guppy = (Guppy) creature;
+        Classification classification = guppy.getIdentification().getClassification();
+        return Guppy.GENUS.equals(classification.getGenus())
+                && Guppy.SPECIES.equals(classification.getSpecies())
+                && guppy.getHealth().getMaxAge() == Guppy.MAXIMUM_AGE;
+    }
+
+    /**
+     * Returns the number of guppies recorded.
+     *
+     * @return the number of guppies recorded
+     */
+    int size() {
+
+        return size;
+    }
+
+    /**
+     * Returns the identification number of the guppy at the given index.
+     *
+     * @param index
+     *         the index of the guppy
+     *
+     * @return the identification number of the guppy
+     */
+    int getIdentifier(int index) {
+
+        return identifiers[index];
+    }
+
+    /**
+     * Records the given guppy.
+     *
+     * @param guppy
+     *         the guppy to record
+     */
+    void add(Guppy guppy) {
+
+        ensureCapacity(size + 1);
+        Health health = guppy.getHealth();
+        identifiers[size] = guppy.getIdentification().getIdentifier();
+        generations[size] = guppy.getIdentification().getGeneration();
+        ages[size] = health.getAge();
+        coefficients[size] = health.getCoefficient();
+        alive[size] = health.isAlive();
+        female[size] = guppy.isFemale();
+        size++;
+    }
+
+    /**
+     * Records the guppy at the given index of the given records, aged by the given number of
+     * weeks.
+     *
+     * @param source
+     *         the records to copy from
+     * @param index
+     *         the index of the guppy in the source
+     * @param weeks
+     *         the number of weeks to add to the age of the guppy
+     */
+    void add(GuppyRecords source, int index, int weeks) {
+
+        ensureCapacity(size + 1);
+        identifiers[size] = source.identifiers[index];
+        generations[size] = source.generations[index];
+        ages[size] = source.ages[index] + weeks;
+        coefficients[size] = source.coefficients[index];
+        alive[size] = source.alive[index];
+        female[size] = source.female[index];
+        size++;
+    }
+
+    /**
+     * Returns whether the guppy at the given index is the given guppy of the given records, aged
+     * by the given number of weeks and otherwise unchanged.
+     *
+     * @param index
+     *         the index of the guppy in these records
+     * @param previous
+     *         the records to compare with
+     * @param previousIndex
+     *         the index of the guppy in the given records
+     * @param weeks
+     *         the number of weeks the guppy has aged
+     *
+     * @return true if the guppy has only aged; false otherwise
+     */
+    boolean hasOnlyAged(int index, GuppyRecords previous, int previousIndex, int weeks) {
+
+        return identifiers[index] == previous.identifiers[previousIndex]
+                && generations[index] == previous.generations[previousIndex]
+                && ages[index] == previous.ages[previousIndex] + weeks
+                && Double.compare(coefficients[index], previous.coefficients[previousIndex]) == 0
+                && alive[index] == previous.alive[previousIndex]
+                && female[index] == previous.female[previousIndex];
+    }
+
+    /**
+     * Recreates the guppy at the given index.
+     *
+     * @param index
+     *         the index of the guppy
+     *
+     * @return the guppy at the given index
+     */
+    Guppy toGuppy(int index) {
+
+        return new Guppy(new Identification(Guppy.GENUS, Guppy.SPECIES, identifiers[index],
+                                            generations[index]),
+                         new Health(Guppy.MAXIMUM_AGE, alive[index], ages[index],
+                                    coefficients[index]),
+                         female[index]);
+    }
+
+    /**
+     * Recreates every recorded guppy, in order.
+     *
+     * @return the recorded guppies
+     */
+    List<Creature> toCreatures() {
+
+        List<Creature> creatures = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            creatures.add(toGuppy(i));
+        }
+        return creatures;
+    }
+
+    /** Shrinks the arrays to the number of guppies recorded. */
+    void trim() {
+
+        if (identifiers.length != size) {
+            resize(size);
+        }
+    }
+
+    /**
+     * Grows the arrays to hold at least the given number of guppies.
+     *
+     * @param capacity
+     *         the number of guppies to hold
+     */
+    private void ensureCapacity(int capacity) {
+
+        if (capacity > identifiers.length) {
+            resize(Math.max(capacity, identifiers.length * 2));
+        }
+    }
+
+    /**
+     * Resizes the arrays to the given capacity.
+     *
+     * @param capacity
+     *         the new capacity of the arrays
+     */
+    private void resize(int capacity) {
+
+        identifiers = Arrays.copyOf(identifiers, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        coefficients = Arrays.copyOf(coefficients, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+        female = Arrays.copyOf(female, capacity);
+    }
+}
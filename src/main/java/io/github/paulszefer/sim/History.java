@@ -0,0 +1,80 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Stores the state of an ecosystem at the end of each simulated week.
+ * <p>
+ * Week 0 is the initial state. Each state added becomes the next week.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public interface History {
+
+    /**
+     * Returns the number of weeks stored, including the initial state.
+     *
+     * @return the number of weeks stored
+     */
+    int size();
+
+    /**
+     * Stores the given state as the next week.
+     * <p>
+     * The history may keep the given ecosystem, so it must not be modified afterwards.
+     *
+     * @param ecosystem
+     *         the state of the ecosystem at the end of the week
+     */
+    void add(Ecosystem ecosystem);
+
+    /**
+     * Returns the state of the given week.
+     * <p>
+     * The returned ecosystem may belong to the history, so it must not be modified.
+     *
+     * @param week
+     *         the week to return
+     *
+     * @return the state of the given week
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the week is not stored
+     */
+    Ecosystem get(int week);
+
+    /**
+     * Returns a copy of the state of the given week that may be modified.
+     *
+     * @param week
+     *         the week to return
+     *
+     * @return a copy of the state of the given week
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the week is not stored
+     */
+    default Ecosystem getCopy(int week) {
+
+        return get(week).copy();
+    }
+
+    /**
+     * Hands over the state of the last week, to be modified into the state of the next.
+     * <p>
+     * A history that can still return the last week without the returned ecosystem, such as one
+     * that has already written it out, returns its own state rather than a copy; by default the
+     * state is copied.
+     *
+     * @return the state of the last week, which the history no longer uses
+     *
+     * @throws IndexOutOfBoundsException
+     *         if no week is stored
+     */
+    default Ecosystem takeLatest() {
+
+        return getCopy(size() - 1);
+    }
+
+    /** Removes every stored week. */
+    void clear();
+}
@@ -0,0 +1,688 @@
+package io.github.paulszefer.sim;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads a JSON document one token at a time.
+ * <p>
+ * Only the current token and the nesting of the enclosing objects and arrays are held, so a
+ * document of any size is read in bounded memory. Malformed documents are reported as
+ * {@link ScenarioFormatException}s giving the line at which the problem was found.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class JsonPullParser {
+
+    /** The kinds of token in a JSON document. */
+    enum Token {
+
+        /** The start of an object. */
+        BEGIN_OBJECT,
+
+        /** The end of an object. */
+        END_OBJECT,
+
+        /** The start of an array. */
+        BEGIN_ARRAY,
+
+        /** The end of an array. */
+        END_ARRAY,
+
+        /** The name of a member of an object. */
+        NAME,
+
+        /** A string value. */
+        STRING,
+
+        /** A number value. */
+        NUMBER,
+
+        /** A true or false value. */
+        BOOLEAN,
+
+        /** A null value. */
+        NULL,
+
+        /** The end of the document. */
+        END_DOCUMENT
+    }
+
+    /** The context of the document before its value. */
+    private static final int EMPTY_DOCUMENT = 0;
+
+    /** The context of the document after its value. */
+    private static final int NONEMPTY_DOCUMENT = 1;
+
+    /** The context of an array before its first element. */
+    private static final int EMPTY_ARRAY = 2;
+
+    /** The context of an array after an element. */
+    private static final int NONEMPTY_ARRAY = 3;
+
+    /** The context of an object before its first member. */
+    private static final int EMPTY_OBJECT = 4;
+
+    /** The context of an object after the name of a member. */
+    private static final int DANGLING_NAME = 5;
+
+    /** The context of an object after a member. */
+    private static final int NONEMPTY_OBJECT = 6;
+
+    /** The value returned at the end of the input. */
+    private static final int END_OF_INPUT = -1;
+
+    /** The size of the blocks read from the input. */
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    /** The input to read from. */
+    private final Reader input;
+
+    /** The characters read from the input. */
+    private final char[] buffer;
+
+    /** The index of the next unread character in the buffer. */
+    private int position;
+
+    /** The number of characters in the buffer. */
+    private int limit;
+
+    /** The number of the current line, starting from 1. */
+    private int lineNumber;
+
+    /** The contexts of the enclosing objects and arrays, innermost last. */
+    private int[] stack;
+
+    /** The number of contexts on the stack. */
+    private int depth;
+
+    /** The next token, or null if it has not been read yet. */
+    private Token peeked;
+
+    /** The text of the next token if it is a name, string, number or boolean. */
+    private String peekedText;
+
+    /** Collects the characters of strings and numbers. */
+    private final StringBuilder text;
+
+    /**
+     * Creates a parser of the given input.
+     *
+     * @param input
+     *         the input to read from
+     */
+    JsonPullParser(Reader input) {
+
+        this.input = input;
+        buffer = new char[BUFFER_SIZE];
+        lineNumber = 1;
+        stack = new int[16];
+        stack[depth++] = EMPTY_DOCUMENT;
+        text = new StringBuilder();
+    }
+
+    /**
+     * Returns the number of the line of the last character read, starting from 1.
+     *
+     * @return the number of the current line
+     */
+    int getLineNumber() {
+
+        return lineNumber;
+    }
+
+    /**
+     * Returns the kind of the next token without consuming it.
+     *
+     * @return the kind of the next token
+     *
+     * @throws IOException
+     *         if the input cannot be read or is not valid JSON
+     */
+    Token peek() throws IOException {
+
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int context = stack[depth - 1];
+        int c;
+        switch (context) {
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                return peeked = readValue(nextNonWhitespace());
+            case NONEMPTY_DOCUMENT:
+                if (nextNonWhitespace() != END_OF_INPUT) {
+                    throw error("Unexpected content after the document");
+                }
+                return peeked = Token.END_DOCUMENT;
+            case EMPTY_ARRAY:
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                return peeked = readValue(c);
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or ']'");
+                }
+                return peeked = readValue(nextNonWhitespace());
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (context == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw error("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw error("Expected the name of a member");
+                }
+                peekedText = readString();
+                stack[depth - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            default:
+                if (nextNonWhitespace() != ':') {
+                    throw error("Expected ':'");
+                }
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                return peeked = readValue(nextNonWhitespace());
+        }
+    }
+
+    /**
+     * Returns whether the current object or array has another member or element.
+     *
+     * @return true if there is another member or element; false otherwise
+     *
+     * @throws IOException
+     *         if the input cannot be read or is not valid JSON
+     */
+    boolean hasNext() throws IOException {
+
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY
+                && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException
+     *         if the next token is not the start of an object
+     */
+    void beginObject() throws IOException {
+
+        expect(Token.BEGIN_OBJECT, "an object");
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the end of an object.
+     *
+     * @throws IOException
+     *         if the next token is not the end of an object
+     */
+    void endObject() throws IOException {
+
+        expect(Token.END_OBJECT, "the end of the object");
+        depth--;
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws IOException
+     *         if the next token is not the start of an array
+     */
+    void beginArray() throws IOException {
+
+        expect(Token.BEGIN_ARRAY, "an array");
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the end of an array.
+     *
+     * @throws IOException
+     *         if the next token is not the end of an array
+     */
+    void endArray() throws IOException {
+
+        expect(Token.END_ARRAY, "the end of the array");
+        depth--;
+    }
+
+    /**
+     * Consumes the name of a member.
+     *
+     * @return the name of the member
+     *
+     * @throws IOException
+     *         if the next token is not a name
+     */
+    String nextName() throws IOException {
+
+        expect(Token.NAME, "the name of a member");
+        return peekedText;
+    }
+
+    /**
+     * Consumes a string.
+     *
+     * @return the string
+     *
+     * @throws IOException
+     *         if the next token is not a string
+     */
+    String nextString() throws IOException {
+
+        expect(Token.STRING, "a string");
+        return peekedText;
+    }
+
+    /**
+     * Consumes a number.
+     *
+     * @return the number
+     *
+     * @throws IOException
+     *         if the next token is not a number
+     */
+    double nextDouble() throws IOException {
+
+        expect(Token.NUMBER, "a number");
+        try {
+            return Double.parseDouble(peekedText);
+        } catch (NumberFormatException e) {
+            throw error("Invalid number '" + peekedText + "'");
+        }
+    }
+
+    /**
+     * Consumes a number that is a long.
+     *
+     * @return the number
+     *
+     * @throws IOException
+     *         if the next token is not a number that is a long
+     */
+    long nextLong() throws IOException {
+
+        expect(Token.NUMBER, "an integer");
+        try {
+            return Long.parseLong(peekedText);
+        } catch (NumberFormatException e) {
+            throw error("Expected an integer but found '" + peekedText + "'");
+        }
+    }
+
+    /**
+     * Consumes a number that is an int.
+     *
+     * @return the number
+     *
+     * @throws IOException
+     *         if the next token is not a number that is an int
+     */
+    int nextInt() throws IOException {
+
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("The integer " + value + " is too large");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Consumes a boolean.
+     *
+     * @return the boolean
+     *
+     * @throws IOException
+     *         if the next token is not a boolean
+     */
+    boolean nextBoolean() throws IOException {
+
+        expect(Token.BOOLEAN, "true or false");
+        return peekedText.equals("true");
+    }
+
+    /**
+     * Consumes the next value, including everything nested in it.
+     *
+     * @throws IOException
+     *         if the input cannot be read or is not valid JSON
+     */
+    void skipValue() throws IOException {
+
+        int nesting = 0;
+        do {
+            Token token = peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    nesting++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    nesting++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    nesting--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    nesting--;
+                    break;
+                case END_DOCUMENT:
+                    throw error("Expected a value");
+                default:
+                    peeked = null;
+                    break;
+            }
+        } while (nesting > 0);
+    }
+
+    /**
+     * Creates an exception for a problem at the current line.
+     *
+     * @param message
+     *         the description of the problem
+     *
+     * @return the exception
+     */
+    ScenarioFormatException error(String message) {
+
+        return new ScenarioFormatException(lineNumber, message);
+    }
+
+    /**
+     * Consumes the next token, which must be of the given kind.
+     *
+     * @param token
+     *         the kind of token expected
+     * @param description
+     *         the description of the token expected
+     *
+     * @throws IOException
+     *         if the next token is of another kind
+     */
+    private void expect(Token token, String description) throws IOException {
+
+        Token actual = peek();
+        if (actual != token) {
+            throw error("Expected " + description + " but found " + describe(actual));
+        }
+        peeked = null;
+    }
+
+    /**
+     * Describes the given token for an error message.
+     *
+     * @param token
+     *         the token to describe
+     *
+     * @return the description of the token
+     */
+    private String describe(Token token) {
+
+        switch (token) {
+            case NAME:
+                return "the member '" + peekedText + "'";
+            case STRING:
+                return "the string \"" + peekedText + "\"";
+            case NUMBER:
+            case BOOLEAN:
+                return peekedText;
+            case NULL:
+                return "null";
+            default:
+                return token.name().toLowerCase().replace('_', ' ');
+        }
+    }
+
+    /**
+     * Pushes the given context onto the stack.
+     *
+     * @param context
+     *         the context to push
+     */
+    private void push(int context) {
+
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = context;
+    }
+
+    /**
+     * Reads the value starting with the given character.
+     *
+     * @param c
+     *         the first character of the value
+     *
+     * @return the kind of the value
+     *
+     * @throws IOException
+     *         if the input cannot be read or the value is not valid
+     */
+    private Token readValue(int c) throws IOException {
+
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                peekedText = readString();
+                return Token.STRING;
+            case 't':
+                readLiteral("rue");
+                peekedText = "true";
+                return Token.BOOLEAN;
+            case 'f':
+                readLiteral("alse");
+                peekedText = "false";
+                return Token.BOOLEAN;
+            case 'n':
+                readLiteral("ull");
+                return Token.NULL;
+            case END_OF_INPUT:
+                throw error("The document ends unexpectedly");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    peekedText = readNumber(c);
+                    return Token.NUMBER;
+                }
+                throw error("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * Reads the rest of a literal.
+     *
+     * @param rest
+     *         the characters of the literal after the first
+     *
+     * @throws IOException
+     *         if the input cannot be read or does not continue with the literal
+     */
+    private void readLiteral(String rest) throws IOException {
+
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw error("Unexpected literal");
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a number.
+     *
+     * @param first
+     *         the first character of the number
+     *
+     * @return the characters of the number
+     *
+     * @throws IOException
+     *         if the input cannot be read
+     */
+    private String readNumber(int first) throws IOException {
+
+        text.setLength(0);
+        text.append((char) first);
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+'
+                    || c == '-') {
+                text.append(c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads the rest of a string after its opening quote.
+     *
+     * @return the string
+     *
+     * @throws IOException
+     *         if the input cannot be read or the string is not valid
+     */
+    private String readString() throws IOException {
+
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return text.toString();
+            }
+            if (c == END_OF_INPUT || c == '\n') {
+                throw error("Unterminated string");
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'u':
+                        c = readHexCharacter();
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    default:
+                        throw error("Invalid escape sequence");
+                }
+            }
+            text.append((char) c);
+        }
+    }
+
+    /**
+     * Reads the four hexadecimal digits of a unicode escape sequence.
+     *
+     * @return the character
+     *
+     * @throws IOException
+     *         if the input cannot be read or the digits are not valid
+     */
+    private int readHexCharacter() throws IOException {
+
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0) {
+                throw error("Invalid escape sequence");
+            }
+            value = value * 16 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Reads the next character that is not whitespace.
+     *
+     * @return the character, or END_OF_INPUT if the input has ended
+     *
+     * @throws IOException
+     *         if the input cannot be read
+     */
+    private int nextNonWhitespace() throws IOException {
+
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\t' || c == '\r' || c == '\n');
+        return c;
+    }
+
+    /**
+     * Reads the next character.
+     *
+     * @return the character, or END_OF_INPUT if the input has ended
+     *
+     * @throws IOException
+     *         if the input cannot be read
+     */
+    private int read() throws IOException {
+
+        if (position == limit && !fill()) {
+            return END_OF_INPUT;
+        }
+        char c = buffer[position++];
+        if (c == '\n') {
+            lineNumber++;
+        }
+        return c;
+    }
+
+    /**
+     * Refills the buffer from the input.
+     *
+     * @return true if characters were read; false if the input has ended
+     *
+     * @throws IOException
+     *         if the input cannot be read
+     */
+    private boolean fill() throws IOException {
+
+        int read = input.read(buffer, 0, buffer.length);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+}
@@ -0,0 +1,471 @@
+package io.github.paulszefer.sim;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads scenarios in the JSON format, streaming the document rather than loading it whole.
+ * <p>
+ * The document is an object with the name of the simulation, an array of pools and an optional
+ * array of streams:
+ * <pre>
+ * {
+ *   "name": "EcoSim",
+ *   "splitOverflow": false,
+ *   "pools": [
+ *     { "name": "Skookumchuk", "volume": 1000.0, "temperature": 42.0, "pH": 7.9,
+ *       "nutrientCoefficient": 0.9, "storage": "cohort",
+ *       "populations": [ { "count": 100, "minAge": 10, "maxAge": 25, "femaleChance": 0.5,
+ *                          "minHealth": 0.5, "maxHealth": 0.8 } ],
+ *       "creatures": [ { "age": 12, "health": 0.7, "female": true, "generation": 1 } ],
+ *       "cohorts": [ { "count": 1000000, "age": 3, "health": 0.9, "female": false } ] }
+ *   ],
+ *   "streams": [ { "from": "Skookumchuk", "to": "Rutherford", "name": "Creek", "weight": 2.0,
+ *                  "capacity": 50.0, "transitWeeks": 2 } ]
+ * }
+ * </pre>
+ * A pool may have any mix of random populations, individual creatures and cohorts of identical
+ * creatures; populations may also give a genus and species, and streams a temperature and pH.
+ * The overflow of a pool takes its streams in proportion to their weights, which are 1 by
+ * default, and is split across them rather than sent down one if the scenario says so. A stream
+ * may carry a limited volume of creatures in Litres each week and take some weeks to cross; by
+ * default it carries any volume and its creatures arrive in the week they leave.
+ * Streams refer to pools by name and must follow them; without any streams, the pools are
+ * connected in order. The storage of a pool should come before its creatures, which are added
+ * to it as they are read.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class JsonScenarioReader {
+
+    /** The parser of the document. */
+    private final JsonPullParser parser;
+
+    /** The builder of the scenario. */
+    private final ScenarioBuilder builder;
+
+    /**
+     * Creates a reader of the given input.
+     *
+     * @param input
+     *         the input to read from
+     * @param streams
+     *         the random number streams to populate the pools with
+     */
+    private JsonScenarioReader(InputStream input, RandomStreams streams) {
+
+        parser = new JsonPullParser(new InputStreamReader(input, StandardCharsets.UTF_8));
+        builder = new ScenarioBuilder(streams);
+    }
+
+    /**
+     * Reads the scenario in the given file.
+     *
+     * @param file
+     *         the file to read
+     * @param streams
+     *         the random number streams to populate the pools with
+     *
+     * @return the scenario read
+     *
+     * @throws ScenarioFormatException
+     *         if the file is not a valid scenario
+     * @throws IOException
+     *         if the file cannot be read
+     */
+    public static Scenario read(Path file, RandomStreams streams) throws IOException {
+
+        try (InputStream input = Files.newInputStream(file)) {
+            return read(input, streams);
+        }
+    }
+
+    /**
+     * Reads a scenario from the given input. The input is not closed.
+     *
+     * @param input
+     *         the input to read from
+     * @param streams
+     *         the random number streams to populate the pools with
+     *
+     * @return the scenario read
+     *
+     * @throws ScenarioFormatException
+     *         if the input is not a valid scenario
+     * @throws IOException
+     *         if the input cannot be read
+     */
+    public static Scenario read(InputStream input, RandomStreams streams) throws IOException {
+
+        return new JsonScenarioReader(input, streams).readScenario();
+    }
+
+    /**
+     * Reads the scenario.
+     *
+     * @return the scenario read
+     *
+     * @throws IOException
+     *         if the input cannot be read or is not a valid scenario
+     */
+    private Scenario readScenario() throws IOException {
+
+        parser.beginObject();
+        while (parser.hasNext()) {
+            String member = parser.nextName();
+            switch (member) {
+                case "name":
+                    builder.setName(parser.nextString());
+                    break;
+                case "splitOverflow":
+                    builder.setSplittingOverflow(parser.nextBoolean());
+                    break;
+                case "pools":
+                    parser.beginArray();
+                    while (parser.hasNext()) {
+                        readPool();
+                    }
+                    parser.endArray();
+                    break;
+                case "streams":
+                    parser.beginArray();
+                    while (parser.hasNext()) {
+                        readStream();
+                    }
+                    parser.endArray();
+                    break;
+                default:
+                    throw unknownMember(member, "scenario");
+            }
+        }
+        parser.endObject();
+        if (parser.peek() != JsonPullParser.Token.END_DOCUMENT) {
+            throw parser.error("Unexpected content after the scenario");
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads a pool and adds it to the scenario.
+     *
+     * @throws IOException
+     *         if the input cannot be read or the pool is not valid
+     */
+    private void readPool() throws IOException {
+
+        parser.beginObject();
+        Pool pool = new Pool();
+        String poolName = null;
+        while (parser.hasNext()) {
+            String member = parser.nextName();
+            try {
+                switch (member) {
+                    case "name":
+                        poolName = parser.nextString();
+                        pool.setName(poolName);
+                        break;
+                    case "volume":
+                        pool.setVolumeLitres(parser.nextDouble());
+                        break;
+                    case "temperature":
+                        pool.setTemperature(parser.nextDouble());
+                        break;
+                    case "pH":
+                        pool.setpH(parser.nextDouble());
+                        break;
+                    case "nutrientCoefficient":
+                        pool.setNutrientCoefficient(parser.nextDouble());
+                        break;
+                    case "storage":
+                        builder.setStorage(pool, parser.nextString());
+                        break;
+                    case "populations":
+                        parser.beginArray();
+                        while (parser.hasNext()) {
+                            readPopulation(pool);
+                        }
+                        parser.endArray();
+                        break;
+                    case "creatures":
+                        parser.beginArray();
+                        while (parser.hasNext()) {
+                            readCreature(pool);
+                        }
+                        parser.endArray();
+                        break;
+                    case "cohorts":
+                        parser.beginArray();
+                        while (parser.hasNext()) {
+                            readCohort(pool);
+                        }
+                        parser.endArray();
+                        break;
+                    default:
+                        throw unknownMember(member, "pool");
+                }
+            } catch (IllegalArgumentException e) {
+                throw parser.error(e.getMessage());
+            }
+        }
+        parser.endObject();
+
+        if (poolName == null) {
+            throw parser.error("The pool has no name");
+        }
+        try {
+            builder.addPool(pool, poolName);
+        } catch (IllegalArgumentException e) {
+            throw parser.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a population and adds its creatures to the given pool.
+     *
+     * @param pool
+     *         the pool to populate
+     *
+     * @throws IOException
+     *         if the input cannot be read or the population is not valid
+     */
+    private void readPopulation(Pool pool) throws IOException {
+
+        parser.beginObject();
+        Integer count = null;
+        String genus = Guppy.GENUS;
+        String species = Guppy.SPECIES;
+        Integer minAge = null;
+        Integer maxAge = null;
+        Double femaleChance = null;
+        Double minHealth = null;
+        Double maxHealth = null;
+        while (parser.hasNext()) {
+            String member = parser.nextName();
+            switch (member) {
+                case "count":
+                    count = parser.nextInt();
+                    break;
+                case "genus":
+                    genus = parser.nextString();
+                    break;
+                case "species":
+                    species = parser.nextString();
+                    break;
+                case "minAge":
+                    minAge = parser.nextInt();
+                    break;
+                case "maxAge":
+                    maxAge = parser.nextInt();
+                    break;
+                case "femaleChance":
+                    femaleChance = parser.nextDouble();
+                    break;
+                case "minHealth":
+                    minHealth = parser.nextDouble();
+                    break;
+                case "maxHealth":
+                    maxHealth = parser.nextDouble();
+                    break;
+                default:
+                    throw unknownMember(member, "population");
+            }
+        }
+        parser.endObject();
+
+        builder.addPopulation(pool, require(count, "count"), genus, species,
+                              require(minAge, "minAge"), require(maxAge, "maxAge"),
+                              require(femaleChance, "femaleChance"),
+                              require(minHealth, "minHealth"), require(maxHealth, "maxHealth"));
+    }
+
+    /**
+     * Reads a creature and adds it to the given pool.
+     *
+     * @param pool
+     *         the pool to add to
+     *
+     * @throws IOException
+     *         if the input cannot be read or the creature is not valid
+     */
+    private void readCreature(Pool pool) throws IOException {
+
+        parser.beginObject();
+        int age = -1;
+        double health = Double.NaN;
+        boolean isFemale = false;
+        int generation = 0;
+        while (parser.hasNext()) {
+            String member = parser.nextName();
+            switch (member) {
+                case "age":
+                    age = parser.nextInt();
+                    break;
+                case "health":
+                    health = parser.nextDouble();
+                    break;
+                case "female":
+                    isFemale = parser.nextBoolean();
+                    break;
+                case "generation":
+                    generation = parser.nextInt();
+                    break;
+                default:
+                    throw unknownMember(member, "creature");
+            }
+        }
+        parser.endObject();
+
+        if (Double.isNaN(health)) {
+            throw parser.error("The creature has no health");
+        }
+        builder.addCreature(pool, age, health, isFemale, generation);
+    }
+
+    /**
+     * Reads a cohort and adds its creatures to the given pool.
+     *
+     * @param pool
+     *         the pool to add to
+     *
+     * @throws IOException
+     *         if the input cannot be read or the cohort is not valid
+     */
+    private void readCohort(Pool pool) throws IOException {
+
+        parser.beginObject();
+        long count = -1;
+        int age = -1;
+        double health = Double.NaN;
+        boolean isFemale = false;
+        int generation = 0;
+        while (parser.hasNext()) {
+            String member = parser.nextName();
+            switch (member) {
+                case "count":
+                    count = parser.nextLong();
+                    break;
+                case "age":
+                    age = parser.nextInt();
+                    break;
+                case "health":
+                    health = parser.nextDouble();
+                    break;
+                case "female":
+                    isFemale = parser.nextBoolean();
+                    break;
+                case "generation":
+                    generation = parser.nextInt();
+                    break;
+                default:
+                    throw unknownMember(member, "cohort");
+            }
+        }
+        parser.endObject();
+
+        if (Double.isNaN(health)) {
+            throw parser.error("The cohort has no health");
+        }
+        builder.addCohort(pool, count, age, health, isFemale, generation);
+    }
+
+    /**
+     * Reads a stream and adds it to the scenario.
+     *
+     * @throws IOException
+     *         if the input cannot be read or the stream is not valid
+     */
+    private void readStream() throws IOException {
+
+        parser.beginObject();
+        String streamName = null;
+        String source = null;
+        String destination = null;
+        double temperature = Double.NaN;
+        double pH = Double.NaN;
+        double weight = Double.NaN;
+        double capacity = Double.NaN;
+        int transitWeeks = Stream.DEFAULT_TRANSIT_WEEKS;
+        while (parser.hasNext()) {
+            String member = parser.nextName();
+            switch (member) {
+                case "name":
+                    streamName = parser.nextString();
+                    break;
+                case "from":
+                    source = parser.nextString();
+                    break;
+                case "to":
+                    destination = parser.nextString();
+                    break;
+                case "temperature":
+                    temperature = parser.nextDouble();
+                    break;
+                case "pH":
+                    pH = parser.nextDouble();
+                    break;
+                case "weight":
+                    weight = parser.nextDouble();
+                    break;
+                case "capacity":
+                    capacity = parser.nextDouble();
+                    break;
+                case "transitWeeks":
+                    transitWeeks = parser.nextInt();
+                    break;
+                default:
+                    throw unknownMember(member, "stream");
+            }
+        }
+        parser.endObject();
+
+        try {
+            builder.addStream(streamName, require(source, "from"), require(destination, "to"),
+                              temperature, pH, weight, capacity, transitWeeks);
+        } catch (IllegalArgumentException e) {
+            throw parser.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the given value of a member, which must have been given.
+     *
+     * @param value
+     *         the value of the member, or null if it was not given
+     * @param member
+     *         the name of the member
+     * @param <T>
+     *         the type of the value
+     *
+     * @return the value of the member
+     *
+     * @throws ScenarioFormatException
+     *         if the value was not given
+     */
+    private <T> T require(T value, String member) throws ScenarioFormatException {
+
+        if (value == null) {
+            throw parser.error("The member '" + member + "' is missing");
+        }
+        return value;
+    }
+
+    /**
+     * Creates an exception for a member that the given element does not have.
+     *
+     * @param member
+     *         the name of the member
+     * @param element
+     *         the description of the element
+     *
+     * @return the exception
+     */
+    private ScenarioFormatException unknownMember(String member, String element) {
+
+        return parser.error("A " + element + " has no member '" + member + "'");
+    }
+}
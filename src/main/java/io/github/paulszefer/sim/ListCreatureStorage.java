@@ -0,0 +1,426 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stores creatures as a list of creature objects.
+ * <p>
+ * This is the default storage of a pool. The list returned by {@link #getCreatures()} is the
+ * backing list, so changes to it are reflected in the storage.
+ * <p>
+ * The statistics of the living creatures are kept as {@link LivingAggregates} that are updated
+ * by the storage's own operations, so reading them does not visit the creatures. Since the
+ * creatures can be changed through the backing list, handing out the list discards the aggregates
+ * and they are rebuilt the next time they are needed. Callers that only read the creatures use
+ * {@link #viewCreatures()} instead, which keeps them.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class ListCreatureStorage implements CreatureStorage {
+
+    /** The stored creatures. */
+    private List<Creature> creatures;
+
+    /** The statistics of the living creatures, or null if they must be rebuilt. */
+    private LivingAggregates aggregates;
+
+    /** Creates an empty storage. */
+    public ListCreatureStorage() {
+
+        creatures = new ArrayList<>();
+        aggregates = new LivingAggregates();
+    }
+
+    @Override
+    public long size() {
+
+        return creatures.size();
+    }
+
+    @Override
+    public List<Creature> getCreatures() {
+
+        aggregates = null;
+        return creatures;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The list is a read-only view of the backing list, so the aggregates are kept.
+     */
+    @Override
+    public List<Creature> viewCreatures() {
+
+        return Collections.unmodifiableList(creatures);
+    }
+
+    @Override
+    public void setCreatures(List<Creature> creatures) {
+
+        if (creatures != null) {
+            this.creatures = creatures;
+            aggregates = null;
+        }
+    }
+
+    @Override
+    public boolean add(Creature creature) {
+
+        if (creature == null || !creatures.add(creature)) {
+            return false;
+        }
+        countIfAlive(creature);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(List<Creature> newCreatures) {
+
+        if (newCreatures == null || !creatures.addAll(newCreatures)) {
+            return false;
+        }
+        for (Creature creature : newCreatures) {
+            countIfAlive(creature);
+        }
+        return true;
+    }
+
+    @Override
+    public long incrementAges() {
+
+        int countDied = 0;
+
+        for (Creature creature : creatures) {
+            uncountIfAlive(creature);
+            creature.getHealth().incrementAge();
+            if (!creature.getHealth().isAlive()) {
+                countDied++;
+            } else {
+                countIfAlive(creature);
+            }
+        }
+        return countDied;
+    }
+
+    @Override
+    public long applyNutrientCoefficient(double nutrientCoefficient, Random generator) {
+
+        int countDied = 0;
+
+        for (Creature creature : creatures) {
+            if (creature.getHealth().isAlive() && generator.nextDouble() > nutrientCoefficient) {
+                uncountIfAlive(creature);
+                creature.getHealth().setAlive(false);
+                countDied++;
+            }
+        }
+
+        return countDied;
+    }
+
+    @Override
+    public long removeDead() {
+
+        int initialSize = creatures.size();
+
+        creatures.removeIf(creature -> !creature.getHealth().isAlive());
+
+        return initialSize - creatures.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each creature spawns according to its own rules, drawing from the given generator.
+     */
+    @Override
+    public long spawn(Random generator) {
+
+        List<Creature> newCreatures = new ArrayList<>();
+
+        for (Creature creature : creatures) {
+            List<Creature> spawned = creature.spawn(generator);
+            if (spawned != null) {
+                newCreatures.addAll(spawned);
+            }
+        }
+        if (!newCreatures.isEmpty()) {
+            int identifier = highestIdentifier();
+            for (Creature newCreature : newCreatures) {
+                newCreature.setIdentification(new Identification(
+                        Guppy.GENUS, Guppy.SPECIES, ++identifier,
+                        newCreature.getIdentification().getGeneration()));
+            }
+        }
+        addAll(newCreatures);
+
+        return newCreatures.size();
+    }
+
+    /**
+     * Returns the highest identification number of the creatures.
+     *
+     * @return the highest identification number, or 0 if there are no creatures
+     */
+    private int highestIdentifier() {
+
+        int highest = 0;
+        for (Creature creature : creatures) {
+            highest = Math.max(highest, creature.getIdentification().getIdentifier());
+        }
+        return highest;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the creatures that leave are selected, using {@link CrowdingSelector}, and they are
+     * removed from the list in a single pass. The remaining creatures keep their order.
+     */
+    @Override
+    public List<Creature> removeWeakest(double volumeLitres) {
+
+        if (CrowdingSelector.fits(getAggregates().getVolumeNeededMl(), volumeLitres)) {
+            return new ArrayList<>();
+        }
+
+        int size = creatures.size();
+        double[] coefficients = new double[size];
+        double[] volumes = new double[size];
+        double volumeNeeded = 0.0;
+
+        int index = 0;
+        for (Creature creature : creatures) {
+            coefficients[index] = creature.getHealth().getCoefficient();
+            volumes[index] = creature.getVolumeNeeded();
+            volumeNeeded += volumes[index];
+            index++;
+        }
+
+        int[] weakest = CrowdingSelector.selectWeakest(coefficients, volumes, size, volumeNeeded,
+                                                       volumeLitres);
+        List<Creature> weakestCreatures = new ArrayList<>(weakest.length);
+        if (weakest.length == 0) {
+            return weakestCreatures;
+        }
+
+        List<Creature> all = new ArrayList<>(creatures);
+        boolean[] removed = new boolean[size];
+        for (int i : weakest) {
+            weakestCreatures.add(all.get(i));
+            uncountIfAlive(all.get(i));
+            removed[i] = true;
+        }
+
+        List<Creature> kept = new ArrayList<>(size - weakest.length);
+        for (int i = 0; i < size; i++) {
+            if (!removed[i]) {
+                kept.add(all.get(i));
+            }
+        }
+        creatures.clear();
+        creatures.addAll(kept);
+
+        return weakestCreatures;
+    }
+
+    @Override
+    public ListCreatureStorage extractWeakest(double volumeLitres) {
+
+        ListCreatureStorage weakest = new ListCreatureStorage();
+        weakest.setCreatures(removeWeakest(volumeLitres));
+        return weakest;
+    }
+
+    @Override
+    public long applyTransportMortality(Random generator) {
+
+        int countDied = 0;
+
+        for (Creature creature : creatures) {
+            Health health = creature.getHealth();
+            if (health.isAlive() && generator.nextDouble() >= health.getCoefficient()) {
+                uncountIfAlive(creature);
+                health.setAlive(false);
+                countDied++;
+            }
+        }
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The surviving creatures are added to the given storage one at a time, as they are decided.
+     */
+    @Override
+    public long transportSurvivors(CreatureStorage destination, Random generator) {
+
+        long countDied = 0;
+
+        for (Creature creature : creatures) {
+            Health health = creature.getHealth();
+            if (!health.isAlive()) {
+                continue;
+            }
+            if (generator.nextDouble() < health.getCoefficient()) {
+                destination.add(creature);
+            } else {
+                health.setAlive(false);
+                countDied++;
+            }
+        }
+        creatures.clear();
+        aggregates = null;
+
+        return countDied;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The part of each creature is drawn from an {@link AliasTable}, so a draw costs the same
+     * however many parts there are.
+     */
+    @Override
+    public CreatureStorage[] split(double[] weights, Random generator) {
+
+        AliasTable table = new AliasTable(weights);
+        CreatureStorage[] parts = new CreatureStorage[weights.length];
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new ListCreatureStorage();
+        }
+
+        for (Creature creature : creatures) {
+            int part = creature.getHealth().isAlive() ? table.sample(generator) : 0;
+            parts[part].add(creature);
+        }
+        creatures.clear();
+        aggregates = null;
+
+        return parts;
+    }
+
+    @Override
+    public long killAll() {
+
+        for (Creature creature : creatures) {
+            uncountIfAlive(creature);
+            creature.getHealth().setAlive(false);
+        }
+        return creatures.size();
+    }
+
+    @Override
+    public void absorb(CreatureStorage other) {
+
+        addAll(other.getCreatures());
+    }
+
+    @Override
+    public double getVolumeNeededMl() {
+
+        return getAggregates().getVolumeNeededMl();
+    }
+
+    @Override
+    public double getAverageAgeInWeeks() {
+
+        return getAggregates().getAverageAgeInWeeks();
+    }
+
+    @Override
+    public double getAverageHealthCoefficient() {
+
+        return getAggregates().getAverageHealthCoefficient();
+    }
+
+    @Override
+    public double getFemaleProportion() {
+
+        return getAggregates().getFemaleProportion();
+    }
+
+    @Override
+    public AgeHistogram getAgeHistogram() {
+
+        return getAggregates().getAgeHistogram();
+    }
+
+    /**
+     * Returns the statistics of the living creatures, rebuilding them if they were discarded.
+     *
+     * @return the statistics of the living creatures
+     */
+    private LivingAggregates getAggregates() {
+
+        if (aggregates == null) {
+            aggregates = new LivingAggregates();
+            for (Creature creature : creatures) {
+                aggregates.addIfAlive(creature);
+            }
+        }
+        return aggregates;
+    }
+
+    /**
+     * Counts the given creature in the statistics if it is alive.
+     *
+     * @param creature
+     *         the creature to count
+     */
+    private void countIfAlive(Creature creature) {
+
+        if (aggregates != null) {
+            aggregates.addIfAlive(creature);
+        }
+    }
+
+    /**
+     * Stops counting the given creature in the statistics if it is alive.
+     *
+     * @param creature
+     *         the creature to stop counting
+     */
+    private void uncountIfAlive(Creature creature) {
+
+        if (aggregates != null) {
+            aggregates.removeIfAlive(creature);
+        }
+    }
+
+    @Override
+    public ListCreatureStorage copy() {
+
+        ListCreatureStorage storageCopy = new ListCreatureStorage();
+        for (Creature creature : creatures) {
+            storageCopy.add(creature.copy());
+        }
+        return storageCopy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        return creatures.equals(((ListCreatureStorage) o).creatures);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return creatures.hashCode();
+    }
+}
@@ -0,0 +1,212 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Keeps running totals over the living creatures of a pool.
+ * <p>
+ * The totals are updated whenever a creature is counted or stops being counted, so the
+ * population, average age, average health coefficient, female proportion, volume requirement and
+ * age histogram can all be read without visiting the creatures.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class LivingAggregates {
+
+    /** The number of living creatures. */
+    private long count;
+
+    /** The sum of the ages of the living creatures in weeks. */
+    private long ageSum;
+
+    /** The sum of the health coefficients of the living creatures. */
+    private double coefficientSum;
+
+    /** The number of living female creatures. */
+    private long femaleCount;
+
+    /** The volume of water in mL needed by the living creatures. */
+    private double volumeNeededMl;
+
+    /** The histogram of the living creatures' ages. */
+    private AgeHistogram ageHistogram;
+
+    /** Creates empty aggregates. */
+    public LivingAggregates() {
+
+        ageHistogram = new AgeHistogram();
+    }
+
+    /**
+     * Counts the given creature if it is alive.
+     *
+     * @param creature
+     *         the creature to count
+     */
+    public void addIfAlive(Creature creature) {
+
+        Health health = creature.getHealth();
+        if (health.isAlive()) {
+            add(health.getAge(), health.getCoefficient(), creature.isFemale(),
+                creature.getVolumeNeeded(), 1);
+        }
+    }
+
+    /**
+     * Stops counting the given creature if it is alive.
+     *
+     * @param creature
+     *         the creature to stop counting
+     */
+    public void removeIfAlive(Creature creature) {
+
+        Health health = creature.getHealth();
+        if (health.isAlive()) {
+            remove(health.getAge(), health.getCoefficient(), creature.isFemale(),
+                   creature.getVolumeNeeded(), 1);
+        }
+    }
+
+    /**
+     * Counts the given number of living creatures with the given attributes.
+     *
+     * @param age
+     *         the age of the creatures in weeks
+     * @param coefficient
+     *         the health coefficient of the creatures
+     * @param isFemale
+     *         whether the creatures are female
+     * @param volumeMl
+     *         the volume of water in mL that each creature needs
+     * @param number
+     *         the number of creatures
+     */
+    public void add(int age, double coefficient, boolean isFemale, double volumeMl,
+                    long number) {
+
+        count += number;
+        ageSum += age * number;
+        coefficientSum += coefficient * number;
+        femaleCount += isFemale ? number : 0;
+        volumeNeededMl += volumeMl * number;
+        ageHistogram.add(age, number);
+    }
+
+    /**
+     * Stops counting the given number of living creatures with the given attributes.
+     *
+     * @param age
+     *         the age of the creatures in weeks
+     * @param coefficient
+     *         the health coefficient of the creatures
+     * @param isFemale
+     *         whether the creatures are female
+     * @param volumeMl
+     *         the volume of water in mL that each creature needs
+     * @param number
+     *         the number of creatures
+     */
+    public void remove(int age, double coefficient, boolean isFemale, double volumeMl,
+                       long number) {
+
+        count -= number;
+        ageSum -= age * number;
+        femaleCount -= isFemale ? number : 0;
+        ageHistogram.remove(age, number);
+        if (count == 0) {
+            // discard any rounding error left in the floating point totals
+            coefficientSum = 0.0;
+            volumeNeededMl = 0.0;
+        } else {
+            coefficientSum -= coefficient * number;
+            volumeNeededMl -= volumeMl * number;
+        }
+    }
+
+    /** Stops counting every creature. */
+    public void clear() {
+
+        count = 0;
+        ageSum = 0;
+        coefficientSum = 0.0;
+        femaleCount = 0;
+        volumeNeededMl = 0.0;
+        ageHistogram.clear();
+    }
+
+    /**
+     * Returns the number of living creatures.
+     *
+     * @return the number of living creatures
+     */
+    public long getCount() {
+
+        return count;
+    }
+
+    /**
+     * Returns the average age of the living creatures.
+     *
+     * @return the average age in weeks
+     */
+    public double getAverageAgeInWeeks() {
+
+        return count > 0 ? (double) ageSum / count : 0.0;
+    }
+
+    /**
+     * Returns the average health coefficient of the living creatures.
+     *
+     * @return the average health coefficient
+     */
+    public double getAverageHealthCoefficient() {
+
+        return count > 0 ? coefficientSum / count : 0.0;
+    }
+
+    /**
+     * Returns the proportion of the living creatures that is female.
+     *
+     * @return the proportion that is female
+     */
+    public double getFemaleProportion() {
+
+        return count > 0 ? (double) femaleCount / count : 0.0;
+    }
+
+    /**
+     * Returns the volume of water needed for the living creatures.
+     *
+     * @return the volume of water needed in mL
+     */
+    public double getVolumeNeededMl() {
+
+        return volumeNeededMl;
+    }
+
+    /**
+     * Returns the histogram of the living creatures' ages.
+     *
+     * @return the histogram of the living creatures' ages
+     */
+    public AgeHistogram getAgeHistogram() {
+
+        return ageHistogram;
+    }
+
+    /**
+     * Creates and returns a copy of these aggregates.
+     *
+     * @return a copy of these aggregates
+     */
+    public LivingAggregates copy() {
+
+        LivingAggregates aggregatesCopy = new LivingAggregates();
+        aggregatesCopy.count = count;
+        aggregatesCopy.ageSum = ageSum;
+        aggregatesCopy.coefficientSum = coefficientSum;
+        aggregatesCopy.femaleCount = femaleCount;
+        aggregatesCopy.volumeNeededMl = volumeNeededMl;
+        aggregatesCopy.ageHistogram = ageHistogram.copy();
+        return aggregatesCopy;
+    }
+}
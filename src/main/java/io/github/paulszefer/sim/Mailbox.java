@@ -0,0 +1,117 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the creatures sent to the pools of one partition by the workers of the others until the
+ * end of the phase.
+ * <p>
+ * Each sending partition has its own slot, which only that partition's worker writes to, so
+ * posting takes no lock and never contends. The slots are read only after every worker has
+ * finished, which the ForkJoinPool running them guarantees are visible. Deliveries are made in
+ * order of sending partition and then of posting, so the result does not depend on how the
+ * workers were scheduled.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class Mailbox {
+
+    /** The destinations of the creatures posted by each partition. */
+    private final List<List<Pool>> destinations;
+
+    /** The creatures posted by each partition. */
+    private final List<List<CreatureStorage>> deliveries;
+
+    /**
+     * Creates an empty mailbox for the given number of sending partitions.
+     *
+     * @param senders
+     *         the number of partitions that may post to the mailbox
+     */
+    Mailbox(int senders) {
+
+        destinations = new ArrayList<>(senders);
+        deliveries = new ArrayList<>(senders);
+        for (int i = 0; i < senders; i++) {
+            destinations.add(new ArrayList<>());
+            deliveries.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Posts the given creatures to the given pool.
+     * <p>
+     * Only the worker of the sending partition may post from it.
+     *
+     * @param sender
+     *         the partition posting the creatures
+     * @param destination
+     *         the pool to deliver the creatures to
+     * @param creatures
+     *         the storage of the creatures
+     */
+    void post(int sender, Pool destination, CreatureStorage creatures) {
+
+        destinations.get(sender).add(destination);
+        deliveries.get(sender).add(creatures);
+    }
+
+    /**
+     * Returns the number of deliveries posted by the given partition.
+     *
+     * @param sender
+     *         the partition that posted the deliveries
+     *
+     * @return the number of deliveries
+     */
+    int size(int sender) {
+
+        return deliveries.get(sender).size();
+    }
+
+    /**
+     * Returns the destination of a delivery posted by the given partition.
+     *
+     * @param sender
+     *         the partition that posted the delivery
+     * @param index
+     *         the position of the delivery in the order it was posted
+     *
+     * @return the pool to deliver the creatures to
+     */
+    Pool getDestination(int sender, int index) {
+
+        return destinations.get(sender).get(index);
+    }
+
+    /**
+     * Returns the creatures of a delivery posted by the given partition.
+     *
+     * @param sender
+     *         the partition that posted the delivery
+     * @param index
+     *         the position of the delivery in the order it was posted
+     *
+     * @return the storage of the creatures
+     */
+    CreatureStorage getCreatures(int sender, int index) {
+
+        return deliveries.get(sender).get(index);
+    }
+
+    /** Moves the posted creatures into their destination pools and empties the mailbox. */
+    void deliver() {
+
+        for (int sender = 0; sender < deliveries.size(); sender++) {
+            List<Pool> pools = destinations.get(sender);
+            List<CreatureStorage> creatures = deliveries.get(sender);
+            for (int i = 0; i < pools.size(); i++) {
+                pools.get(i).getStorage().absorb(creatures.get(i));
+            }
+            pools.clear();
+            creatures.clear();
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package io.github.paulszefer.sim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores every week in an append-only log file, reading and writing it through memory maps.
+ * <p>
+ * Each week is written once, into a mapped region at the end of the log, and its position and
+ * length are appended to a small index file next to the log. Reading a week maps only the slice
+ * of the log that holds it, so a log of thousands of weeks can be reopened with
+ * {@link #open(Path)} and scrubbed without reading the weeks before it or holding them in memory.
+ * <p>
+ * Only the latest week and a few recently read weeks are kept in memory. The files remain when
+ * the history is closed.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class MappedHistory implements History, Closeable {
+
+    /** The number that starts the log and the index. */
+    public static final int MAGIC = 0x47505748;
+
+    /**
+     * The version of the format written; version 1 did not hold the flow weights of streams and
+     * version 2 did not hold their capacities, transit times or the creatures crossing them.
+     */
+    public static final int VERSION = 3;
+
+    /** The default number of recently read weeks to keep in memory. */
+    public static final int DEFAULT_CACHE_SIZE = 8;
+
+    /** The number of bytes in the header of the log and of the index. */
+    private static final int HEADER_BYTES = 4 + 4;
+
+    /** The number of bytes in each entry of the index. */
+    private static final int ENTRY_BYTES = 8 + 8;
+
+    /** The extension added to the name of the log to name its index. */
+    private static final String INDEX_EXTENSION = ".index";
+
+    /** The log file. */
+    private final Path file;
+
+    /** The channel of the log file. */
+    private final FileChannel log;
+
+    /** The channel of the index file. */
+    private final FileChannel index;
+
+    /** The version of the format of the log, which weeks added to it are written in. */
+    private int version;
+
+    /** The position of each week in the log. */
+    private long[] positions;
+
+    /** The length of each week in the log. */
+    private long[] lengths;
+
+    /** The number of weeks stored. */
+    private int size;
+
+    /** The most recently added state, or null if it is not in memory. */
+    private Ecosystem latest;
+
+    /** The number of recently read weeks to keep in memory. */
+    private final int cacheSize;
+
+    /** The recently read weeks, from least to most recently used. */
+    private final LinkedHashMap<Integer, Ecosystem> cache;
+
+    /**
+     * Creates an empty history that logs to the given file, replacing any existing log there.
+     *
+     * @param file
+     *         the log file
+     *
+     * @throws IOException
+     *         if the log or its index cannot be created
+     */
+    public MappedHistory(Path file) throws IOException {
+
+        this(file, false);
+    }
+
+    /**
+     * Opens the history stored in the given log file.
+     * <p>
+     * The weeks already in the log are read on demand; weeks added are appended to the log in
+     * the version of the format it was created with.
+     *
+     * @param file
+     *         the log file
+     *
+     * @return the history stored in the log
+     *
+     * @throws IOException
+     *         if the log or its index cannot be read or are not valid
+     */
+    public static MappedHistory open(Path file) throws IOException {
+
+        return new MappedHistory(file, true);
+    }
+
+    /**
+     * Creates a history that logs to the given file.
+     *
+     * @param file
+     *         the log file
+     * @param existing
+     *         whether to keep the weeks already in the log
+     *
+     * @throws IOException
+     *         if the log or its index cannot be opened or are not valid
+     */
+    private MappedHistory(Path file, boolean existing) throws IOException {
+
+        this.file = file;
+        Path indexFile = indexFileOf(file);
+        if (existing) {
+            log = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(indexFile, StandardOpenOption.READ,
+                                     StandardOpenOption.WRITE);
+        } else {
+            log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            index = FileChannel.open(indexFile, StandardOpenOption.CREATE,
+                                     StandardOpenOption.READ, StandardOpenOption.WRITE,
+                                     StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        positions = new long[16];
+        lengths = new long[16];
+        cacheSize = DEFAULT_CACHE_SIZE;
+        cache = new LinkedHashMap<Integer, Ecosystem>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Ecosystem> eldest) {
+
+                return size() > cacheSize;
+            }
+        };
+
+        try {
+            if (existing) {
+                version = checkHeader(log);
+                if (checkHeader(index) != version) {
+                    throw new IOException("The week log and its index are of different versions");
+                }
+                readIndex();
+            } else {
+                version = VERSION;
+                writeHeader(log);
+                writeHeader(index);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the log file.
+     *
+     * @return the log file
+     */
+    public Path getFile() {
+
+        return file;
+    }
+
+    /**
+     * Returns the index file of the given log file.
+     *
+     * @param file
+     *         the log file
+     *
+     * @return the index file of the log
+     */
+    public static Path indexFileOf(Path file) {
+
+        return Paths.get(file.toString() + INDEX_EXTENSION);
+    }
+
+    @Override
+    public int size() {
+
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException
+     *         if the week cannot be written to the log
+     */
+    @Override
+    public void add(Ecosystem ecosystem) {
+
+        // each version of the log holds the same version of the ecosystem's binary form
+        long length = EcosystemCodec.encodedSize(ecosystem, version);
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The week is too large to be mapped");
+        }
+
+        try {
+            long position = log.size();
+            MappedByteBuffer region = log.map(FileChannel.MapMode.READ_WRITE, position, length);
+            EcosystemCodec.write(ecosystem, region, version);
+            // forcing the channel does not cover mapped regions, so each region is forced itself
+            region.force();
+
+            ByteBuffer entry = ByteBuffer.allocate(ENTRY_BYTES);
+            entry.putLong(position).putLong(length).flip();
+            long entryPosition = HEADER_BYTES + (long) size * ENTRY_BYTES;
+            while (entry.hasRemaining()) {
+                entryPosition += index.write(entry, entryPosition);
+            }
+
+            record(position, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Week " + size + " could not be logged", e);
+        }
+        latest = ecosystem;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException
+     *         if the week cannot be read from the log
+     */
+    @Override
+    public Ecosystem get(int week) {
+
+        if (week < 0 || week >= size) {
+            throw new IndexOutOfBoundsException("Week " + week + " is not stored");
+        }
+        if (week == size - 1 && latest != null) {
+            return latest;
+        }
+        Ecosystem cached = cache.get(week);
+        if (cached != null) {
+            return cached;
+        }
+
+        Ecosystem ecosystem;
+        try {
+            MappedByteBuffer slice = log.map(FileChannel.MapMode.READ_ONLY, positions[week],
+                                             lengths[week]);
+            ecosystem = EcosystemCodec.read(slice, version);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Week " + week + " could not be read", e);
+        }
+        cache.put(week, ecosystem);
+        return ecosystem;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The last week is already in the log, so the state kept in memory is handed over and the
+     * week is read from the log if it is requested again.
+     *
+     * @throws UncheckedIOException
+     *         if the week has to be read from the log and cannot be
+     */
+    @Override
+    public Ecosystem takeLatest() {
+
+        if (latest == null) {
+            return History.super.takeLatest();
+        }
+        Ecosystem ecosystem = latest;
+        latest = null;
+        return ecosystem;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException
+     *         if the log cannot be emptied
+     */
+    @Override
+    public void clear() {
+
+        try {
+            log.truncate(HEADER_BYTES);
+            index.truncate(HEADER_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("The log could not be emptied", e);
+        }
+        cache.clear();
+        latest = null;
+        size = 0;
+    }
+
+    /**
+     * Writes any changes to the log and its index to the storage device and closes them.
+     * <p>
+     * The weeks themselves are already on the storage device, since each is forced as it is
+     * added.
+     *
+     * @throws IOException
+     *         if the log or its index cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+
+        try {
+            if (log.isOpen()) {
+                log.force(false);
+            }
+            if (index.isOpen()) {
+                index.force(false);
+            }
+        } finally {
+            log.close();
+            index.close();
+        }
+    }
+
+    /**
+     * Reads the positions and lengths of the weeks from the index.
+     *
+     * @throws IOException
+     *         if the index cannot be read or does not match the log
+     */
+    private void readIndex() throws IOException {
+
+        long entries = (index.size() - HEADER_BYTES) / ENTRY_BYTES;
+        if (entries > Integer.MAX_VALUE) {
+            throw new IOException("The index has too many entries");
+        }
+        ByteBuffer buffer = index.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                                      entries * ENTRY_BYTES);
+        long logSize = log.size();
+        for (int week = 0; week < entries; week++) {
+            long position = buffer.getLong();
+            long length = buffer.getLong();
+            if (position < HEADER_BYTES || length < 0 || position + length > logSize) {
+                throw new IOException("Week " + week + " is outside the log");
+            }
+            record(position, length);
+        }
+    }
+
+    /**
+     * Records the position and length of the next week.
+     *
+     * @param position
+     *         the position of the week in the log
+     * @param length
+     *         the length of the week in the log
+     */
+    private void record(long position, long length) {
+
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        positions[size] = position;
+        lengths[size] = length;
+        size++;
+    }
+
+    /**
+     * Writes the header to the start of the given file.
+     *
+     * @param channel
+     *         the channel of the file
+     *
+     * @throws IOException
+     *         if the file cannot be written
+     */
+    private static void writeHeader(FileChannel channel) throws IOException {
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    /**
+     * Checks that the given file starts with a header of a supported version.
+     *
+     * @param channel
+     *         the channel of the file
+     *
+     * @return the version of the file
+     *
+     * @throws IOException
+     *         if the file cannot be read or does not start with a valid header
+     */
+    private static int checkHeader(FileChannel channel) throws IOException {
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long position = 0;
+        while (header.hasRemaining()) {
+            int read = channel.read(header, position);
+            if (read < 0) {
+                throw new IOException("Not a week log");
+            }
+            position += read;
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a week log");
+        }
+        int version = header.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported week log version " + version);
+        }
+        return version;
+    }
+}
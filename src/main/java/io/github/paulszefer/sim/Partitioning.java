@@ -0,0 +1,106 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Assigns each pool of an ecosystem to one of a number of partitions, each adjusted for crowding
+ * by its own worker.
+ * <p>
+ * A worker moves creatures freely between the pools it owns; creatures crossing a stream into a
+ * pool of another partition are delivered once every worker has finished. The fewer streams that
+ * cross partitions, the more of the overflow is resolved within the week.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class Partitioning {
+
+    /** The partition that owns each pool, by the index of the pool in the ecosystem. */
+    private final int[] owners;
+
+    /** The number of partitions. */
+    private final int partitionCount;
+
+    /**
+     * Creates a partitioning in which each pool is owned by the given partition.
+     *
+     * @param owners
+     *         the partition that owns each pool, by the index of the pool in the ecosystem
+     *
+     * @throws IllegalArgumentException
+     *         if a partition is negative
+     */
+    public Partitioning(int[] owners) {
+
+        int highest = -1;
+        for (int owner : owners) {
+            if (owner < 0) {
+                throw new IllegalArgumentException("A partition is negative: " + owner);
+            }
+            highest = Math.max(highest, owner);
+        }
+        this.owners = owners.clone();
+        partitionCount = highest + 1;
+    }
+
+    /**
+     * Splits the pools into the given number of partitions of consecutive pools in the given
+     * order, with as close to the same number of pools in each as possible.
+     * <p>
+     * Since each pool comes soon after the pools that flow into it, the streams of a chain mostly
+     * stay within one partition.
+     *
+     * @param topology
+     *         the order of the pools
+     * @param partitions
+     *         the number of partitions
+     *
+     * @return the partitioning
+     *
+     * @throws IllegalArgumentException
+     *         if the number of partitions is not positive
+     */
+    public static Partitioning balanced(Topology topology, int partitions) {
+
+        if (partitions < 1) {
+            throw new IllegalArgumentException("The number of partitions is not positive");
+        }
+        int poolCount = topology.size();
+        int[] owners = new int[poolCount];
+        for (int i = 0; i < poolCount; i++) {
+            owners[topology.get(i)] = (int) ((long) i * partitions / poolCount);
+        }
+        return new Partitioning(owners);
+    }
+
+    /**
+     * Returns the number of pools.
+     *
+     * @return the number of pools
+     */
+    public int size() {
+
+        return owners.length;
+    }
+
+    /**
+     * Returns the number of partitions.
+     *
+     * @return the number of partitions
+     */
+    public int getPartitionCount() {
+
+        return partitionCount;
+    }
+
+    /**
+     * Returns the partition that owns the pool at the given index.
+     *
+     * @param poolIndex
+     *         the index of the pool in the ecosystem
+     *
+     * @return the partition that owns the pool
+     */
+    public int getOwner(int poolIndex) {
+
+        return owners[poolIndex];
+    }
+}
@@ -1,13 +1,19 @@
 package io.github.paulszefer.sim;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Defines an aquatic pool that contains creatures.
+ * <p>
+ * The creatures are kept in a {@link CreatureStorage}. Pools use a {@link ListCreatureStorage} by
+ * default; a {@link ColumnarCreatureStorage} or {@link CohortCreatureStorage} can be set for very
+ * large populations. An {@link EventCreatureStorage} steps the creatures by their scheduled events
+ * and an {@link AgeRingCreatureStorage} ages them by rotating a ring of buckets by age, rather than
+ * visiting each of them every week. Counts that exceed the range of an int are reported as
+ * {@link Integer#MAX_VALUE} by the methods that return ints.
  *
  * @author Paul Szefer
  * @version 1.0
@@ -28,10 +34,6 @@ public class Pool extends WaterBody {
      * The maximum pool nutrient coefficient.
      */
     public static final double MAXIMUM_NUTRIENT_COEFFICIENT = 1.0;
-    /**
-     * A random number generator.
-     */
-    private static final Random GENERATOR = new Random();
     /**
      * The number of pools created.
      */
@@ -52,9 +54,9 @@ public class Pool extends WaterBody {
     private int identificationNumber;
 
     /**
-     * The set of creatures in the pool.
+     * The storage of the creatures in the pool.
      */
-    private List<Creature> creatures;
+    private CreatureStorage storage;
 
     /**
      * Sets up a generic aquatic pool with default values.
@@ -65,7 +67,7 @@ public class Pool extends WaterBody {
         volumeLitres = 0.0;
         nutrientCoefficient = DEFAULT_NUTRIENT_COEFFICIENT;
         identificationNumber = ++numberOfPools;
-        creatures = new ArrayList<>();
+        storage = new ListCreatureStorage();
     }
 
     /**
@@ -89,7 +91,7 @@ public class Pool extends WaterBody {
         setVolumeLitres(volumeLitres);
         setNutrientCoefficient(nutrientCoefficient);
         identificationNumber = ++numberOfPools;
-        creatures = new ArrayList<>();
+        storage = new ListCreatureStorage();
     }
 
     /**
@@ -139,7 +141,17 @@ public class Pool extends WaterBody {
      */
     public List<Creature> getCreatures() {
 
-        return creatures;
+        return storage.getCreatures();
+    }
+
+    /**
+     * Returns the storage of the creatures in the pool.
+     *
+     * @return the storage of the creatures in the pool
+     */
+    public CreatureStorage getStorage() {
+
+        return storage;
     }
 
     /**
@@ -193,8 +205,22 @@ public class Pool extends WaterBody {
      */
     public void setCreatures(List<Creature> creatures) {
 
-        if (creatures != null) {
-            this.creatures = creatures;
+        storage.setCreatures(creatures);
+    }
+
+    /**
+     * Sets the storage of the creatures in the pool.
+     * <p>
+     * The creatures currently in the pool are moved into the new storage.
+     *
+     * @param storage
+     *         the storage to set
+     */
+    public void setStorage(CreatureStorage storage) {
+
+        if (storage != null && storage != this.storage) {
+            storage.addAll(this.storage.getCreatures());
+            this.storage = storage;
         }
     }
 
@@ -222,11 +248,42 @@ public class Pool extends WaterBody {
                          int maxAge, double femaleChance, double minHealthCoefficient,
                          double maxHealthCoefficient) {
 
+        populate(numberOfCreatures, genus, species, minAge, maxAge, femaleChance,
+                 minHealthCoefficient, maxHealthCoefficient, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Populates the pool with creatures according to the given parameters, drawing their
+     * attributes from the given generator.
+     *
+     * @param numberOfCreatures
+     *         the number of creatures to create
+     * @param genus
+     *         the genus of the creature
+     * @param species
+     *         the species of the creature
+     * @param minAge
+     *         the minimum possible age of the creature
+     * @param maxAge
+     *         the maximum possible age of the creature
+     * @param femaleChance
+     *         the chance that the creature is female
+     * @param minHealthCoefficient
+     *         the minimum possible health coefficient of the creature
+     * @param maxHealthCoefficient
+     *         the maximum possible health coefficient of the creature
+     * @param generator
+     *         the random number generator to use
+     */
+    public void populate(int numberOfCreatures, String genus, String species, int minAge,
+                         int maxAge, double femaleChance, double minHealthCoefficient,
+                         double maxHealthCoefficient, Random generator) {
+
         for (int i = 0; i < numberOfCreatures; i++) {
-            int age = GENERATOR.nextInt(maxAge - minAge + 1) + minAge;
-            boolean isFemale = GENERATOR.nextDouble() < femaleChance;
+            int age = generator.nextInt(maxAge - minAge + 1) + minAge;
+            boolean isFemale = generator.nextDouble() < femaleChance;
             double healthCoefficient =
-                    GENERATOR.nextDouble() * (maxHealthCoefficient - minHealthCoefficient)
+                    generator.nextDouble() * (maxHealthCoefficient - minHealthCoefficient)
                             + minHealthCoefficient;
             if (genus.equals(Guppy.GENUS) && species.equals(Guppy.SPECIES)) {
                 addCreature(new Guppy(age, healthCoefficient, isFemale, 0));
@@ -288,7 +345,7 @@ public class Pool extends WaterBody {
      */
     public boolean addCreature(Creature creature) {
 
-        return creature != null && creatures.add(creature);
+        return storage.add(creature);
     }
 
     /**
@@ -301,7 +358,7 @@ public class Pool extends WaterBody {
      */
     public boolean addCreatures(List<Creature> newCreatures) {
 
-        return newCreatures != null && this.creatures.addAll(newCreatures);
+        return storage.addAll(newCreatures);
     }
 
     /**
@@ -311,7 +368,17 @@ public class Pool extends WaterBody {
      */
     public int getPopulation() {
 
-        return creatures.size();
+        return saturate(storage.size());
+    }
+
+    /**
+     * Returns the number of creatures in the pool as a long.
+     *
+     * @return the number of creatures in the pool
+     */
+    public long getPopulationCount() {
+
+        return storage.size();
     }
 
     /**
@@ -322,16 +389,8 @@ public class Pool extends WaterBody {
      */
     public int applyNutrientCoefficient() {
 
-        int countDied = 0;
-
-        for (Creature creature : creatures) {
-            if (GENERATOR.nextDouble() > nutrientCoefficient) {
-                creature.getHealth().setAlive(false);
-                countDied++;
-            }
-        }
-
-        return countDied;
+        return saturate(storage.applyNutrientCoefficient(nutrientCoefficient,
+                                                         ThreadLocalRandom.current()));
     }
 
     /**
@@ -341,18 +400,7 @@ public class Pool extends WaterBody {
      */
     public int removeDeadCreatures() {
 
-        int creaturesRemoved = 0;
-
-        Iterator<Creature> iterator = creatures.iterator();
-
-        while (iterator.hasNext()) {
-            if (!iterator.next().getHealth().isAlive()) {
-                iterator.remove();
-                creaturesRemoved++;
-            }
-        }
-
-        return creaturesRemoved;
+        return saturate(storage.removeDead());
     }
 
     /**
@@ -362,14 +410,9 @@ public class Pool extends WaterBody {
      */
     public double getCreatureVolumeRequirementInLitres() {
 
-        double volumeNeeded = 0.0;
         final double mlPerL = 1000.0;
 
-        for (Creature creature : creatures) {
-            volumeNeeded += creature.getVolumeNeeded();
-        }
-
-        return volumeNeeded / mlPerL;
+        return storage.getVolumeNeededMl() / mlPerL;
     }
 
     /**
@@ -379,17 +422,7 @@ public class Pool extends WaterBody {
      */
     public double getAverageAgeInWeeks() {
 
-        int age = 0;
-        int countAlive = 0;
-
-        for (Creature creature : creatures) {
-            if (creature.getHealth().isAlive()) {
-                age += creature.getHealth().getAge();
-                countAlive++;
-            }
-        }
-
-        return countAlive > 0 ? (double) age / countAlive : 0.0;
+        return storage.getAverageAgeInWeeks();
     }
 
     /**
@@ -399,17 +432,7 @@ public class Pool extends WaterBody {
      */
     public double getAverageHealthCoefficient() {
 
-        double healthCoefficient = 0.0;
-        int countAlive = 0;
-
-        for (Creature creature : creatures) {
-            if (creature.getHealth().isAlive()) {
-                healthCoefficient += creature.getHealth().getCoefficient();
-                countAlive++;
-            }
-        }
-
-        return countAlive > 0 ? healthCoefficient / countAlive : 0.0;
+        return storage.getAverageHealthCoefficient();
     }
 
     /**
@@ -419,17 +442,7 @@ public class Pool extends WaterBody {
      */
     public double getFemaleProportion() {
 
-        int countFemale = 0;
-        int countAlive = 0;
-
-        for (Creature creature : creatures) {
-            if (creature.getHealth().isAlive()) {
-                countFemale += creature.isFemale() ? 1 : 0;
-                countAlive++;
-            }
-        }
-
-        return countAlive > 0 ? (double) countFemale / countAlive : 0.0;
+        return storage.getFemaleProportion();
     }
 
     /**
@@ -441,21 +454,45 @@ public class Pool extends WaterBody {
 
         double medianAge;
 
-        List<Integer> livingCreaturesSorted = sortLivingCreatureAges();
+        AgeHistogram ageHistogram = storage.getAgeHistogram();
+        long countAlive = ageHistogram.getTotal();
 
-        if (livingCreaturesSorted.size() == 0) {
+        if (countAlive == 0) {
             medianAge = 0;
-        } else if (livingCreaturesSorted.size() % 2 == 0) {
-            medianAge = (livingCreaturesSorted.get(livingCreaturesSorted.size() / 2 - 1)
-                    + livingCreaturesSorted.get(livingCreaturesSorted.size() / 2)) / 2.0;
+        } else if (countAlive % 2 == 0) {
+            medianAge = (ageHistogram.getAgeAtRank(countAlive / 2 - 1)
+                    + ageHistogram.getAgeAtRank(countAlive / 2)) / 2.0;
         } else {
-            medianAge = livingCreaturesSorted.get(livingCreaturesSorted.size() / 2 - 1);
+            medianAge = ageHistogram.getAgeAtRank(countAlive / 2 - 1);
         }
 
         return medianAge;
 
     }
 
+    /**
+     * Calculates the given percentile of the ages of the pool's living population.
+     *
+     * @param percentile
+     *         the percentile, from 0 to 100
+     *
+     * @return the age at the given percentile
+     */
+    public int getAgePercentile(double percentile) {
+
+        return storage.getAgeHistogram().getPercentile(percentile);
+    }
+
+    /**
+     * Returns the number of the pool's living population of each age, indexed by age in weeks.
+     *
+     * @return the number of living creatures of each age
+     */
+    public long[] getAgeDistribution() {
+
+        return storage.getAgeHistogram().getDistribution();
+    }
+
     /**
      * Kills the weakest creatures in the pool until the pool has enough water to support the living
      * population.
@@ -464,16 +501,7 @@ public class Pool extends WaterBody {
      */
     public List<Creature> adjustForCrowding() {
 
-        Collections.sort(creatures);
-
-        List<Creature> weakestCreatures = new ArrayList<>();
-        int index = 0;
-
-        while (volumeLitres < getCreatureVolumeRequirementInLitres()) {
-            weakestCreatures.add(creatures.remove(index));
-        }
-
-        return weakestCreatures;
+        return storage.removeWeakest(volumeLitres);
     }
 
     /**
@@ -484,15 +512,7 @@ public class Pool extends WaterBody {
      */
     public int incrementAges() {
 
-        int countDied = 0;
-
-        for (Creature creature : creatures) {
-            creature.getHealth().incrementAge();
-            if (!creature.getHealth().isAlive()) {
-                countDied++;
-            }
-        }
-        return countDied;
+        return saturate(storage.incrementAges());
     }
 
     /**
@@ -504,17 +524,20 @@ public class Pool extends WaterBody {
      */
     public int spawn() {
 
-        List<Creature> newCreatures = new ArrayList<>();
+        return saturate(storage.spawn(ThreadLocalRandom.current()));
+    }
 
-        for (Creature creature : creatures) {
-            List<Creature> spawned = creature.spawn();
-            if (spawned != null) {
-                newCreatures.addAll(spawned);
-            }
-        }
-        creatures.addAll(newCreatures);
+    /**
+     * Narrows the given count to an int, limiting it to the largest int.
+     *
+     * @param count
+     *         the count to narrow
+     *
+     * @return the count as an int
+     */
+    private static int saturate(long count) {
 
-        return newCreatures.size();
+        return (int) Math.min(Integer.MAX_VALUE, count);
     }
 
     /**
@@ -524,29 +547,13 @@ public class Pool extends WaterBody {
      */
     public List<Integer> sortLivingCreatureAges() {
 
+        long[] distribution = getAgeDistribution();
         List<Integer> sorted = new ArrayList<>();
 
-        for (Creature creature : creatures) {
-            if (creature.getHealth().isAlive()) {
-                sorted.add(creature.getHealth().getAge());
-            }
-        }
-
-        int index;
-        int min;
-
-        for (int i = 0; i < sorted.size(); i++) {
-
-            index = i;
-            min = sorted.get(i);
-
-            for (int j = i + 1; j < sorted.size(); j++) {
-                if (min >= sorted.get(j)) {
-                    index = j;
-                    min = sorted.get(j);
-                }
+        for (int age = 0; age < distribution.length; age++) {
+            for (long i = 0; i < distribution[age]; i++) {
+                sorted.add(age);
             }
-            sorted.add(i, sorted.remove(index));
         }
         return sorted;
     }
@@ -561,9 +568,7 @@ public class Pool extends WaterBody {
         Pool poolCopy = new Pool(getName(), getVolumeLitres(), getTemperature(), getpH(),
                                  getNutrientCoefficient());
         poolCopy.setIdentificationNumber(getIdentificationNumber());
-        for (Creature creature : creatures) {
-            poolCopy.addCreature(creature.copy());
-        }
+        poolCopy.storage = storage.copy();
         return poolCopy;
     }
 
@@ -605,7 +610,7 @@ public class Pool extends WaterBody {
         if (!getName().equals(pool.getName())) {
             return false;
         }
-        return creatures.equals(pool.creatures);
+        return storage.equals(pool.storage);
     }
 
     /**
@@ -632,7 +637,7 @@ public class Pool extends WaterBody {
         temp = Double.doubleToLongBits(nutrientCoefficient);
         result = hashValue1 * result + (int) (temp ^ (temp >>> hashValue2));
         result = hashValue1 * result + identificationNumber;
-        result = hashValue1 * result + creatures.hashCode();
+        result = hashValue1 * result + storage.hashCode();
         return result;
     }
 
@@ -0,0 +1,112 @@
+package io.github.paulszefer.sim;
+
+import java.util.Random;
+
+/**
+ * Hands out the random number streams of a simulation.
+ * <p>
+ * Every stream is derived from the seed of the simulation and a key made of the phase, the week
+ * and the index of the pool or stream that uses it. Streams with different keys are independent,
+ * and the same key always gives the same numbers, so a simulation run from a given seed is
+ * reproducible regardless of the order in which its pools are stepped.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class RandomStreams {
+
+    /** The parts of a simulation that draw random numbers. */
+    public enum Phase {
+
+        /** Creating the initial creatures of a pool. */
+        POPULATE,
+
+        /** Deaths due to the nutrient coefficient of a pool. */
+        NUTRITION,
+
+        /** Births in a pool. */
+        SPAWN,
+
+        /** The choice of stream for creatures leaving a crowded pool, and their deaths. */
+        CROWDING,
+
+        /** The placement of creatures when drawing a pool. */
+        ANIMATION,
+
+        /** The seeds of the replicas of an ensemble. */
+        REPLICA
+    }
+
+    /** The increment of the Weyl sequence used to separate the parts of a key. */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /** The seed of the simulation. */
+    private final long seed;
+
+    /** Creates streams from a seed chosen at random. */
+    public RandomStreams() {
+
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Creates streams from the given seed.
+     *
+     * @param seed
+     *         the seed of the simulation
+     */
+    public RandomStreams(long seed) {
+
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the seed of the simulation.
+     *
+     * @return the seed of the simulation
+     */
+    public long getSeed() {
+
+        return seed;
+    }
+
+    /**
+     * Returns the stream for the given key.
+     * <p>
+     * Each call returns a new generator positioned at the start of the stream. The generator is
+     * not safe to share between threads.
+     *
+     * @param phase
+     *         the part of the simulation that draws from the stream
+     * @param week
+     *         the number of the week being simulated
+     * @param index
+     *         the index of the pool or stream that draws from the stream, or 0 if the phase
+     *         concerns the whole ecosystem
+     *
+     * @return the stream for the given key
+     */
+    public Random stream(Phase phase, int week, int index) {
+
+        long key = mix(seed + GOLDEN_GAMMA * (phase.ordinal() + 1));
+        key = mix(key + GOLDEN_GAMMA * week);
+        key = mix(key + GOLDEN_GAMMA * index);
+        return new SplittableRandomAdapter(key);
+    }
+
+    /**
+     * Scrambles the bits of the given value.
+     *
+     * @param value
+     *         the value to scramble
+     *
+     * @return the scrambled value
+     */
+    private static long mix(long value) {
+
+        long mixed = value;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xbf58476d1ce4e5b9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94d049bb133111ebL;
+        return mixed ^ (mixed >>> 31);
+    }
+}
@@ -0,0 +1,301 @@
+package io.github.paulszefer.sim;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores sparse checkpoints of an ecosystem and re-simulates the weeks in between on demand.
+ * <p>
+ * Every random draw of a week comes from the simulation's {@link RandomStreams}, keyed by the
+ * week, so a week can be simulated again from the week before and gives the same result. Only
+ * the checkpoints, the latest week and a small cache of recently rebuilt weeks are kept; every
+ * other week is rebuilt by stepping forward from the nearest earlier checkpoint or cached week.
+ * <p>
+ * The results also depend on the number of partitions crowding is split into, so the weeks are
+ * re-simulated with the partitions they were first simulated with, as set by
+ * {@link #setPartitions(int)}. A {@link Simulation} keeps this in step with its engine or its
+ * coordinator.
+ * <p>
+ * The creatures born in a rebuilt week are given new identification numbers, since those are
+ * handed out globally; every other attribute matches the week as it was first simulated.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class ReplayHistory implements History {
+
+    /** The default number of weeks between checkpoints. */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 26;
+
+    /** The default number of rebuilt weeks to cache. */
+    public static final int DEFAULT_CACHE_SIZE = 8;
+
+    /** The engine that re-simulates the weeks, using the streams of the simulation. */
+    private final SimulationEngine engine;
+
+    /** The number of weeks between checkpoints. */
+    private final int checkpointInterval;
+
+    /** The complete states of the checkpoints, by week. */
+    private final TreeMap<Integer, Ecosystem> checkpoints;
+
+    /** The number of rebuilt weeks to cache. */
+    private final int cacheSize;
+
+    /** The recently rebuilt weeks, from least to most recently used. */
+    private final LinkedHashMap<Integer, Ecosystem> cache;
+
+    /** The number of weeks stored. */
+    private int size;
+
+    /** The week of the simulation that the first stored state belongs to. */
+    private int firstWeek;
+
+    /** The most recently added state, or null if it has been handed over. */
+    private Ecosystem latest;
+
+    /**
+     * Creates an empty history that re-simulates weeks with the given streams, without
+     * partitions.
+     *
+     * @param streams
+     *         the random number streams of the simulation
+     */
+    public ReplayHistory(RandomStreams streams) {
+
+        this(streams, DEFAULT_CHECKPOINT_INTERVAL, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an empty history that re-simulates weeks with the streams and partitions of the
+     * given engine.
+     *
+     * @param engine
+     *         the engine of the simulation
+     */
+    public ReplayHistory(SimulationEngine engine) {
+
+        this(engine, DEFAULT_CHECKPOINT_INTERVAL, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an empty history that re-simulates weeks with the streams and partitions of the
+     * given engine.
+     *
+     * @param engine
+     *         the engine of the simulation
+     * @param checkpointInterval
+     *         the number of weeks between checkpoints
+     * @param cacheSize
+     *         the number of rebuilt weeks to cache
+     *
+     * @throws IllegalArgumentException
+     *         if the interval is not positive or the cache size is negative
+     */
+    public ReplayHistory(SimulationEngine engine, int checkpointInterval, int cacheSize) {
+
+        this(engine.getRandomStreams(), checkpointInterval, cacheSize);
+        setPartitions(engine.getPartitions());
+    }
+
+    /**
+     * Creates an empty history that re-simulates weeks with the given streams, without
+     * partitions.
+     *
+     * @param streams
+     *         the random number streams of the simulation
+     * @param checkpointInterval
+     *         the number of weeks between checkpoints
+     * @param cacheSize
+     *         the number of rebuilt weeks to cache
+     *
+     * @throws IllegalArgumentException
+     *         if the interval is not positive or the cache size is negative
+     */
+    public ReplayHistory(RandomStreams streams, int checkpointInterval, int cacheSize) {
+
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("The checkpoint interval must be positive");
+        }
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("The cache size must not be negative");
+        }
+        engine = new SimulationEngine(streams);
+        this.checkpointInterval = checkpointInterval;
+        this.cacheSize = cacheSize;
+        checkpoints = new TreeMap<>();
+        cache = new LinkedHashMap<Integer, Ecosystem>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Ecosystem> eldest) {
+
+                return size() > ReplayHistory.this.cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of weeks between checkpoints.
+     *
+     * @return the number of weeks between checkpoints
+     */
+    public int getCheckpointInterval() {
+
+        return checkpointInterval;
+    }
+
+    /**
+     * Returns the number of checkpoints stored.
+     *
+     * @return the number of checkpoints stored
+     */
+    public int getCheckpointCount() {
+
+        return checkpoints.size();
+    }
+
+    /**
+     * Sets the week of the simulation that the first stored state belongs to.
+     * <p>
+     * The weeks are re-simulated with the random numbers of the simulation weeks they belong to,
+     * so this must be set when the first state is not that of week 0, such as when a simulation
+     * continues from a snapshot.
+     *
+     * @param firstWeek
+     *         the week of the simulation of the first stored state
+     */
+    public void setFirstWeek(int firstWeek) {
+
+        this.firstWeek = firstWeek;
+    }
+
+    /**
+     * Returns the number of partitions crowding is split into when the weeks are re-simulated.
+     *
+     * @return the number of partitions, or 0 if the pools are adjusted in one pass
+     */
+    public int getPartitions() {
+
+        return engine.getPartitions();
+    }
+
+    /**
+     * Sets the number of partitions crowding is split into when the weeks are re-simulated, which
+     * must be the number the weeks were first simulated with.
+     * <p>
+     * Weeks already rebuilt with another number of partitions are discarded.
+     *
+     * @param partitions
+     *         the number of partitions, or 0 if the pools are adjusted in one pass
+     *
+     * @throws IllegalArgumentException
+     *         if the number of partitions is negative
+     */
+    public void setPartitions(int partitions) {
+
+        if (partitions != engine.getPartitions()) {
+            engine.setPartitions(partitions);
+            cache.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+
+        return size;
+    }
+
+    @Override
+    public void add(Ecosystem ecosystem) {
+
+        if (size % checkpointInterval == 0) {
+            checkpoints.put(size, ecosystem);
+        }
+        latest = ecosystem;
+        size++;
+    }
+
+    @Override
+    public Ecosystem get(int week) {
+
+        if (week < 0 || week >= size) {
+            throw new IndexOutOfBoundsException("Week " + week + " is not stored");
+        }
+        if (week == size - 1 && latest != null) {
+            return latest;
+        }
+        Ecosystem checkpoint = checkpoints.get(week);
+        if (checkpoint != null) {
+            return checkpoint;
+        }
+        Ecosystem cached = cache.get(week);
+        if (cached != null) {
+            return cached;
+        }
+        return replay(week);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unless the last week is a checkpoint, its state is handed over and the week is
+     * re-simulated if it is requested again.
+     */
+    @Override
+    public Ecosystem takeLatest() {
+
+        if (latest == null || checkpoints.containsKey(size - 1)) {
+            return History.super.takeLatest();
+        }
+        Ecosystem ecosystem = latest;
+        latest = null;
+        return ecosystem;
+    }
+
+    @Override
+    public void clear() {
+
+        checkpoints.clear();
+        cache.clear();
+        latest = null;
+        size = 0;
+    }
+
+    /**
+     * Rebuilds the given week by stepping forward from the nearest earlier stored week.
+     * <p>
+     * The weeks rebuilt on the way that are closest to the given week are cached, so that
+     * stepping back one week at a time rarely needs another replay.
+     *
+     * @param week
+     *         the week to rebuild
+     *
+     * @return the state of the given week
+     */
+    private Ecosystem replay(int week) {
+
+        int start = checkpoints.floorKey(week);
+        Ecosystem startState = checkpoints.get(start);
+        for (Map.Entry<Integer, Ecosystem> entry : cache.entrySet()) {
+            if (entry.getKey() > start && entry.getKey() < week) {
+                start = entry.getKey();
+                startState = entry.getValue();
+            }
+        }
+
+        int firstCached = week - cacheSize + 1;
+        Ecosystem ecosystem = startState.copy();
+        for (int current = start + 1; current < week; current++) {
+            engine.step(ecosystem, firstWeek + current);
+            if (current >= firstCached) {
+                cache.put(current, ecosystem.copy());
+            }
+        }
+        engine.step(ecosystem, firstWeek + week);
+        cache.put(week, ecosystem);
+        return ecosystem;
+    }
+}
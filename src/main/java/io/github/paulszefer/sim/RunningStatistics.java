@@ -0,0 +1,158 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Accumulates the mean and variance of a series of values without storing the values.
+ * <p>
+ * The values are combined with Welford's algorithm, which stays accurate when the values are
+ * large and close together. Two accumulators can be merged, so partial results from different
+ * threads can be combined.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class RunningStatistics {
+
+    /** The standard normal quantile for a two-sided 95% confidence interval. */
+    private static final double Z_95 = 1.959963984540054;
+
+    /** The number of values added. */
+    private long count;
+
+    /** The mean of the values added. */
+    private double mean;
+
+    /** The sum of the squared differences between the values and their mean. */
+    private double sumOfSquares;
+
+    /** Creates an accumulator with no values. */
+    public RunningStatistics() {
+
+    }
+
+    /**
+     * Adds the given value.
+     *
+     * @param value
+     *         the value to add
+     */
+    public void add(double value) {
+
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        sumOfSquares += delta * (value - mean);
+    }
+
+    /**
+     * Adds the values of the given accumulator to this one.
+     *
+     * @param other
+     *         the accumulator to merge into this one
+     */
+    public void merge(RunningStatistics other) {
+
+        if (other.count == 0) {
+            return;
+        }
+        long combined = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / combined;
+        sumOfSquares += other.sumOfSquares + delta * delta * count * other.count / combined;
+        count = combined;
+    }
+
+    /**
+     * Returns the number of values added.
+     *
+     * @return the number of values added
+     */
+    public long getCount() {
+
+        return count;
+    }
+
+    /**
+     * Returns the mean of the values added.
+     *
+     * @return the mean of the values added, or 0 if there are none
+     */
+    public double getMean() {
+
+        return mean;
+    }
+
+    /**
+     * Returns the sample variance of the values added.
+     *
+     * @return the sample variance of the values added, or 0 if there are fewer than two
+     */
+    public double getVariance() {
+
+        return count > 1 ? sumOfSquares / (count - 1) : 0.0;
+    }
+
+    /**
+     * Returns the sample standard deviation of the values added.
+     *
+     * @return the sample standard deviation of the values added
+     */
+    public double getStandardDeviation() {
+
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns the standard error of the mean.
+     *
+     * @return the standard error of the mean, or 0 if there are no values
+     */
+    public double getStandardError() {
+
+        return count > 0 ? getStandardDeviation() / Math.sqrt(count) : 0.0;
+    }
+
+    /**
+     * Returns the lower bound of the 95% confidence interval of the mean.
+     * <p>
+     * The interval uses the normal approximation, which is accurate for ensembles of about 30 or
+     * more values.
+     *
+     * @return the lower bound of the 95% confidence interval of the mean
+     */
+    public double getConfidenceLower() {
+
+        return mean - Z_95 * getStandardError();
+    }
+
+    /**
+     * Returns the upper bound of the 95% confidence interval of the mean.
+     * <p>
+     * The interval uses the normal approximation, which is accurate for ensembles of about 30 or
+     * more values.
+     *
+     * @return the upper bound of the 95% confidence interval of the mean
+     */
+    public double getConfidenceUpper() {
+
+        return mean + Z_95 * getStandardError();
+    }
+
+    /**
+     * Creates and returns a copy of this accumulator.
+     *
+     * @return a copy of this accumulator
+     */
+    public RunningStatistics copy() {
+
+        RunningStatistics statisticsCopy = new RunningStatistics();
+        statisticsCopy.merge(this);
+        return statisticsCopy;
+    }
+
+    @Override
+    public String toString() {
+
+        return String.format("%.2f (95%% CI %.2f to %.2f, n = %d)", mean, getConfidenceLower(),
+                             getConfidenceUpper(), count);
+    }
+}
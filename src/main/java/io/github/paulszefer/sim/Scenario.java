@@ -0,0 +1,50 @@
+package io.github.paulszefer.sim;
+
+/**
+ * A named initial state of a simulation, as described by a scenario file.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class Scenario {
+
+    /** The name of the simulation. */
+    private final String name;
+
+    /** The initial state of the ecosystem. */
+    private final Ecosystem ecosystem;
+
+    /**
+     * Creates a scenario.
+     *
+     * @param name
+     *         the name of the simulation
+     * @param ecosystem
+     *         the initial state of the ecosystem
+     */
+    public Scenario(String name, Ecosystem ecosystem) {
+
+        this.name = name;
+        this.ecosystem = ecosystem;
+    }
+
+    /**
+     * Returns the name of the simulation.
+     *
+     * @return the name of the simulation
+     */
+    public String getName() {
+
+        return name;
+    }
+
+    /**
+     * Returns the initial state of the ecosystem.
+     *
+     * @return the initial state of the ecosystem
+     */
+    public Ecosystem getEcosystem() {
+
+        return ecosystem;
+    }
+}
@@ -0,0 +1,350 @@
+package io.github.paulszefer.sim;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a scenario from the elements of a structured scenario file as they are read.
+ * <p>
+ * Each pool is added to the ecosystem as soon as it is complete, and its creatures are added to
+ * it one population, creature or cohort at a time, so the builder holds no more than the
+ * ecosystem itself. Streams name the pools they connect, which must already have been added. If
+ * the file declares no streams, the pools are connected in order, as in the text format.
+ * <p>
+ * Invalid elements are reported as {@link IllegalArgumentException}s, which the readers report
+ * with the line at which they were found.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class ScenarioBuilder {
+
+    /** The name of list storage in a scenario file. */
+    static final String LIST_STORAGE = "list";
+
+    /** The name of columnar storage in a scenario file. */
+    static final String COLUMNAR_STORAGE = "columnar";
+
+    /** The name of cohort storage in a scenario file. */
+    static final String COHORT_STORAGE = "cohort";
+
+    /** The name of event storage in a scenario file. */
+    static final String EVENT_STORAGE = "events";
+
+    /** The name of age ring storage in a scenario file. */
+    static final String AGE_RING_STORAGE = "ring";
+
+    /** The random number streams to populate the pools with. */
+    private final RandomStreams streams;
+
+    /** The ecosystem being built. */
+    private final Ecosystem ecosystem;
+
+    /** The pools added so far, by name. */
+    private final Map<String, Pool> poolsByName;
+
+    /** The name of the simulation. */
+    private String name;
+
+    /** Whether the file has declared any streams. */
+    private boolean streamsDeclared;
+
+    /** The number of populations added so far. */
+    private int populationIndex;
+
+    /**
+     * Creates a builder of an empty scenario.
+     *
+     * @param streams
+     *         the random number streams to populate the pools with
+     */
+    ScenarioBuilder(RandomStreams streams) {
+
+        this.streams = streams;
+        ecosystem = new Ecosystem();
+        poolsByName = new HashMap<>();
+        name = "";
+    }
+
+    /**
+     * Sets the name of the simulation.
+     *
+     * @param name
+     *         the name of the simulation
+     */
+    void setName(String name) {
+
+        this.name = name;
+    }
+
+    /**
+     * Sets whether the creatures crowded out of a pool are split across all of its streams.
+     *
+     * @param splittingOverflow
+     *         true to split the overflow of each pool across its streams; false to send it all
+     *         down one stream
+     */
+    void setSplittingOverflow(boolean splittingOverflow) {
+
+        ecosystem.setSplittingOverflow(splittingOverflow);
+    }
+
+    /**
+     * Changes the storage of the given pool.
+     *
+     * @param pool
+     *         the pool to change
+     * @param kind
+     *         the name of the kind of storage
+     *
+     * @throws IllegalArgumentException
+     *         if the kind of storage is not known
+     */
+    void setStorage(Pool pool, String kind) {
+
+        switch (kind) {
+            case LIST_STORAGE:
+                pool.setStorage(new ListCreatureStorage());
+                break;
+            case COLUMNAR_STORAGE:
+                pool.setStorage(new ColumnarCreatureStorage());
+                break;
+            case COHORT_STORAGE:
+                pool.setStorage(new CohortCreatureStorage());
+                break;
+            case EVENT_STORAGE:
+                pool.setStorage(new EventCreatureStorage());
+                break;
+            case AGE_RING_STORAGE:
+                pool.setStorage(new AgeRingCreatureStorage());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown storage '" + kind + "'");
+        }
+    }
+
+    /**
+     * Populates the given pool with creatures drawn at random, as {@link Pool#populate} does.
+     *
+     * @param pool
+     *         the pool to populate
+     * @param count
+     *         the number of creatures to create
+     * @param genus
+     *         the genus of the creatures
+     * @param species
+     *         the species of the creatures
+     * @param minAge
+     *         the minimum age of the creatures
+     * @param maxAge
+     *         the maximum age of the creatures
+     * @param femaleChance
+     *         the chance that each creature is female
+     * @param minHealth
+     *         the minimum health coefficient of the creatures
+     * @param maxHealth
+     *         the maximum health coefficient of the creatures
+     *
+     * @throws IllegalArgumentException
+     *         if the count is negative or the age range is empty
+     */
+    void addPopulation(Pool pool, int count, String genus, String species, int minAge,
+                       int maxAge, double femaleChance, double minHealth, double maxHealth) {
+
+        if (count < 0) {
+            throw new IllegalArgumentException("The number of creatures is negative");
+        }
+        if (maxAge < minAge) {
+            throw new IllegalArgumentException("The maximum age is less than the minimum age");
+        }
+        pool.populate(count, genus, species, minAge, maxAge, femaleChance, minHealth, maxHealth,
+                      streams.stream(RandomStreams.Phase.POPULATE, 0, populationIndex++));
+    }
+
+    /**
+     * Adds a living guppy to the given pool.
+     *
+     * @param pool
+     *         the pool to add to
+     * @param age
+     *         the age of the guppy in weeks
+     * @param health
+     *         the health coefficient of the guppy
+     * @param isFemale
+     *         whether the guppy is female
+     * @param generation
+     *         the generation number of the guppy
+     *
+     * @throws IllegalArgumentException
+     *         if the age is negative
+     */
+    void addCreature(Pool pool, int age, double health, boolean isFemale, int generation) {
+
+        if (age < 0) {
+            throw new IllegalArgumentException("The age of the creature is negative");
+        }
+        pool.addCreature(new Guppy(age, health, isFemale, generation));
+    }
+
+    /**
+     * Adds a cohort of identical living guppies to the given pool.
+     * <p>
+     * A pool with cohort storage counts the guppies without creating them; any other pool gets
+     * one guppy for each.
+     *
+     * @param pool
+     *         the pool to add to
+     * @param count
+     *         the number of guppies
+     * @param age
+     *         the age of the guppies in weeks
+     * @param health
+     *         the health coefficient of the guppies
+     * @param isFemale
+     *         whether the guppies are female
+     * @param generation
+     *         the generation number of the guppies
+     *
+     * @throws IllegalArgumentException
+     *         if the count or age is negative or the count is too large for the storage
+     */
+    void addCohort(Pool pool, long count, int age, double health, boolean isFemale,
+                   int generation) {
+
+        if (count < 0) {
+            throw new IllegalArgumentException("The number of creatures is negative");
+        }
+        if (age < 0) {
+            throw new IllegalArgumentException("The age of the creatures is negative");
+        }
+        CreatureStorage storage = pool.getStorage();
+        if (storage instanceof CohortCreatureStorage) {
+            ((CohortCreatureStorage) storage).addCohort(count, age, isFemale, health, generation);
+            return;
+        }
+        if (storage.size() + count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The cohort is too large for '"
+                    + pool.getName() + "'; use cohort storage");
+        }
+        for (long i = 0; i < count; i++) {
+            pool.addCreature(new Guppy(age, health, isFemale, generation));
+        }
+    }
+
+    /**
+     * Adds the given complete pool to the ecosystem.
+     *
+     * @param pool
+     *         the pool to add
+     * @param poolName
+     *         the name of the pool as written in the file, which streams refer to it by
+     *
+     * @throws IllegalArgumentException
+     *         if another pool has the same name
+     */
+    void addPool(Pool pool, String poolName) {
+
+        if (poolsByName.putIfAbsent(poolName, pool) != null) {
+            throw new IllegalArgumentException("There is already a pool named '" + poolName
+                    + "'");
+        }
+        ecosystem.addPool(pool, false);
+    }
+
+    /**
+     * Adds a stream between the named pools.
+     *
+     * @param streamName
+     *         the name of the stream, or null for the default
+     * @param source
+     *         the name of the pool the stream flows from
+     * @param destination
+     *         the name of the pool the stream flows to
+     * @param temperature
+     *         the temperature of the stream, or NaN for that of its source
+     * @param pH
+     *         the pH of the stream, or NaN for that of its source
+     * @param flowWeight
+     *         the flow weight of the stream, or NaN for the default
+     * @param capacityLitres
+     *         the volume of creatures the stream can carry each week in Litres, or NaN for the
+     *         default
+     * @param transitWeeks
+     *         the number of weeks creatures spend crossing the stream
+     *
+     * @throws IllegalArgumentException
+     *         if either pool has not been added, the flow weight is negative or infinite, the
+     *         capacity is negative or the transit time is negative
+     */
+    void addStream(String streamName, String source, String destination, double temperature,
+                   double pH, double flowWeight, double capacityLitres, int transitWeeks) {
+
+        if (flowWeight < 0.0 || Double.isInfinite(flowWeight)) {
+            throw new IllegalArgumentException("The weight of a stream must be a non-negative "
+                    + "number");
+        }
+        if (capacityLitres < 0.0) {
+            throw new IllegalArgumentException("The capacity of a stream must not be negative");
+        }
+        if (transitWeeks < 0) {
+            throw new IllegalArgumentException("The transit time of a stream must not be "
+                    + "negative");
+        }
+
+        Stream stream = streamName == null ? new Stream(pool(source), pool(destination))
+                                           : new Stream(streamName, pool(source),
+                                                        pool(destination));
+        if (!Double.isNaN(temperature)) {
+            stream.setTemperature(temperature);
+        }
+        if (!Double.isNaN(pH)) {
+            stream.setpH(pH);
+        }
+        if (!Double.isNaN(flowWeight)) {
+            stream.setFlowWeight(flowWeight);
+        }
+        if (!Double.isNaN(capacityLitres)) {
+            stream.setCapacityLitres(capacityLitres);
+        }
+        stream.setTransitWeeks(transitWeeks);
+        ecosystem.addStream(stream);
+        streamsDeclared = true;
+    }
+
+    /**
+     * Returns the scenario built.
+     *
+     * @return the scenario built
+     */
+    Scenario build() {
+
+        if (!streamsDeclared) {
+            for (int i = 1; i < ecosystem.getPools().size(); i++) {
+                ecosystem.addStream(new Stream(ecosystem.getPools().get(i - 1),
+                                               ecosystem.getPools().get(i)));
+            }
+        }
+        return new Scenario(name, ecosystem);
+    }
+
+    /**
+     * Returns the pool with the given name.
+     *
+     * @param poolName
+     *         the name of the pool
+     *
+     * @return the pool with the given name
+     *
+     * @throws IllegalArgumentException
+     *         if no pool with the name has been added
+     */
+    private Pool pool(String poolName) {
+
+        Pool pool = poolsByName.get(poolName);
+        if (pool == null) {
+            throw new IllegalArgumentException("There is no pool named '" + poolName
+                    + "' before this stream");
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.paulszefer.sim;
+
+import java.io.IOException;
+
+/**
+ * Signals that a scenario file is not valid, giving the line at which the problem was found.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class ScenarioFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The number of the line at which the problem was found, starting from 1. */
+    private final int lineNumber;
+
+    /**
+     * Creates an exception for a problem at the given line.
+     *
+     * @param lineNumber
+     *         the number of the line at which the problem was found, starting from 1
+     * @param message
+     *         the description of the problem
+     */
+    public ScenarioFormatException(int lineNumber, String message) {
+
+        super("Line " + lineNumber + ": " + message);
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Returns the number of the line at which the problem was found, starting from 1.
+     *
+     * @return the number of the line at which the problem was found
+     */
+    public int getLineNumber() {
+
+        return lineNumber;
+    }
+}
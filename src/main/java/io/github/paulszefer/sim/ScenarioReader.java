@@ -0,0 +1,496 @@
+package io.github.paulszefer.sim;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads scenarios in the text format, one field per line.
+ * <p>
+ * The first line is the name of the simulation. Each pool follows as thirteen lines: its name,
+ * volume in litres, temperature in degrees Celsius, pH and nutrient coefficient, then the number,
+ * genus and species of the creatures to populate it with, their minimum and maximum ages, the
+ * chance that each is female and their minimum and maximum health coefficients. Blank lines
+ * between pools are ignored.
+ * <p>
+ * The input is read a block of bytes at a time and numbers are parsed directly from the bytes of
+ * each line, so large scenarios load in time proportional to their size. Problems are reported
+ * as {@link ScenarioFormatException}s giving the line at which they were found.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class ScenarioReader {
+
+    /** The size of the blocks read from the input. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The largest mantissa that a double holds exactly. */
+    private static final long MAXIMUM_EXACT_MANTISSA = 1L << 53;
+
+    /** The powers of ten that a double holds exactly. */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+            1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** The input to read from. */
+    private final InputStream input;
+
+    /** The bytes read from the input. */
+    private final byte[] buffer;
+
+    /** The index of the next unread byte in the buffer. */
+    private int position;
+
+    /** The number of bytes in the buffer. */
+    private int limit;
+
+    /** The bytes of the current line, excluding its terminator. */
+    private byte[] line;
+
+    /** The number of bytes in the current line. */
+    private int lineLength;
+
+    /** The number of the current line, starting from 1. */
+    private int lineNumber;
+
+    /**
+     * Creates a reader of the given input.
+     *
+     * @param input
+     *         the input to read from
+     */
+    private ScenarioReader(InputStream input) {
+
+        this.input = input;
+        buffer = new byte[BUFFER_SIZE];
+        line = new byte[128];
+    }
+
+    /**
+     * Reads the scenario in the given file.
+     *
+     * @param file
+     *         the file to read
+     * @param streams
+     *         the random number streams to populate the pools with
+     *
+     * @return the scenario read
+     *
+     * @throws ScenarioFormatException
+     *         if the file is not a valid scenario
+     * @throws IOException
+     *         if the file cannot be read
+     */
+    public static Scenario read(Path file, RandomStreams streams) throws IOException {
+
+        try (InputStream input = Files.newInputStream(file)) {
+            return read(input, streams);
+        }
+    }
+
+    /**
+     * Reads a scenario from the given input. The input is not closed.
+     *
+     * @param input
+     *         the input to read from
+     * @param streams
+     *         the random number streams to populate the pools with
+     *
+     * @return the scenario read
+     *
+     * @throws ScenarioFormatException
+     *         if the input is not a valid scenario
+     * @throws IOException
+     *         if the input cannot be read
+     */
+    public static Scenario read(InputStream input, RandomStreams streams) throws IOException {
+
+        return new ScenarioReader(input).readScenario(streams);
+    }
+
+    /**
+     * Reads the scenario.
+     *
+     * @param streams
+     *         the random number streams to populate the pools with
+     *
+     * @return the scenario read
+     *
+     * @throws IOException
+     *         if the input cannot be read or is not a valid scenario
+     */
+    private Scenario readScenario(RandomStreams streams) throws IOException {
+
+        String name = readString("the name of the simulation", null);
+        Ecosystem ecosystem = new Ecosystem();
+        int poolIndex = 0;
+        while (nextNonBlankLine()) {
+            String poolName = decodeLine();
+            Pool pool = new Pool(poolName, readDouble("the volume", poolName),
+                                 readDouble("the temperature", poolName),
+                                 readDouble("the pH", poolName),
+                                 readDouble("the nutrient coefficient", poolName));
+
+            int count = readInt("the number of creatures", poolName);
+            if (count < 0) {
+                throw new ScenarioFormatException(lineNumber, describe("the number of creatures",
+                                                                       poolName) + " is negative");
+            }
+            String genus = readString("the genus", poolName);
+            String species = readString("the species", poolName);
+            int minAge = readInt("the minimum age", poolName);
+            int maxAge = readInt("the maximum age", poolName);
+            if (maxAge < minAge) {
+                throw new ScenarioFormatException(lineNumber, describe("the maximum age", poolName)
+                        + " is less than its minimum age");
+            }
+            double femaleChance = readDouble("the chance of being female", poolName);
+            double minHealth = readDouble("the minimum health coefficient", poolName);
+            double maxHealth = readDouble("the maximum health coefficient", poolName);
+
+            pool.populate(count, genus, species, minAge, maxAge, femaleChance, minHealth,
+                          maxHealth, streams.stream(RandomStreams.Phase.POPULATE, 0, poolIndex++));
+            ecosystem.addPool(pool);
+        }
+        return new Scenario(name, ecosystem);
+    }
+
+    /**
+     * Reads the next line as a string.
+     *
+     * @param field
+     *         the description of the field on the line
+     * @param pool
+     *         the name of the pool the field belongs to, or null if it belongs to none
+     *
+     * @return the line
+     *
+     * @throws IOException
+     *         if the input cannot be read or has no more lines
+     */
+    private String readString(String field, String pool) throws IOException {
+
+        requireLine(field, pool);
+        return decodeLine();
+    }
+
+    /**
+     * Reads the next line as an int.
+     *
+     * @param field
+     *         the description of the field on the line
+     * @param pool
+     *         the name of the pool the field belongs to, or null if it belongs to none
+     *
+     * @return the int on the line
+     *
+     * @throws IOException
+     *         if the input cannot be read, has no more lines or the line is not an int
+     */
+    private int readInt(String field, String pool) throws IOException {
+
+        requireLine(field, pool);
+        int start = trimStart();
+        int end = trimEnd(start);
+        int index = start;
+        boolean negative = false;
+        if (index < end && (line[index] == '-' || line[index] == '+')) {
+            negative = line[index] == '-';
+            index++;
+        }
+        if (index == end) {
+            throw notA("an integer", field, pool, start, end);
+        }
+
+        long value = 0;
+        for (; index < end; index++) {
+            int digit = line[index] - '0';
+            if (digit < 0 || digit > 9) {
+                throw notA("an integer", field, pool, start, end);
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw notA("an integer", field, pool, start, end);
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw notA("an integer", field, pool, start, end);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads the next line as a double.
+     * <p>
+     * Plain decimal numbers whose digits fit exactly in a double are converted directly; any
+     * other number is converted by {@link Double#parseDouble(String)}. Both give the nearest
+     * double to the number.
+     *
+     * @param field
+     *         the description of the field on the line
+     * @param pool
+     *         the name of the pool the field belongs to, or null if it belongs to none
+     *
+     * @return the double on the line
+     *
+     * @throws IOException
+     *         if the input cannot be read, has no more lines or the line is not a number
+     */
+    private double readDouble(String field, String pool) throws IOException {
+
+        requireLine(field, pool);
+        int start = trimStart();
+        int end = trimEnd(start);
+        int index = start;
+        boolean negative = false;
+        if (index < end && (line[index] == '-' || line[index] == '+')) {
+            negative = line[index] == '-';
+            index++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean exact = true;
+        for (; index < end && isDigit(line[index]); index++, digits++) {
+            mantissa = mantissa * 10 + (line[index] - '0');
+            exact &= mantissa < MAXIMUM_EXACT_MANTISSA;
+        }
+        if (index < end && line[index] == '.') {
+            for (index++; index < end && isDigit(line[index]); index++, digits++) {
+                mantissa = mantissa * 10 + (line[index] - '0');
+                exact &= mantissa < MAXIMUM_EXACT_MANTISSA;
+                exponent--;
+            }
+        }
+        if (digits > 0 && index < end && (line[index] == 'e' || line[index] == 'E')) {
+            int exponentStart = ++index;
+            boolean negativeExponent = false;
+            if (index < end && (line[index] == '-' || line[index] == '+')) {
+                negativeExponent = line[index] == '-';
+                index++;
+            }
+            int written = 0;
+            for (; index < end && isDigit(line[index]) && written < 1000; index++) {
+                written = written * 10 + (line[index] - '0');
+            }
+            exact &= index > exponentStart;
+            exponent += negativeExponent ? -written : written;
+        }
+
+        if (digits > 0 && index == end && exact
+                && exponent >= -POWERS_OF_TEN.length + 1 && exponent < POWERS_OF_TEN.length) {
+            double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent]
+                                        : mantissa * POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(new String(line, start, end - start,
+                                                 StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            throw notA("a number", field, pool, start, end);
+        }
+    }
+
+    /**
+     * Moves to the next line, which must exist.
+     *
+     * @param field
+     *         the description of the field expected on the line
+     * @param pool
+     *         the name of the pool the field belongs to, or null if it belongs to none
+     *
+     * @throws IOException
+     *         if the input cannot be read or has no more lines
+     */
+    private void requireLine(String field, String pool) throws IOException {
+
+        if (!nextLine()) {
+            throw new ScenarioFormatException(lineNumber + 1, "expected " + describe(field, pool)
+                    + " but the file ended");
+        }
+    }
+
+    /**
+     * Moves to the next line that is not blank.
+     *
+     * @return true if there is such a line; false if the input ended first
+     *
+     * @throws IOException
+     *         if the input cannot be read
+     */
+    private boolean nextNonBlankLine() throws IOException {
+
+        while (nextLine()) {
+            if (trimStart() < lineLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the next line, copying its bytes into the line buffer.
+     *
+     * @return true if there is a next line; false if the input has ended
+     *
+     * @throws IOException
+     *         if the input cannot be read
+     */
+    private boolean nextLine() throws IOException {
+
+        lineLength = 0;
+        boolean read = false;
+        while (true) {
+            if (position == limit) {
+                limit = input.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    break;
+                }
+            }
+            read = true;
+            int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            append(start, position);
+            if (position < limit) {
+                position++;
+                break;
+            }
+        }
+        if (!read) {
+            return false;
+        }
+        if (lineLength > 0 && line[lineLength - 1] == '\r') {
+            lineLength--;
+        }
+        lineNumber++;
+        return true;
+    }
+
+    /**
+     * Appends the given range of the input buffer to the current line.
+     *
+     * @param start
+     *         the index of the first byte to append
+     * @param end
+     *         the index after the last byte to append
+     */
+    private void append(int start, int end) {
+
+        int length = end - start;
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(lineLength + length, line.length * 2));
+        }
+        System.arraycopy(buffer, start, line, lineLength, length);
+        lineLength += length;
+    }
+
+    /**
+     * Returns the current line as a string.
+     *
+     * @return the current line
+     */
+    private String decodeLine() {
+
+        return new String(line, 0, lineLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the index of the first character of the current line that is not whitespace.
+     *
+     * @return the index of the first character that is not whitespace
+     */
+    private int trimStart() {
+
+        int start = 0;
+        while (start < lineLength && line[start] <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * Returns the index after the last character of the current line that is not whitespace.
+     *
+     * @param start
+     *         the index of the first character that is not whitespace
+     *
+     * @return the index after the last character that is not whitespace
+     */
+    private int trimEnd(int start) {
+
+        int end = lineLength;
+        while (end > start && line[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Returns whether the given byte is a decimal digit.
+     *
+     * @param character
+     *         the byte to check
+     *
+     * @return true if the byte is a decimal digit; false otherwise
+     */
+    private static boolean isDigit(byte character) {
+
+        return character >= '0' && character <= '9';
+    }
+
+    /**
+     * Creates an exception for a field of the current line that does not hold the expected kind
+     * of value.
+     *
+     * @param kind
+     *         the kind of value expected
+     * @param field
+     *         the description of the field on the line
+     * @param pool
+     *         the name of the pool the field belongs to, or null if it belongs to none
+     * @param start
+     *         the index of the first character of the value
+     * @param end
+     *         the index after the last character of the value
+     *
+     * @return the exception
+     */
+    private ScenarioFormatException notA(String kind, String field, String pool, int start,
+                                         int end) {
+
+        return new ScenarioFormatException(lineNumber, "expected " + describe(field, pool)
+                + " to be " + kind
+                + " but found '" + new String(line, start, end - start, StandardCharsets.UTF_8)
+                + "'");
+    }
+
+    /**
+     * Describes the given field of the given pool for an error message.
+     * <p>
+     * Descriptions are only built once a problem is found, so reading a valid scenario creates no
+     * messages.
+     *
+     * @param field
+     *         the description of the field
+     * @param pool
+     *         the name of the pool the field belongs to, or null if it belongs to none
+     *
+     * @return the description of the field and its pool
+     */
+    private static String describe(String field, String pool) {
+
+        return pool == null ? field : field + " of pool '" + pool + "'";
+    }
+}
@@ -1,19 +1,16 @@
 package io.github.paulszefer.sim;
 
-import io.github.paulszefer.gui.SimulationApplication;
-import javax.swing.JFileChooser;
-import javax.swing.JFrame;
-import javax.swing.filechooser.FileNameExtensionFilter;
-
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
 
 /**
  * Drives a simulation of an ecosystem of pools containing guppies.
+ * <p>
+ * The simulation does not depend on any user interface; the results of each week and changes to
+ * the current week are published to the registered {@link SimulationListener}s.
  *
  * @author Paul Szefer
  * @version 1.0
@@ -23,17 +20,63 @@ public class Simulation {
     /** The current simulation state identifier. */
     private int week;
 
+    /** The name of the simulation. */
+    private String name;
+
+    /** The week of the simulation that the first stored state belongs to. */
+    private int firstWeek;
+
     /** The storage of ecosystem states. */
-    private ArrayList<Ecosystem> history;
+    private History history;
+
+    /** The engine used to simulate each week. */
+    private final SimulationEngine engine;
+
+    /** The random number streams of the simulation. */
+    private final RandomStreams streams;
+
+    /** The coordinator of the workers that simulate each week, or null to simulate it here. */
+    private DistributedCoordinator coordinator;
+
+    /** The week whose state the workers of the coordinator hold, or -1 if none. */
+    private int distributedWeek;
 
-    /** Sets up the simulation. */
+    /** Sets up the simulation with a seed chosen at random. */
     public Simulation() {
 
+        this(new RandomStreams());
+    }
+
+    /**
+     * Sets up the simulation with the given seed.
+     * <p>
+     * Two simulations with the same seed that load the same file produce identical weeks.
+     *
+     * @param seed
+     *         the seed of the simulation
+     */
+    public Simulation(long seed) {
+
+        this(new RandomStreams(seed));
+    }
+
+    /**
+     * Sets up the simulation with the given streams.
+     *
+     * @param streams
+     *         the random number streams of the simulation
+     */
+    private Simulation(RandomStreams streams) {
+
         // initialize current identifier
         week = -1;
 
         // initialize history storage
-        history = new ArrayList<>();
+        history = new FullHistory();
+
+        this.streams = streams;
+        engine = new SimulationEngine(streams);
+        distributedWeek = -1;
     }
 
     /**
@@ -47,74 +90,344 @@ public class Simulation {
     }
 
     /**
-     * Loads the simulation data from a file.
+     * Returns the random number streams of the simulation.
      *
-     * @return true if the file was loaded successfully; false otherwise
+     * @return the random number streams of the simulation
      */
-    public boolean loadFile() {
+    public RandomStreams getRandomStreams() {
 
-        // TODO - parse file differently based on file type
-        // Scanner should work for text file, but maybe not for xml and json
-        // Option: DataFile extends File, has a method called nextField()
-        // that returns the next field based on the file type/structure
+        return streams;
+    }
 
-        JFileChooser fileChooser = new JFileChooser();
-        FileNameExtensionFilter filter = new FileNameExtensionFilter("File type", "xml", "json",
-                                                                     "txt");
-        Scanner data;
-        fileChooser.addChoosableFileFilter(filter);
-        if (fileChooser.showOpenDialog(new JFrame()) == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
+    /**
+     * Returns the storage of ecosystem states.
+     * <p>
+     * The weeks simulated on the workers of a coordinator are only in the storage once they have
+     * been gathered by {@link #collectWeeks()}.
+     *
+     * @return the storage of ecosystem states
+     */
+    public History getHistory() {
+
+        return history;
+    }
+
+    /**
+     * Sets the storage of ecosystem states.
+     * <p>
+     * The weeks already simulated are moved into the given storage. Setting the storage already
+     * in use changes nothing.
+     *
+     * @param history
+     *         the storage of ecosystem states
+     */
+    public void setHistory(History history) {
+
+        if (history == this.history) {
+            return;
+        }
+        gatherWeeks();
+        history.clear();
+        for (int i = 0; i < this.history.size(); i++) {
+            history.add(this.history.getCopy(i));
+        }
+        this.history = history;
+        alignHistory();
+    }
+
+    /**
+     * Returns the engine used to simulate each week.
+     *
+     * @return the engine used to simulate each week
+     */
+    public SimulationEngine getEngine() {
+
+        return engine;
+    }
+
+    /**
+     * Returns the coordinator of the workers that simulate each week.
+     *
+     * @return the coordinator, or null if the weeks are simulated in this process
+     */
+    public DistributedCoordinator getCoordinator() {
+
+        return coordinator;
+    }
+
+    /**
+     * Sets the coordinator of the workers that simulate each week.
+     * <p>
+     * New weeks are then stepped by the workers, which keep the ecosystem between weeks. The
+     * listeners are given the results of each week but not the ecosystem, and the weeks are
+     * gathered into the history only when they are needed, such as when stepping back or saving,
+     * or when {@link #collectWeeks()} is called. The weeks of the current coordinator are gathered
+     * before it is replaced. The coordinator must already have its workers; it is not closed by
+     * the simulation. A {@link ReplayHistory} then re-simulates weeks with one partition for each
+     * worker, as the workers simulate them.
+     *
+     * @param coordinator
+     *         the coordinator, or null to simulate the weeks in this process
+     */
+    public void setCoordinator(DistributedCoordinator coordinator) {
+
+        gatherWeeks();
+        this.coordinator = coordinator;
+        distributedWeek = -1;
+        alignHistory();
+    }
+
+    /**
+     * Gathers the weeks simulated on the workers of the coordinator that are not yet in the
+     * history, up to the current week.
+     * <p>
+     * The workers hold only the current week, so when earlier weeks are missing they are given
+     * the last week in the history and simulate the missing weeks again, which are gathered one
+     * by one. As in a {@link ReplayHistory}, the creatures born in those weeks are given new
+     * identification numbers. The workers hold the current week afterwards.
+     *
+     * @throws IOException
+     *         if a worker cannot be reached or fails
+     */
+    public void collectWeeks() throws IOException {
+
+        int next = history.size();
+        if (coordinator == null || week < next) {
+            return;
+        }
+        if (next < week || distributedWeek != week) {
+            coordinator.load(history.get(next - 1), streams.getSeed());
+            distributedWeek = -1;
+            for (int current = next; current < week; current++) {
+                coordinator.step(firstWeek + current);
+                history.add(coordinator.collect());
+            }
+            coordinator.step(firstWeek + week);
+        }
+        history.add(coordinator.collect());
+        distributedWeek = week;
+    }
+
+    /**
+     * Registers the given listener.
+     *
+     * @param listener
+     *         the listener to add
+     */
+    public void addListener(SimulationListener listener) {
+
+        engine.addListener(listener);
+    }
+
+    /**
+     * Unregisters the given listener.
+     *
+     * @param listener
+     *         the listener to remove
+     */
+    public void removeListener(SimulationListener listener) {
+
+        engine.removeListener(listener);
+    }
+
+    /**
+     * Loads the simulation data from the given file.
+     * <p>
+     * The file is either a snapshot saved by {@link #saveFile(File)} or a scenario: in the JSON
+     * format if its name ends in .json, the XML format if it ends in .xml and the text format
+     * otherwise.
+     *
+     * @param file
+     *         the file to load
+     *
+     * @return true if the file was loaded successfully; false otherwise
+     */
+    public boolean loadFile(File file) {
+
+        if (EcosystemSnapshot.isSnapshot(file.toPath())) {
             try {
-                data = new Scanner(file);
-            } catch (FileNotFoundException e) {
-                System.out.println("File not found");
+                load(EcosystemSnapshot.load(file.toPath()));
+            } catch (IOException e) {
+                System.out.println("Invalid snapshot: " + e.getMessage());
                 return false;
             }
-        } else {
-            System.out.println("No file selected");
-            return false;
+            return true;
         }
 
         try {
-            SimulationApplication.getStage().setTitle(data.nextLine());
-        } catch (NullPointerException e) {
-            System.out.println("Invalid data file");
+            load(readScenario(file.toPath()));
+        } catch (ScenarioFormatException e) {
+            System.out.println("Invalid file: " + e.getMessage());
+            return false;
+        } catch (IOException e) {
+            System.out.println("File not found");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads the scenario in the given file, in the format given by its extension.
+     *
+     * @param file
+     *         the file to read
+     *
+     * @return the scenario read
+     *
+     * @throws IOException
+     *         if the file cannot be read or is not a valid scenario
+     */
+    private Scenario readScenario(Path file) throws IOException {
+
+        String fileName = file.getFileName().toString().toLowerCase();
+        if (fileName.endsWith(".json")) {
+            return JsonScenarioReader.read(file, streams);
+        }
+        if (fileName.endsWith(".xml")) {
+            return XmlScenarioReader.read(file, streams);
+        }
+        return ScenarioReader.read(file, streams);
+    }
+
+    /**
+     * Starts a new simulation from the given scenario.
+     *
+     * @param scenario
+     *         the scenario to start from
+     */
+    public void load(Scenario scenario) {
+
+        load(scenario.getName(), scenario.getEcosystem());
+    }
+
+    /**
+     * Saves the current week of the simulation to the given file as a snapshot.
+     *
+     * @param file
+     *         the file to save to
+     *
+     * @return true if the file was saved successfully; false otherwise
+     */
+    public boolean saveFile(File file) {
+
+        if (week == -1) {
+            System.out.println("Please load a simulation first.");
             return false;
-        } catch (NoSuchElementException e) {
-            System.out.println("Invalid file type");
+        }
+        try {
+            collectWeeks();
+            createSnapshot().save(file.toPath());
+        } catch (IOException e) {
+            System.out.println("The file could not be saved: " + e.getMessage());
             return false;
         }
-        Ecosystem ecosystem = new Ecosystem();
-        Pool pool;
-        while (data.hasNext()) {
-            pool = new Pool(data.nextLine(), Double.valueOf(data.nextLine()),
-                            Double.valueOf(data.nextLine()), Double.valueOf(data.nextLine()),
-                            Double.valueOf(data.nextLine()));
-            pool.populate(Integer.valueOf(data.nextLine()), data.nextLine(), data.nextLine(),
-                          Integer.valueOf(data.nextLine()), Integer.valueOf(data.nextLine()),
-                          Double.valueOf(data.nextLine()), Double.valueOf(data.nextLine()),
-                          Double.valueOf(data.nextLine()));
-            ecosystem.addPool(pool);
+        return true;
+    }
+
+    /**
+     * Returns a snapshot of the current week of the simulation.
+     *
+     * @return a snapshot of the current week
+     *
+     * @throws IllegalStateException
+     *         if no simulation has been loaded
+     * @throws UncheckedIOException
+     *         if the current week cannot be gathered from the workers of the coordinator
+     */
+    public EcosystemSnapshot createSnapshot() {
+
+        if (week == -1) {
+            throw new IllegalStateException("No simulation has been loaded");
+        }
+        try {
+            collectWeeks();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Week " + week + " could not be gathered", e);
         }
+        return new EcosystemSnapshot(name, firstWeek + week, streams.getSeed(),
+                                     history.get(week));
+    }
+
+    /**
+     * Continues a simulation from the given snapshot.
+     * <p>
+     * The weeks that follow are simulated with the random streams of this simulation, so they
+     * continue the saved simulation exactly when this simulation has the seed of the snapshot.
+     *
+     * @param snapshot
+     *         the snapshot to continue from
+     */
+    public void load(EcosystemSnapshot snapshot) {
+
+        load(snapshot.getName(), snapshot.getEcosystem());
+        firstWeek = snapshot.getWeek();
+        alignHistory();
+    }
+
+    /**
+     * Starts a new simulation from the given ecosystem.
+     *
+     * @param name
+     *         the name of the simulation
+     * @param ecosystem
+     *         the initial state of the ecosystem
+     */
+    public void load(String name, Ecosystem ecosystem) {
 
         // update the simulation history
+        this.name = name;
         week = 0;
-        history = new ArrayList<>();
+        firstWeek = 0;
+        distributedWeek = -1;
+        alignHistory();
+        history.clear();
         history.add(ecosystem.copy());
 
-        // update the animation
-        SimulationApplication.getGui().getAnimationPane().updateState(ecosystem);
+        for (SimulationListener listener : engine.getListeners()) {
+            listener.simulationLoaded(name, ecosystem);
+        }
+    }
 
-        return true;
+    /**
+     * Opens a completed run from the given storage of ecosystem states, such as a reopened
+     * {@link MappedHistory}.
+     * <p>
+     * Unlike {@link #setHistory(History)}, the states already in the storage are kept; the
+     * simulation starts at its first week and simulates new weeks after its last.
+     *
+     * @param name
+     *         the name of the simulation
+     * @param history
+     *         the storage of ecosystem states of the run
+     *
+     * @throws IllegalArgumentException
+     *         if the storage is empty
+     */
+    public void loadHistory(String name, History history) {
+
+        if (history.size() == 0) {
+            throw new IllegalArgumentException("The history has no weeks");
+        }
+        this.name = name;
+        this.history = history;
+        week = 0;
+        firstWeek = 0;
+        distributedWeek = -1;
+        alignHistory();
+
+        for (SimulationListener listener : engine.getListeners()) {
+            listener.simulationLoaded(name, history.get(0));
+        }
     }
 
     /** Returns the simulation to its state one week prior. */
     public void previousWeek() {
 
+        gatherWeeks();
         if (week > 0) {
             week--;
-            SimulationApplication.getGui().getAnimationPane().updateState(history.get(week));
+            fireWeekChanged();
         } else {
             System.out.println("There are no previous weeks.");
             // TODO - grey out back button if there are no previous weeks
@@ -131,7 +444,7 @@ public class Simulation {
             System.out.println("Please load a simulation first.");
         } else if (week + 1 < history.size()) {
             week++;
-            SimulationApplication.getGui().getAnimationPane().updateState(history.get(week));
+            fireWeekChanged();
         } else {
             simulateOneWeek();
         }
@@ -156,20 +469,8 @@ public class Simulation {
     }
 
     /**
-     * Simulates a week passing in the ecosystem and prints out the results of the week.
-     * <p>
-     * The statistics that will be printed are:
-     * </p>
-     * <ul>
-     * <li>Deaths to old age</li>
-     * <li>Deaths to starvation</li>
-     * <li>Crowded out</li>
-     * <li>Number of births</li>
-     * <li>Population of pool 1</li>
-     * <li>Population of pool 2</li>
-     * <li>Population of pool 3</li>
-     * <li>Population of the ecosystem</li>
-     * </ul>
+     * Simulates a week passing in the ecosystem and reports the results of the week to the
+     * listeners.
      */
     public void simulateOneWeek() {
 
@@ -178,47 +479,91 @@ public class Simulation {
             return;
         }
 
-        Ecosystem ecosystem = history.get(week).copy();
-
-        int diedOfOldAge = 0;
-        int starvedToDeath = 0;
-        int newFry = 0;
-        int crowdedOut = 0;
-        int numberRemoved = 0;
-        List<Pool> pools = ecosystem.getPools();
-
-        for (Pool pool : pools) {
-            diedOfOldAge += pool.incrementAges();
-            numberRemoved += pool.removeDeadCreatures();
-            starvedToDeath += pool.applyNutrientCoefficient();
-            numberRemoved += pool.removeDeadCreatures();
-            newFry += pool.spawn();
-            numberRemoved += pool.removeDeadCreatures();
-        }
-
-        crowdedOut += ecosystem.adjustForCrowding();
-        numberRemoved += crowdedOut;
-        for (Pool pool : pools) {
-            pool.removeDeadCreatures();
-        }
-
-        if (diedOfOldAge + starvedToDeath + crowdedOut == numberRemoved) {
-            System.out.println("Simulating Week " + (week + 1));
-            System.out.println("----------------------");
-            System.out.println("Deaths to old age: " + diedOfOldAge);
-            System.out.println("Deaths to starvation: " + starvedToDeath);
-            System.out.println("Crowded out: " + crowdedOut);
-            System.out.println("Number of births: " + newFry);
-            for (int i = 0; i < pools.size(); i++) {
-                System.out.println(
-                        "Pool " + (i + 1) + " population: " + pools.get(i).getPopulation());
-            }
-            System.out.println("Ecosystem population: " + ecosystem.getCreaturePopulation());
-            System.out.println();
+        alignHistory();
+        if (coordinator != null) {
+            simulateDistributedWeek();
+            return;
         }
 
+        // the last week is handed over by the history when it no longer needs it, saving a copy
+        Ecosystem ecosystem = week == history.size() - 1 ? history.takeLatest()
+                                                         : history.getCopy(week);
+
+        engine.step(ecosystem, firstWeek + week + 1);
+
         week++;
         history.add(ecosystem);
-        SimulationApplication.getGui().getAnimationPane().updateState(history.get(week));
+        fireWeekChanged();
+    }
+
+    /**
+     * Simulates a week passing on the workers of the coordinator, first giving them the current
+     * week if they do not already hold it, and reports the results to the listeners.
+     * <p>
+     * The workers keep the new week; it is not gathered into the history.
+     */
+    private void simulateDistributedWeek() {
+
+        WeekReport report;
+        try {
+            if (distributedWeek != week) {
+                if (week < history.size()) {
+                    coordinator.load(history.get(week), streams.getSeed());
+                } else {
+                    // the workers lost a week that was never gathered, so it is simulated again
+                    collectWeeks();
+                }
+            }
+            // until the step completes, the workers hold no known week
+            distributedWeek = -1;
+            report = coordinator.step(firstWeek + week + 1);
+        } catch (IOException e) {
+            System.out.println("The week could not be simulated: " + e.getMessage());
+            return;
+        }
+
+        week++;
+        distributedWeek = week;
+        for (SimulationListener listener : engine.getListeners()) {
+            listener.weekSimulated(report, null);
+        }
+    }
+
+    /**
+     * Gathers the weeks simulated on the workers of the coordinator that are not yet in the
+     * history, or drops them if they cannot be gathered.
+     */
+    private void gatherWeeks() {
+
+        try {
+            collectWeeks();
+        } catch (IOException e) {
+            System.out.println("The weeks could not be gathered: " + e.getMessage());
+            week = history.size() - 1;
+            distributedWeek = -1;
+        }
+    }
+
+    /**
+     * Tells a history that re-simulates weeks which simulation week its first state is and how
+     * many partitions the weeks are simulated with.
+     */
+    private void alignHistory() {
+
+        if (history instanceof ReplayHistory) {
+            ReplayHistory replayHistory = (ReplayHistory) history;
+            replayHistory.setFirstWeek(firstWeek);
+            replayHistory.setPartitions(coordinator != null ? coordinator.getWorkerCount()
+                                                            : engine.getPartitions());
+        }
+    }
+
+    /** Notifies the listeners that the current week has changed. */
+    private void fireWeekChanged() {
+
+        List<SimulationListener> listeners = engine.getListeners();
+        for (SimulationListener listener : listeners) {
+            listener.weekChanged(week, history.get(week));
+        }
     }
 }
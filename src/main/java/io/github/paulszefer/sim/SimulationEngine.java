@@ -0,0 +1,349 @@
+package io.github.paulszefer.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Steps an ecosystem forward one week at a time without any user interface.
+ * <p>
+ * The results of each week are reported to the registered listeners. Every random draw comes from
+ * the engine's {@link RandomStreams}, so stepping the same ecosystem through the same week always
+ * gives the same result.
+ * <p>
+ * The pools can be stepped in parallel on a ForkJoinPool. Each pool's ageing, deaths and births
+ * touch only that pool, so they run concurrently; crowding moves creatures between pools and runs
+ * afterwards on the calling thread, in the order of the ecosystem's {@link Topology}. A parallel
+ * step therefore gives the same result as a serial one.
+ * <p>
+ * Crowding can also be spread over the ForkJoinPool by splitting the pools into partitions, each
+ * adjusted by its own worker. Creatures crossing from one partition to another then arrive at
+ * the end of the week rather than being adjusted again within it, so the result depends on the
+ * number of partitions as well as the seed, but not on the number of threads.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class SimulationEngine {
+
+    /** The subscribers to the results of each week. */
+    private final List<SimulationListener> listeners;
+
+    /** The random number streams of the simulation. */
+    private final RandomStreams streams;
+
+    /** The pool of threads that steps the pools, or null to step them on the calling thread. */
+    private ForkJoinPool forkJoinPool;
+
+    /** The number of partitions crowding is split into, or 0 to adjust the pools in one pass. */
+    private int partitions;
+
+    /** Sets up the engine with no listeners and streams from a seed chosen at random. */
+    public SimulationEngine() {
+
+        this(new RandomStreams());
+    }
+
+    /**
+     * Sets up the engine with no listeners and the given streams.
+     *
+     * @param streams
+     *         the random number streams of the simulation
+     */
+    public SimulationEngine(RandomStreams streams) {
+
+        listeners = new ArrayList<>();
+        this.streams = streams;
+    }
+
+    /**
+     * Returns the random number streams of the simulation.
+     *
+     * @return the random number streams of the simulation
+     */
+    public RandomStreams getRandomStreams() {
+
+        return streams;
+    }
+
+    /**
+     * Returns the pool of threads that steps the pools.
+     *
+     * @return the pool of threads that steps the pools, or null if they are stepped serially
+     */
+    public ForkJoinPool getForkJoinPool() {
+
+        return forkJoinPool;
+    }
+
+    /**
+     * Sets the pool of threads that steps the pools.
+     *
+     * @param forkJoinPool
+     *         the pool of threads that steps the pools, or null to step them on the calling thread
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Returns the number of partitions that crowding is split into.
+     *
+     * @return the number of partitions, or 0 if the pools are adjusted in one pass
+     */
+    public int getPartitions() {
+
+        return partitions;
+    }
+
+    /**
+     * Sets the number of partitions that crowding is split into, each adjusted by its own worker
+     * on the ForkJoinPool.
+     * <p>
+     * The pools are split into partitions of consecutive pools in the order of the ecosystem's
+     * {@link Topology} by {@link Partitioning#balanced(Topology, int)}.
+     *
+     * @param partitions
+     *         the number of partitions, or 0 to adjust the pools in one pass on the calling thread
+     *
+     * @throws IllegalArgumentException
+     *         if the number of partitions is negative
+     */
+    public void setPartitions(int partitions) {
+
+        if (partitions < 0) {
+            throw new IllegalArgumentException("The number of partitions is negative");
+        }
+        this.partitions = partitions;
+    }
+
+    /**
+     * Registers the given listener.
+     *
+     * @param listener
+     *         the listener to add
+     */
+    public void addListener(SimulationListener listener) {
+
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Unregisters the given listener.
+     *
+     * @param listener
+     *         the listener to remove
+     */
+    public void removeListener(SimulationListener listener) {
+
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the registered listeners.
+     *
+     * @return the registered listeners
+     */
+    public List<SimulationListener> getListeners() {
+
+        return listeners;
+    }
+
+    /**
+     * Simulates a week passing in the given ecosystem, modifying it in place.
+     *
+     * @param ecosystem
+     *         the ecosystem to step
+     * @param week
+     *         the number of the week being simulated
+     *
+     * @return the results of the week
+     */
+    public WeekReport step(Ecosystem ecosystem, int week) {
+
+        long diedOfOldAge = 0;
+        long starvedToDeath = 0;
+        long newFry = 0;
+        long crowdedOut;
+        long numberRemoved = 0;
+        List<Pool> pools = ecosystem.getPools();
+
+        for (PoolStep poolStep : stepPools(pools, week)) {
+            diedOfOldAge += poolStep.diedOfOldAge;
+            starvedToDeath += poolStep.starvedToDeath;
+            newFry += poolStep.newFry;
+            numberRemoved += poolStep.numberRemoved;
+        }
+        long diedInTransit = ecosystem.ageCreaturesInTransit(null, 0);
+        diedOfOldAge += diedInTransit;
+        numberRemoved += diedInTransit;
+
+        if (partitions == 0 || pools.isEmpty()) {
+            crowdedOut = ecosystem.adjustForCrowding(streams, week);
+        } else {
+            Topology topology = ecosystem.getTopology();
+            crowdedOut = ecosystem.adjustForCrowding(streams, week,
+                                                     Partitioning.balanced(topology, partitions),
+                                                     forkJoinPool);
+        }
+        numberRemoved += crowdedOut;
+        for (Pool pool : pools) {
+            pool.removeDeadCreatures();
+        }
+
+        long[] poolPopulations = new long[pools.size()];
+        for (int i = 0; i < pools.size(); i++) {
+            poolPopulations[i] = pools.get(i).getPopulationCount();
+        }
+
+        WeekReport report = new WeekReport(week, diedOfOldAge, starvedToDeath, crowdedOut, newFry,
+                                           numberRemoved, poolPopulations,
+                                           ecosystem.getCreaturePopulationCount());
+        for (SimulationListener listener : listeners) {
+            listener.weekSimulated(report, ecosystem);
+        }
+
+        return report;
+    }
+
+    /**
+     * Steps each of the given pools through the given week, in parallel if a ForkJoinPool is set.
+     *
+     * @param pools
+     *         the pools to step
+     * @param week
+     *         the number of the week being simulated
+     *
+     * @return the results of each pool, in the order of the pools
+     */
+    private List<PoolStep> stepPools(List<Pool> pools, int week) {
+
+        List<PoolStep> poolSteps = new ArrayList<>(pools.size());
+
+        if (forkJoinPool == null) {
+            for (int i = 0; i < pools.size(); i++) {
+                poolSteps.add(stepPool(pools.get(i), week, i));
+            }
+            return poolSteps;
+        }
+
+        List<Callable<PoolStep>> tasks = new ArrayList<>(pools.size());
+        for (int i = 0; i < pools.size(); i++) {
+            Pool pool = pools.get(i);
+            int index = i;
+            tasks.add(() -> stepPool(pool, week, index));
+        }
+        try {
+            for (Future<PoolStep> result : forkJoinPool.invokeAll(tasks)) {
+                poolSteps.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while stepping the pools", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A pool could not be stepped", e.getCause());
+        }
+        return poolSteps;
+    }
+
+    /**
+     * Steps the pools owned by the given partition through the given week, as {@link #step} does
+     * before crowding, for a worker that holds only part of an ecosystem.
+     *
+     * @param pools
+     *         the pools of the ecosystem
+     * @param week
+     *         the number of the week being simulated
+     * @param partitioning
+     *         the partition that owns each pool
+     * @param partition
+     *         the partition whose pools are stepped
+     *
+     * @return the numbers of creatures that died of old age, starved to death, were born and were
+     *         removed, in that order
+     */
+    long[] stepPartition(List<Pool> pools, int week, Partitioning partitioning, int partition) {
+
+        long[] totals = new long[4];
+        for (int i = 0; i < pools.size(); i++) {
+            if (partitioning.getOwner(i) == partition) {
+                PoolStep poolStep = stepPool(pools.get(i), week, i);
+                totals[0] += poolStep.diedOfOldAge;
+                totals[1] += poolStep.starvedToDeath;
+                totals[2] += poolStep.newFry;
+                totals[3] += poolStep.numberRemoved;
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Ages the creatures of the given pool and applies their deaths and births for the week.
+     * <p>
+     * Only the given pool is modified, so pools can be stepped concurrently.
+     *
+     * @param pool
+     *         the pool to step
+     * @param week
+     *         the number of the week being simulated
+     * @param index
+     *         the index of the pool in the ecosystem
+     *
+     * @return the results of the pool
+     */
+    private PoolStep stepPool(Pool pool, int week, int index) {
+
+        // the storage is stepped directly so that counts beyond the range of an int are kept
+        CreatureStorage storage = pool.getStorage();
+        PoolStep poolStep = new PoolStep();
+        poolStep.diedOfOldAge = storage.incrementAges();
+        poolStep.numberRemoved += storage.removeDead();
+        Random nutrition = streams.stream(RandomStreams.Phase.NUTRITION, week, index);
+        poolStep.starvedToDeath = storage.applyNutrientCoefficient(pool.getNutrientCoefficient(),
+                                                                   nutrition);
+        poolStep.numberRemoved += storage.removeDead();
+        poolStep.newFry = storage.spawn(streams.stream(RandomStreams.Phase.SPAWN, week, index));
+        poolStep.numberRemoved += storage.removeDead();
+        return poolStep;
+    }
+
+    /**
+     * Simulates the given number of weeks in the given ecosystem, modifying it in place.
+     *
+     * @param ecosystem
+     *         the ecosystem to step
+     * @param firstWeek
+     *         the number of the first week to simulate
+     * @param numberOfWeeks
+     *         the number of weeks to simulate
+     */
+    public void run(Ecosystem ecosystem, int firstWeek, int numberOfWeeks) {
+
+        for (int i = 0; i < numberOfWeeks; i++) {
+            step(ecosystem, firstWeek + i);
+        }
+    }
+
+    /** Holds the results of stepping a single pool. */
+    private static final class PoolStep {
+
+        /** The number of creatures that died of old age. */
+        private long diedOfOldAge;
+
+        /** The number of creatures that starved to death. */
+        private long starvedToDeath;
+
+        /** The number of creatures that were born. */
+        private long newFry;
+
+        /** The number of dead creatures removed from the pool. */
+        private long numberRemoved;
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Receives notifications about the progress of a simulation.
+ * <p>
+ * Listeners are optional subscribers; the simulation runs the same whether or not any are
+ * registered.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public interface SimulationListener {
+
+    /**
+     * Called after a week has been simulated.
+     *
+     * @param report
+     *         the results of the week
+     * @param ecosystem
+     *         the state of the ecosystem at the end of the week, or null if the week was
+     *         simulated on the workers of a {@link DistributedCoordinator}, which keep it
+     */
+    void weekSimulated(WeekReport report, Ecosystem ecosystem);
+
+    /**
+     * Called after a new simulation has been loaded.
+     *
+     * @param name
+     *         the name of the simulation
+     * @param ecosystem
+     *         the initial state of the ecosystem
+     */
+    default void simulationLoaded(String name, Ecosystem ecosystem) {
+
+    }
+
+    /**
+     * Called when the displayed week of the simulation changes.
+     *
+     * @param week
+     *         the current week
+     * @param ecosystem
+     *         the state of the ecosystem in that week
+     */
+    default void weekChanged(int week, Ecosystem ecosystem) {
+
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.paulszefer.sim;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Adapts a SplittableRandom to the Random interface used throughout the simulation.
+ * <p>
+ * Unlike Random, the generator holds no atomic state, so it is cheap to use from the single
+ * thread that owns it. It is not safe to share between threads; create one per thread instead.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class SplittableRandomAdapter extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The generator that produces the numbers. */
+    private final SplittableRandom source;
+
+    /**
+     * Creates a generator from the given seed.
+     *
+     * @param seed
+     *         the seed of the generator
+     */
+    SplittableRandomAdapter(long seed) {
+
+        super(0);
+        source = new SplittableRandom(seed);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The seed is fixed when the generator is created, so this is only allowed while the
+     * generator is being constructed.
+     */
+    @Override
+    public void setSeed(long seed) {
+
+        if (source != null) {
+            throw new UnsupportedOperationException("The seed is fixed at construction");
+        }
+    }
+
+    @Override
+    protected int next(int bits) {
+
+        return source.nextInt() >>> (Integer.SIZE - bits);
+    }
+
+    @Override
+    public int nextInt() {
+
+        return source.nextInt();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+
+        return source.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+
+        return source.nextLong();
+    }
+
+    @Override
+    public double nextDouble() {
+
+        return source.nextDouble();
+    }
+
+    @Override
+    public boolean nextBoolean() {
+
+        return source.nextBoolean();
+    }
+}
@@ -1,22 +1,34 @@
 package io.github.paulszefer.sim;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A stream provides a connection between pools.
  * <p>
  * Creatures that leave the original pool travel through the stream to the destination pool.
  * <p>
- * A stream is not a container; creatures flow quickly through the stream to their destination.
+ * By default a stream is not a container; creatures flow quickly through the stream to their
+ * destination in the week they leave. A stream may instead take several weeks to cross, holding
+ * the creatures in transit in a queue of weekly batches, and may carry only so much volume of
+ * creatures each week. The creatures in transit age with those in the pools, and those that
+ * reach their maximum age die on the way.
  *
  * @author Paul Szefer
  * @version 1.0
  */
 public class Stream extends WaterBody {
 
-    /** Random number generator. */
-    private static final Random GENERATOR = new Random();
+    /** The default share of the overflow of its source that a stream carries. */
+    public static final double DEFAULT_FLOW_WEIGHT = 1.0;
+
+    /** The default volume of creatures a stream can carry each week, in Litres: unlimited. */
+    public static final double DEFAULT_CAPACITY_LITRES = Double.POSITIVE_INFINITY;
+
+    /** The default number of weeks creatures spend crossing a stream. */
+    public static final int DEFAULT_TRANSIT_WEEKS = 0;
 
     /** The source pool. */
     private Pool source;
@@ -24,6 +36,21 @@ public class Stream extends WaterBody {
     /** The destination pool. */
     private Pool destination;
 
+    /** The share of the overflow of its source that the stream carries, relative to the others. */
+    private double flowWeight = DEFAULT_FLOW_WEIGHT;
+
+    /** The volume of creatures the stream can carry each week, in Litres. */
+    private double capacityLitres = DEFAULT_CAPACITY_LITRES;
+
+    /** The number of weeks creatures spend crossing the stream. */
+    private int transitWeeks = DEFAULT_TRANSIT_WEEKS;
+
+    /** The creatures crossing the stream, or null if none can be. */
+    private TransitQueue transit;
+
+    /** The ecosystem whose index of outgoing streams holds the stream, or null if none does. */
+    private Ecosystem ecosystem;
+
     /**
      * A stream that flows from its source pool to its destination pool.
      * <p>
@@ -86,6 +113,8 @@ public class Stream extends WaterBody {
 
     /**
      * Sets the source pool.
+     * <p>
+     * The ecosystem holding the stream routes creatures through it from its new source.
      *
      * @param source
      *         the source pool
@@ -95,10 +124,15 @@ public class Stream extends WaterBody {
         this.source = source;
         setpH(source.getpH());
         setTemperature(source.getTemperature());
+        if (ecosystem != null) {
+            ecosystem.streamChanged();
+        }
     }
 
     /**
      * Sets the destination pool.
+     * <p>
+     * The ecosystem holding the stream orders its pools by the new destination.
      *
      * @param destination
      *         the destination pool
@@ -106,6 +140,211 @@ public class Stream extends WaterBody {
     public void setDestination(Pool destination) {
 
         this.destination = destination;
+        if (ecosystem != null) {
+            ecosystem.streamChanged();
+        }
+    }
+
+    /**
+     * Returns the flow weight.
+     *
+     * @return the share of the overflow of the source pool that this stream carries, relative to
+     *         the other streams flowing out of it
+     */
+    public double getFlowWeight() {
+
+        return flowWeight;
+    }
+
+    /**
+     * Sets the flow weight.
+     * <p>
+     * Creatures crowded out of the source pool take each of its streams in proportion to their
+     * flow weights; a stream with no weight carries none of them. The ecosystem holding the
+     * stream draws by the new weight from then on.
+     *
+     * @param flowWeight
+     *         the share of the overflow of the source pool that this stream carries, relative to
+     *         the other streams flowing out of it; the default is used if it is negative or not
+     *         finite
+     */
+    public void setFlowWeight(double flowWeight) {
+
+        double newFlowWeight = DEFAULT_FLOW_WEIGHT;
+
+        if (flowWeight >= 0.0 && flowWeight < Double.POSITIVE_INFINITY) {
+            newFlowWeight = flowWeight;
+        }
+
+        this.flowWeight = newFlowWeight;
+        if (ecosystem != null) {
+            ecosystem.routesChanged();
+        }
+    }
+
+    /**
+     * Returns the capacity.
+     *
+     * @return the volume of creatures the stream can carry each week, in Litres
+     */
+    public double getCapacityLitres() {
+
+        return capacityLitres;
+    }
+
+    /**
+     * Sets the capacity.
+     * <p>
+     * The creatures sent through the stream that do not fit in its capacity are the weakest of
+     * them, chosen as they are when crowded out of a pool; they are stranded in the source pool
+     * and die.
+     *
+     * @param capacityLitres
+     *         the volume of creatures the stream can carry each week, in Litres; the default,
+     *         which is unlimited, is used if it is negative or undefined
+     */
+    public void setCapacityLitres(double capacityLitres) {
+
+        double newCapacityLitres = DEFAULT_CAPACITY_LITRES;
+
+        if (capacityLitres >= 0.0) {
+            newCapacityLitres = capacityLitres;
+        }
+
+        this.capacityLitres = newCapacityLitres;
+    }
+
+    /**
+     * Returns the transit time.
+     *
+     * @return the number of weeks creatures spend crossing the stream
+     */
+    public int getTransitWeeks() {
+
+        return transitWeeks;
+    }
+
+    /**
+     * Sets the transit time.
+     * <p>
+     * Creatures that leave the source pool in a week reach the destination pool once the given
+     * number of weeks have passed; with no transit time they arrive in the same week. Creatures
+     * already in transit keep their arrival week, or arrive in the last week of the new transit
+     * time if that is sooner.
+     *
+     * @param transitWeeks
+     *         the number of weeks creatures spend crossing the stream; the default is used if it
+     *         is negative
+     */
+    public void setTransitWeeks(int transitWeeks) {
+
+        int newTransitWeeks = DEFAULT_TRANSIT_WEEKS;
+
+        if (transitWeeks >= 0) {
+            newTransitWeeks = transitWeeks;
+        }
+
+        this.transitWeeks = newTransitWeeks;
+        if (transit != null && transit.size() > 0) {
+            transit = transit.copy(Math.max(newTransitWeeks, 1));
+        } else {
+            transit = newTransitWeeks > 0 ? new TransitQueue(newTransitWeeks) : null;
+        }
+    }
+
+    /**
+     * Returns the number of creatures crossing the stream.
+     *
+     * @return the number of creatures in transit
+     */
+    public long getCreaturesInTransit() {
+
+        return transit == null ? 0 : transit.size();
+    }
+
+    /**
+     * Returns the creatures crossing the stream that arrive after the given number of weeks and
+     * one more.
+     *
+     * @param week
+     *         the number of weeks before the creatures arrive, less one
+     *
+     * @return the creatures arriving in that week, as a read-only list; empty if there are none
+     */
+    public List<Creature> getCreaturesInTransit(int week) {
+
+        if (transit == null || week < 0 || week >= transit.getWeeks()) {
+            return Collections.emptyList();
+        }
+        CreatureStorage batch = transit.get(week);
+        return batch == null ? Collections.<Creature>emptyList() : batch.viewCreatures();
+    }
+
+    /**
+     * Sets the ecosystem whose index of outgoing streams holds this stream, which is told when
+     * the stream changes in a way that affects the routes and order of its pools.
+     *
+     * @param ecosystem
+     *         the ecosystem holding the stream
+     */
+    void setEcosystem(Ecosystem ecosystem) {
+
+        this.ecosystem = ecosystem;
+    }
+
+    /**
+     * Returns the queue of the creatures crossing the stream.
+     *
+     * @return the queue of the creatures in transit, or null if none can be
+     */
+    TransitQueue getTransit() {
+
+        return transit;
+    }
+
+    /**
+     * Replaces the queue of the creatures crossing the stream, which must take the transit time
+     * of the stream, or a week if the stream has none.
+     *
+     * @param transit
+     *         the queue of the creatures in transit
+     */
+    void setTransit(TransitQueue transit) {
+
+        if (transit != null && transit.getWeeks() == Math.max(transitWeeks, 1)) {
+            this.transit = transit;
+        }
+    }
+
+    /**
+     * Ages the creatures crossing the stream by a week and removes those that die of old age.
+     *
+     * @return the number of creatures in transit that died of old age
+     */
+    long ageTransit() {
+
+        return transit == null ? 0 : transit.incrementAges();
+    }
+
+    /**
+     * Advances the creatures crossing the stream by a week and returns those that reach the
+     * destination pool.
+     * <p>
+     * The creatures returned have already survived transport and are not yet in the destination
+     * pool.
+     *
+     * @return the storage of the creatures arriving, or null if none arrive
+     */
+    CreatureStorage arrive() {
+
+        if (transit == null) {
+            return null;
+        }
+        CreatureStorage arriving = transit.advance();
+        if (transitWeeks == 0 && transit.size() == 0) {
+            transit = null;
+        }
+        return arriving;
     }
 
     /**
@@ -121,11 +360,12 @@ public class Stream extends WaterBody {
      */
     public int transportCreatures(List<Creature> creatures) {
 
+        Random generator = ThreadLocalRandom.current();
         int countDied = 0;
 
         for (Creature creature : creatures) {
             creature.getHealth().setAlive(
-                    GENERATOR.nextDouble() < creature.getHealth().getCoefficient());
+                    generator.nextDouble() < creature.getHealth().getCoefficient());
             countDied += !creature.getHealth().isAlive() ? 1 : 0;
         }
         destination.addCreatures(creatures);
@@ -133,6 +373,91 @@ public class Stream extends WaterBody {
         return countDied;
     }
 
+    /**
+     * Transports the creatures of the given storage through this stream to the destination pool.
+     * <p>
+     * Creatures die in transport if a randomly generated double is greater than their health
+     * coefficient. Only the survivors reach the destination pool; they are decided and appended to
+     * its storage in a single pass, without being turned into individual objects when both
+     * storages are of the same kind.
+     * <p>
+     * Creatures that do not fit in the capacity of the stream are stranded in the source pool and
+     * die. If the stream takes time to cross, the survivors join the batch of this week in the
+     * queue of creatures in transit and reach the destination pool when it arrives.
+     *
+     * @param creatures
+     *         the storage of the creatures to transport
+     * @param generator
+     *         the random number generator to use
+     *
+     * @return the number of creatures that die in transport
+     */
+    public long transport(CreatureStorage creatures, Random generator) {
+
+        long countDied = strand(creatures);
+        if (transitWeeks > 0) {
+            countDied += creatures.applyTransportMortality(generator);
+            creatures.removeDead();
+            transit.enter(creatures);
+            return countDied;
+        }
+
+        return countDied + creatures.transportSurvivors(destination.getStorage(), generator);
+    }
+
+    /**
+     * Transports the creatures of the given storage through this stream, posting them to the
+     * given mailbox to be delivered to the destination pool at the end of the phase.
+     * <p>
+     * Creatures die in transport exactly as they do in {@link #transport(CreatureStorage,
+     * Random)} and only the survivors are posted. Their arrival is deferred, since the
+     * destination belongs to another worker. If the stream takes time to cross, the survivors
+     * are queued in the stream instead, to be posted when they arrive.
+     *
+     * @param creatures
+     *         the storage of the creatures to transport
+     * @param generator
+     *         the random number generator to use
+     * @param mailbox
+     *         the mailbox of the partition that owns the destination pool
+     * @param sender
+     *         the partition that owns the source pool
+     *
+     * @return the number of creatures that die in transport
+     */
+    long transport(CreatureStorage creatures, Random generator, Mailbox mailbox, int sender) {
+
+        long countDied = strand(creatures) + creatures.applyTransportMortality(generator);
+        creatures.removeDead();
+        if (transitWeeks > 0) {
+            transit.enter(creatures);
+        } else {
+            mailbox.post(sender, destination, creatures);
+        }
+
+        return countDied;
+    }
+
+    /**
+     * Kills the weakest of the given creatures until those left fit in the capacity of this
+     * stream and returns the dead to the source pool.
+     *
+     * @param creatures
+     *         the storage of the creatures to transport
+     *
+     * @return the number of creatures that do not fit in the stream
+     */
+    private long strand(CreatureStorage creatures) {
+
+        if (capacityLitres == Double.POSITIVE_INFINITY) {
+            return 0;
+        }
+        CreatureStorage stranded = creatures.extractWeakest(capacityLitres);
+        long countDied = stranded.killAll();
+        source.getStorage().absorb(stranded);
+        return countDied;
+    }
+
     /**
      * Creates and returns a copy of this stream.
      *
@@ -140,9 +465,30 @@ public class Stream extends WaterBody {
      */
     public Stream copy() {
 
-        Stream streamCopy = new Stream(getName(), source, destination);
+        return copy(source, destination);
+    }
+
+    /**
+     * Creates and returns a copy of this stream that connects the given pools.
+     *
+     * @param sourceCopy
+     *         the source pool of the copy
+     * @param destinationCopy
+     *         the destination pool of the copy
+     *
+     * @return a cloned copy of this stream between the given pools
+     */
+    public Stream copy(Pool sourceCopy, Pool destinationCopy) {
+
+        Stream streamCopy = new Stream(getName(), sourceCopy, destinationCopy);
         streamCopy.setTemperature(getTemperature());
         streamCopy.setpH(getpH());
+        streamCopy.setFlowWeight(flowWeight);
+        streamCopy.setCapacityLitres(capacityLitres);
+        streamCopy.setTransitWeeks(transitWeeks);
+        if (transit != null) {
+            streamCopy.transit = transit.copy(transit.getWeeks());
+        }
         return streamCopy;
     }
 
@@ -164,6 +510,15 @@ public class Stream extends WaterBody {
         if (Double.compare(stream.getTemperature(), getTemperature()) != 0) {
             return false;
         }
+        if (Double.compare(stream.flowWeight, flowWeight) != 0) {
+            return false;
+        }
+        if (Double.compare(stream.capacityLitres, capacityLitres) != 0) {
+            return false;
+        }
+        if (stream.transitWeeks != transitWeeks) {
+            return false;
+        }
         if (!source.equals(stream.source)) {
             return false;
         }
@@ -184,6 +539,11 @@ public class Stream extends WaterBody {
         result = hashValue1 * result + (int) (temp ^ (temp >>> hashValue2));
         temp = Double.doubleToLongBits(getTemperature());
         result = hashValue1 * result + (int) (temp ^ (temp >>> hashValue2));
+        temp = Double.doubleToLongBits(flowWeight);
+        result = hashValue1 * result + (int) (temp ^ (temp >>> hashValue2));
+        temp = Double.doubleToLongBits(capacityLitres);
+        result = hashValue1 * result + (int) (temp ^ (temp >>> hashValue2));
+        result = hashValue1 * result + transitWeeks;
         return result;
     }
 }
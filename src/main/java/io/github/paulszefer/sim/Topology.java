@@ -0,0 +1,315 @@
+package io.github.paulszefer.sim;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The order in which the pools of an ecosystem are adjusted for crowding, computed from the
+ * directed graph of its pools and streams.
+ * <p>
+ * Pools are ordered so that every pool comes after the pools with streams flowing into it, which
+ * lets overflow travel any number of streams in a single pass: a pool is adjusted only once all
+ * of the creatures that can reach it that week have arrived. Ordering the pools takes time
+ * linear in the number of pools and streams.
+ * <p>
+ * Pools that are connected in a cycle cannot all come after one another. The pools of each
+ * cycle, or more precisely of each strongly connected component, are placed together in the
+ * order they appear in the ecosystem, and each is adjusted once; creatures carried back into a
+ * pool of the cycle that has already been adjusted stay there until the following week.
+ * <p>
+ * Streams whose source or destination is not one of the pools do not affect the order.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class Topology {
+
+    /** The pools the order was computed for. */
+    private final List<Pool> pools;
+
+    /** The streams the order was computed for. */
+    private final List<Stream> streams;
+
+    /** The index of each pool in the ecosystem. */
+    private final Map<Pool, Integer> indices;
+
+    /** The number of pools the order was computed for. */
+    private final int poolCount;
+
+    /** The number of streams the order was computed for. */
+    private final int streamCount;
+
+    /** The indices of the pools in the order they are adjusted. */
+    private final int[] order;
+
+    /** The component of each pool, numbered in the order the components are adjusted. */
+    private final int[] components;
+
+    /** The number of pools in each component. */
+    private final int[] componentSizes;
+
+    /** Whether any stream flows from a pool back into its own component. */
+    private final boolean cyclic;
+
+    /**
+     * Computes the order of the given pools connected by the given streams.
+     *
+     * @param pools
+     *         the pools of the ecosystem
+     * @param streams
+     *         the streams of the ecosystem
+     */
+    public Topology(List<Pool> pools, List<Stream> streams) {
+
+        this.pools = pools;
+        this.streams = streams;
+        poolCount = pools.size();
+        streamCount = streams.size();
+
+        indices = new IdentityHashMap<>(poolCount);
+        for (int i = 0; i < poolCount; i++) {
+            indices.putIfAbsent(pools.get(i), i);
+        }
+
+        // the destinations of the streams out of pool i are targets[starts[i]..starts[i + 1])
+        int[] sources = new int[streamCount];
+        int[] destinations = new int[streamCount];
+        int[] starts = new int[poolCount + 1];
+        for (int i = 0; i < streamCount; i++) {
+            Stream stream = streams.get(i);
+            Integer source = indices.get(stream.getSource());
+            Integer destination = indices.get(stream.getDestination());
+            sources[i] = source == null || destination == null ? -1 : source;
+            destinations[i] = destination == null ? -1 : destination;
+            if (sources[i] >= 0) {
+                starts[sources[i] + 1]++;
+            }
+        }
+        for (int i = 0; i < poolCount; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] targets = new int[starts[poolCount]];
+        int[] filled = new int[poolCount];
+        for (int i = 0; i < streamCount; i++) {
+            if (sources[i] >= 0) {
+                targets[starts[sources[i]] + filled[sources[i]]++] = destinations[i];
+            }
+        }
+
+        int[] reverseComponents = new int[poolCount];
+        int componentCount = findComponents(starts, targets, reverseComponents);
+
+        // the components are found in reverse topological order
+        components = new int[poolCount];
+        componentSizes = new int[componentCount];
+        for (int i = 0; i < poolCount; i++) {
+            components[i] = componentCount - 1 - reverseComponents[i];
+            componentSizes[components[i]]++;
+        }
+
+        int[] componentStarts = new int[componentCount];
+        for (int i = 1; i < componentCount; i++) {
+            componentStarts[i] = componentStarts[i - 1] + componentSizes[i - 1];
+        }
+        order = new int[poolCount];
+        for (int i = 0; i < poolCount; i++) {
+            order[componentStarts[components[i]]++] = i;
+        }
+
+        boolean feedsBack = false;
+        for (int i = 0; i < poolCount && !feedsBack; i++) {
+            for (int j = starts[i]; j < starts[i + 1]; j++) {
+                feedsBack |= components[targets[j]] == components[i];
+            }
+        }
+        cyclic = feedsBack;
+    }
+
+    /**
+     * Finds the strongly connected components of the graph with Tarjan's algorithm, without
+     * recursion so that long chains of pools do not overflow the stack.
+     *
+     * @param starts
+     *         the start of the streams out of each pool in the targets, followed by their end
+     * @param targets
+     *         the destinations of the streams out of each pool
+     * @param found
+     *         the component of each pool, numbered in reverse topological order
+     *
+     * @return the number of components
+     */
+    private static int findComponents(int[] starts, int[] targets, int[] found) {
+
+        int count = found.length;
+        int[] visited = new int[count];
+        int[] lowest = new int[count];
+        boolean[] onStack = new boolean[count];
+        int[] stack = new int[count];
+        int stackSize = 0;
+        int[] path = new int[count];
+        int[] nextTarget = new int[count];
+        int visitCount = 0;
+        int componentCount = 0;
+
+        for (int root = 0; root < count; root++) {
+            if (visited[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            path[0] = root;
+            visited[root] = lowest[root] = ++visitCount;
+            nextTarget[root] = starts[root];
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int pool = path[depth];
+                if (nextTarget[pool] < starts[pool + 1]) {
+                    int target = targets[nextTarget[pool]++];
+                    if (visited[target] == 0) {
+                        visited[target] = lowest[target] = ++visitCount;
+                        nextTarget[target] = starts[target];
+                        stack[stackSize++] = target;
+                        onStack[target] = true;
+                        path[++depth] = target;
+                    } else if (onStack[target]) {
+                        lowest[pool] = Math.min(lowest[pool], visited[target]);
+                    }
+                    continue;
+                }
+
+                if (lowest[pool] == visited[pool]) {
+                    int member;
+                    do {
+                        member = stack[--stackSize];
+                        onStack[member] = false;
+                        found[member] = componentCount;
+                    } while (member != pool);
+                    componentCount++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = path[depth];
+                    lowest[parent] = Math.min(lowest[parent], lowest[pool]);
+                }
+            }
+        }
+        return componentCount;
+    }
+
+    /**
+     * Returns whether this order was computed for the given pools and streams as they are now.
+     * <p>
+     * Only changes to the lists that alter their identity or size are detected here, such as
+     * pools or streams added to them directly; the ecosystem discards its order itself whenever
+     * its pools or streams are changed through it.
+     *
+     * @param pools
+     *         the pools of the ecosystem
+     * @param streams
+     *         the streams of the ecosystem
+     *
+     * @return true if the order is up to date; false otherwise
+     */
+    boolean isFor(List<Pool> pools, List<Stream> streams) {
+
+        return this.pools == pools && this.streams == streams && poolCount == pools.size()
+                && streamCount == streams.size();
+    }
+
+    /**
+     * Returns the number of pools.
+     *
+     * @return the number of pools
+     */
+    public int size() {
+
+        return poolCount;
+    }
+
+    /**
+     * Returns the index of the pool adjusted at the given position in the order.
+     *
+     * @param position
+     *         the position in the order
+     *
+     * @return the index of the pool in the ecosystem
+     */
+    public int get(int position) {
+
+        return order[position];
+    }
+
+    /**
+     * Returns the indices of the pools in the order they are adjusted.
+     *
+     * @return the indices of the pools in the ecosystem, in order
+     */
+    public int[] getOrder() {
+
+        return order.clone();
+    }
+
+    /**
+     * Returns the index of the given pool in the ecosystem.
+     *
+     * @param pool
+     *         the pool
+     *
+     * @return the index of the pool, or -1 if it is not one of the pools
+     */
+    int indexOf(Pool pool) {
+
+        Integer index = indices.get(pool);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the component of the pool at the given index, numbered in the order the components
+     * are adjusted.
+     *
+     * @param poolIndex
+     *         the index of the pool in the ecosystem
+     *
+     * @return the component of the pool
+     */
+    public int getComponent(int poolIndex) {
+
+        return components[poolIndex];
+    }
+
+    /**
+     * Returns the number of pools in the given component.
+     *
+     * @param component
+     *         the component
+     *
+     * @return the number of pools in the component
+     */
+    public int getComponentSize(int component) {
+
+        return componentSizes[component];
+    }
+
+    /**
+     * Returns the number of strongly connected components.
+     *
+     * @return the number of components
+     */
+    public int getComponentCount() {
+
+        return componentSizes.length;
+    }
+
+    /**
+     * Returns whether the pools are connected in any cycle, including a stream from a pool to
+     * itself.
+     *
+     * @return true if there is a cycle; false if the order resolves all overflow in one pass
+     */
+    public boolean isCyclic() {
+
+        return cyclic;
+    }
+}
@@ -0,0 +1,164 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Holds the batches of creatures travelling through a stream until the week they arrive.
+ * <p>
+ * The queue is a ring of one slot per week of transit. Creatures entering the stream in the same
+ * week share a batch, so advancing the queue by a week hands over at most one batch and entering
+ * it touches one slot, however many creatures are travelling.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class TransitQueue {
+
+    /** The batch arriving in each week, or null if none; the next to arrive is at the head. */
+    private final CreatureStorage[] batches;
+
+    /** The slot of the batch arriving next. */
+    private int head;
+
+    /**
+     * Creates an empty queue for a stream that takes the given number of weeks to cross.
+     *
+     * @param weeks
+     *         the number of weeks creatures spend in transit, at least one
+     */
+    TransitQueue(int weeks) {
+
+        batches = new CreatureStorage[weeks];
+    }
+
+    /**
+     * Returns the number of weeks creatures spend in transit.
+     *
+     * @return the number of weeks creatures spend in transit
+     */
+    int getWeeks() {
+
+        return batches.length;
+    }
+
+    /**
+     * Adds the given creatures to the batch arriving once the queue has advanced by every week of
+     * transit.
+     * <p>
+     * The given storage must not be used afterwards.
+     *
+     * @param creatures
+     *         the storage of the creatures entering the stream
+     */
+    void enter(CreatureStorage creatures) {
+
+        int slot = (head + batches.length - 1) % batches.length;
+        if (batches[slot] == null) {
+            batches[slot] = creatures;
+        } else {
+            batches[slot].absorb(creatures);
+        }
+    }
+
+    /**
+     * Advances the queue by a week and returns the batch that arrives.
+     *
+     * @return the storage of the creatures arriving, or null if none arrive
+     */
+    CreatureStorage advance() {
+
+        CreatureStorage arriving = batches[head];
+        batches[head] = null;
+        head = (head + 1) % batches.length;
+        return arriving;
+    }
+
+    /**
+     * Ages every creature in the queue by a week and removes those that die of old age.
+     * <p>
+     * Each batch is aged as a whole, so this takes as long as ageing the creatures of a pool in
+     * the same storage.
+     *
+     * @return the number of creatures that died of old age
+     */
+    long incrementAges() {
+
+        long died = 0;
+        for (CreatureStorage batch : batches) {
+            if (batch != null) {
+                died += batch.incrementAges();
+                batch.removeDead();
+            }
+        }
+        return died;
+    }
+
+    /**
+     * Returns the batch that arrives after the queue has advanced by the given number of weeks
+     * and one more.
+     *
+     * @param week
+     *         the number of weeks before the batch arrives, less one
+     *
+     * @return the storage of the creatures in the batch, or null if there are none
+     */
+    CreatureStorage get(int week) {
+
+        return batches[(head + week) % batches.length];
+    }
+
+    /**
+     * Sets the batch that arrives after the queue has advanced by the given number of weeks and
+     * one more.
+     *
+     * @param week
+     *         the number of weeks before the batch arrives, less one
+     * @param creatures
+     *         the storage of the creatures in the batch, or null if there are none
+     */
+    void set(int week, CreatureStorage creatures) {
+
+        batches[(head + week) % batches.length] = creatures;
+    }
+
+    /**
+     * Returns the number of creatures in transit.
+     *
+     * @return the number of creatures in every batch
+     */
+    long size() {
+
+        long size = 0;
+        for (CreatureStorage batch : batches) {
+            if (batch != null) {
+                size += batch.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Creates and returns a copy of this queue taking the given number of weeks, in which each
+     * batch arrives as it would in this queue or, if that is later, in the last week.
+     *
+     * @param weeks
+     *         the number of weeks creatures spend in transit in the copy, at least one
+     *
+     * @return a copy of this queue with copies of its batches
+     */
+    TransitQueue copy(int weeks) {
+
+        TransitQueue queueCopy = new TransitQueue(weeks);
+        for (int week = 0; week < batches.length; week++) {
+            CreatureStorage batch = get(week);
+            if (batch == null) {
+                continue;
+            }
+            int slot = Math.min(week, weeks - 1);
+            if (queueCopy.batches[slot] == null) {
+                queueCopy.batches[slot] = batch.copy();
+            } else {
+                queueCopy.batches[slot].absorb(batch.copy());
+            }
+        }
+        return queueCopy;
+    }
+}
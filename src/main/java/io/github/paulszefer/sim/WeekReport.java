@@ -0,0 +1,158 @@
+package io.github.paulszefer.sim;
+
+/**
+ * Stores the results of simulating a single week in an ecosystem.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class WeekReport {
+
+    /** The week that was simulated. */
+    private final int week;
+
+    /** The number of creatures that died of old age. */
+    private final long diedOfOldAge;
+
+    /** The number of creatures that starved to death. */
+    private final long starvedToDeath;
+
+    /** The number of creatures that died to overcrowding. */
+    private final long crowdedOut;
+
+    /** The number of creatures that were born. */
+    private final long births;
+
+    /** The number of dead creatures removed from the pools. */
+    private final long numberRemoved;
+
+    /** The population of each pool at the end of the week. */
+    private final long[] poolPopulations;
+
+    /** The population of the ecosystem at the end of the week. */
+    private final long ecosystemPopulation;
+
+    /**
+     * Creates the report of a simulated week.
+     *
+     * @param week
+     *         the week that was simulated
+     * @param diedOfOldAge
+     *         the number of creatures that died of old age
+     * @param starvedToDeath
+     *         the number of creatures that starved to death
+     * @param crowdedOut
+     *         the number of creatures that died to overcrowding
+     * @param births
+     *         the number of creatures that were born
+     * @param numberRemoved
+     *         the number of dead creatures removed from the pools
+     * @param poolPopulations
+     *         the population of each pool at the end of the week
+     * @param ecosystemPopulation
+     *         the population of the ecosystem at the end of the week
+     */
+    public WeekReport(int week, long diedOfOldAge, long starvedToDeath, long crowdedOut,
+                      long births, long numberRemoved, long[] poolPopulations,
+                      long ecosystemPopulation) {
+
+        this.week = week;
+        this.diedOfOldAge = diedOfOldAge;
+        this.starvedToDeath = starvedToDeath;
+        this.crowdedOut = crowdedOut;
+        this.births = births;
+        this.numberRemoved = numberRemoved;
+        this.poolPopulations = poolPopulations.clone();
+        this.ecosystemPopulation = ecosystemPopulation;
+    }
+
+    /**
+     * Returns the week that was simulated.
+     *
+     * @return the week that was simulated
+     */
+    public int getWeek() {
+
+        return week;
+    }
+
+    /**
+     * Returns the number of creatures that died of old age.
+     *
+     * @return the number of creatures that died of old age
+     */
+    public long getDiedOfOldAge() {
+
+        return diedOfOldAge;
+    }
+
+    /**
+     * Returns the number of creatures that starved to death.
+     *
+     * @return the number of creatures that starved to death
+     */
+    public long getStarvedToDeath() {
+
+        return starvedToDeath;
+    }
+
+    /**
+     * Returns the number of creatures that died to overcrowding.
+     *
+     * @return the number of creatures that died to overcrowding
+     */
+    public long getCrowdedOut() {
+
+        return crowdedOut;
+    }
+
+    /**
+     * Returns the number of creatures that were born.
+     *
+     * @return the number of creatures that were born
+     */
+    public long getBirths() {
+
+        return births;
+    }
+
+    /**
+     * Returns the number of dead creatures removed from the pools.
+     *
+     * @return the number of dead creatures removed from the pools
+     */
+    public long getNumberRemoved() {
+
+        return numberRemoved;
+    }
+
+    /**
+     * Returns the population of each pool at the end of the week.
+     *
+     * @return the population of each pool at the end of the week
+     */
+    public long[] getPoolPopulations() {
+
+        return poolPopulations.clone();
+    }
+
+    /**
+     * Returns the population of the ecosystem at the end of the week.
+     *
+     * @return the population of the ecosystem at the end of the week
+     */
+    public long getEcosystemPopulation() {
+
+        return ecosystemPopulation;
+    }
+
+    /**
+     * Returns whether every removed creature is accounted for by a cause of death.
+     *
+     * @return true if the causes of death add up to the number removed; false otherwise
+     */
+    public boolean isBalanced() {
+
+        return diedOfOldAge + starvedToDeath + crowdedOut == numberRemoved;
+    }
+}
@@ -0,0 +1,430 @@
+package io.github.paulszefer.sim;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads scenarios in the XML format, streaming the document rather than loading it whole.
+ * <p>
+ * The document holds the same elements as the JSON format, with their values as attributes:
+ * <pre>
+ * &lt;scenario name="EcoSim" splitOverflow="false"&gt;
+ *   &lt;pool name="Skookumchuk" volume="1000.0" temperature="42.0" pH="7.9"
+ *         nutrientCoefficient="0.9" storage="cohort"&gt;
+ *     &lt;population count="100" minAge="10" maxAge="25" femaleChance="0.5"
+ *                 minHealth="0.5" maxHealth="0.8"/&gt;
+ *     &lt;creature age="12" health="0.7" female="true" generation="1"/&gt;
+ *     &lt;cohort count="1000000" age="3" health="0.9" female="false"/&gt;
+ *   &lt;/pool&gt;
+ *   &lt;stream from="Skookumchuk" to="Rutherford" name="Creek" weight="2.0" capacity="50.0"
+ *           transitWeeks="2"/&gt;
+ * &lt;/scenario&gt;
+ * </pre>
+ * As in {@link JsonScenarioReader}, streams refer to pools by name and must follow them, and
+ * without any streams the pools are connected in order. Document type declarations are not
+ * supported.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public final class XmlScenarioReader {
+
+    /** The reader of the document. */
+    private final XMLStreamReader reader;
+
+    /** The builder of the scenario. */
+    private final ScenarioBuilder builder;
+
+    /**
+     * Creates a reader of the given input.
+     *
+     * @param input
+     *         the input to read from
+     * @param streams
+     *         the random number streams to populate the pools with
+     *
+     * @throws XMLStreamException
+     *         if the reader cannot be created
+     */
+    private XmlScenarioReader(InputStream input, RandomStreams streams)
+            throws XMLStreamException {
+
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        reader = factory.createXMLStreamReader(input);
+        builder = new ScenarioBuilder(streams);
+    }
+
+    /**
+     * Reads the scenario in the given file.
+     *
+     * @param file
+     *         the file to read
+     * @param streams
+     *         the random number streams to populate the pools with
+     *
+     * @return the scenario read
+     *
+     * @throws ScenarioFormatException
+     *         if the file is not a valid scenario
+     * @throws IOException
+     *         if the file cannot be read
+     */
+    public static Scenario read(Path file, RandomStreams streams) throws IOException {
+
+        try (InputStream input = Files.newInputStream(file)) {
+            return read(input, streams);
+        }
+    }
+
+    /**
+     * Reads a scenario from the given input. The input is not closed.
+     *
+     * @param input
+     *         the input to read from
+     * @param streams
+     *         the random number streams to populate the pools with
+     *
+     * @return the scenario read
+     *
+     * @throws ScenarioFormatException
+     *         if the input is not a valid scenario
+     * @throws IOException
+     *         if the input cannot be read
+     */
+    public static Scenario read(InputStream input, RandomStreams streams) throws IOException {
+
+        XmlScenarioReader scenarioReader;
+        try {
+            scenarioReader = new XmlScenarioReader(input, streams);
+        } catch (XMLStreamException e) {
+            throw new ScenarioFormatException(lineOf(e), e.getMessage());
+        }
+        try {
+            return scenarioReader.readScenario();
+        } catch (XMLStreamException e) {
+            throw new ScenarioFormatException(lineOf(e), e.getMessage());
+        } finally {
+            try {
+                scenarioReader.reader.close();
+            } catch (XMLStreamException e) {
+                // the input itself is closed by the caller
+            }
+        }
+    }
+
+    /**
+     * Reads the scenario.
+     *
+     * @return the scenario read
+     *
+     * @throws IOException
+     *         if the document is not a valid scenario
+     * @throws XMLStreamException
+     *         if the document is not well formed
+     */
+    private Scenario readScenario() throws IOException, XMLStreamException {
+
+        reader.nextTag();
+        if (!reader.getLocalName().equals("scenario")) {
+            throw error("Expected a scenario but found '" + reader.getLocalName() + "'");
+        }
+        builder.setName(optional("name", ""));
+        builder.setSplittingOverflow(optionalBoolean("splitOverflow"));
+
+        Pool pool = null;
+        String poolName = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            try {
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String element = reader.getLocalName();
+                    if (element.equals("pool") && pool == null) {
+                        poolName = required("name");
+                        pool = startPool(poolName);
+                    } else if (element.equals("population") && pool != null) {
+                        readPopulation(pool);
+                    } else if (element.equals("creature") && pool != null) {
+                        builder.addCreature(pool, requiredInt("age"), requiredDouble("health"),
+                                            optionalBoolean("female"),
+                                            optionalInt("generation", 0));
+                    } else if (element.equals("cohort") && pool != null) {
+                        builder.addCohort(pool, requiredLong("count"), requiredInt("age"),
+                                          requiredDouble("health"), optionalBoolean("female"),
+                                          optionalInt("generation", 0));
+                    } else if (element.equals("stream") && pool == null) {
+                        builder.addStream(optional("name", null), required("from"),
+                                          required("to"), optionalDouble("temperature"),
+                                          optionalDouble("pH"), optionalDouble("weight"),
+                                          optionalDouble("capacity"),
+                                          optionalInt("transitWeeks",
+                                                      Stream.DEFAULT_TRANSIT_WEEKS));
+                    } else {
+                        throw error("Unexpected element '" + element + "'");
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT
+                        && reader.getLocalName().equals("pool")) {
+                    builder.addPool(pool, poolName);
+                    pool = null;
+                }
+            } catch (IllegalArgumentException e) {
+                throw error(e.getMessage());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the pool described by the current element.
+     *
+     * @param poolName
+     *         the name of the pool
+     *
+     * @return the pool
+     *
+     * @throws ScenarioFormatException
+     *         if an attribute of the pool is not valid
+     */
+    private Pool startPool(String poolName) throws ScenarioFormatException {
+
+        Pool pool = new Pool();
+        pool.setName(poolName);
+        pool.setVolumeLitres(optionalDouble("volume", pool.getVolumeLitres()));
+        pool.setTemperature(optionalDouble("temperature", pool.getTemperature()));
+        pool.setpH(optionalDouble("pH", pool.getpH()));
+        pool.setNutrientCoefficient(optionalDouble("nutrientCoefficient",
+                                                   pool.getNutrientCoefficient()));
+        String storage = optional("storage", null);
+        if (storage != null) {
+            builder.setStorage(pool, storage);
+        }
+        return pool;
+    }
+
+    /**
+     * Populates the given pool as described by the current element.
+     *
+     * @param pool
+     *         the pool to populate
+     *
+     * @throws ScenarioFormatException
+     *         if an attribute of the population is not valid
+     */
+    private void readPopulation(Pool pool) throws ScenarioFormatException {
+
+        builder.addPopulation(pool, requiredInt("count"), optional("genus", Guppy.GENUS),
+                              optional("species", Guppy.SPECIES), requiredInt("minAge"),
+                              requiredInt("maxAge"), requiredDouble("femaleChance"),
+                              requiredDouble("minHealth"), requiredDouble("maxHealth"));
+    }
+
+    /**
+     * Returns the value of the given attribute of the current element, which must be present.
+     *
+     * @param attribute
+     *         the name of the attribute
+     *
+     * @return the value of the attribute
+     *
+     * @throws ScenarioFormatException
+     *         if the attribute is missing
+     */
+    private String required(String attribute) throws ScenarioFormatException {
+
+        String value = reader.getAttributeValue(null, attribute);
+        if (value == null) {
+            throw error("The attribute '" + attribute + "' of '" + reader.getLocalName()
+                    + "' is missing");
+        }
+        return value;
+    }
+
+    /**
+     * Returns the value of the given attribute of the current element.
+     *
+     * @param attribute
+     *         the name of the attribute
+     * @param defaultValue
+     *         the value if the attribute is missing
+     *
+     * @return the value of the attribute, or the default if it is missing
+     */
+    private String optional(String attribute, String defaultValue) {
+
+        String value = reader.getAttributeValue(null, attribute);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Returns the int value of the given attribute of the current element.
+     *
+     * @param attribute
+     *         the name of the attribute
+     *
+     * @return the value of the attribute
+     *
+     * @throws ScenarioFormatException
+     *         if the attribute is missing or is not an int
+     */
+    private int requiredInt(String attribute) throws ScenarioFormatException {
+
+        long value = requiredLong(attribute);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("The attribute '" + attribute + "' is too large");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Returns the int value of the given attribute of the current element.
+     *
+     * @param attribute
+     *         the name of the attribute
+     * @param defaultValue
+     *         the value if the attribute is missing
+     *
+     * @return the value of the attribute, or the default if it is missing
+     *
+     * @throws ScenarioFormatException
+     *         if the attribute is not an int
+     */
+    private int optionalInt(String attribute, int defaultValue) throws ScenarioFormatException {
+
+        return reader.getAttributeValue(null, attribute) == null ? defaultValue
+                                                                 : requiredInt(attribute);
+    }
+
+    /**
+     * Returns the long value of the given attribute of the current element.
+     *
+     * @param attribute
+     *         the name of the attribute
+     *
+     * @return the value of the attribute
+     *
+     * @throws ScenarioFormatException
+     *         if the attribute is missing or is not a long
+     */
+    private long requiredLong(String attribute) throws ScenarioFormatException {
+
+        String value = required(attribute);
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw error("Expected the attribute '" + attribute + "' to be an integer but found '"
+                    + value + "'");
+        }
+    }
+
+    /**
+     * Returns the double value of the given attribute of the current element.
+     *
+     * @param attribute
+     *         the name of the attribute
+     *
+     * @return the value of the attribute
+     *
+     * @throws ScenarioFormatException
+     *         if the attribute is missing or is not a number
+     */
+    private double requiredDouble(String attribute) throws ScenarioFormatException {
+
+        String value = required(attribute);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw error("Expected the attribute '" + attribute + "' to be a number but found '"
+                    + value + "'");
+        }
+    }
+
+    /**
+     * Returns the double value of the given attribute of the current element.
+     *
+     * @param attribute
+     *         the name of the attribute
+     * @param defaultValue
+     *         the value if the attribute is missing
+     *
+     * @return the value of the attribute, or the default if it is missing
+     *
+     * @throws ScenarioFormatException
+     *         if the attribute is not a number
+     */
+    private double optionalDouble(String attribute, double defaultValue)
+            throws ScenarioFormatException {
+
+        return reader.getAttributeValue(null, attribute) == null ? defaultValue
+                                                                 : requiredDouble(attribute);
+    }
+
+    /**
+     * Returns the double value of the given attribute of the current element.
+     *
+     * @param attribute
+     *         the name of the attribute
+     *
+     * @return the value of the attribute, or NaN if it is missing
+     *
+     * @throws ScenarioFormatException
+     *         if the attribute is not a number
+     */
+    private double optionalDouble(String attribute) throws ScenarioFormatException {
+
+        return optionalDouble(attribute, Double.NaN);
+    }
+
+    /**
+     * Returns the boolean value of the given attribute of the current element.
+     *
+     * @param attribute
+     *         the name of the attribute
+     *
+     * @return the value of the attribute, or false if it is missing
+     *
+     * @throws ScenarioFormatException
+     *         if the attribute is neither true nor false
+     */
+    private boolean optionalBoolean(String attribute) throws ScenarioFormatException {
+
+        String value = optional(attribute, "false").trim();
+        if (!value.equals("true") && !value.equals("false")) {
+            throw error("Expected the attribute '" + attribute + "' to be true or false but "
+                    + "found '" + value + "'");
+        }
+        return value.equals("true");
+    }
+
+    /**
+     * Creates an exception for a problem at the current element.
+     *
+     * @param message
+     *         the description of the problem
+     *
+     * @return the exception
+     */
+    private ScenarioFormatException error(String message) {
+
+        return new ScenarioFormatException(reader.getLocation().getLineNumber(), message);
+    }
+
+    /**
+     * Returns the line at which the given exception occurred.
+     *
+     * @param e
+     *         the exception
+     *
+     * @return the line at which the exception occurred, or 0 if it is not known
+     */
+    private static int lineOf(XMLStreamException e) {
+
+        return e.getLocation() == null ? 0 : Math.max(e.getLocation().getLineNumber(), 0);
+    }
+}
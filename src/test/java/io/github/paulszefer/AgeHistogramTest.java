@@ -0,0 +1,116 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.AgeHistogram;
+import io.github.paulszefer.sim.Creature;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests the constructors and methods of the AgeHistogram class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class AgeHistogramTest {
+
+    private AgeHistogram histogram;
+
+    @Before
+    public void setUp() throws Exception {
+
+        histogram = new AgeHistogram();
+
+        // ages 1 to 10, one creature each
+        for (int age = 1; age <= 10; age++) {
+            histogram.add(age);
+        }
+    }
+
+    @Test
+    public void testGetTotal() {
+
+        assertThat(histogram.getTotal(), is(10L));
+    }
+
+    @Test
+    public void testGetAgeAtRank() {
+
+        assertThat(histogram.getAgeAtRank(0), is(1));
+        assertThat(histogram.getAgeAtRank(9), is(10));
+    }
+
+    @Test
+    public void testGetPercentile() {
+
+        assertThat(histogram.getPercentile(10), is(1));
+        assertThat(histogram.getPercentile(50), is(5));
+        assertThat(histogram.getPercentile(90), is(9));
+        assertThat(histogram.getPercentile(100), is(10));
+    }
+
+    @Test
+    public void testRemove() {
+
+        histogram.remove(1);
+
+        assertThat(histogram.getTotal(), is(9L));
+        assertThat(histogram.getPercentile(0), is(2));
+    }
+
+    @Test
+    public void testGetDistribution() {
+
+        long[] distribution = histogram.getDistribution();
+
+        assertThat(distribution.length, is(11));
+        assertThat(distribution[0], is(0L));
+        assertThat(distribution[10], is(1L));
+    }
+
+    @Test
+    public void testEmptyPercentileIsZero() {
+
+        assertThat(new AgeHistogram().getPercentile(50), is(0));
+    }
+
+    @Test
+    public void testPoolHistogramFollowsAging() {
+
+        Pool pool = new Pool("aging", 100.0, 40.0, 7.0, 1.0);
+        for (int age = 0; age < 10; age++) {
+            pool.addCreature(new Guppy(age, 0.5, false, 0));
+        }
+        pool.addCreature(new Guppy(Guppy.MAXIMUM_AGE - 1, 0.5, false, 0));
+
+        pool.incrementAges();
+        pool.removeDeadCreatures();
+
+        assertThat(pool.getAgePercentile(0), is(1));
+        assertThat(pool.getAgePercentile(100), is(10));
+        assertThat(pool.getAgeDistribution().length, is(11));
+    }
+
+    @Test
+    public void testPoolHistogramRebuiltAfterExternalChanges() {
+
+        Pool pool = new Pool("changed", 100.0, 40.0, 7.0, 1.0);
+        for (int age = 0; age < 10; age++) {
+            pool.addCreature(new Guppy(age, 0.5, false, 0));
+        }
+
+        List<Creature> creatures = pool.getCreatures();
+        for (Creature creature : creatures) {
+            creature.getHealth().setAge(3);
+        }
+
+        assertThat(pool.getMedianAge(), is(equalTo(3.0)));
+    }
+}
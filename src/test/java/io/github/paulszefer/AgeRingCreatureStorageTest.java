@@ -0,0 +1,201 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.AgeRingCreatureStorage;
+import io.github.paulszefer.sim.Creature;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests that a pool using the AgeRingCreatureStorage class behaves like a pool using the default
+ * storage.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class AgeRingCreatureStorageTest {
+
+    public static final double TOLERANCE = 0.000001;
+
+    private static final Random GENERATOR = new Random();
+
+    private Pool listPool;
+    private Pool ringPool;
+
+    @Before
+    public void setUp() throws Exception {
+
+        listPool = new Pool("list", 10.0, 40.0, 7.0, 0.5);
+        ringPool = new Pool("ring", 10.0, 40.0, 7.0, 0.5);
+        ringPool.setStorage(new AgeRingCreatureStorage());
+
+        final int numberOfTestCreatures = 100;
+        for (int i = 0; i < numberOfTestCreatures; i++) {
+            Guppy guppy = new Guppy(GENERATOR.nextInt(Guppy.MAXIMUM_AGE), GENERATOR.nextDouble(),
+                                    GENERATOR.nextBoolean(), GENERATOR.nextInt(3));
+            guppy.getHealth().setAlive(GENERATOR.nextInt(10) > 0);
+            listPool.addCreature(guppy);
+            ringPool.addCreature(guppy.copy());
+        }
+    }
+
+    @Test
+    public void testPopulationMatches() {
+
+        assertThat(ringPool.getPopulation(), is(equalTo(listPool.getPopulation())));
+    }
+
+    @Test
+    public void testStatisticsMatch() {
+
+        assertStatisticsMatch();
+    }
+
+    @Test
+    public void testIncrementAgesMatchesEveryWeek() {
+
+        for (int week = 0; week < Guppy.MAXIMUM_AGE; week++) {
+            assertThat(ringPool.incrementAges(), is(equalTo(listPool.incrementAges())));
+            assertThat(ringPool.removeDeadCreatures(),
+                       is(equalTo(listPool.removeDeadCreatures())));
+            assertStatisticsMatch();
+        }
+        assertThat(ringPool.getPopulation(), is(0));
+    }
+
+    @Test
+    public void testIncrementAgesKeepsOldGuppiesUntilRemoved() {
+
+        AgeRingCreatureStorage storage = new AgeRingCreatureStorage();
+        storage.add(new Guppy(Guppy.MAXIMUM_AGE - 1, 0.5, true, 0));
+        storage.add(new Guppy(1, 0.5, true, 0));
+
+        assertThat(storage.incrementAges(), is(1L));
+        assertThat(storage.incrementAges(), is(1L));
+
+        List<Creature> creatures = storage.getCreatures();
+        assertThat(creatures.size(), is(2));
+        assertThat(creatures.get(0).getHealth().isAlive(), is(false));
+        assertThat(creatures.get(1).getHealth().getAge(), is(3));
+        assertThat(storage.getAgeHistogram().getTotal(), is(1L));
+
+        assertThat(storage.removeDead(), is(1L));
+        assertThat(storage.size(), is(1L));
+    }
+
+    @Test
+    public void testRemoveDeadCreaturesMatches() {
+
+        assertThat(ringPool.removeDeadCreatures(), is(equalTo(listPool.removeDeadCreatures())));
+        assertThat(ringPool.getPopulation(), is(equalTo(listPool.getPopulation())));
+        assertStatisticsMatch();
+    }
+
+    @Test
+    public void testApplyNutrientCoefficientAtBounds() {
+
+        Random generator = new Random(11);
+        long living = listPool.getCreatures().stream()
+                              .filter(creature -> creature.getHealth().isAlive()).count();
+
+        assertThat(ringPool.getStorage().applyNutrientCoefficient(1.0, generator), is(0L));
+        assertThat(ringPool.getStorage().applyNutrientCoefficient(0.0, generator), is(living));
+        assertThat(ringPool.removeDeadCreatures(), is(equalTo(listPool.getPopulation())));
+        assertThat(ringPool.getPopulation(), is(0));
+    }
+
+    @Test
+    public void testAdjustForCrowdingRemovesSameCreatures() {
+
+        listPool.setVolumeLitres(1.5);
+        ringPool.setVolumeLitres(1.5);
+
+        List<Creature> listRemoved = listPool.adjustForCrowding();
+        List<Creature> ringRemoved = ringPool.adjustForCrowding();
+
+        // the dead share a coefficient of zero, so they are taken in the order of each storage
+        assertThat(identifiers(ringRemoved), is(equalTo(identifiers(listRemoved))));
+        assertThat(ringPool.getVolumeLitres(),
+                   is(greaterThanOrEqualTo(ringPool.getCreatureVolumeRequirementInLitres())));
+        assertStatisticsMatch();
+    }
+
+    @Test
+    public void testSpawnAddsOffspring() {
+
+        ringPool.removeDeadCreatures();
+        int initial = ringPool.getPopulation();
+
+        int spawned = ringPool.spawn();
+
+        assertThat(ringPool.getPopulation(), is(equalTo(initial + spawned)));
+        assertThat(ringPool.getStorage().getAgeHistogram().getCount(0),
+                   is(listPool.getStorage().getAgeHistogram().getCount(0) + spawned));
+    }
+
+    @Test
+    public void testCopyIsEqual() {
+
+        Pool copy = ringPool.copy();
+
+        assertThat(copy, is(equalTo(ringPool)));
+    }
+
+    @Test
+    public void testGetCreaturesPreservesAttributes() {
+
+        Comparator<Creature> byIdentifier = Comparator.comparingInt(
+                creature -> creature.getIdentification().getIdentifier());
+        List<Creature> expected = new ArrayList<>(listPool.getCreatures());
+        List<Creature> actual = ringPool.getCreatures();
+        expected.sort(byIdentifier);
+        actual.sort(byIdentifier);
+
+        assertThat(actual.size(), is(equalTo(expected.size())));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getHealth().getAge(),
+                       is(equalTo(expected.get(i).getHealth().getAge())));
+            assertThat(actual.get(i).getHealth().getCoefficient(),
+                       is(equalTo(expected.get(i).getHealth().getCoefficient())));
+            assertThat(actual.get(i).isFemale(), is(equalTo(expected.get(i).isFemale())));
+            assertThat(actual.get(i).getHealth().isAlive(),
+                       is(equalTo(expected.get(i).getHealth().isAlive())));
+        }
+    }
+
+    private static Set<Integer> identifiers(List<Creature> creatures) {
+
+        Set<Integer> identifiers = new HashSet<>();
+        for (Creature creature : creatures) {
+            identifiers.add(creature.getIdentification().getIdentifier());
+        }
+        return identifiers;
+    }
+
+    private void assertStatisticsMatch() {
+
+        assertThat(ringPool.getAverageAgeInWeeks(),
+                   is(closeTo(listPool.getAverageAgeInWeeks(), TOLERANCE)));
+        assertThat(ringPool.getAverageHealthCoefficient(),
+                   is(closeTo(listPool.getAverageHealthCoefficient(), TOLERANCE)));
+        assertThat(ringPool.getFemaleProportion(),
+                   is(closeTo(listPool.getFemaleProportion(), TOLERANCE)));
+        assertThat(ringPool.getCreatureVolumeRequirementInLitres(),
+                   is(closeTo(listPool.getCreatureVolumeRequirementInLitres(), TOLERANCE)));
+        assertThat(ringPool.getMedianAge(), is(equalTo(listPool.getMedianAge())));
+    }
+}
@@ -0,0 +1,171 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.BoundedHistory;
+import io.github.paulszefer.sim.CohortCreatureStorage;
+import io.github.paulszefer.sim.ColumnarCreatureStorage;
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.FullHistory;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.Simulation;
+import io.github.paulszefer.sim.SimulationEngine;
+import io.github.paulszefer.sim.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+
+import static io.github.paulszefer.EcosystemAssertions.assertSameState;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the eviction and reloading of weeks by the BoundedHistory class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class BoundedHistoryTest {
+
+    private static final int WEEKS = 20;
+    private static final int MAXIMUM_WEEKS = 4;
+
+    private FullHistory full;
+    private BoundedHistory bounded;
+
+    @Before
+    public void setUp() throws Exception {
+
+        full = new FullHistory();
+        bounded = new BoundedHistory(MAXIMUM_WEEKS, Long.MAX_VALUE);
+
+        RandomStreams streams = new RandomStreams(5);
+        Ecosystem ecosystem = new Ecosystem();
+        Pool first = new Pool("first", 15.0, 40.0, 7.0, 0.8);
+        first.populate(80, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 0));
+        Pool second = new Pool("second", 10.0, 40.0, 7.0, 0.8);
+        second.setStorage(new ColumnarCreatureStorage());
+        second.populate(40, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                        streams.stream(RandomStreams.Phase.POPULATE, 0, 1));
+        Pool third = new Pool("third", 10.0, 40.0, 7.0, 0.8);
+        third.setStorage(new CohortCreatureStorage());
+        third.populate(40, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 2));
+        ecosystem.addPool(first);
+        ecosystem.addPool(second);
+        ecosystem.addPool(third);
+        ecosystem.addStream(new Stream(first, third));
+
+        SimulationEngine engine = new SimulationEngine(streams);
+        full.add(ecosystem.copy());
+        bounded.add(ecosystem.copy());
+        for (int week = 1; week <= WEEKS; week++) {
+            engine.step(ecosystem, week);
+            full.add(ecosystem.copy());
+            bounded.add(ecosystem.copy());
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        bounded.close();
+    }
+
+    @Test
+    public void testSize() {
+
+        assertThat(bounded.size(), is(WEEKS + 1));
+    }
+
+    @Test
+    public void testResidentWeeksAreBounded() {
+
+        assertThat(bounded.getResidentWeeks(), is(MAXIMUM_WEEKS));
+        assertThat(bounded.get(WEEKS), is(sameInstance(bounded.get(WEEKS))));
+    }
+
+    @Test
+    public void testEveryWeekIsReloaded() {
+
+        for (int week = 0; week < bounded.size(); week++) {
+            assertSameState(bounded.get(week), full.get(week));
+            assertThat(bounded.getResidentWeeks(), lessThanOrEqualTo(MAXIMUM_WEEKS));
+        }
+    }
+
+    @Test
+    public void testReloadedWeekKeepsStorageAndStreams() {
+
+        Ecosystem reloaded = bounded.get(1);
+
+        assertThat(reloaded.getPools().get(1).getStorage(),
+                   is(instanceOf(ColumnarCreatureStorage.class)));
+        assertThat(reloaded.getPools().get(2).getStorage(),
+                   is(instanceOf(CohortCreatureStorage.class)));
+        assertThat(reloaded.getStreams().size(), is(full.get(1).getStreams().size()));
+        assertThat(reloaded.getStreams().get(2).getSource(),
+                   is(sameInstance(reloaded.getPools().get(0))));
+        assertThat(reloaded.getStreams().get(2).getDestination(),
+                   is(sameInstance(reloaded.getPools().get(2))));
+    }
+
+    @Test
+    public void testByteBudgetKeepsOneWeek() throws Exception {
+
+        try (BoundedHistory tiny = new BoundedHistory(Integer.MAX_VALUE, 1)) {
+            for (int week = 0; week < 3; week++) {
+                tiny.add(full.get(week).copy());
+            }
+
+            assertThat(tiny.getResidentWeeks(), is(1));
+            assertSameState(tiny.get(0), full.get(0));
+            assertSameState(tiny.get(2), full.get(2));
+        }
+    }
+
+    @Test
+    public void testCloseDeletesSpillFile() throws Exception {
+
+        bounded.get(0);
+        assertThat(Files.exists(bounded.getSpillFile()), is(true));
+
+        bounded.close();
+
+        assertThat(Files.exists(bounded.getSpillFile()), is(false));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetMissingWeek() {
+
+        bounded.get(WEEKS + 1);
+    }
+
+    @Test
+    public void testSimulationWithBoundedHistoryScrubsBack() throws Exception {
+
+        try (BoundedHistory history = new BoundedHistory(2, Long.MAX_VALUE)) {
+            Simulation simulation = new Simulation(13);
+            simulation.setHistory(history);
+            simulation.load("test", full.get(0).copy());
+            simulation.simulate(8);
+            Ecosystem last = simulation.getHistory().get(8);
+
+            for (int i = 0; i < 8; i++) {
+                simulation.previousWeek();
+            }
+            for (int i = 0; i < 8; i++) {
+                simulation.nextWeek();
+            }
+
+            assertThat(simulation.getWeek(), is(8));
+            assertSameState(simulation.getHistory().get(8), last);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.CohortCreatureStorage;
+import io.github.paulszefer.sim.CreatureStorage;
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.SimulationEngine;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests the constructors and methods of the CohortCreatureStorage class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class CohortCreatureStorageTest {
+
+    public static final double TOLERANCE = 0.000001;
+
+    private static final long LARGE_COHORT = 1000000000L;
+
+    private CohortCreatureStorage storage;
+
+    @Before
+    public void setUp() throws Exception {
+
+        storage = new CohortCreatureStorage();
+    }
+
+    @Test
+    public void testAddCreatureCounted() {
+
+        storage.add(new Guppy(10, 0.5, true, 0));
+        storage.add(new Guppy(20, 0.5, false, 0));
+
+        assertThat(storage.size(), is(2L));
+        assertThat(storage.getFemaleProportion(), is(closeTo(0.5, TOLERANCE)));
+        assertThat(storage.getAverageAgeInWeeks(), is(closeTo(15.0, TOLERANCE)));
+    }
+
+    @Test
+    public void testIncrementAgesKillsOldestCohort() {
+
+        storage.addCohort(LARGE_COHORT, Guppy.MAXIMUM_AGE - 1, true, 0.5, 0);
+        storage.addCohort(LARGE_COHORT, 0, true, 0.5, 0);
+
+        assertThat(storage.incrementAges(), is(LARGE_COHORT));
+        assertThat(storage.getAverageAgeInWeeks(), is(closeTo(1.0, TOLERANCE)));
+        assertThat(storage.removeDead(), is(LARGE_COHORT));
+        assertThat(storage.size(), is(LARGE_COHORT));
+    }
+
+    @Test
+    public void testApplyNutrientCoefficientKillsExpectedProportion() {
+
+        storage.addCohort(LARGE_COHORT, 5, false, 0.5, 0);
+
+        long died = storage.applyNutrientCoefficient(0.75, new Random());
+
+        assertThat((double) died, is(closeTo(LARGE_COHORT * 0.25, LARGE_COHORT * 0.01)));
+        assertThat(storage.size(), is(LARGE_COHORT));
+        assertThat(storage.getLivingCount(), is(LARGE_COHORT - died));
+    }
+
+    @Test
+    public void testSpawnProducesExpectedOffspring() {
+
+        storage.addCohort(LARGE_COHORT, Guppy.MINIMUM_SPAWN_AGE, true, 0.5, 0);
+
+        long spawned = storage.spawn(new Random());
+        double expected = LARGE_COHORT * Guppy.SPAWN_CHANCE * Guppy.MAXIMUM_OFFSPRING / 2.0;
+
+        assertThat((double) spawned, is(closeTo(expected, expected * 0.01)));
+        assertThat(storage.size(), is(LARGE_COHORT + spawned));
+    }
+
+    @Test
+    public void testExtractWeakestFitsVolume() {
+
+        storage.addCohort(LARGE_COHORT, 5, false, 0.2, 0);
+        storage.addCohort(LARGE_COHORT, 5, false, 0.9, 0);
+        final double volumeLitres = 1000000.0;
+
+        CohortCreatureStorage weakest = storage.extractWeakest(volumeLitres);
+
+        assertThat(volumeLitres * 1000.0, is(greaterThanOrEqualTo(storage.getVolumeNeededMl())));
+        assertThat(weakest.size() + storage.size(), is(2 * LARGE_COHORT));
+        assertThat(storage.getAverageHealthCoefficient(), is(closeTo(0.9, TOLERANCE)));
+    }
+
+    @Test
+    public void testAbsorbAddsCohorts() {
+
+        CohortCreatureStorage other = new CohortCreatureStorage();
+        other.addCohort(LARGE_COHORT, 3, true, 0.5, 2);
+        storage.addCohort(LARGE_COHORT, 3, true, 0.5, 2);
+
+        storage.absorb(other);
+
+        assertThat(storage.size(), is(2 * LARGE_COHORT));
+    }
+
+    @Test
+    public void testTransportSurvivorsMovesOnlySurvivors() {
+
+        storage.addCohort(LARGE_COHORT, 5, false, 0.75, 0);
+        storage.addCohort(LARGE_COHORT, 5, true, 0.75, 0);
+        CohortCreatureStorage destination = new CohortCreatureStorage();
+
+        long died = storage.transportSurvivors(destination, new Random());
+
+        assertThat((double) died, is(closeTo(2 * LARGE_COHORT * 0.25, LARGE_COHORT * 0.01)));
+        assertThat(storage.size(), is(0L));
+        assertThat(destination.size(), is(2 * LARGE_COHORT - died));
+        assertThat(destination.getLivingCount(), is(destination.size()));
+        assertThat(destination.getFemaleProportion(), is(closeTo(0.5, 0.01)));
+    }
+
+    @Test
+    public void testTransportSurvivorsMatchesTransportMortality() {
+
+        final long seed = 42;
+        storage.addCohort(LARGE_COHORT, 5, false, 0.6, 0);
+        storage.addCohort(LARGE_COHORT, 9, true, 0.3, 1);
+        CohortCreatureStorage mortality = storage.copy();
+        CohortCreatureStorage destination = new CohortCreatureStorage();
+
+        long died = storage.transportSurvivors(destination, new Random(seed));
+
+        assertThat(died, is(mortality.applyTransportMortality(new Random(seed))));
+        assertThat(destination.getLivingCount(), is(mortality.getLivingCount()));
+        assertThat(destination.getAverageAgeInWeeks(),
+                   is(closeTo(mortality.getAverageAgeInWeeks(), TOLERANCE)));
+    }
+
+    @Test
+    public void testSplitFollowsWeights() {
+
+        storage.addCohort(LARGE_COHORT, 5, false, 0.75, 0);
+        storage.addCohort(LARGE_COHORT, 9, true, 0.5, 1);
+
+        CreatureStorage[] parts = storage.split(new double[] {1.0, 0.0, 3.0}, new Random());
+
+        assertThat(parts.length, is(3));
+        assertThat(parts[0].size() + parts[1].size() + parts[2].size(), is(2 * LARGE_COHORT));
+        assertThat(parts[1].size(), is(0L));
+        assertThat((double) parts[2].size(), is(closeTo(1.5 * LARGE_COHORT, LARGE_COHORT * 0.01)));
+        assertThat(parts[2].getFemaleProportion(), is(closeTo(0.5, 0.01)));
+        assertThat(storage.size(), is(0L));
+    }
+
+    @Test
+    public void testCopyIsEqual() {
+
+        storage.addCohort(LARGE_COHORT, 3, true, 0.5, 2);
+
+        assertThat(storage.copy(), is(equalTo(storage)));
+    }
+
+    @Test
+    public void testEngineStepsBillionsOfGuppies() {
+
+        Pool pool = new Pool("large", 1.0e9, 40.0, 7.0, 0.9);
+        CohortCreatureStorage large = new CohortCreatureStorage();
+        large.addCohort(3 * LARGE_COHORT, Guppy.MINIMUM_SPAWN_AGE, true, 0.8, 0);
+        pool.setStorage(large);
+        Ecosystem ecosystem = new Ecosystem();
+        ecosystem.addPool(pool);
+
+        new SimulationEngine().run(ecosystem, 1, 5);
+
+        assertThat(ecosystem.getCreaturePopulationCount(), is(greaterThan(0L)));
+    }
+}
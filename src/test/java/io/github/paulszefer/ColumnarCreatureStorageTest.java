@@ -0,0 +1,187 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.ColumnarCreatureStorage;
+import io.github.paulszefer.sim.Creature;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.ListCreatureStorage;
+import io.github.paulszefer.sim.Pool;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests that a pool using the ColumnarCreatureStorage class matches a pool using the default
+ * storage.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class ColumnarCreatureStorageTest {
+
+    public static final double TOLERANCE = 0.000001;
+
+    private static final Random GENERATOR = new Random();
+
+    private Pool listPool;
+    private Pool columnarPool;
+
+    @Before
+    public void setUp() throws Exception {
+
+        listPool = new Pool("list", 10.0, 40.0, 7.0, 0.5);
+        columnarPool = new Pool("columnar", 10.0, 40.0, 7.0, 0.5);
+        columnarPool.setStorage(new ColumnarCreatureStorage());
+
+        final int numberOfTestCreatures = 100;
+        for (int i = 0; i < numberOfTestCreatures; i++) {
+            Guppy guppy = new Guppy(GENERATOR.nextInt(Guppy.MAXIMUM_AGE), GENERATOR.nextDouble(),
+                                    GENERATOR.nextBoolean(), GENERATOR.nextInt(3));
+            guppy.getHealth().setAlive(GENERATOR.nextInt(10) > 0);
+            listPool.addCreature(guppy);
+            columnarPool.addCreature(guppy.copy());
+        }
+    }
+
+    @Test
+    public void testPopulationMatches() {
+
+        assertThat(columnarPool.getPopulation(), is(equalTo(listPool.getPopulation())));
+    }
+
+    @Test
+    public void testStatisticsMatch() {
+
+        assertThat(columnarPool.getAverageAgeInWeeks(),
+                   is(closeTo(listPool.getAverageAgeInWeeks(), TOLERANCE)));
+        assertThat(columnarPool.getAverageHealthCoefficient(),
+                   is(closeTo(listPool.getAverageHealthCoefficient(), TOLERANCE)));
+        assertThat(columnarPool.getFemaleProportion(),
+                   is(closeTo(listPool.getFemaleProportion(), TOLERANCE)));
+        assertThat(columnarPool.getCreatureVolumeRequirementInLitres(),
+                   is(closeTo(listPool.getCreatureVolumeRequirementInLitres(), TOLERANCE)));
+        assertThat(columnarPool.getMedianAge(), is(equalTo(listPool.getMedianAge())));
+    }
+
+    @Test
+    public void testIncrementAgesMatches() {
+
+        assertThat(columnarPool.incrementAges(), is(equalTo(listPool.incrementAges())));
+        assertThat(columnarPool.getAverageAgeInWeeks(),
+                   is(closeTo(listPool.getAverageAgeInWeeks(), TOLERANCE)));
+    }
+
+    @Test
+    public void testRemoveDeadCreaturesMatches() {
+
+        assertThat(columnarPool.removeDeadCreatures(), is(equalTo(listPool.removeDeadCreatures())));
+        assertThat(columnarPool.getPopulation(), is(equalTo(listPool.getPopulation())));
+    }
+
+    @Test
+    public void testAdjustForCrowdingRemovesSameCreatures() {
+
+        listPool.setVolumeLitres(1.5);
+        columnarPool.setVolumeLitres(1.5);
+
+        List<Creature> listRemoved = listPool.adjustForCrowding();
+        List<Creature> columnarRemoved = columnarPool.adjustForCrowding();
+
+        assertThat(columnarRemoved.size(), is(equalTo(listRemoved.size())));
+        for (int i = 0; i < listRemoved.size(); i++) {
+            assertThat(columnarRemoved.get(i).getIdentification().getIdentifier(),
+                       is(equalTo(listRemoved.get(i).getIdentification().getIdentifier())));
+        }
+        assertThat(columnarPool.getVolumeLitres(),
+                   is(greaterThanOrEqualTo(columnarPool.getCreatureVolumeRequirementInLitres())));
+    }
+
+    @Test
+    public void testSpawnAddsOffspring() {
+
+        columnarPool.removeDeadCreatures();
+        int initial = columnarPool.getPopulation();
+
+        int spawned = columnarPool.spawn();
+
+        assertThat(columnarPool.getPopulation(), is(equalTo(initial + spawned)));
+    }
+
+    @Test
+    public void testSpawnNumbersOffspringAlike() {
+
+        final long seed = 42;
+        columnarPool.removeDeadCreatures();
+        listPool.removeDeadCreatures();
+
+        long columnarSpawned = columnarPool.getStorage().spawn(new Random(seed));
+        long listSpawned = listPool.getStorage().spawn(new Random(seed));
+
+        assertThat(columnarSpawned, is(equalTo(listSpawned)));
+        List<Creature> expected = listPool.getCreatures();
+        List<Creature> actual = columnarPool.getCreatures();
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getIdentification().getIdentifier(),
+                       is(equalTo(expected.get(i).getIdentification().getIdentifier())));
+        }
+    }
+
+    @Test
+    public void testTransportSurvivorsMatches() {
+
+        final long seed = 42;
+        columnarPool.removeDeadCreatures();
+        listPool.removeDeadCreatures();
+        long living = columnarPool.getStorage().size();
+        ColumnarCreatureStorage columnarDestination = new ColumnarCreatureStorage();
+        ListCreatureStorage listDestination = new ListCreatureStorage();
+
+        long columnarDied = columnarPool.getStorage().transportSurvivors(columnarDestination,
+                                                                         new Random(seed));
+        long listDied = listPool.getStorage().transportSurvivors(listDestination,
+                                                                 new Random(seed));
+
+        assertThat(columnarDied, is(equalTo(listDied)));
+        assertThat(columnarDestination.size(), is(equalTo(living - columnarDied)));
+        assertThat(listDestination.size(), is(equalTo(columnarDestination.size())));
+        assertThat(columnarPool.getStorage().size(), is(0L));
+        List<Creature> expected = listDestination.getCreatures();
+        List<Creature> actual = columnarDestination.getCreatures();
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getIdentification().getIdentifier(),
+                       is(equalTo(expected.get(i).getIdentification().getIdentifier())));
+            assertThat(actual.get(i).getHealth().isAlive(), is(true));
+        }
+    }
+
+    @Test
+    public void testCopyIsEqual() {
+
+        Pool copy = columnarPool.copy();
+
+        assertThat(copy, is(equalTo(columnarPool)));
+    }
+
+    @Test
+    public void testGetCreaturesPreservesAttributes() {
+
+        List<Creature> expected = new ArrayList<>(listPool.getCreatures());
+        List<Creature> actual = columnarPool.getCreatures();
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getHealth().getAge(),
+                       is(equalTo(expected.get(i).getHealth().getAge())));
+            assertThat(actual.get(i).isFemale(), is(equalTo(expected.get(i).isFemale())));
+            assertThat(actual.get(i).getHealth().isAlive(),
+                       is(equalTo(expected.get(i).getHealth().isAlive())));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.AgeRingCreatureStorage;
+import io.github.paulszefer.sim.CohortCreatureStorage;
+import io.github.paulszefer.sim.ColumnarCreatureStorage;
+import io.github.paulszefer.sim.CreatureStorage;
+import io.github.paulszefer.sim.EventCreatureStorage;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.ListCreatureStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests the rules that every implementation of the CreatureStorage interface shares.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class CreatureStorageTest {
+
+    private static final int LIVING = 60;
+    private static final int DEAD = 40;
+
+    private List<CreatureStorage> storages;
+
+    @Before
+    public void setUp() throws Exception {
+
+        storages = Arrays.asList(new ListCreatureStorage(), new ColumnarCreatureStorage(),
+                                 new AgeRingCreatureStorage(), new EventCreatureStorage(),
+                                 new CohortCreatureStorage());
+        for (CreatureStorage storage : storages) {
+            for (int i = 0; i < LIVING + DEAD; i++) {
+                Guppy guppy = new Guppy(i % Guppy.MAXIMUM_AGE, 0.5, i % 2 == 0, 0);
+                guppy.getHealth().setAlive(i >= DEAD);
+                storage.add(guppy);
+            }
+        }
+    }
+
+    @Test
+    public void testStarvationKillsOnlyTheLiving() {
+
+        for (CreatureStorage storage : storages) {
+            String name = storage.getClass().getSimpleName();
+
+            assertThat(name, storage.applyNutrientCoefficient(0.0, new Random(5)),
+                       is((long) LIVING));
+            assertThat(name, storage.removeDead(), is((long) (LIVING + DEAD)));
+        }
+    }
+
+    @Test
+    public void testWellFedDeadAreNotCounted() {
+
+        for (CreatureStorage storage : storages) {
+            String name = storage.getClass().getSimpleName();
+
+            assertThat(name, storage.applyNutrientCoefficient(1.0, new Random(5)), is(0L));
+            assertThat(name, storage.removeDead(), is((long) DEAD));
+        }
+    }
+
+    @Test
+    public void testStarvedAreNoLongerLiving() {
+
+        for (CreatureStorage storage : storages) {
+            String name = storage.getClass().getSimpleName();
+
+            long died = storage.applyNutrientCoefficient(0.5, new Random(5));
+
+            assertThat(name, storage.removeDead(), is(DEAD + died));
+            assertThat(name, storage.applyNutrientCoefficient(0.0, new Random(5)),
+                       is(LIVING - died));
+        }
+    }
+}
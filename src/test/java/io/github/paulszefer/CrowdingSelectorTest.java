@@ -0,0 +1,181 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.ColumnarCreatureStorage;
+import io.github.paulszefer.sim.Creature;
+import io.github.paulszefer.sim.CreatureStorage;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.ListCreatureStorage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests the selection of the creatures that leave an overcrowded pool, through the storages that
+ * select them with the CrowdingSelector class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class CrowdingSelectorTest {
+
+    /** The volume in Litres that ten newborn guppies need. */
+    private static final double TEN_NEWBORNS_LITRES = 2.5;
+
+    private List<Guppy> guppies;
+
+    @Before
+    public void setUp() throws Exception {
+
+        guppies = new ArrayList<>();
+    }
+
+    @Test
+    public void testEqualCoefficientsLeaveInStorageOrder() {
+
+        addNewborns(10, 0.5);
+
+        for (CreatureStorage storage : createStorages()) {
+            assertThat(identifiersOf(storage.removeWeakest(2.0)),
+                       contains(identifierOf(0), identifierOf(1)));
+        }
+    }
+
+    @Test
+    public void testWeakestLeaveFirst() {
+
+        for (int i = 0; i < 10; i++) {
+            addNewborns(1, 1.0 - i / 20.0);
+        }
+
+        for (CreatureStorage storage : createStorages()) {
+            assertThat(identifiersOf(storage.removeWeakest(2.0)),
+                       contains(identifierOf(9), identifierOf(8)));
+        }
+    }
+
+    @Test
+    public void testSelectionStopsOnceCreaturesFit() {
+
+        addNewborns(10, 0.5);
+
+        for (CreatureStorage storage : createStorages()) {
+            assertThat(storage.removeWeakest(TEN_NEWBORNS_LITRES), is(empty()));
+            assertThat(storage.removeWeakest(2.0).size(), is(2));
+            assertThat(storage.removeWeakest(1.99).size(), is(1));
+            assertThat(storage.size(), is(7L));
+        }
+    }
+
+    @Test
+    public void testDeadCreaturesFreeNoVolume() {
+
+        addNewborns(10, 0.5);
+        for (int i = 0; i < 4; i++) {
+            Guppy guppy = new Guppy(0, 0.1, true, 0);
+            guppy.getHealth().setAlive(false);
+            guppies.add(guppy);
+        }
+
+        for (CreatureStorage storage : createStorages()) {
+            List<Integer> removed = identifiersOf(storage.removeWeakest(2.0));
+
+            assertThat(removed, contains(identifierOf(10), identifierOf(11), identifierOf(12),
+                                         identifierOf(13), identifierOf(0), identifierOf(1)));
+            assertThat(storage.size(), is(8L));
+        }
+    }
+
+    @Test
+    public void testListAndColumnarSelectSameCreatures() {
+
+        Random generator = new Random(19);
+        final double[] coefficients = {0.25, 0.5, 0.75};
+        for (int i = 0; i < 500; i++) {
+            Guppy guppy = new Guppy(generator.nextInt(Guppy.MAXIMUM_AGE),
+                                    coefficients[generator.nextInt(coefficients.length)],
+                                    generator.nextBoolean(), 0);
+            guppy.getHealth().setAlive(generator.nextInt(10) > 0);
+            guppies.add(guppy);
+        }
+        List<CreatureStorage> storages = createStorages();
+
+        List<Integer> listRemoved = identifiersOf(storages.get(0).removeWeakest(20.0));
+        List<Integer> columnarRemoved = identifiersOf(storages.get(1).removeWeakest(20.0));
+
+        assertThat(columnarRemoved, is(equalTo(listRemoved)));
+        assertThat(storages.get(1).getCreatures().size(),
+                   is(storages.get(0).getCreatures().size()));
+    }
+
+    /**
+     * Adds the given number of newborn guppies, each needing the minimum volume of water.
+     *
+     * @param count
+     *         the number of guppies to add
+     * @param coefficient
+     *         the health coefficient of the guppies
+     */
+    private void addNewborns(int count, double coefficient) {
+
+        for (int i = 0; i < count; i++) {
+            guppies.add(new Guppy(0, coefficient, i % 2 == 0, 0));
+        }
+    }
+
+    /**
+     * Returns a list and a columnar storage, each holding copies of the guppies.
+     *
+     * @return the storages
+     */
+    private List<CreatureStorage> createStorages() {
+
+        List<CreatureStorage> storages = Arrays.asList(new ListCreatureStorage(),
+                                                       new ColumnarCreatureStorage());
+        for (CreatureStorage storage : storages) {
+            for (Guppy guppy : guppies) {
+                storage.add(guppy.copy());
+            }
+        }
+        return storages;
+    }
+
+    /**
+     * Returns the identification number of the guppy at the given position.
+     *
+     * @param index
+     *         the position of the guppy
+     *
+     * @return the identification number of the guppy
+     */
+    private int identifierOf(int index) {
+
+        return guppies.get(index).getIdentification().getIdentifier();
+    }
+
+    /**
+     * Returns the identification numbers of the given creatures, in order.
+     *
+     * @param creatures
+     *         the creatures
+     *
+     * @return the identification numbers
+     */
+    private static List<Integer> identifiersOf(List<Creature> creatures) {
+
+        List<Integer> identifiers = new ArrayList<>();
+        for (Creature creature : creatures) {
+            identifiers.add(creature.getIdentification().getIdentifier());
+        }
+        return identifiers;
+    }
+}
@@ -0,0 +1,215 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.CohortCreatureStorage;
+import io.github.paulszefer.sim.ColumnarCreatureStorage;
+import io.github.paulszefer.sim.DeltaHistory;
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.FullHistory;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.Simulation;
+import io.github.paulszefer.sim.SimulationEngine;
+import io.github.paulszefer.sim.Stream;
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.github.paulszefer.EcosystemAssertions.assertSameState;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the recording and rebuilding of weeks by the DeltaHistory class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class DeltaHistoryTest {
+
+    private static final int WEEKS = 25;
+    private static final int KEYFRAME_INTERVAL = 10;
+
+    private FullHistory full;
+    private DeltaHistory delta;
+
+    @Before
+    public void setUp() throws Exception {
+
+        full = new FullHistory();
+        delta = new DeltaHistory(KEYFRAME_INTERVAL);
+
+        RandomStreams streams = new RandomStreams(3);
+        Ecosystem ecosystem = new Ecosystem();
+        Pool first = new Pool("first", 15.0, 40.0, 7.0, 0.8);
+        first.populate(80, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 0));
+        Pool second = new Pool("second", 10.0, 40.0, 7.0, 0.8);
+        second.setStorage(new ColumnarCreatureStorage());
+        second.populate(40, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                        streams.stream(RandomStreams.Phase.POPULATE, 0, 1));
+        Pool third = new Pool("third", 10.0, 40.0, 7.0, 0.8);
+        third.setStorage(new CohortCreatureStorage());
+        third.populate(40, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 2));
+        ecosystem.addPool(first, false);
+        ecosystem.addPool(second, false);
+        ecosystem.addPool(third, false);
+        ecosystem.addStream(new Stream(first, second));
+        ecosystem.addStream(new Stream(second, third));
+
+        SimulationEngine engine = new SimulationEngine(streams);
+        full.add(ecosystem.copy());
+        delta.add(ecosystem.copy());
+        for (int week = 1; week <= WEEKS; week++) {
+            engine.step(ecosystem, week);
+            full.add(ecosystem.copy());
+            delta.add(ecosystem.copy());
+        }
+    }
+
+    @Test
+    public void testSize() {
+
+        assertThat(delta.size(), is(WEEKS + 1));
+    }
+
+    @Test
+    public void testKeyframesAreTakenAtTheInterval() {
+
+        assertThat(delta.getKeyframeCount(), is(3));
+    }
+
+    @Test
+    public void testEveryWeekIsRebuilt() {
+
+        for (int week = 0; week < delta.size(); week++) {
+            assertSameState(delta.get(week), full.get(week));
+        }
+    }
+
+    @Test
+    public void testWeeksWithCreaturesInTransitAreRebuilt() {
+
+        Ecosystem ecosystem = full.get(0).copy();
+        ecosystem.getPools().get(0).setVolumeLitres(2.0);
+        ecosystem.getStreams().get(0).setTransitWeeks(3);
+        ecosystem.getStreams().get(1).setTransitWeeks(2);
+        FullHistory transitFull = new FullHistory();
+        DeltaHistory transitDelta = new DeltaHistory(KEYFRAME_INTERVAL);
+
+        SimulationEngine engine = new SimulationEngine(new RandomStreams(5));
+        transitFull.add(ecosystem.copy());
+        transitDelta.add(ecosystem.copy());
+        for (int week = 1; week <= WEEKS; week++) {
+            engine.step(ecosystem, week);
+            transitFull.add(ecosystem.copy());
+            transitDelta.add(ecosystem.copy());
+        }
+
+        assertThat(transitDelta.getKeyframeCount(), is(3));
+        assertThat(transitFull.get(2).getStreams().get(0).getCreaturesInTransit(),
+                   is(greaterThan(0L)));
+        for (int week = 0; week < transitDelta.size(); week++) {
+            assertSameState(transitDelta.get(week), transitFull.get(week));
+        }
+    }
+
+    @Test
+    public void testRebuiltWeekKeepsSplittingOverflow() {
+
+        Ecosystem ecosystem = full.get(0).copy();
+        ecosystem.setSplittingOverflow(true);
+        DeltaHistory splitting = new DeltaHistory(KEYFRAME_INTERVAL);
+        SimulationEngine engine = new SimulationEngine(new RandomStreams(5));
+        splitting.add(ecosystem.copy());
+        for (int week = 1; week <= 3; week++) {
+            engine.step(ecosystem, week);
+            splitting.add(ecosystem.copy());
+        }
+
+        assertThat(splitting.getKeyframeCount(), is(1));
+        assertThat(splitting.get(1).isSplittingOverflow(), is(true));
+        assertThat(splitting.get(2).isSplittingOverflow(), is(true));
+    }
+
+    @Test
+    public void testChangedSplittingTakesKeyframe() {
+
+        Ecosystem ecosystem = full.get(WEEKS).copy();
+        ecosystem.setSplittingOverflow(true);
+
+        delta.add(ecosystem);
+
+        assertThat(delta.getKeyframeCount(), is(4));
+    }
+
+    @Test
+    public void testChangedStreamTakesKeyframe() {
+
+        Ecosystem ecosystem = full.get(WEEKS).copy();
+        ecosystem.getStreams().get(0).setCapacityLitres(1.0);
+
+        delta.add(ecosystem);
+
+        assertThat(delta.getKeyframeCount(), is(4));
+        assertThat(delta.get(WEEKS + 1), is(sameInstance(ecosystem)));
+    }
+
+    @Test
+    public void testRebuiltWeekKeepsStorageAndStreams() {
+
+        Ecosystem rebuilt = delta.get(KEYFRAME_INTERVAL + 3);
+
+        assertThat(rebuilt.getPools().get(1).getStorage(),
+                   is(instanceOf(ColumnarCreatureStorage.class)));
+        assertThat(rebuilt.getPools().get(2).getStorage(),
+                   is(instanceOf(CohortCreatureStorage.class)));
+        assertThat(rebuilt.getStreams().get(0).getSource(),
+                   is(sameInstance(rebuilt.getPools().get(0))));
+        assertThat(rebuilt.getStreams().get(1).getDestination(),
+                   is(sameInstance(rebuilt.getPools().get(2))));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetMissingWeek() {
+
+        delta.get(WEEKS + 1);
+    }
+
+    @Test
+    public void testSimulationWithDeltaHistoryScrubsBack() {
+
+        Simulation simulation = new Simulation(11);
+        simulation.setHistory(new DeltaHistory(4));
+        simulation.load("test", full.get(0).copy());
+        simulation.simulate(9);
+        Ecosystem last = simulation.getHistory().get(9);
+
+        for (int i = 0; i < 9; i++) {
+            simulation.previousWeek();
+        }
+        for (int i = 0; i < 9; i++) {
+            simulation.nextWeek();
+        }
+
+        assertThat(simulation.getWeek(), is(9));
+        assertSameState(simulation.getHistory().get(9), last);
+    }
+
+    @Test
+    public void testSettingSameHistoryKeepsWeeks() {
+
+        Simulation simulation = new Simulation(11);
+        simulation.setHistory(new DeltaHistory(4));
+        simulation.load("test", full.get(0).copy());
+        simulation.simulate(5);
+
+        simulation.setHistory(simulation.getHistory());
+
+        assertThat(simulation.getHistory().size(), is(6));
+        assertThat(simulation.getWeek(), is(5));
+    }
+}
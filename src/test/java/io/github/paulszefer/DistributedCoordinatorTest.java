@@ -0,0 +1,265 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.CohortCreatureStorage;
+import io.github.paulszefer.sim.ColumnarCreatureStorage;
+import io.github.paulszefer.sim.DistributedCoordinator;
+import io.github.paulszefer.sim.DistributedWorker;
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.ReplayHistory;
+import io.github.paulszefer.sim.Simulation;
+import io.github.paulszefer.sim.SimulationEngine;
+import io.github.paulszefer.sim.Stream;
+import io.github.paulszefer.sim.WeekReport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the simulation of an ecosystem split across workers by the DistributedCoordinator class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class DistributedCoordinatorTest {
+
+    private static final long SEED = 17;
+    private static final int WORKERS = 3;
+    private static final int WEEKS = 8;
+
+    private DistributedCoordinator coordinator;
+
+    @Before
+    public void setUp() throws Exception {
+
+        coordinator = new DistributedCoordinator(WORKERS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        coordinator.close();
+    }
+
+    @Test
+    public void testWeeksMatchPartitionedEngine() throws Exception {
+
+        startWorkerThreads();
+        SimulationEngine engine = new SimulationEngine(new RandomStreams(SEED));
+        engine.setPartitions(WORKERS);
+        Ecosystem expected = createBasin();
+        coordinator.load(createBasin(), SEED);
+
+        for (int week = 1; week <= WEEKS; week++) {
+            WeekReport expectedReport = engine.step(expected, week);
+            WeekReport actualReport = coordinator.step(week);
+
+            assertThat(actualReport.getPoolPopulations(),
+                       is(equalTo(expectedReport.getPoolPopulations())));
+            assertThat(actualReport.getEcosystemPopulation(),
+                       is(expectedReport.getEcosystemPopulation()));
+            assertThat(actualReport.getDiedOfOldAge(), is(expectedReport.getDiedOfOldAge()));
+            assertThat(actualReport.getStarvedToDeath(), is(expectedReport.getStarvedToDeath()));
+            assertThat(actualReport.getBirths(), is(expectedReport.getBirths()));
+            assertThat(actualReport.getCrowdedOut(), is(expectedReport.getCrowdedOut()));
+            assertThat(actualReport.getNumberRemoved(), is(expectedReport.getNumberRemoved()));
+        }
+    }
+
+    @Test
+    public void testCollectGathersEveryPool() throws Exception {
+
+        startWorkerThreads();
+        Ecosystem basin = createBasin();
+        coordinator.load(basin, SEED);
+
+        Ecosystem collected = coordinator.collect();
+
+        assertThat(collected.getPools().size(), is(basin.getPools().size()));
+        assertThat(collected.getStreams().size(), is(basin.getStreams().size()));
+        for (int i = 0; i < basin.getPools().size(); i++) {
+            Pool expected = basin.getPools().get(i);
+            Pool actual = collected.getPools().get(i);
+            assertThat(actual.getName(), is(expected.getName()));
+            assertThat(actual.getPopulationCount(), is(expected.getPopulationCount()));
+            assertThat(actual.getStorage(), is(instanceOf(expected.getStorage().getClass())));
+        }
+        assertThat(collected.getStreams().get(3).getSource(),
+                   is(sameInstance(collected.getPools().get(1))));
+    }
+
+    @Test
+    public void testSimulationOnLocalWorkersMatchesPartitionedSimulation() throws Exception {
+
+        coordinator.startLocalWorkers();
+        Simulation expected = new Simulation(SEED);
+        expected.getEngine().setPartitions(WORKERS);
+        expected.load("basin", createBasin());
+        Simulation actual = new Simulation(SEED);
+        actual.setCoordinator(coordinator);
+        actual.load("basin", createBasin());
+
+        for (int week = 1; week <= 4; week++) {
+            expected.simulateOneWeek();
+            actual.simulateOneWeek();
+        }
+        // going back and simulating again reloads the workers from the history
+        actual.previousWeek();
+        actual.previousWeek();
+        actual.nextWeek();
+        actual.nextWeek();
+        expected.simulateOneWeek();
+        actual.simulateOneWeek();
+        actual.collectWeeks();
+
+        assertThat(actual.getWeek(), is(5));
+        for (int week = 1; week <= 5; week++) {
+            Ecosystem expectedWeek = expected.getHistory().get(week);
+            Ecosystem actualWeek = actual.getHistory().get(week);
+            for (int i = 0; i < expectedWeek.getPools().size(); i++) {
+                assertThat(actualWeek.getPools().get(i).getPopulationCount(),
+                           is(expectedWeek.getPools().get(i).getPopulationCount()));
+            }
+        }
+    }
+
+    @Test
+    public void testWeeksStayOnWorkersUntilCollected() throws Exception {
+
+        startWorkerThreads();
+        Simulation expected = new Simulation(SEED);
+        expected.getEngine().setPartitions(WORKERS);
+        expected.load("basin", createBasin());
+        Simulation actual = new Simulation(SEED);
+        actual.setCoordinator(coordinator);
+        actual.load("basin", createBasin());
+        List<WeekReport> reports = new ArrayList<>();
+        actual.addListener((report, ecosystem) -> reports.add(report));
+
+        for (int week = 1; week <= WEEKS; week++) {
+            expected.simulateOneWeek();
+            actual.simulateOneWeek();
+        }
+
+        assertThat(actual.getWeek(), is(WEEKS));
+        assertThat(actual.getHistory().size(), is(1));
+        assertThat(reports.size(), is(WEEKS));
+        for (int week = 1; week <= WEEKS; week++) {
+            assertThat(reports.get(week - 1).getPoolPopulations(),
+                       is(equalTo(populationsOf(expected.getHistory().get(week)))));
+        }
+
+        actual.collectWeeks();
+
+        assertThat(actual.getHistory().size(), is(WEEKS + 1));
+        for (int week = 0; week <= WEEKS; week++) {
+            assertThat(populationsOf(actual.getHistory().get(week)),
+                       is(equalTo(populationsOf(expected.getHistory().get(week)))));
+        }
+    }
+
+    @Test
+    public void testReplayHistoryRebuildsWeeksOfWorkers() throws Exception {
+
+        startWorkerThreads();
+        Simulation expected = new Simulation(SEED);
+        expected.getEngine().setPartitions(WORKERS);
+        expected.load("basin", createBasin());
+        Simulation actual = new Simulation(SEED);
+        actual.setHistory(new ReplayHistory(actual.getRandomStreams(), 3, 1));
+        actual.setCoordinator(coordinator);
+        actual.load("basin", createBasin());
+
+        for (int week = 1; week <= WEEKS; week++) {
+            expected.simulateOneWeek();
+            actual.simulateOneWeek();
+        }
+        actual.collectWeeks();
+
+        assertThat(((ReplayHistory) actual.getHistory()).getPartitions(), is(WORKERS));
+        for (int week = WEEKS; week >= 0; week--) {
+            Ecosystem expectedWeek = expected.getHistory().get(week);
+            Ecosystem actualWeek = actual.getHistory().get(week);
+            for (int i = 0; i < expectedWeek.getPools().size(); i++) {
+                assertThat(actualWeek.getPools().get(i).getPopulationCount(),
+                           is(expectedWeek.getPools().get(i).getPopulationCount()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStepWithoutEcosystemFails() throws Exception {
+
+        startWorkerThreads();
+
+        coordinator.step(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLoadWithoutWorkersFails() throws Exception {
+
+        coordinator.load(createBasin(), SEED);
+    }
+
+    private static long[] populationsOf(Ecosystem ecosystem) {
+
+        long[] populations = new long[ecosystem.getPools().size()];
+        for (int i = 0; i < populations.length; i++) {
+            populations[i] = ecosystem.getPools().get(i).getPopulationCount();
+        }
+        return populations;
+    }
+
+    private void startWorkerThreads() throws IOException {
+
+        for (int i = 0; i < WORKERS; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    DistributedWorker.connect("127.0.0.1", coordinator.getPort()).run();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+        coordinator.acceptWorkers();
+    }
+
+    private Ecosystem createBasin() {
+
+        RandomStreams streams = new RandomStreams(SEED);
+        Ecosystem basin = new Ecosystem();
+        final int numberOfPools = 7;
+        for (int i = 0; i < numberOfPools; i++) {
+            Pool pool = new Pool("pool" + i, 10.0 + 3 * i, 40.0, 7.0, 0.8);
+            if (i % 3 == 1) {
+                pool.setStorage(new ColumnarCreatureStorage());
+            } else if (i % 3 == 2) {
+                pool.setStorage(new CohortCreatureStorage());
+            }
+            pool.populate(60, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                          streams.stream(RandomStreams.Phase.POPULATE, 0, i));
+            basin.addPool(pool, false);
+        }
+        // two tributaries joining a main channel, with a side channel flowing back upstream
+        int[][] connections = {{0, 2}, {1, 2}, {2, 3}, {1, 4}, {4, 3}, {3, 5}, {5, 6}, {6, 5}};
+        for (int[] connection : connections) {
+            basin.addStream(new Stream(basin.getPools().get(connection[0]),
+                                       basin.getPools().get(connection[1])));
+        }
+        return basin;
+    }
+}
@@ -0,0 +1,145 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.Creature;
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.Stream;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Compares the state of ecosystems in the tests of the histories and snapshots.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+final class EcosystemAssertions {
+
+    /** Prevents instantiation. */
+    private EcosystemAssertions() {
+
+    }
+
+    /**
+     * Asserts that the given ecosystems hold the same pools, streams and creatures, including the
+     * identification numbers of the pools and creatures.
+     *
+     * @param actual
+     *         the ecosystem to check
+     * @param expected
+     *         the ecosystem it should match
+     */
+    static void assertSameState(Ecosystem actual, Ecosystem expected) {
+
+        assertSameState(actual, expected, true);
+    }
+
+    /**
+     * Asserts that the given ecosystems hold the same pools, streams and creatures.
+     *
+     * @param actual
+     *         the ecosystem to check
+     * @param expected
+     *         the ecosystem it should match
+     * @param sameIdentifiers
+     *         whether the identification numbers of the pools and creatures must also match
+     */
+    static void assertSameState(Ecosystem actual, Ecosystem expected, boolean sameIdentifiers) {
+
+        assertThat(actual.getPools().size(), is(expected.getPools().size()));
+        assertThat(actual.getStreams().size(), is(expected.getStreams().size()));
+        assertThat(actual.isSplittingOverflow(), is(expected.isSplittingOverflow()));
+
+        for (int i = 0; i < expected.getPools().size(); i++) {
+            Pool actualPool = actual.getPools().get(i);
+            Pool expectedPool = expected.getPools().get(i);
+            assertThat(actualPool.getName(), is(expectedPool.getName()));
+            if (sameIdentifiers) {
+                assertThat(actualPool.getIdentificationNumber(),
+                           is(expectedPool.getIdentificationNumber()));
+            }
+            assertThat(actualPool.getVolumeLitres(), is(expectedPool.getVolumeLitres()));
+            assertThat(actualPool.getTemperature(), is(expectedPool.getTemperature()));
+            assertThat(actualPool.getpH(), is(expectedPool.getpH()));
+            assertThat(actualPool.getNutrientCoefficient(),
+                       is(expectedPool.getNutrientCoefficient()));
+            assertSameCreatures(actualPool.getStorage().viewCreatures(),
+                                expectedPool.getStorage().viewCreatures(), sameIdentifiers);
+        }
+
+        for (int i = 0; i < expected.getStreams().size(); i++) {
+            Stream actualStream = actual.getStreams().get(i);
+            Stream expectedStream = expected.getStreams().get(i);
+            assertThat(indexOf(actual, actualStream.getSource()),
+                       is(indexOf(expected, expectedStream.getSource())));
+            assertThat(indexOf(actual, actualStream.getDestination()),
+                       is(indexOf(expected, expectedStream.getDestination())));
+            assertThat(actualStream.getFlowWeight(), is(expectedStream.getFlowWeight()));
+            assertThat(actualStream.getCapacityLitres(), is(expectedStream.getCapacityLitres()));
+            assertThat(actualStream.getTransitWeeks(), is(expectedStream.getTransitWeeks()));
+            assertThat(actualStream.getCreaturesInTransit(),
+                       is(expectedStream.getCreaturesInTransit()));
+            for (int week = 0; week < Math.max(expectedStream.getTransitWeeks(), 1); week++) {
+                assertSameCreatures(actualStream.getCreaturesInTransit(week),
+                                    expectedStream.getCreaturesInTransit(week), sameIdentifiers);
+            }
+        }
+    }
+
+    /**
+     * Asserts that the given lists hold the same guppies in the same order.
+     *
+     * @param actual
+     *         the creatures to check
+     * @param expected
+     *         the creatures they should match
+     * @param sameIdentifiers
+     *         whether the identification numbers must also match
+     */
+    private static void assertSameCreatures(List<Creature> actual, List<Creature> expected,
+                                            boolean sameIdentifiers) {
+
+        assertThat(actual.size(), is(expected.size()));
+        for (int j = 0; j < expected.size(); j++) {
+            Guppy actualGuppy = (Guppy) actual.get(j);
+            Guppy expectedGuppy = (Guppy) expected.get(j);
+            if (sameIdentifiers) {
+                assertThat(actualGuppy.getIdentification().getIdentifier(),
+                           is(expectedGuppy.getIdentification().getIdentifier()));
+            }
+            assertThat(actualGuppy.getIdentification().getGeneration(),
+                       is(expectedGuppy.getIdentification().getGeneration()));
+            assertThat(actualGuppy.getHealth().getAge(), is(expectedGuppy.getHealth().getAge()));
+            assertThat(actualGuppy.getHealth().getCoefficient(),
+                       is(expectedGuppy.getHealth().getCoefficient()));
+            assertThat(actualGuppy.getHealth().isAlive(),
+                       is(expectedGuppy.getHealth().isAlive()));
+            assertThat(actualGuppy.isFemale(), is(expectedGuppy.isFemale()));
+        }
+    }
+
+    /**
+     * Returns the index of the given pool in the given ecosystem, compared by identity.
+     *
+     * @param ecosystem
+     *         the ecosystem to search
+     * @param pool
+     *         the pool to find
+     *
+     * @return the index of the pool, or -1 if it is not in the ecosystem
+     */
+    private static int indexOf(Ecosystem ecosystem, Pool pool) {
+
+        List<Pool> pools = ecosystem.getPools();
+        for (int i = 0; i < pools.size(); i++) {
+            if (pools.get(i) == pool) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
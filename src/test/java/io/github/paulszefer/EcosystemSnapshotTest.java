@@ -0,0 +1,217 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.AgeRingCreatureStorage;
+import io.github.paulszefer.sim.CohortCreatureStorage;
+import io.github.paulszefer.sim.ColumnarCreatureStorage;
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.EcosystemSnapshot;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.Simulation;
+import io.github.paulszefer.sim.SimulationEngine;
+import io.github.paulszefer.sim.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static io.github.paulszefer.EcosystemAssertions.assertSameState;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the saving and loading of ecosystems by the EcosystemSnapshot class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class EcosystemSnapshotTest {
+
+    private Ecosystem ecosystem;
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+
+        RandomStreams streams = new RandomStreams(7);
+        ecosystem = new Ecosystem();
+        Pool first = new Pool("first", 15.0, 40.0, 7.0, 0.8);
+        first.populate(80, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 0));
+        Pool second = new Pool("second", 10.0, 40.0, 7.0, 0.8);
+        second.setStorage(new ColumnarCreatureStorage());
+        second.populate(70, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                        streams.stream(RandomStreams.Phase.POPULATE, 0, 1));
+        Pool third = new Pool("third", 10.0, 40.0, 7.0, 0.8);
+        third.setStorage(new CohortCreatureStorage());
+        third.populate(40, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 2));
+        ecosystem.addPool(first);
+        ecosystem.addPool(second);
+        ecosystem.addPool(third);
+        ecosystem.addStream(new Stream(first, third));
+
+        // leave some dead guppies in the columns
+        SimulationEngine engine = new SimulationEngine(streams);
+        engine.step(ecosystem, 1);
+        second.getStorage().applyNutrientCoefficient(0.5,
+                streams.stream(RandomStreams.Phase.NUTRITION, 2, 0));
+
+        file = Files.createTempFile("ecosystem", ".snapshot");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+
+        new EcosystemSnapshot("test", 12, 99, ecosystem).save(file);
+        EcosystemSnapshot loaded = EcosystemSnapshot.load(file);
+
+        assertThat(loaded.getName(), is("test"));
+        assertThat(loaded.getWeek(), is(12));
+        assertThat(loaded.getSeed(), is(99L));
+        assertSameState(loaded.getEcosystem(), ecosystem, true);
+    }
+
+    @Test
+    public void testLoadKeepsStorageAndStreams() throws Exception {
+
+        new EcosystemSnapshot("test", 0, 0, ecosystem).save(file);
+        Ecosystem loaded = EcosystemSnapshot.load(file).getEcosystem();
+
+        assertThat(loaded.getPools().get(1).getStorage(),
+                   is(instanceOf(ColumnarCreatureStorage.class)));
+        assertThat(loaded.getPools().get(1).getStorage(),
+                   is(ecosystem.getPools().get(1).getStorage()));
+        assertThat(loaded.getPools().get(2).getStorage(),
+                   is(instanceOf(CohortCreatureStorage.class)));
+        assertThat(loaded.getPools().get(2).getAverageAgeInWeeks(),
+                   is(ecosystem.getPools().get(2).getAverageAgeInWeeks()));
+        assertThat(loaded.getStreams().get(2).getSource(),
+                   is(sameInstance(loaded.getPools().get(0))));
+        assertThat(loaded.getStreams().get(2).getDestination(),
+                   is(sameInstance(loaded.getPools().get(2))));
+    }
+
+    @Test
+    public void testLoadKeepsAgeRingStorage() throws Exception {
+
+        Pool ring = new Pool("ring", 10.0, 40.0, 7.0, 0.8);
+        ring.setStorage(new AgeRingCreatureStorage());
+        ring.getStorage().absorb(ecosystem.getPools().get(1).getStorage().copy());
+        ring.incrementAges();
+        ecosystem.addPool(ring);
+
+        new EcosystemSnapshot("test", 0, 0, ecosystem).save(file);
+        Ecosystem loaded = EcosystemSnapshot.load(file).getEcosystem();
+
+        assertThat(loaded.getPools().get(3).getStorage(),
+                   is(instanceOf(AgeRingCreatureStorage.class)));
+        assertThat(loaded.getPools().get(3).getStorage(), is(ring.getStorage()));
+        assertSameState(loaded, ecosystem, true);
+    }
+
+    @Test
+    public void testLoadKeepsFlowWeightsAndSplitting() throws Exception {
+
+        ecosystem.getStreams().get(2).setFlowWeight(2.5);
+        ecosystem.setSplittingOverflow(true);
+
+        new EcosystemSnapshot("test", 0, 0, ecosystem).save(file);
+        Ecosystem loaded = EcosystemSnapshot.load(file).getEcosystem();
+
+        assertThat(loaded.getStreams().get(0).getFlowWeight(), is(Stream.DEFAULT_FLOW_WEIGHT));
+        assertThat(loaded.getStreams().get(2).getFlowWeight(), is(2.5));
+        assertThat(loaded.isSplittingOverflow(), is(true));
+    }
+
+    @Test
+    public void testLoadKeepsCreaturesInTransit() throws Exception {
+
+        ecosystem.getStreams().get(0).setTransitWeeks(2);
+        ecosystem.getStreams().get(2).setTransitWeeks(2);
+        ecosystem.getStreams().get(2).setCapacityLitres(1.5);
+        ecosystem.getPools().get(0).setVolumeLitres(0.1);
+        ecosystem.adjustForCrowding(new RandomStreams(7), 2);
+        long inTransit = ecosystem.getCreaturesInTransit();
+        assertThat(inTransit > 0, is(true));
+
+        new EcosystemSnapshot("test", 2, 0, ecosystem).save(file);
+        Ecosystem loaded = EcosystemSnapshot.load(file).getEcosystem();
+
+        assertThat(loaded.getCreaturesInTransit(), is(inTransit));
+        assertThat(loaded.getStreams().get(2).getTransitWeeks(), is(2));
+        assertThat(loaded.getStreams().get(2).getCapacityLitres(), is(1.5));
+        assertThat(loaded.getStreams().get(1).getCapacityLitres(),
+                   is(Stream.DEFAULT_CAPACITY_LITRES));
+        assertSameState(loaded, ecosystem, true);
+    }
+
+    @Test
+    public void testIsSnapshot() throws Exception {
+
+        Files.write(file, "name\n".getBytes("UTF-8"));
+        assertThat(EcosystemSnapshot.isSnapshot(file), is(false));
+
+        new EcosystemSnapshot("test", 0, 0, ecosystem).save(file);
+        assertThat(EcosystemSnapshot.isSnapshot(file), is(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadNewerVersion() throws Exception {
+
+        new EcosystemSnapshot("test", 0, 0, ecosystem).save(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer version = ByteBuffer.allocate(4);
+            version.putInt(EcosystemSnapshot.VERSION + 1).flip();
+            channel.write(version, 4);
+        }
+
+        EcosystemSnapshot.load(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLoadTruncated() throws Exception {
+
+        new EcosystemSnapshot("test", 0, 0, ecosystem).save(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+
+        EcosystemSnapshot.load(file);
+    }
+
+    @Test
+    public void testSimulationResumesFromSnapshot() throws Exception {
+
+        Simulation uninterrupted = new Simulation(21);
+        uninterrupted.load("test", ecosystem.copy());
+        uninterrupted.simulate(8);
+
+        Simulation saved = new Simulation(21);
+        saved.load("test", ecosystem.copy());
+        saved.simulate(4);
+        assertThat(saved.saveFile(file.toFile()), is(true));
+
+        Simulation resumed = new Simulation(21);
+        assertThat(resumed.loadFile(file.toFile()), is(true));
+        resumed.simulate(4);
+
+        assertThat(resumed.createSnapshot().getWeek(), is(8));
+        assertSameState(resumed.getHistory().get(4), uninterrupted.getHistory().get(8), true);
+    }
+}
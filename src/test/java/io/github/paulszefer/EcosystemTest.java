@@ -2,13 +2,16 @@ package io.github.paulszefer;
 
 import io.github.paulszefer.sim.Ecosystem;
 import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Partitioning;
 import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
 import io.github.paulszefer.sim.Stream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -259,4 +262,255 @@ public class EcosystemTest {
         assertNull(ecosystem.getRandomStream(pool2));
     }
 
+    @Test
+    public void testGetRandomStreamFollowsAddedPools() {
+
+        Pool pool3 = new Pool();
+        ecosystem.addPool(pool1);
+        ecosystem.addPool(pool2);
+        ecosystem.addPool(pool3);
+
+        assertThat(ecosystem.getRandomStream(pool1).getDestination(), is(sameInstance(pool2)));
+        assertThat(ecosystem.getRandomStream(pool2).getDestination(), is(sameInstance(pool3)));
+        assertNull(ecosystem.getRandomStream(pool3));
+    }
+
+    @Test
+    public void testGetRandomStreamFollowsSetStreams() {
+
+        ecosystem.addStream(stream1);
+        ArrayList<Stream> streams = new ArrayList<>();
+        streams.add(stream2);
+        ecosystem.setStreams(streams);
+
+        assertNull(ecosystem.getRandomStream(pool1));
+        assertThat(ecosystem.getRandomStream(pool2), is(sameInstance(stream2)));
+    }
+
+    @Test
+    public void testGetRandomStreamFollowsStreamsAddedToList() {
+
+        ecosystem.getRandomStream(pool1);
+        ecosystem.getStreams().add(stream1);
+
+        assertThat(ecosystem.getRandomStream(pool1), is(sameInstance(stream1)));
+    }
+
+    @Test
+    public void testGetRandomStreamFollowsMovedStream() {
+
+        ecosystem.addStream(stream1);
+        assertThat(ecosystem.getRandomStream(pool1), is(sameInstance(stream1)));
+
+        stream1.setSource(pool2);
+
+        assertNull(ecosystem.getRandomStream(pool1));
+        assertThat(ecosystem.getRandomStream(pool2), is(sameInstance(stream1)));
+    }
+
+    @Test
+    public void testTopologyFollowsRedirectedStream() {
+
+        ecosystem.addPool(pool1, false);
+        ecosystem.addPool(pool2, false);
+        ecosystem.addStream(stream1);
+        assertThat(ecosystem.getTopology().getOrder(), is(new int[] {0, 1}));
+
+        stream1.setSource(pool2);
+        stream1.setDestination(pool1);
+
+        assertThat(ecosystem.getTopology().getOrder(), is(new int[] {1, 0}));
+    }
+
+    @Test
+    public void testGetRandomStreamReturnsNullAfterReset() {
+
+        ecosystem.addStream(stream1);
+        ecosystem.getRandomStream(pool1);
+        ecosystem.reset();
+
+        assertNull(ecosystem.getRandomStream(pool1));
+    }
+
+    @Test
+    public void testGetRandomStreamOfCopyUsesCopiedStreams() {
+
+        ecosystem.addPool(pool1);
+        ecosystem.addPool(pool2);
+        Ecosystem copy = ecosystem.copy();
+
+        assertThat(copy.getRandomStream(copy.getPools().get(0)),
+                   is(sameInstance(copy.getStreams().get(0))));
+        assertNull(copy.getRandomStream(pool1));
+    }
+
+    @Test
+    public void testGetRandomStreamCanSelectLastStream() {
+
+        Pool pool3 = new Pool();
+        Stream stream3 = new Stream(pool1, pool3);
+        ecosystem.addStream(stream1);
+        ecosystem.addStream(stream3);
+        Random generator = new Random(17);
+
+        boolean selectedLast = false;
+        for (int i = 0; i < 100 && !selectedLast; i++) {
+            selectedLast = ecosystem.getRandomStream(pool1, generator) == stream3;
+        }
+
+        assertThat(selectedLast, is(true));
+    }
+
+    @Test
+    public void testGetRandomStreamFollowsFlowWeights() {
+
+        final int draws = 40000;
+        Pool pool3 = new Pool();
+        Stream stream3 = new Stream(pool1, pool3);
+        stream3.setFlowWeight(3.0);
+        ecosystem.addStream(stream1);
+        ecosystem.addStream(stream3);
+        Random generator = new Random(17);
+
+        int selectedHeavier = 0;
+        for (int i = 0; i < draws; i++) {
+            selectedHeavier += ecosystem.getRandomStream(pool1, generator) == stream3 ? 1 : 0;
+        }
+
+        assertThat((double) selectedHeavier / draws, is(closeTo(0.75, 0.01)));
+    }
+
+    @Test
+    public void testGetRandomStreamFollowsChangedFlowWeight() {
+
+        Pool pool3 = new Pool();
+        Stream stream3 = new Stream(pool1, pool3);
+        ecosystem.addStream(stream1);
+        ecosystem.addStream(stream3);
+        Random generator = new Random(17);
+        ecosystem.getRandomStream(pool1, generator);
+
+        stream3.setFlowWeight(0.0);
+
+        for (int i = 0; i < 1000; i++) {
+            assertThat(ecosystem.getRandomStream(pool1, generator), is(sameInstance(stream1)));
+        }
+    }
+
+    @Test
+    public void testGetRandomStreamSkipsStreamsWithoutFlow() {
+
+        Pool pool3 = new Pool();
+        Stream stream3 = new Stream(pool1, pool3);
+        stream1.setFlowWeight(0.0);
+        ecosystem.addStream(stream1);
+        ecosystem.addStream(stream3);
+        Random generator = new Random(17);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(ecosystem.getRandomStream(pool1, generator), is(sameInstance(stream3)));
+        }
+        stream3.setFlowWeight(0.0);
+        ecosystem.setStreams(ecosystem.getStreams());
+        assertNull(ecosystem.getRandomStream(pool1, generator));
+    }
+
+    @Test
+    public void testSplittingOverflowUsesEveryStream() {
+
+        final long seed = 17;
+        Pool crowded = new Pool("crowded", 0.5, 40.0, 7.0, 0.8);
+        crowded.populate(2000, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.9, 1.0,
+                         new Random(seed));
+        Pool branch1 = new Pool("branch", 1000.0, 40.0, 7.0, 0.8);
+        Pool branch2 = new Pool("branch", 1000.0, 40.0, 7.0, 0.8);
+        ecosystem.addPool(crowded, false);
+        ecosystem.addPool(branch1, false);
+        ecosystem.addPool(branch2, false);
+        ecosystem.addStream(new Stream(crowded, branch1));
+        ecosystem.addStream(new Stream(crowded, branch2));
+        ecosystem.setSplittingOverflow(true);
+        long before = ecosystem.getCreaturePopulationCount();
+
+        long died = ecosystem.adjustForCrowding(new RandomStreams(seed), 1);
+
+        assertThat(branch1.getPopulationCount(), is(greaterThan(0L)));
+        assertThat(branch2.getPopulationCount(), is(greaterThan(0L)));
+        assertThat(ecosystem.getCreaturePopulationCount(), is(before - died));
+        assertThat(ecosystem.copy().isSplittingOverflow(), is(true));
+    }
+
+    @Test
+    public void testTransitDelaysArrival() {
+
+        final long seed = 17;
+        Pool crowded = new Pool("crowded", 0.5, 40.0, 7.0, 0.8);
+        crowded.populate(2000, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 1.0, 1.0,
+                         new Random(seed));
+        Pool destination = new Pool("destination", 1000.0, 40.0, 7.0, 0.8);
+        ecosystem.addPool(crowded);
+        ecosystem.addPool(destination);
+        ecosystem.getStreams().get(0).setTransitWeeks(2);
+        RandomStreams streams = new RandomStreams(seed);
+
+        assertThat(ecosystem.adjustForCrowding(streams, 1), is(0L));
+        long inTransit = ecosystem.getCreaturesInTransit();
+        assertThat(inTransit, is(greaterThan(0L)));
+        assertThat(crowded.getPopulationCount() + inTransit, is(2000L));
+        assertThat(ecosystem.copy().getCreaturesInTransit(), is(inTransit));
+
+        ecosystem.adjustForCrowding(streams, 2);
+        assertThat(destination.getPopulationCount(), is(0L));
+
+        ecosystem.adjustForCrowding(streams, 3);
+        assertThat(destination.getPopulationCount(), is(inTransit));
+        assertThat(ecosystem.getCreaturesInTransit(), is(0L));
+    }
+
+    @Test
+    public void testCapacityStrandsOverflow() {
+
+        final long seed = 17;
+        Pool crowded = new Pool("crowded", 0.5, 40.0, 7.0, 0.8);
+        crowded.populate(2000, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 1.0, 1.0,
+                         new Random(seed));
+        Pool destination = new Pool("destination", 1000.0, 40.0, 7.0, 0.8);
+        ecosystem.addPool(crowded);
+        ecosystem.addPool(destination);
+        ecosystem.getStreams().get(0).setCapacityLitres(1.0);
+
+        long died = ecosystem.adjustForCrowding(new RandomStreams(seed), 1);
+
+        assertThat(died, is(greaterThan(0L)));
+        assertThat(destination.getPopulationCount(), is(greaterThan(0L)));
+        assertThat(destination.getStorage().getVolumeNeededMl(), is(lessThanOrEqualTo(1000.0)));
+        crowded.removeDeadCreatures();
+        assertThat(crowded.getPopulationCount() + destination.getPopulationCount() + died,
+                   is(2000L));
+    }
+
+    @Test
+    public void testTransitAcrossPartitionsMatchesSerial() {
+
+        final long seed = 17;
+        Pool crowded = new Pool("crowded", 0.5, 40.0, 7.0, 0.8);
+        crowded.populate(2000, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 1.0,
+                         new Random(seed));
+        ecosystem.addPool(crowded);
+        ecosystem.addPool(new Pool("destination", 1000.0, 40.0, 7.0, 0.8));
+        ecosystem.getStreams().get(0).setTransitWeeks(1);
+        Ecosystem partitioned = ecosystem.copy();
+        RandomStreams streams = new RandomStreams(seed);
+
+        for (int week = 1; week <= 3; week++) {
+            ecosystem.adjustForCrowding(streams, week);
+            partitioned.adjustForCrowding(streams, week, new Partitioning(new int[] {0, 1}),
+                                          null);
+        }
+
+        assertThat(partitioned.getPools().get(1).getPopulationCount(),
+                   is(ecosystem.getPools().get(1).getPopulationCount()));
+        assertThat(partitioned.getPools().get(1).getPopulationCount(), is(greaterThan(0L)));
+    }
+
 }
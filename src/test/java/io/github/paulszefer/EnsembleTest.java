@@ -0,0 +1,126 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Ensemble;
+import io.github.paulszefer.sim.EnsembleWeek;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Tests the running and aggregation of the Ensemble class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class EnsembleTest {
+
+    private static final int REPLICAS = 20;
+    private static final int WEEKS = 10;
+
+    private Ecosystem scenario;
+
+    @Before
+    public void setUp() throws Exception {
+
+        scenario = new Ecosystem();
+        Pool pool = new Pool("first", 20.0, 40.0, 7.0, 0.6);
+        pool.populate(100, "Poecilia", "reticulata", 5, 25, 0.5, 0.5, 0.8,
+                      new RandomStreams(1).stream(RandomStreams.Phase.POPULATE, 0, 0));
+        scenario.addPool(pool);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoReplicas() {
+
+        new Ensemble(scenario, 0, 1);
+    }
+
+    @Test
+    public void testRunPublishesEachWeekInOrder() {
+
+        Ensemble ensemble = new Ensemble(scenario, REPLICAS, 1);
+        List<Integer> weeks = new ArrayList<>();
+        ensemble.addListener(week -> weeks.add(week.getWeek()));
+
+        List<EnsembleWeek> results = ensemble.run(WEEKS);
+
+        assertThat(results.size(), is(WEEKS));
+        for (int i = 0; i < WEEKS; i++) {
+            assertThat(weeks.get(i), is(i + 1));
+            assertThat(results.get(i).getWeek(), is(i + 1));
+            assertThat(results.get(i).getReplicas(), is((long) REPLICAS));
+        }
+    }
+
+    @Test
+    public void testRunLeavesScenarioUnchanged() {
+
+        new Ensemble(scenario, REPLICAS, 1).run(WEEKS);
+
+        assertThat(scenario.getCreaturePopulationCount(), is(100L));
+    }
+
+    @Test
+    public void testReplicasDiffer() {
+
+        EnsembleWeek last = new Ensemble(scenario, REPLICAS, 1).run(WEEKS).get(WEEKS - 1);
+
+        assertThat(last.getPopulation().getVariance(), is(greaterThan(0.0)));
+        assertThat(last.getPopulation().getConfidenceLower(),
+                   is(lessThanOrEqualTo(last.getPopulation().getMean())));
+    }
+
+    @Test
+    public void testSameSeedGivesSameStatistics() {
+
+        List<EnsembleWeek> first = new Ensemble(scenario, REPLICAS, 5).run(WEEKS);
+        List<EnsembleWeek> second = new Ensemble(scenario, REPLICAS, 5).run(WEEKS);
+
+        for (int i = 0; i < WEEKS; i++) {
+            assertThat(first.get(i).getPopulation().getMean(),
+                       closeTo(second.get(i).getPopulation().getMean(), 0.000001));
+            assertThat(first.get(i).getBirths().getVariance(),
+                       closeTo(second.get(i).getBirths().getVariance(), 0.000001));
+        }
+    }
+
+    @Test
+    public void testStatisticsDoNotDependOnThreads() {
+
+        Ensemble serial = new Ensemble(scenario, REPLICAS, 5);
+        Ensemble parallel = new Ensemble(scenario, REPLICAS, 5);
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool several = new ForkJoinPool(3);
+        serial.setForkJoinPool(single);
+        parallel.setForkJoinPool(several);
+
+        try {
+            List<EnsembleWeek> first = serial.run(WEEKS);
+            List<EnsembleWeek> second = parallel.run(WEEKS);
+
+            for (int i = 0; i < WEEKS; i++) {
+                assertThat(second.get(i).getPopulation().getMean(),
+                           is(first.get(i).getPopulation().getMean()));
+                assertThat(second.get(i).getPopulation().getVariance(),
+                           is(first.get(i).getPopulation().getVariance()));
+                assertThat(second.get(i).getBirths().getVariance(),
+                           is(first.get(i).getBirths().getVariance()));
+            }
+        } finally {
+            single.shutdown();
+            several.shutdown();
+        }
+    }
+}
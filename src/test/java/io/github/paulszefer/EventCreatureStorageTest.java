@@ -0,0 +1,184 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.Creature;
+import io.github.paulszefer.sim.EventCreatureStorage;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests that a pool using the EventCreatureStorage class matches a pool using the default
+ * storage in everything that does not depend on random draws.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class EventCreatureStorageTest {
+
+    public static final double TOLERANCE = 0.000001;
+
+    private static final Random GENERATOR = new Random();
+
+    private Pool listPool;
+    private Pool eventPool;
+
+    @Before
+    public void setUp() throws Exception {
+
+        listPool = new Pool("list", 10.0, 40.0, 7.0, 0.5);
+        eventPool = new Pool("events", 10.0, 40.0, 7.0, 0.5);
+        eventPool.setStorage(new EventCreatureStorage());
+
+        final int numberOfTestCreatures = 100;
+        for (int i = 0; i < numberOfTestCreatures; i++) {
+            Guppy guppy = new Guppy(GENERATOR.nextInt(Guppy.MAXIMUM_AGE), GENERATOR.nextDouble(),
+                                    GENERATOR.nextBoolean(), GENERATOR.nextInt(3));
+            guppy.getHealth().setAlive(GENERATOR.nextInt(10) > 0);
+            listPool.addCreature(guppy);
+            eventPool.addCreature(guppy.copy());
+        }
+    }
+
+    @Test
+    public void testPopulationMatches() {
+
+        assertThat(eventPool.getPopulation(), is(equalTo(listPool.getPopulation())));
+    }
+
+    @Test
+    public void testStatisticsMatch() {
+
+        assertStatisticsMatch();
+    }
+
+    @Test
+    public void testIncrementAgesMatchesEveryWeek() {
+
+        for (int week = 0; week < Guppy.MAXIMUM_AGE; week++) {
+            assertThat(eventPool.incrementAges(), is(equalTo(listPool.incrementAges())));
+            assertThat(eventPool.removeDeadCreatures(),
+                       is(equalTo(listPool.removeDeadCreatures())));
+            assertStatisticsMatch();
+        }
+        assertThat(eventPool.getPopulation(), is(0));
+    }
+
+    @Test
+    public void testRemoveDeadCreaturesMatches() {
+
+        assertThat(eventPool.removeDeadCreatures(), is(equalTo(listPool.removeDeadCreatures())));
+        assertThat(eventPool.getPopulation(), is(equalTo(listPool.getPopulation())));
+    }
+
+    @Test
+    public void testAdjustForCrowdingRemovesSameCreatures() {
+
+        listPool.setVolumeLitres(1.5);
+        eventPool.setVolumeLitres(1.5);
+
+        List<Creature> listRemoved = listPool.adjustForCrowding();
+        List<Creature> eventRemoved = eventPool.adjustForCrowding();
+
+        assertThat(eventRemoved.size(), is(equalTo(listRemoved.size())));
+        for (int i = 0; i < listRemoved.size(); i++) {
+            assertThat(eventRemoved.get(i).getIdentification().getIdentifier(),
+                       is(equalTo(listRemoved.get(i).getIdentification().getIdentifier())));
+        }
+        assertThat(eventPool.getVolumeLitres(),
+                   is(greaterThanOrEqualTo(eventPool.getCreatureVolumeRequirementInLitres())));
+    }
+
+    @Test
+    public void testNutrientCoefficientKillsExpectedShare() {
+
+        final int count = 10000;
+        EventCreatureStorage storage = new EventCreatureStorage();
+        for (int i = 0; i < count; i++) {
+            storage.add(new Guppy(5, 0.5, i % 2 == 0, 0));
+        }
+
+        long died = storage.applyNutrientCoefficient(0.75, new Random(3));
+
+        assertThat((double) died, is(closeTo(count * 0.25, count * 0.02)));
+        assertThat(storage.removeDead(), is(died));
+        assertThat(storage.size(), is(count - died));
+        assertThat(storage.getAgeHistogram().getTotal(), is(count - died));
+    }
+
+    @Test
+    public void testSpawnOnlyOnceOldEnough() {
+
+        EventCreatureStorage storage = new EventCreatureStorage();
+        for (int i = 0; i < 100; i++) {
+            storage.add(new Guppy(Guppy.MINIMUM_SPAWN_AGE - 1, 0.9, true, 0));
+        }
+        Random generator = new Random(5);
+
+        assertThat(storage.spawn(generator), is(0L));
+        storage.incrementAges();
+        long spawned = storage.spawn(generator);
+
+        assertThat(spawned, is(greaterThan(0L)));
+        assertThat(storage.size(), is(100 + spawned));
+        assertThat(storage.getAgeHistogram().getCount(0), is(spawned));
+    }
+
+    @Test
+    public void testSpawnAddsOffspring() {
+
+        eventPool.removeDeadCreatures();
+        int initial = eventPool.getPopulation();
+
+        int spawned = eventPool.spawn();
+
+        assertThat(eventPool.getPopulation(), is(equalTo(initial + spawned)));
+    }
+
+    @Test
+    public void testCopyIsEqual() {
+
+        Pool copy = eventPool.copy();
+
+        assertThat(copy, is(equalTo(eventPool)));
+    }
+
+    @Test
+    public void testGetCreaturesPreservesAttributes() {
+
+        List<Creature> expected = new ArrayList<>(listPool.getCreatures());
+        List<Creature> actual = eventPool.getCreatures();
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).getHealth().getAge(),
+                       is(equalTo(expected.get(i).getHealth().getAge())));
+            assertThat(actual.get(i).isFemale(), is(equalTo(expected.get(i).isFemale())));
+            assertThat(actual.get(i).getHealth().isAlive(),
+                       is(equalTo(expected.get(i).getHealth().isAlive())));
+        }
+    }
+
+    private void assertStatisticsMatch() {
+
+        assertThat(eventPool.getAverageAgeInWeeks(),
+                   is(closeTo(listPool.getAverageAgeInWeeks(), TOLERANCE)));
+        assertThat(eventPool.getAverageHealthCoefficient(),
+                   is(closeTo(listPool.getAverageHealthCoefficient(), TOLERANCE)));
+        assertThat(eventPool.getFemaleProportion(),
+                   is(closeTo(listPool.getFemaleProportion(), TOLERANCE)));
+        assertThat(eventPool.getCreatureVolumeRequirementInLitres(),
+                   is(closeTo(listPool.getCreatureVolumeRequirementInLitres(), TOLERANCE)));
+        assertThat(eventPool.getMedianAge(), is(equalTo(listPool.getMedianAge())));
+    }
+}
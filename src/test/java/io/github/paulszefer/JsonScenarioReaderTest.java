@@ -0,0 +1,199 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.CohortCreatureStorage;
+import io.github.paulszefer.sim.ColumnarCreatureStorage;
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.JsonScenarioReader;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.Scenario;
+import io.github.paulszefer.sim.ScenarioFormatException;
+import io.github.paulszefer.sim.Stream;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the parsing of JSON scenarios by the JsonScenarioReader class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class JsonScenarioReaderTest {
+
+    private static final String POOLS = "\"pools\": [\n"
+            + "  { \"name\": \"Skookumchuk\", \"volume\": 1000.0, \"temperature\": 42.0,\n"
+            + "    \"pH\": 7.9, \"nutrientCoefficient\": 0.9,\n"
+            + "    \"populations\": [ { \"count\": 100, \"minAge\": 10, \"maxAge\": 25,\n"
+            + "                         \"femaleChance\": 0.5, \"minHealth\": 0.5,\n"
+            + "                         \"maxHealth\": 0.8 } ] },\n"
+            + "  { \"name\": \"Rutherford\", \"volume\": 5000.0, \"storage\": \"columnar\",\n"
+            + "    \"creatures\": [ { \"age\": 12, \"health\": 0.7, \"female\": true,\n"
+            + "                       \"generation\": 3 },\n"
+            + "                     { \"age\": 4, \"health\": 0.9 } ] },\n"
+            + "  { \"name\": \"Gamelin\", \"volume\": 4300.0, \"storage\": \"cohort\",\n"
+            + "    \"cohorts\": [ { \"count\": 5000000, \"age\": 3, \"health\": 0.9 } ] }\n"
+            + "]";
+
+    private static Scenario read(String json) throws IOException {
+
+        return JsonScenarioReader.read(new ByteArrayInputStream(json.getBytes(
+                StandardCharsets.UTF_8)), new RandomStreams(1));
+    }
+
+    private static ScenarioFormatException error(String json) throws IOException {
+
+        try {
+            read(json);
+        } catch (ScenarioFormatException e) {
+            return e;
+        }
+        throw new AssertionError("No exception thrown");
+    }
+
+    @Test
+    public void testReadPools() throws Exception {
+
+        Scenario scenario = read("{ \"name\": \"EcoSim\", " + POOLS + " }");
+        Ecosystem ecosystem = scenario.getEcosystem();
+
+        assertThat(scenario.getName(), is("EcoSim"));
+        assertThat(ecosystem.getPools().size(), is(3));
+        Pool first = ecosystem.getPools().get(0);
+        assertThat(first.getName(), is("Skookumchuk"));
+        assertThat(first.getTemperature(), is(42.0));
+        assertThat(first.getpH(), is(7.9));
+        assertThat(first.getPopulation(), is(100));
+    }
+
+    @Test
+    public void testReadCreaturesAndCohorts() throws Exception {
+
+        Ecosystem ecosystem = read("{ \"name\": \"EcoSim\", " + POOLS + " }").getEcosystem();
+
+        Pool second = ecosystem.getPools().get(1);
+        assertThat(second.getStorage(), is(instanceOf(ColumnarCreatureStorage.class)));
+        assertThat(second.getPopulation(), is(2));
+        Guppy guppy = (Guppy) second.getCreatures().get(0);
+        assertThat(guppy.getHealth().getAge(), is(12));
+        assertThat(guppy.getHealth().getCoefficient(), is(0.7));
+        assertThat(guppy.isFemale(), is(true));
+        assertThat(guppy.getIdentification().getGeneration(), is(3));
+
+        Pool third = ecosystem.getPools().get(2);
+        assertThat(third.getStorage(), is(instanceOf(CohortCreatureStorage.class)));
+        assertThat(third.getPopulationCount(), is(5000000L));
+    }
+
+    @Test
+    public void testPoolsAreChainedWithoutStreams() throws Exception {
+
+        Ecosystem ecosystem = read("{ \"name\": \"EcoSim\", " + POOLS + " }").getEcosystem();
+
+        assertThat(ecosystem.getStreams().size(), is(2));
+        assertThat(ecosystem.getStreams().get(1).getSource(),
+                   is(sameInstance(ecosystem.getPools().get(1))));
+        assertThat(ecosystem.getStreams().get(1).getDestination(),
+                   is(sameInstance(ecosystem.getPools().get(2))));
+    }
+
+    @Test
+    public void testExplicitStreams() throws Exception {
+
+        Ecosystem ecosystem = read("{ \"name\": \"EcoSim\", " + POOLS + ",\n"
+                + "\"streams\": [ { \"from\": \"Skookumchuk\", \"to\": \"Gamelin\",\n"
+                + "                 \"name\": \"Creek\", \"temperature\": 30.0 },\n"
+                + "               { \"from\": \"Rutherford\", \"to\": \"Gamelin\" } ] }")
+                .getEcosystem();
+
+        assertThat(ecosystem.getStreams().size(), is(2));
+        Stream creek = ecosystem.getStreams().get(0);
+        assertThat(creek.getName(), is("Creek"));
+        assertThat(creek.getTemperature(), is(30.0));
+        assertThat(creek.getSource(), is(sameInstance(ecosystem.getPools().get(0))));
+        assertThat(creek.getDestination(), is(sameInstance(ecosystem.getPools().get(2))));
+        assertThat(ecosystem.getStreams().get(1).getSource(),
+                   is(sameInstance(ecosystem.getPools().get(1))));
+    }
+
+    @Test
+    public void testStreamWeightsAndSplitting() throws Exception {
+
+        Ecosystem ecosystem = read("{ \"name\": \"EcoSim\", \"splitOverflow\": true, " + POOLS
+                + ",\n\"streams\": [ { \"from\": \"Skookumchuk\", \"to\": \"Gamelin\",\n"
+                + "                 \"weight\": 3.0, \"capacity\": 2.0, \"transitWeeks\": 2 },\n"
+                + "               { \"from\": \"Skookumchuk\", \"to\": \"Rutherford\" } ] }")
+                .getEcosystem();
+
+        assertThat(ecosystem.isSplittingOverflow(), is(true));
+        assertThat(ecosystem.getStreams().get(0).getFlowWeight(), is(3.0));
+        assertThat(ecosystem.getStreams().get(0).getCapacityLitres(), is(2.0));
+        assertThat(ecosystem.getStreams().get(0).getTransitWeeks(), is(2));
+        assertThat(ecosystem.getStreams().get(1).getFlowWeight(),
+                   is(Stream.DEFAULT_FLOW_WEIGHT));
+    }
+
+    @Test
+    public void testEscapedName() throws Exception {
+
+        Scenario scenario = read("{ \"name\": \"Eco\\\"Sim\\u00e9\\n\", \"pools\": [] }");
+
+        assertThat(scenario.getName(), is("Eco\"Sim\u00e9\n"));
+    }
+
+    @Test
+    public void testStreamToUnknownPoolReportsLine() throws Exception {
+
+        ScenarioFormatException e = error("{ \"name\": \"EcoSim\", " + POOLS + ",\n"
+                + "\"streams\": [\n{ \"from\": \"Skookumchuk\", \"to\": \"Nowhere\" } ] }");
+
+        assertThat(e.getLineNumber(), is(15));
+        assertThat(e.getMessage(), containsString("Nowhere"));
+    }
+
+    @Test
+    public void testMalformedDocumentReportsLine() throws Exception {
+
+        assertThat(error("{\n\"name\": \"EcoSim\"\n\"pools\": [] }").getLineNumber(), is(3));
+        assertThat(error("{ \"name\": \"EcoSim\", \"pools\": [ { \"name\": \"A\",\n"
+                               + "\"volume\": \"large\" } ] }").getLineNumber(), is(2));
+        assertThat(error("{ \"name\": \"EcoSim\", \"pools\": [").getLineNumber(), is(1));
+    }
+
+    @Test
+    public void testUnknownMemberIsReported() throws Exception {
+
+        ScenarioFormatException e = error("{ \"name\": \"EcoSim\",\n\"pools\": [ { \"name\": "
+                + "\"A\", \"volme\": 1.0 } ] }");
+
+        assertThat(e.getLineNumber(), is(2));
+        assertThat(e.getMessage(), containsString("volme"));
+    }
+
+    @Test
+    public void testMissingPopulationMemberIsReported() throws Exception {
+
+        ScenarioFormatException e = error("{ \"pools\": [ { \"name\": \"A\", \"populations\": "
+                + "[ { \"count\": 3 } ] } ] }");
+
+        assertThat(e.getMessage(), containsString("minAge"));
+    }
+
+    @Test
+    public void testDuplicatePoolIsReported() throws Exception {
+
+        ScenarioFormatException e = error("{ \"pools\": [ { \"name\": \"A\" },\n"
+                + "{ \"name\": \"A\" } ] }");
+
+        assertThat(e.getLineNumber(), is(2));
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.AgeHistogram;
+import io.github.paulszefer.sim.Creature;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.LivingAggregates;
+import io.github.paulszefer.sim.ListCreatureStorage;
+import io.github.paulszefer.sim.Pool;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the constructors and methods of the LivingAggregates class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class LivingAggregatesTest {
+
+    private static final double TOLERANCE = 0.000001;
+
+    private LivingAggregates aggregates;
+
+    @Before
+    public void setUp() throws Exception {
+
+        aggregates = new LivingAggregates();
+        aggregates.add(10, 0.5, true, 10.0, 2);
+        aggregates.add(20, 1.0, false, 20.0, 2);
+    }
+
+    @Test
+    public void testGetCount() {
+
+        assertThat(aggregates.getCount(), is(4L));
+    }
+
+    @Test
+    public void testGetAverages() {
+
+        assertThat(aggregates.getAverageAgeInWeeks(), closeTo(15.0, TOLERANCE));
+        assertThat(aggregates.getAverageHealthCoefficient(), closeTo(0.75, TOLERANCE));
+        assertThat(aggregates.getFemaleProportion(), closeTo(0.5, TOLERANCE));
+        assertThat(aggregates.getVolumeNeededMl(), closeTo(60.0, TOLERANCE));
+    }
+
+    @Test
+    public void testRemove() {
+
+        aggregates.remove(20, 1.0, false, 20.0, 2);
+
+        assertThat(aggregates.getCount(), is(2L));
+        assertThat(aggregates.getAverageAgeInWeeks(), closeTo(10.0, TOLERANCE));
+        assertThat(aggregates.getFemaleProportion(), closeTo(1.0, TOLERANCE));
+        assertThat(aggregates.getAgeHistogram().getTotal(), is(2L));
+    }
+
+    @Test
+    public void testRemoveAllResetsSums() {
+
+        aggregates.remove(10, 0.5, true, 10.0, 2);
+        aggregates.remove(20, 1.0, false, 20.0, 2);
+
+        assertThat(aggregates.getCount(), is(0L));
+        assertThat(aggregates.getAverageAgeInWeeks(), is(0.0));
+        assertThat(aggregates.getVolumeNeededMl(), is(0.0));
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+
+        LivingAggregates copy = aggregates.copy();
+        copy.clear();
+
+        assertThat(aggregates.getCount(), is(4L));
+        assertThat(copy.getCount(), is(0L));
+    }
+
+    @Test
+    public void testPoolStatisticsFollowDeaths() {
+
+        Pool pool = new Pool();
+        for (int i = 0; i < 10; i++) {
+            pool.addCreature(new Guppy());
+        }
+        Creature creature = pool.getCreatures().get(0);
+        creature.getHealth().setAlive(false);
+
+        assertThat(pool.getPopulation(), is(10));
+        double volumeLitres = 9 * Guppy.getVolumeNeededAtAge(creature.getHealth().getAge()) / 1000;
+        assertThat(pool.getCreatureVolumeRequirementInLitres(), closeTo(volumeLitres, TOLERANCE));
+        pool.removeDeadCreatures();
+        assertThat(pool.getPopulation(), is(9));
+    }
+
+    @Test
+    public void testViewCreaturesKeepsAggregates() {
+
+        ListCreatureStorage storage = new ListCreatureStorage();
+        for (int i = 0; i < 10; i++) {
+            storage.add(new Guppy());
+        }
+        AgeHistogram histogram = storage.getAgeHistogram();
+
+        assertThat(storage.viewCreatures().size(), is(10));
+        assertThat(storage.getAgeHistogram(), is(sameInstance(histogram)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewCreaturesIsReadOnly() {
+
+        ListCreatureStorage storage = new ListCreatureStorage();
+        storage.add(new Guppy());
+
+        storage.viewCreatures().clear();
+    }
+}
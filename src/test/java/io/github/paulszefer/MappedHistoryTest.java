@@ -0,0 +1,182 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.CohortCreatureStorage;
+import io.github.paulszefer.sim.ColumnarCreatureStorage;
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.FullHistory;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.MappedHistory;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.Simulation;
+import io.github.paulszefer.sim.SimulationEngine;
+import io.github.paulszefer.sim.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static io.github.paulszefer.EcosystemAssertions.assertSameState;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the logging and reading of weeks by the MappedHistory class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class MappedHistoryTest {
+
+    private static final int WEEKS = 15;
+
+    private FullHistory full;
+    private Path file;
+    private MappedHistory mapped;
+
+    @Before
+    public void setUp() throws Exception {
+
+        full = new FullHistory();
+        file = Files.createTempFile("weeks", ".log");
+        mapped = new MappedHistory(file);
+
+        RandomStreams streams = new RandomStreams(9);
+        Ecosystem ecosystem = new Ecosystem();
+        Pool first = new Pool("first", 15.0, 40.0, 7.0, 0.8);
+        first.populate(80, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 0));
+        Pool second = new Pool("second", 10.0, 40.0, 7.0, 0.8);
+        second.setStorage(new ColumnarCreatureStorage());
+        second.populate(40, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                        streams.stream(RandomStreams.Phase.POPULATE, 0, 1));
+        Pool third = new Pool("third", 10.0, 40.0, 7.0, 0.8);
+        third.setStorage(new CohortCreatureStorage());
+        third.populate(40, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 2));
+        ecosystem.addPool(first);
+        ecosystem.addPool(second);
+        ecosystem.addPool(third);
+        ecosystem.addStream(new Stream(first, third));
+
+        SimulationEngine engine = new SimulationEngine(streams);
+        full.add(ecosystem.copy());
+        mapped.add(ecosystem.copy());
+        for (int week = 1; week <= WEEKS; week++) {
+            engine.step(ecosystem, week);
+            full.add(ecosystem.copy());
+            mapped.add(ecosystem.copy());
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        mapped.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(MappedHistory.indexFileOf(file));
+    }
+
+    @Test
+    public void testEveryWeekIsRead() {
+
+        assertThat(mapped.size(), is(WEEKS + 1));
+        for (int week = 0; week < mapped.size(); week++) {
+            assertSameState(mapped.get(week), full.get(week));
+        }
+    }
+
+    @Test
+    public void testTakeLatestHandsOverLastWeek() {
+
+        Ecosystem latest = mapped.get(WEEKS);
+
+        assertThat(mapped.takeLatest(), is(sameInstance(latest)));
+        assertThat(mapped.get(WEEKS), is(not(sameInstance(latest))));
+        assertSameState(mapped.get(WEEKS), full.get(WEEKS));
+    }
+
+    @Test
+    public void testReopenedLogHasEveryWeek() throws Exception {
+
+        mapped.close();
+
+        try (MappedHistory reopened = MappedHistory.open(file)) {
+            assertThat(reopened.size(), is(WEEKS + 1));
+            for (int week = WEEKS; week >= 0; week--) {
+                assertSameState(reopened.get(week), full.get(week));
+            }
+            assertThat(reopened.get(1).getPools().get(1).getStorage(),
+                       is(instanceOf(ColumnarCreatureStorage.class)));
+            assertThat(reopened.get(1).getStreams().get(2).getSource(),
+                       is(sameInstance(reopened.get(1).getPools().get(0))));
+        }
+    }
+
+    @Test
+    public void testReopenedLogIsAppendedTo() throws Exception {
+
+        mapped.close();
+
+        try (MappedHistory reopened = MappedHistory.open(file)) {
+            reopened.add(full.get(3).copy());
+        }
+        try (MappedHistory reopened = MappedHistory.open(file)) {
+            assertThat(reopened.size(), is(WEEKS + 2));
+            assertSameState(reopened.get(WEEKS + 1), full.get(3));
+            assertSameState(reopened.get(WEEKS), full.get(WEEKS));
+        }
+    }
+
+    @Test
+    public void testClear() throws Exception {
+
+        mapped.clear();
+        mapped.add(full.get(2).copy());
+        mapped.close();
+
+        try (MappedHistory reopened = MappedHistory.open(file)) {
+            assertThat(reopened.size(), is(1));
+            assertSameState(reopened.get(0), full.get(2));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenNotALog() throws Exception {
+
+        Path other = Files.createTempFile("weeks", ".txt");
+        Files.write(other, "not a log".getBytes("UTF-8"));
+        Files.write(MappedHistory.indexFileOf(other), "not an index".getBytes("UTF-8"));
+        try {
+            MappedHistory.open(other).close();
+        } finally {
+            Files.deleteIfExists(other);
+            Files.deleteIfExists(MappedHistory.indexFileOf(other));
+        }
+    }
+
+    @Test
+    public void testSimulationScrubsReopenedRun() throws Exception {
+
+        mapped.close();
+
+        try (MappedHistory reopened = MappedHistory.open(file)) {
+            Simulation simulation = new Simulation(9);
+            simulation.loadHistory("archive", reopened);
+            for (int i = 0; i < WEEKS; i++) {
+                simulation.nextWeek();
+            }
+            assertThat(simulation.getWeek(), is(WEEKS));
+            assertThat(reopened.size(), is(WEEKS + 1));
+
+            simulation.nextWeek();
+            assertThat(reopened.size(), is(WEEKS + 2));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.SimulationEngine;
+import io.github.paulszefer.sim.Stream;
+import io.github.paulszefer.sim.WeekReport;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Tests the constructors and methods of the RandomStreams class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class RandomStreamsTest {
+
+    private static final long SEED = 42;
+
+    private RandomStreams streams;
+
+    @Before
+    public void setUp() throws Exception {
+
+        streams = new RandomStreams(SEED);
+    }
+
+    @Test
+    public void testGetSeed() {
+
+        assertThat(streams.getSeed(), is(SEED));
+    }
+
+    @Test
+    public void testSameKeyGivesSameNumbers() {
+
+        Random first = streams.stream(RandomStreams.Phase.SPAWN, 3, 1);
+        Random second = new RandomStreams(SEED).stream(RandomStreams.Phase.SPAWN, 3, 1);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(first.nextLong(), is(second.nextLong()));
+        }
+    }
+
+    @Test
+    public void testDifferentKeysGiveDifferentNumbers() {
+
+        long spawn = streams.stream(RandomStreams.Phase.SPAWN, 3, 1).nextLong();
+
+        assertThat(streams.stream(RandomStreams.Phase.NUTRITION, 3, 1).nextLong(),
+                   is(not(spawn)));
+        assertThat(streams.stream(RandomStreams.Phase.SPAWN, 4, 1).nextLong(), is(not(spawn)));
+        assertThat(streams.stream(RandomStreams.Phase.SPAWN, 3, 2).nextLong(), is(not(spawn)));
+        assertThat(new RandomStreams(SEED + 1).stream(RandomStreams.Phase.SPAWN, 3, 1)
+                                               .nextLong(), is(not(spawn)));
+    }
+
+    @Test
+    public void testNextIntStaysInBounds() {
+
+        Random generator = streams.stream(RandomStreams.Phase.POPULATE, 0, 0);
+
+        for (int i = 0; i < 1000; i++) {
+            int value = generator.nextInt(7);
+            assertThat(value >= 0 && value < 7, is(true));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetSeedIsNotAllowed() {
+
+        streams.stream(RandomStreams.Phase.POPULATE, 0, 0).setSeed(1);
+    }
+
+    @Test
+    public void testEnginesWithSameSeedProduceSameWeeks() {
+
+        SimulationEngine first = new SimulationEngine(new RandomStreams(SEED));
+        SimulationEngine second = new SimulationEngine(new RandomStreams(SEED));
+        Ecosystem firstEcosystem = createEcosystem();
+        Ecosystem secondEcosystem = createEcosystem();
+
+        for (int week = 1; week <= 30; week++) {
+            WeekReport firstReport = first.step(firstEcosystem, week);
+            WeekReport secondReport = second.step(secondEcosystem, week);
+
+            assertThat(firstReport.getPoolPopulations(),
+                       is(equalTo(secondReport.getPoolPopulations())));
+            assertThat(firstReport.getBirths(), is(secondReport.getBirths()));
+            assertThat(firstReport.getCrowdedOut(), is(secondReport.getCrowdedOut()));
+        }
+    }
+
+    private Ecosystem createEcosystem() {
+
+        Ecosystem ecosystem = new Ecosystem();
+        Pool pool1 = new Pool("first", 30.0, 40.0, 7.0, 0.7);
+        pool1.populate(100, "Poecilia", "reticulata", 5, 25, 0.5, 0.5, 0.8,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 0));
+        Pool pool2 = new Pool("second", 20.0, 40.0, 7.0, 0.7);
+        pool2.populate(50, "Poecilia", "reticulata", 5, 25, 0.5, 0.5, 0.8,
+                       streams.stream(RandomStreams.Phase.POPULATE, 0, 1));
+        ecosystem.addPool(pool1);
+        ecosystem.addPool(pool2);
+        ecosystem.addStream(new Stream("between", pool1, pool2));
+        return ecosystem;
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.ReplayHistory;
+import io.github.paulszefer.sim.Simulation;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.github.paulszefer.EcosystemAssertions.assertSameState;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the re-simulation of weeks by the ReplayHistory class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class ReplayHistoryTest {
+
+    private static final long SEED = 17;
+    private static final int WEEKS = 30;
+
+    private Simulation simulation;
+    private List<Ecosystem> expected;
+
+    @Before
+    public void setUp() throws Exception {
+
+        Ecosystem ecosystem = new Ecosystem();
+        Pool first = new Pool("first", 15.0, 40.0, 7.0, 0.8);
+        first.populate(80, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                       new RandomStreams(SEED).stream(RandomStreams.Phase.POPULATE, 0, 0));
+        Pool second = new Pool("second", 10.0, 40.0, 7.0, 0.8);
+        ecosystem.addPool(first);
+        ecosystem.addPool(second);
+
+        // the weeks as first simulated, kept whole for comparison
+        Simulation reference = new Simulation(SEED);
+        reference.load("reference", ecosystem);
+        expected = new ArrayList<>();
+        expected.add(reference.getHistory().get(0));
+        for (int week = 1; week <= WEEKS; week++) {
+            reference.simulateOneWeek();
+            expected.add(reference.getHistory().get(week));
+        }
+
+        simulation = new Simulation(SEED);
+        simulation.setHistory(new ReplayHistory(simulation.getRandomStreams(), 10, 4));
+        simulation.load("replayed", ecosystem);
+        for (int week = 1; week <= WEEKS; week++) {
+            simulation.simulateOneWeek();
+        }
+    }
+
+    @Test
+    public void testCheckpointsAreSparse() {
+
+        ReplayHistory history = (ReplayHistory) simulation.getHistory();
+
+        assertThat(history.size(), is(WEEKS + 1));
+        assertThat(history.getCheckpointCount(), is(4));
+    }
+
+    @Test
+    public void testEveryWeekIsRebuilt() {
+
+        for (int week = WEEKS; week >= 0; week--) {
+            assertSameState(simulation.getHistory().get(week), expected.get(week), true);
+        }
+    }
+
+    @Test
+    public void testRebuiltWeekIsCached() {
+
+        Ecosystem rebuilt = simulation.getHistory().get(15);
+
+        assertThat(simulation.getHistory().get(15), is(sameInstance(rebuilt)));
+    }
+
+    @Test
+    public void testTakeLatestHandsOverLastWeek() {
+
+        // a week past the last checkpoint, which only the latest state holds
+        simulation.simulateOneWeek();
+        ReplayHistory history = (ReplayHistory) simulation.getHistory();
+        Ecosystem latest = history.get(WEEKS + 1);
+        Ecosystem copy = history.getCopy(WEEKS + 1);
+
+        assertThat(history.takeLatest(), is(sameInstance(latest)));
+        assertThat(history.get(WEEKS + 1), is(not(sameInstance(latest))));
+        assertSameState(history.get(WEEKS + 1), copy, false);
+    }
+
+    @Test
+    public void testStepBackAndForward() {
+
+        for (int i = 0; i < WEEKS; i++) {
+            simulation.previousWeek();
+        }
+        for (int i = 0; i < WEEKS; i++) {
+            simulation.nextWeek();
+        }
+
+        assertThat(simulation.getWeek(), is(WEEKS));
+        assertSameState(simulation.getHistory().get(WEEKS), expected.get(WEEKS), true);
+    }
+
+    @Test
+    public void testPartitionedWeeksAreRebuilt() {
+
+        final int partitions = 3;
+        Simulation reference = new Simulation(SEED);
+        reference.getEngine().setPartitions(partitions);
+        reference.load("reference", createCrowdedChain());
+        Simulation replayed = new Simulation(SEED);
+        replayed.setHistory(new ReplayHistory(replayed.getRandomStreams(), 10, 4));
+        replayed.getEngine().setPartitions(partitions);
+        replayed.load("replayed", createCrowdedChain());
+        for (int week = 1; week <= WEEKS; week++) {
+            reference.simulateOneWeek();
+            replayed.simulateOneWeek();
+        }
+
+        assertThat(((ReplayHistory) replayed.getHistory()).getPartitions(), is(partitions));
+        for (int week = WEEKS; week >= 0; week--) {
+            assertSameState(replayed.getHistory().get(week), reference.getHistory().get(week),
+                            false);
+        }
+    }
+
+    @Test
+    public void testHistoryTakesPartitionsOfEngine() {
+
+        simulation.getEngine().setPartitions(2);
+
+        ReplayHistory history = new ReplayHistory(simulation.getEngine(), 10, 4);
+
+        assertThat(history.getPartitions(), is(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCheckpointInterval() {
+
+        new ReplayHistory(new RandomStreams(SEED), 0, 4);
+    }
+
+    private static Ecosystem createCrowdedChain() {
+
+        RandomStreams streams = new RandomStreams(SEED);
+        Ecosystem chain = new Ecosystem();
+        final int numberOfPools = 6;
+        for (int i = 0; i < numberOfPools; i++) {
+            Pool pool = new Pool("pool" + i, 2.0 + i, 40.0, 7.0, 0.8);
+            pool.populate(60, Guppy.GENUS, Guppy.SPECIES, 5, 25, 0.5, 0.5, 0.9,
+                          streams.stream(RandomStreams.Phase.POPULATE, 0, i));
+            chain.addPool(pool);
+        }
+        return chain;
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.RunningStatistics;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests the constructors and methods of the RunningStatistics class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class RunningStatisticsTest {
+
+    private static final double TOLERANCE = 0.000001;
+
+    private RunningStatistics statistics;
+
+    @Before
+    public void setUp() throws Exception {
+
+        statistics = new RunningStatistics();
+
+        // mean 5, sample variance 32 / 7
+        for (double value : new double[] {2, 4, 4, 4, 5, 5, 7, 9}) {
+            statistics.add(value);
+        }
+    }
+
+    @Test
+    public void testEmptyStatistics() {
+
+        RunningStatistics empty = new RunningStatistics();
+
+        assertThat(empty.getCount(), is(0L));
+        assertThat(empty.getMean(), is(0.0));
+        assertThat(empty.getVariance(), is(0.0));
+        assertThat(empty.getStandardError(), is(0.0));
+    }
+
+    @Test
+    public void testGetMean() {
+
+        assertThat(statistics.getCount(), is(8L));
+        assertThat(statistics.getMean(), closeTo(5.0, TOLERANCE));
+    }
+
+    @Test
+    public void testGetVariance() {
+
+        assertThat(statistics.getVariance(), closeTo(32.0 / 7, TOLERANCE));
+        assertThat(statistics.getStandardDeviation(), closeTo(Math.sqrt(32.0 / 7), TOLERANCE));
+    }
+
+    @Test
+    public void testConfidenceIntervalContainsMean() {
+
+        double halfWidth = 1.959963984540054 * Math.sqrt(32.0 / 7) / Math.sqrt(8);
+
+        assertThat(statistics.getConfidenceLower(), closeTo(5.0 - halfWidth, TOLERANCE));
+        assertThat(statistics.getConfidenceUpper(), closeTo(5.0 + halfWidth, TOLERANCE));
+    }
+
+    @Test
+    public void testMergeMatchesAddingAllValues() {
+
+        RunningStatistics first = new RunningStatistics();
+        RunningStatistics second = new RunningStatistics();
+        for (double value : new double[] {2, 4, 4}) {
+            first.add(value);
+        }
+        for (double value : new double[] {4, 5, 5, 7, 9}) {
+            second.add(value);
+        }
+        first.merge(second);
+
+        assertThat(first.getCount(), is(8L));
+        assertThat(first.getMean(), closeTo(statistics.getMean(), TOLERANCE));
+        assertThat(first.getVariance(), closeTo(statistics.getVariance(), TOLERANCE));
+    }
+
+    @Test
+    public void testLargeValuesKeepPrecision() {
+
+        RunningStatistics large = new RunningStatistics();
+        final double offset = 1e12;
+        large.add(offset + 1);
+        large.add(offset + 2);
+        large.add(offset + 3);
+
+        assertThat(large.getVariance(), closeTo(1.0, TOLERANCE));
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.Scenario;
+import io.github.paulszefer.sim.ScenarioFormatException;
+import io.github.paulszefer.sim.ScenarioReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests the parsing of text scenarios by the ScenarioReader class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class ScenarioReaderTest {
+
+    private static final String POOL = "Skookumchuk\n1000.0\n42.0\n7.9\n0.9\n100\nPoecilia\n"
+            + "reticulata\n10\n25\n0.5\n0.5\n0.8\n";
+
+    private static Scenario read(String text) throws IOException {
+
+        return ScenarioReader.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+                                   new RandomStreams(1));
+    }
+
+    private static int lineOfError(String text) throws IOException {
+
+        try {
+            read(text);
+        } catch (ScenarioFormatException e) {
+            return e.getLineNumber();
+        }
+        return -1;
+    }
+
+    @Test
+    public void testReadPool() throws Exception {
+
+        Scenario scenario = read("EcoSim\n" + POOL);
+
+        assertThat(scenario.getName(), is("EcoSim"));
+        assertThat(scenario.getEcosystem().getPools().size(), is(1));
+        Pool pool = scenario.getEcosystem().getPools().get(0);
+        assertThat(pool.getName(), is("Skookumchuk"));
+        assertThat(pool.getVolumeLitres(), is(1000.0));
+        assertThat(pool.getTemperature(), is(42.0));
+        assertThat(pool.getpH(), is(7.9));
+        assertThat(pool.getNutrientCoefficient(), is(0.9));
+        assertThat(pool.getPopulation(), is(100));
+    }
+
+    @Test
+    public void testReadResource() throws Exception {
+
+        Scenario scenario = ScenarioReader.read(Paths.get("src/main/resources/EcoSim.txt"),
+                                                new RandomStreams(1));
+        Ecosystem ecosystem = scenario.getEcosystem();
+
+        assertThat(ecosystem.getPools().size(), is(3));
+        assertThat(ecosystem.getStreams().size(), is(2));
+        assertThat(ecosystem.getPools().get(1).getName(), is("Rutherford"));
+        assertThat(ecosystem.getPools().get(1).getVolumeLitres(), is(5000.0));
+    }
+
+    @Test
+    public void testSameSeedPopulatesIdentically() throws Exception {
+
+        Pool first = read("EcoSim\n" + POOL).getEcosystem().getPools().get(0);
+        Pool second = read("EcoSim\n" + POOL).getEcosystem().getPools().get(0);
+
+        assertThat(first.getAverageAgeInWeeks(), is(second.getAverageAgeInWeeks()));
+        assertThat(first.getAverageHealthCoefficient(),
+                   is(second.getAverageHealthCoefficient()));
+    }
+
+    @Test
+    public void testWindowsLineEndingsAndBlankLines() throws Exception {
+
+        Scenario scenario = read(("EcoSim\n" + POOL + "\n\n" + POOL + "\n").replace("\n", "\r\n"));
+
+        assertThat(scenario.getEcosystem().getPools().size(), is(2));
+        assertThat(scenario.getEcosystem().getPools().get(1).getName(), is("Skookumchuk"));
+        assertThat(scenario.getEcosystem().getPools().get(1).getpH(), is(7.9));
+    }
+
+    @Test
+    public void testNoTrailingNewline() throws Exception {
+
+        Scenario scenario = read("EcoSim\n" + POOL.trim());
+
+        assertThat(scenario.getEcosystem().getPools().get(0).getPopulation(), is(100));
+    }
+
+    @Test
+    public void testNumbersMatchDoubleParsing() throws Exception {
+
+        String[] numbers = { "0.1", "-0.0", "+3", "1e3", "2.5E-3", "123456789.123456789",
+                "0.30000000000000004", "9007199254740993", "1e-30", "  7.25  ", "Infinity",
+                "4.9e-324", "1.7976931348623157e308" };
+        for (String number : numbers) {
+            double volume = read("EcoSim\nPool\n" + number + "\n42.0\n7.9\n0.9\n0\nPoecilia\n"
+                    + "reticulata\n10\n25\n0.5\n0.5\n0.8\n").getEcosystem().getPools().get(0)
+                                                             .getVolumeLitres();
+            assertThat(number, volume, is(Math.max(Double.parseDouble(number), 0.0)));
+        }
+
+        Random random = new Random(5);
+        for (int i = 0; i < 1000; i++) {
+            String number = String.valueOf(random.nextInt(1000000) / 1000.0 + random.nextDouble());
+            double volume = read("EcoSim\nPool\n" + number + "\n42.0\n7.9\n0.9\n0\nPoecilia\n"
+                    + "reticulata\n10\n25\n0.5\n0.5\n0.8\n").getEcosystem().getPools().get(0)
+                                                             .getVolumeLitres();
+            assertThat(number, volume, is(Double.parseDouble(number)));
+        }
+    }
+
+    @Test
+    public void testInvalidNumberReportsLine() throws Exception {
+
+        assertThat(lineOfError("EcoSim\n" + POOL.replace("42.0", "forty-two")), is(4));
+        assertThat(lineOfError("EcoSim\n" + POOL.replace("\n100\n", "\n1.5\n")), is(7));
+    }
+
+    @Test
+    public void testTruncatedPoolReportsLine() throws Exception {
+
+        assertThat(lineOfError("EcoSim\nSkookumchuk\n1000.0\n"), is(4));
+    }
+
+    @Test
+    public void testInvalidAgesReportLine() throws Exception {
+
+        assertThat(lineOfError("EcoSim\n" + POOL.replace("\n10\n25\n", "\n30\n25\n")), is(11));
+    }
+
+    @Test
+    public void testErrorMessageNamesField() {
+
+        try {
+            read("EcoSim\n" + POOL.replace("7.9", "acidic"));
+        } catch (IOException e) {
+            assertThat(e.getMessage(), containsString("Line 5"));
+            assertThat(e.getMessage(), containsString("the pH of pool 'Skookumchuk'"));
+            assertThat(e.getMessage(), containsString("'acidic'"));
+            return;
+        }
+        throw new AssertionError("No exception thrown");
+    }
+
+    @Test(expected = ScenarioFormatException.class)
+    public void testEmptyFile() throws Exception {
+
+        read("");
+    }
+}
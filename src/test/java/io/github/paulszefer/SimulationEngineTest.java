@@ -0,0 +1,227 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.SimulationEngine;
+import io.github.paulszefer.sim.SimulationListener;
+import io.github.paulszefer.sim.Stream;
+import io.github.paulszefer.sim.WeekReport;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static io.github.paulszefer.EcosystemAssertions.assertSameState;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the headless stepping of the SimulationEngine class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class SimulationEngineTest {
+
+    private SimulationEngine engine;
+    private Ecosystem ecosystem;
+    private List<WeekReport> reports;
+
+    @Before
+    public void setUp() throws Exception {
+
+        engine = new SimulationEngine();
+        reports = new ArrayList<>();
+        engine.addListener((report, state) -> reports.add(report));
+
+        ecosystem = new Ecosystem();
+        Pool pool1 = new Pool("first", 1000.0, 40.0, 7.0, 0.9);
+        pool1.populate(100, "Poecilia", "reticulata", 10, 25, 0.5, 0.5, 0.8);
+        Pool pool2 = new Pool("second", 500.0, 40.0, 7.0, 0.9);
+        pool2.populate(50, "Poecilia", "reticulata", 10, 25, 0.5, 0.5, 0.8);
+        ecosystem.addPool(pool1);
+        ecosystem.addPool(pool2);
+    }
+
+    @Test
+    public void testStepNotifiesListeners() {
+
+        WeekReport report = engine.step(ecosystem, 1);
+
+        assertThat(reports.size(), is(1));
+        assertThat(reports.get(0), is(sameInstance(report)));
+    }
+
+    @Test
+    public void testStepReportsWeek() {
+
+        assertThat(engine.step(ecosystem, 7).getWeek(), is(7));
+    }
+
+    @Test
+    public void testStepReportsPopulations() {
+
+        WeekReport report = engine.step(ecosystem, 1);
+
+        assertThat(report.getPoolPopulations()[0],
+                   is(equalTo(ecosystem.getPools().get(0).getPopulationCount())));
+        assertThat(report.getPoolPopulations()[1],
+                   is(equalTo(ecosystem.getPools().get(1).getPopulationCount())));
+        assertThat(report.getEcosystemPopulation(),
+                   is(equalTo(ecosystem.getCreaturePopulationCount())));
+    }
+
+    @Test
+    public void testRunStepsEachWeek() {
+
+        final int numberOfWeeks = 5;
+        engine.run(ecosystem, 1, numberOfWeeks);
+
+        assertThat(reports.size(), is(numberOfWeeks));
+        assertThat(reports.get(numberOfWeeks - 1).getWeek(), is(numberOfWeeks));
+    }
+
+    @Test
+    public void testRemovedListenerIsNotNotified() {
+
+        SimulationListener listener = (report, state) -> reports.add(report);
+        engine.addListener(listener);
+        engine.removeListener(listener);
+        engine.step(ecosystem, 1);
+
+        assertThat(reports.size(), is(1));
+    }
+
+    @Test
+    public void testParallelStepMatchesSerialStep() {
+
+        final long seed = 7;
+        SimulationEngine serial = new SimulationEngine(new RandomStreams(seed));
+        SimulationEngine parallel = new SimulationEngine(new RandomStreams(seed));
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        parallel.setForkJoinPool(forkJoinPool);
+        Ecosystem serialEcosystem = createChain(seed);
+        Ecosystem parallelEcosystem = createChain(seed);
+
+        try {
+            for (int week = 1; week <= 20; week++) {
+                WeekReport serialReport = serial.step(serialEcosystem, week);
+                WeekReport parallelReport = parallel.step(parallelEcosystem, week);
+
+                assertThat(parallelReport.getPoolPopulations(),
+                           is(equalTo(serialReport.getPoolPopulations())));
+                assertThat(parallelReport.getBirths(), is(serialReport.getBirths()));
+                assertThat(parallelReport.getStarvedToDeath(),
+                           is(serialReport.getStarvedToDeath()));
+                assertThat(parallelReport.getCrowdedOut(), is(serialReport.getCrowdedOut()));
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelStepNumbersNewbornsAlike() {
+
+        final long seed = 7;
+        SimulationEngine serial = new SimulationEngine(new RandomStreams(seed));
+        SimulationEngine parallel = new SimulationEngine(new RandomStreams(seed));
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        parallel.setForkJoinPool(forkJoinPool);
+        Ecosystem serialEcosystem = createChain(seed);
+        Ecosystem parallelEcosystem = serialEcosystem.copy();
+
+        try {
+            for (int week = 1; week <= 20; week++) {
+                serial.step(serialEcosystem, week);
+                parallel.step(parallelEcosystem, week);
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+
+        assertSameState(parallelEcosystem, serialEcosystem, true);
+    }
+
+    @Test
+    public void testSinglePartitionMatchesSerialStep() {
+
+        final long seed = 11;
+        SimulationEngine serial = new SimulationEngine(new RandomStreams(seed));
+        SimulationEngine partitioned = new SimulationEngine(new RandomStreams(seed));
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        partitioned.setForkJoinPool(forkJoinPool);
+        partitioned.setPartitions(1);
+        Ecosystem serialEcosystem = createChain(seed);
+        Ecosystem partitionedEcosystem = createChain(seed);
+
+        try {
+            for (int week = 1; week <= 20; week++) {
+                WeekReport serialReport = serial.step(serialEcosystem, week);
+                WeekReport partitionedReport = partitioned.step(partitionedEcosystem, week);
+
+                assertThat(partitionedReport.getPoolPopulations(),
+                           is(equalTo(serialReport.getPoolPopulations())));
+                assertThat(partitionedReport.getCrowdedOut(), is(serialReport.getCrowdedOut()));
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPartitionedStepDoesNotDependOnThreads() {
+
+        final long seed = 13;
+        SimulationEngine threaded = new SimulationEngine(new RandomStreams(seed));
+        SimulationEngine unthreaded = new SimulationEngine(new RandomStreams(seed));
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        threaded.setForkJoinPool(forkJoinPool);
+        threaded.setPartitions(4);
+        unthreaded.setPartitions(4);
+        Ecosystem threadedEcosystem = createChain(seed);
+        Ecosystem unthreadedEcosystem = createChain(seed);
+
+        try {
+            for (int week = 1; week <= 20; week++) {
+                WeekReport threadedReport = threaded.step(threadedEcosystem, week);
+                WeekReport unthreadedReport = unthreaded.step(unthreadedEcosystem, week);
+
+                assertThat(threadedReport.getPoolPopulations(),
+                           is(equalTo(unthreadedReport.getPoolPopulations())));
+                assertThat(threadedReport.getCrowdedOut(), is(unthreadedReport.getCrowdedOut()));
+                assertThat(threadedReport.getBirths(), is(unthreadedReport.getBirths()));
+            }
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativePartitionsAreRejected() {
+
+        engine.setPartitions(-1);
+    }
+
+    private Ecosystem createChain(long seed) {
+
+        RandomStreams streams = new RandomStreams(seed);
+        Ecosystem chain = new Ecosystem();
+        final int numberOfPools = 8;
+        for (int i = 0; i < numberOfPools; i++) {
+            Pool pool = new Pool("pool" + i, 20.0 + i, 40.0, 7.0, 0.7);
+            pool.populate(60, "Poecilia", "reticulata", 5, 25, 0.5, 0.5, 0.9,
+                          streams.stream(RandomStreams.Phase.POPULATE, 0, i));
+            chain.addPool(pool, false);
+            if (i > 0) {
+                chain.addStream(new Stream(chain.getPools().get(i - 1), pool));
+            }
+        }
+        return chain;
+    }
+}
@@ -1,8 +1,12 @@
 package io.github.paulszefer;
 
 import io.github.paulszefer.sim.Creature;
+import io.github.paulszefer.sim.Ecosystem;
 import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.ListCreatureStorage;
 import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.SimulationEngine;
 import io.github.paulszefer.sim.Stream;
 import org.junit.Before;
 import org.junit.Test;
@@ -123,4 +127,66 @@ public class StreamTest {
                    is(closeTo(deathProportion * testGuppies2.size(), testGuppies2.size() * 0.1)));
     }
 
+    @Test
+    public void setFlowWeightValid() throws Exception {
+
+        stream1.setFlowWeight(2.5);
+        assertThat(stream1.getFlowWeight(), is(equalTo(2.5)));
+        assertThat(stream1.copy().getFlowWeight(), is(equalTo(2.5)));
+    }
+
+    @Test
+    public void setFlowWeightInvalidUsesDefault() throws Exception {
+
+        stream1.setFlowWeight(-1.0);
+        assertThat(stream1.getFlowWeight(), is(equalTo(Stream.DEFAULT_FLOW_WEIGHT)));
+        stream1.setFlowWeight(Double.NaN);
+        assertThat(stream1.getFlowWeight(), is(equalTo(Stream.DEFAULT_FLOW_WEIGHT)));
+    }
+
+    @Test
+    public void setCapacityAndTransitInvalidUseDefaults() throws Exception {
+
+        stream1.setCapacityLitres(-1.0);
+        stream1.setTransitWeeks(-1);
+        assertThat(stream1.getCapacityLitres(), is(equalTo(Stream.DEFAULT_CAPACITY_LITRES)));
+        assertThat(stream1.getTransitWeeks(), is(equalTo(Stream.DEFAULT_TRANSIT_WEEKS)));
+    }
+
+    @Test
+    public void oldGuppyDiesInTransit() throws Exception {
+
+        Ecosystem ecosystem = new Ecosystem();
+        Pool source = new Pool("source", 10.0, 40.0, 7.0, 0.9);
+        Pool destination = new Pool("destination", 10.0, 40.0, 7.0, 0.9);
+        ecosystem.addPool(source);
+        ecosystem.addPool(destination);
+        Stream stream = ecosystem.getStreams().get(0);
+        stream.setTransitWeeks(2);
+        ListCreatureStorage travellers = new ListCreatureStorage();
+        travellers.add(new Guppy(Guppy.MAXIMUM_AGE - 1, 1.0, true, 0));
+        stream.transport(travellers, new Random(1));
+        assertThat(stream.getCreaturesInTransit(), is(equalTo(1L)));
+
+        SimulationEngine engine = new SimulationEngine(new RandomStreams(1));
+        long diedOfOldAge = 0;
+        for (int week = 1; week <= 3; week++) {
+            diedOfOldAge += engine.step(ecosystem, week).getDiedOfOldAge();
+            assertThat(destination.getPopulation(), is(equalTo(0)));
+        }
+        assertThat(stream.getCreaturesInTransit(), is(equalTo(0L)));
+        assertThat(diedOfOldAge, is(equalTo(1L)));
+    }
+
+    @Test
+    public void copyKeepsCapacityAndTransit() throws Exception {
+
+        stream1.setCapacityLitres(2.0);
+        stream1.setTransitWeeks(3);
+        Stream copy = stream1.copy();
+        assertThat(copy.getCapacityLitres(), is(equalTo(2.0)));
+        assertThat(copy.getTransitWeeks(), is(equalTo(3)));
+        assertThat(copy, is(equalTo(stream1)));
+    }
+
 }
\ No newline at end of file
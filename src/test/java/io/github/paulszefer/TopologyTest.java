@@ -0,0 +1,248 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Partitioning;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.Stream;
+import io.github.paulszefer.sim.Topology;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the ordering of pools by the Topology class and the crowding it drives.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class TopologyTest {
+
+    private Ecosystem ecosystem;
+    private Pool first;
+    private Pool second;
+    private Pool third;
+
+    @Before
+    public void setUp() throws Exception {
+
+        ecosystem = new Ecosystem();
+        first = new Pool("first", 0.0, 40.0, 7.0, 0.8);
+        second = new Pool("second", 0.0, 40.0, 7.0, 0.8);
+        third = new Pool("third", 1000.0, 40.0, 7.0, 0.8);
+    }
+
+    @Test
+    public void testChainKeepsListOrder() {
+
+        ecosystem.addPool(first);
+        ecosystem.addPool(second);
+        ecosystem.addPool(third);
+
+        assertThat(ecosystem.getTopology().getOrder(), is(new int[] {0, 1, 2}));
+        assertThat(ecosystem.getTopology().isCyclic(), is(false));
+    }
+
+    @Test
+    public void testPoolsFollowTheirSources() {
+
+        ecosystem.addPool(third, false);
+        ecosystem.addPool(second, false);
+        ecosystem.addPool(first, false);
+        ecosystem.addStream(new Stream(first, second));
+        ecosystem.addStream(new Stream(second, third));
+
+        assertThat(ecosystem.getTopology().getOrder(), is(new int[] {2, 1, 0}));
+    }
+
+    @Test
+    public void testBranchesComeBeforeTheirConfluence() {
+
+        Pool fourth = new Pool();
+        ecosystem.addPool(fourth, false);
+        ecosystem.addPool(first, false);
+        ecosystem.addPool(second, false);
+        ecosystem.addPool(third, false);
+        ecosystem.addStream(new Stream(first, second));
+        ecosystem.addStream(new Stream(first, third));
+        ecosystem.addStream(new Stream(second, fourth));
+        ecosystem.addStream(new Stream(third, fourth));
+        Topology topology = ecosystem.getTopology();
+
+        assertThat(topology.getComponent(1), is(lessThan(topology.getComponent(2))));
+        assertThat(topology.getComponent(1), is(lessThan(topology.getComponent(3))));
+        assertThat(topology.getComponent(2), is(lessThan(topology.getComponent(0))));
+        assertThat(topology.getComponent(3), is(lessThan(topology.getComponent(0))));
+        assertThat(topology.get(3), is(0));
+    }
+
+    @Test
+    public void testCycleIsOneComponentInListOrder() {
+
+        Pool fourth = new Pool();
+        ecosystem.addPool(fourth, false);
+        ecosystem.addPool(third, false);
+        ecosystem.addPool(second, false);
+        ecosystem.addPool(first, false);
+        ecosystem.addStream(new Stream(first, second));
+        ecosystem.addStream(new Stream(second, third));
+        ecosystem.addStream(new Stream(third, first));
+        ecosystem.addStream(new Stream(third, fourth));
+        Topology topology = ecosystem.getTopology();
+
+        assertThat(topology.isCyclic(), is(true));
+        assertThat(topology.getComponentCount(), is(2));
+        assertThat(topology.getComponentSize(topology.getComponent(1)), is(3));
+        assertThat(topology.getOrder(), is(new int[] {1, 2, 3, 0}));
+    }
+
+    @Test
+    public void testStreamToItselfIsCyclic() {
+
+        ecosystem.addPool(first, false);
+        ecosystem.addStream(new Stream(first, first));
+
+        assertThat(ecosystem.getTopology().isCyclic(), is(true));
+    }
+
+    @Test
+    public void testTopologyIsRecomputedAfterChanges() {
+
+        ecosystem.addPool(second, false);
+        ecosystem.addPool(first, false);
+        Topology before = ecosystem.getTopology();
+        ecosystem.addStream(new Stream(first, second));
+
+        assertThat(ecosystem.getTopology(), is(not(sameInstance(before))));
+        assertThat(ecosystem.getTopology().getOrder(), is(new int[] {1, 0}));
+        assertThat(ecosystem.getTopology(), is(sameInstance(ecosystem.getTopology())));
+    }
+
+    @Test
+    public void testTopologyIsRecomputedAfterStreamsAreReplaced() {
+
+        ecosystem.addPool(first);
+        ecosystem.addPool(second);
+        ecosystem.addPool(third);
+        assertThat(ecosystem.getTopology().getOrder(), is(new int[] {0, 1, 2}));
+
+        ecosystem.resetStreams();
+        ecosystem.addStream(new Stream(third, second));
+        ecosystem.addStream(new Stream(second, first));
+
+        assertThat(ecosystem.getTopology().getOrder(), is(new int[] {2, 1, 0}));
+    }
+
+    @Test
+    public void testLongChainDoesNotOverflowTheStack() {
+
+        for (int i = 0; i < 100000; i++) {
+            ecosystem.addPool(new Pool());
+        }
+
+        assertThat(ecosystem.getTopology().get(99999), is(99999));
+    }
+
+    @Test
+    public void testOverflowMovesSeveralStreamsInOneWeek() {
+
+        ecosystem.addPool(third, false);
+        ecosystem.addPool(second, false);
+        ecosystem.addPool(first, false);
+        ecosystem.addStream(new Stream(first, second));
+        ecosystem.addStream(new Stream(second, third));
+        for (int i = 0; i < 10; i++) {
+            first.addCreature(new Guppy(10, 1.0, true, 0));
+        }
+
+        long died = ecosystem.adjustForCrowdingCount();
+
+        assertThat(died, is(0L));
+        assertThat(first.getPopulation(), is(0));
+        assertThat(second.getPopulation(), is(0));
+        assertThat(third.getPopulation(), is(10));
+    }
+
+    @Test
+    public void testOverflowCarriedAroundACycleWaitsAWeek() {
+
+        ecosystem.addPool(first, false);
+        ecosystem.addPool(second, false);
+        ecosystem.addStream(new Stream(first, second));
+        ecosystem.addStream(new Stream(second, first));
+        for (int i = 0; i < 10; i++) {
+            first.addCreature(new Guppy(10, 1.0, true, 0));
+        }
+
+        ecosystem.adjustForCrowding();
+
+        assertThat(first.getPopulation(), is(10));
+        assertThat(second.getPopulation(), is(0));
+    }
+
+    @Test
+    public void testOverflowWithinAPartitionMovesSeveralStreams() {
+
+        createChainOfOverflow();
+
+        ecosystem.adjustForCrowding(new RandomStreams(3), 1, new Partitioning(new int[3]), null);
+
+        assertThat(second.getPopulation(), is(0));
+        assertThat(third.getPopulation(), is(10));
+    }
+
+    @Test
+    public void testOverflowBetweenPartitionsArrivesAtTheEndOfTheWeek() {
+
+        createChainOfOverflow();
+
+        ecosystem.adjustForCrowding(new RandomStreams(3), 1, new Partitioning(new int[] {0, 1, 1}),
+                                    null);
+
+        assertThat(first.getPopulation(), is(0));
+        assertThat(second.getPopulation(), is(10));
+        assertThat(third.getPopulation(), is(0));
+    }
+
+    @Test
+    public void testBalancedPartitionsFollowTheOrder() {
+
+        ecosystem.addPool(third, false);
+        ecosystem.addPool(second, false);
+        ecosystem.addPool(first, false);
+        ecosystem.addPool(new Pool(), false);
+        ecosystem.addStream(new Stream(first, second));
+        ecosystem.addStream(new Stream(second, third));
+        Partitioning partitioning = Partitioning.balanced(ecosystem.getTopology(), 2);
+
+        assertThat(partitioning.getPartitionCount(), is(2));
+        assertThat(partitioning.getOwner(3), is(0));
+        assertThat(partitioning.getOwner(2), is(0));
+        assertThat(partitioning.getOwner(1), is(1));
+        assertThat(partitioning.getOwner(0), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPartitioningOfOtherPoolsIsRejected() {
+
+        ecosystem.addPool(first);
+
+        ecosystem.adjustForCrowding(new RandomStreams(3), 1, new Partitioning(new int[2]), null);
+    }
+
+    private void createChainOfOverflow() {
+
+        ecosystem.addPool(first);
+        ecosystem.addPool(second);
+        ecosystem.addPool(third);
+        for (int i = 0; i < 10; i++) {
+            first.addCreature(new Guppy(10, 1.0, true, 0));
+        }
+    }
+}
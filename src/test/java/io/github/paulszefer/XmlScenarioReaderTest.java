@@ -0,0 +1,151 @@
+package io.github.paulszefer;
+
+import io.github.paulszefer.sim.CohortCreatureStorage;
+import io.github.paulszefer.sim.Ecosystem;
+import io.github.paulszefer.sim.Guppy;
+import io.github.paulszefer.sim.Pool;
+import io.github.paulszefer.sim.RandomStreams;
+import io.github.paulszefer.sim.Scenario;
+import io.github.paulszefer.sim.ScenarioFormatException;
+import io.github.paulszefer.sim.ScenarioReader;
+import io.github.paulszefer.sim.XmlScenarioReader;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests the parsing of XML scenarios by the XmlScenarioReader class.
+ *
+ * @author Paul Szefer
+ * @version 1.0
+ */
+public class XmlScenarioReaderTest {
+
+    private static final String POOLS = "<pool name=\"Skookumchuk\" volume=\"1000.0\" "
+            + "temperature=\"42.0\" pH=\"7.9\" nutrientCoefficient=\"0.9\">\n"
+            + "  <population count=\"100\" minAge=\"10\" maxAge=\"25\" femaleChance=\"0.5\"\n"
+            + "              minHealth=\"0.5\" maxHealth=\"0.8\"/>\n"
+            + "</pool>\n"
+            + "<pool name=\"Rutherford\" volume=\"5000.0\">\n"
+            + "  <creature age=\"12\" health=\"0.7\" female=\"true\" generation=\"3\"/>\n"
+            + "</pool>\n"
+            + "<pool name=\"Gamelin\" volume=\"4300.0\" storage=\"cohort\">\n"
+            + "  <cohort count=\"5000000\" age=\"3\" health=\"0.9\"/>\n"
+            + "</pool>\n";
+
+    private static Scenario read(String xml) throws IOException {
+
+        return XmlScenarioReader.read(new ByteArrayInputStream(xml.getBytes(
+                StandardCharsets.UTF_8)), new RandomStreams(1));
+    }
+
+    private static ScenarioFormatException error(String xml) throws IOException {
+
+        try {
+            read(xml);
+        } catch (ScenarioFormatException e) {
+            return e;
+        }
+        throw new AssertionError("No exception thrown");
+    }
+
+    @Test
+    public void testReadPools() throws Exception {
+
+        Scenario scenario = read("<scenario name=\"EcoSim\">\n" + POOLS + "</scenario>");
+        Ecosystem ecosystem = scenario.getEcosystem();
+
+        assertThat(scenario.getName(), is("EcoSim"));
+        assertThat(ecosystem.getPools().size(), is(3));
+        assertThat(ecosystem.getPools().get(0).getpH(), is(7.9));
+        assertThat(ecosystem.getPools().get(0).getPopulation(), is(100));
+
+        Guppy guppy = (Guppy) ecosystem.getPools().get(1).getCreatures().get(0);
+        assertThat(guppy.getHealth().getAge(), is(12));
+        assertThat(guppy.isFemale(), is(true));
+        assertThat(guppy.getIdentification().getGeneration(), is(3));
+
+        Pool third = ecosystem.getPools().get(2);
+        assertThat(third.getStorage(), is(instanceOf(CohortCreatureStorage.class)));
+        assertThat(third.getPopulationCount(), is(5000000L));
+        assertThat(ecosystem.getStreams().size(), is(2));
+    }
+
+    @Test
+    public void testSamePopulationsAsTextFormat() throws Exception {
+
+        Pool fromXml = read("<scenario name=\"EcoSim\">\n" + POOLS + "</scenario>")
+                .getEcosystem().getPools().get(0);
+        String text = "EcoSim\nSkookumchuk\n1000.0\n42.0\n7.9\n0.9\n100\nPoecilia\n"
+                + "reticulata\n10\n25\n0.5\n0.5\n0.8\n";
+        Pool fromText = ScenarioReader.read(new ByteArrayInputStream(text.getBytes(
+                StandardCharsets.UTF_8)), new RandomStreams(1)).getEcosystem().getPools().get(0);
+
+        assertThat(fromXml.getAverageAgeInWeeks(), is(fromText.getAverageAgeInWeeks()));
+        assertThat(fromXml.getAverageHealthCoefficient(),
+                   is(fromText.getAverageHealthCoefficient()));
+    }
+
+    @Test
+    public void testExplicitStreams() throws Exception {
+
+        Ecosystem ecosystem = read("<scenario name=\"EcoSim\">\n" + POOLS
+                + "<stream from=\"Gamelin\" to=\"Skookumchuk\" name=\"Loop\" pH=\"7.0\"/>\n"
+                + "</scenario>").getEcosystem();
+
+        assertThat(ecosystem.getStreams().size(), is(1));
+        assertThat(ecosystem.getStreams().get(0).getName(), is("Loop"));
+        assertThat(ecosystem.getStreams().get(0).getpH(), is(7.0));
+        assertThat(ecosystem.getStreams().get(0).getSource(),
+                   is(sameInstance(ecosystem.getPools().get(2))));
+        assertThat(ecosystem.getStreams().get(0).getDestination(),
+                   is(sameInstance(ecosystem.getPools().get(0))));
+    }
+
+    @Test
+    public void testInvalidAttributeReportsLine() throws Exception {
+
+        ScenarioFormatException e = error("<scenario name=\"EcoSim\">\n" + POOLS.replace(
+                "age=\"12\"", "age=\"old\"") + "</scenario>");
+
+        assertThat(e.getLineNumber(), is(7));
+        assertThat(e.getMessage(), containsString("'old'"));
+    }
+
+    @Test
+    public void testStreamToUnknownPoolIsReported() throws Exception {
+
+        ScenarioFormatException e = error("<scenario>\n" + POOLS
+                + "<stream from=\"Gamelin\" to=\"Nowhere\"/>\n</scenario>");
+
+        assertThat(e.getLineNumber(), is(12));
+        assertThat(e.getMessage(), containsString("Nowhere"));
+    }
+
+    @Test
+    public void testMalformedDocumentIsReported() throws Exception {
+
+        assertThat(error("<scenario>\n<pool name=\"A\">\n</scenario>").getLineNumber(), is(3));
+    }
+
+    @Test(expected = ScenarioFormatException.class)
+    public void testUnexpectedElement() throws Exception {
+
+        read("<scenario><pond name=\"A\"/></scenario>");
+    }
+
+    @Test(expected = ScenarioFormatException.class)
+    public void testDocumentTypeDeclarationIsRejected() throws Exception {
+
+        read("<?xml version=\"1.0\"?>\n<!DOCTYPE scenario [<!ENTITY name \"EcoSim\">]>\n"
+                     + "<scenario name=\"&name;\"></scenario>");
+    }
+}